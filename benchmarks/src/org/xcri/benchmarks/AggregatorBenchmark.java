@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xcri.aggregate.Aggregation;
+import org.xcri.aggregate.CatalogAggregator;
+import org.xcri.aggregate.Feed;
+
+/**
+ * Aggregating a number of copies of the feed, each from a different
+ * provider, with different numbers of threads
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class AggregatorBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Feeds {
+		@Param({"8"})
+		public int feeds;
+
+		@Param({"1", "4"})
+		public int threads;
+
+		public List<Feed> list = new ArrayList<Feed>();
+
+		@Setup
+		public void copy(FeedState feed) throws UnsupportedEncodingException{
+			String content = new String(feed.bytes, "UTF-8");
+			for (int i = 0; i < feeds; i++){
+				list.add(Feed.of("feed " + i, content.replace("provider0", "provider" + i).getBytes("UTF-8")));
+			}
+		}
+	}
+
+	@Benchmark
+	public Aggregation aggregate(Feeds feeds){
+		return new CatalogAggregator(feeds.threads).aggregate(feeds.list);
+	}
+
+}
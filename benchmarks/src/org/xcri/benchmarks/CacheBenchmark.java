@@ -0,0 +1,82 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xcri.StreamingCatalogParser;
+import org.xcri.cache.CatalogCache;
+import org.xcri.core.Catalog;
+import org.xcri.exceptions.InvalidElementException;
+
+/**
+ * Reading a feed through a CatalogCache that already holds it, and one
+ * too small to hold it, compared with parsing it
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class CacheBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Caches {
+		public CatalogCache full;
+		public CatalogCache empty;
+
+		@Setup
+		public void fill(FeedState feed) throws IOException, XMLStreamException, InvalidElementException{
+			full = new CatalogCache(Long.MAX_VALUE);
+			full.parse(feed.bytes);
+			empty = new CatalogCache(0);
+		}
+	}
+
+	@Benchmark
+	public Catalog parse(FeedState feed) throws XMLStreamException, InvalidElementException{
+		return new StreamingCatalogParser().parse(new ByteArrayInputStream(feed.bytes));
+	}
+
+	@Benchmark
+	public Catalog hit(FeedState feed, Caches caches) throws IOException, XMLStreamException, InvalidElementException{
+		return caches.full.parse(new ByteArrayInputStream(feed.bytes));
+	}
+
+	@Benchmark
+	public Catalog miss(FeedState feed, Caches caches) throws IOException, XMLStreamException, InvalidElementException{
+		return caches.empty.parse(new ByteArrayInputStream(feed.bytes));
+	}
+
+}
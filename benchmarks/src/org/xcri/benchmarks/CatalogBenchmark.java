@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.XMLOutputter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xcri.ParserConfiguration;
+import org.xcri.core.Catalog;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.util.RawXMLStreamWriter;
+import org.xcri.validation.Validator;
+
+/**
+ * The ingest and output paths for a whole catalog
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class CatalogBenchmark {
+
+	/**
+	 * A fresh copy of the feed for each call, as fromXml() modifies the
+	 * elements it reads
+	 */
+	@State(Scope.Thread)
+	public static class DocumentCopy {
+		public Document document;
+
+		@Setup(Level.Invocation)
+		public void copy(FeedState feed){
+			document = (Document)feed.document.clone();
+		}
+	}
+
+	/**
+	 * A catalog that has already been parsed
+	 */
+	@State(Scope.Benchmark)
+	public static class ParsedCatalog {
+		public Catalog catalog;
+
+		@Setup
+		public void parse(FeedState feed) throws InvalidElementException{
+			catalog = new Catalog();
+			catalog.fromXml((Document)feed.document.clone());
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Trusted {
+		public ParserConfiguration configuration = new ParserConfiguration();
+
+		@Setup
+		public void setup(){
+			configuration.setValidator(null);
+		}
+	}
+
+	@Benchmark
+	public Catalog fromXml(DocumentCopy copy) throws InvalidElementException{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(copy.document);
+		return catalog;
+	}
+
+	/**
+	 * Reading a trusted feed, without running any validation rules
+	 */
+	@Benchmark
+	public Catalog fromXmlTrusted(DocumentCopy copy, Trusted trusted) throws InvalidElementException{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(copy.document, trusted.configuration);
+		return catalog;
+	}
+
+	/**
+	 * Validating a catalog that has already been parsed
+	 */
+	@Benchmark
+	public void validate(ParsedCatalog parsed){
+		new Validator().validate(parsed.catalog);
+	}
+
+	@Benchmark
+	public Catalog parse(FeedState feed) throws JDOMException, IOException, InvalidElementException{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new ByteArrayInputStream(feed.bytes)));
+		return catalog;
+	}
+
+	@Benchmark
+	public Element toXml(ParsedCatalog parsed){
+		return parsed.catalog.toXml();
+	}
+
+	@Benchmark
+	public void output(ParsedCatalog parsed) throws IOException{
+		new XMLOutputter().output(parsed.catalog.toXml(), new NullOutputStream());
+	}
+
+	@Benchmark
+	public void writeXml(ParsedCatalog parsed) throws XMLStreamException{
+		RawXMLStreamWriter writer = new RawXMLStreamWriter(new NullOutputStream());
+		parsed.catalog.writeXml(writer);
+		writer.flush();
+	}
+
+	private static class NullOutputStream extends OutputStream{
+		@Override
+		public void write(int b) {
+		}
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+
+}
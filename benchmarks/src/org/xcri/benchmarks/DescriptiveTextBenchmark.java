@@ -0,0 +1,216 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.htmlcleaner.HtmlCleaner;
+import org.htmlcleaner.PrettyXmlSerializer;
+import org.htmlcleaner.TagNode;
+import org.jdom.Attribute;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
+import org.xcri.common.Description;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.util.ContentSecurityFilter;
+import org.xcri.util.FeedGenerator;
+import org.xcri.util.lax.Lax;
+
+/**
+ * Converting the XHTML descriptions of every course in the feed, and
+ * the same number of descriptions written as HTML in CDATA sections
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class DescriptiveTextBenchmark {
+
+	private static final Log log = LogFactory.getLog(DescriptiveTextBenchmark.class);
+
+	/**
+	 * Fresh copies of the description elements for each call, as
+	 * fromXml() detaches the XHTML from them
+	 */
+	@State(Scope.Thread)
+	public static class Descriptions {
+		public List<Element> elements = new ArrayList<Element>();
+
+		@Setup(Level.Invocation)
+		public void copy(FeedState feed){
+			elements.clear();
+			Element provider = Lax.getChildQuietly(feed.document.getRootElement(), "provider", Namespaces.XCRI_NAMESPACE_NS, log);
+			for (Element course : Lax.getChildrenQuietly(provider, "course", Namespaces.XCRI_NAMESPACE_NS, log)){
+				Element description = Lax.getChildQuietly(course, "description", Namespaces.DC_NAMESPACE_NS, log);
+				if (description != null) elements.add((Element)description.clone());
+			}
+		}
+	}
+
+	/**
+	 * Fresh copies of descriptions containing HTML in CDATA sections, like
+	 * those in cdata_test.xml
+	 */
+	@State(Scope.Thread)
+	public static class CdataDescriptions {
+		public Document document;
+		public List<Element> elements = new ArrayList<Element>();
+
+		@Setup(Level.Trial)
+		public void generate(FeedState feed) throws IOException, XMLStreamException, JDOMException{
+			FeedGenerator generator = new FeedGenerator();
+			generator.setSeed(1);
+			generator.setCoursesPerProvider(feed.courses);
+			generator.setCdataDescriptions(1.0);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			generator.generate(out);
+			document = new SAXBuilder().build(new ByteArrayInputStream(out.toByteArray()));
+		}
+
+		@Setup(Level.Invocation)
+		public void copy(){
+			elements.clear();
+			Element provider = Lax.getChildQuietly(document.getRootElement(), "provider", Namespaces.XCRI_NAMESPACE_NS, log);
+			for (Element course : Lax.getChildrenQuietly(provider, "course", Namespaces.XCRI_NAMESPACE_NS, log)){
+				Element description = Lax.getChildQuietly(course, "description", Namespaces.DC_NAMESPACE_NS, log);
+				if (description != null) elements.add((Element)description.clone());
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class Converting {
+		public ParserConfiguration configuration = new ParserConfiguration();
+
+		@Setup
+		public void setup(){
+			configuration.setConvertCDATA(true);
+		}
+	}
+
+	@Benchmark
+	public void xhtml(Descriptions descriptions, Blackhole blackhole) throws InvalidElementException{
+		for (Element element : descriptions.elements){
+			Description description = new Description();
+			description.fromXml(element);
+			blackhole.consume(description);
+		}
+	}
+
+	/**
+	 * Finding dangerous elements and attributes in a single pass
+	 */
+	@Benchmark
+	public void scan(Descriptions descriptions, Blackhole blackhole){
+		ContentSecurityFilter filter = new ContentSecurityFilter();
+		ArrayList<Element> elements = new ArrayList<Element>();
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		for (Element element : descriptions.elements){
+			filter.scan(element, elements, attributes);
+		}
+		blackhole.consume(elements);
+		blackhole.consume(attributes);
+	}
+
+	/**
+	 * Finding dangerous elements only, using a JDOM descendant iterator
+	 */
+	@Benchmark
+	public void scanDescendants(Descriptions descriptions, Blackhole blackhole){
+		ContentSecurityFilter filter = new ContentSecurityFilter();
+		for (Element element : descriptions.elements){
+			Iterator<?> i = element.getDescendants(filter);
+			while (i.hasNext()) blackhole.consume(i.next());
+		}
+	}
+
+	/**
+	 * CDATA kept as text, the default
+	 */
+	@Benchmark
+	public void cdata(CdataDescriptions descriptions, Blackhole blackhole) throws InvalidElementException{
+		for (Element element : descriptions.elements){
+			Description description = new Description();
+			description.fromXml(element);
+			blackhole.consume(description);
+		}
+	}
+
+	/**
+	 * CDATA converted to XHTML by XhtmlConverter
+	 */
+	@Benchmark
+	public void cdataToXhtml(CdataDescriptions descriptions, Converting converting, Blackhole blackhole) throws InvalidElementException{
+		ParserConfiguration previous = ParserConfiguration.bind(converting.configuration);
+		try {
+			for (Element element : descriptions.elements){
+				Description description = new Description();
+				description.fromXml(element);
+				blackhole.consume(description);
+			}
+		} finally {
+			ParserConfiguration.bind(previous);
+		}
+	}
+
+	/**
+	 * The conversion as it was originally written: a new cleaner for each
+	 * description, serialised as XML and parsed again
+	 */
+	@Benchmark
+	public void cdataReparse(CdataDescriptions descriptions, Blackhole blackhole) throws IOException, JDOMException{
+		for (Element element : descriptions.elements){
+			HtmlCleaner cleaner = new HtmlCleaner();
+			TagNode node = cleaner.clean(element.getText());
+			String xml = new PrettyXmlSerializer(cleaner.getProperties()).getAsString(node);
+			Document document = new SAXBuilder().build(new StringReader(xml));
+			blackhole.consume(document.getRootElement().getChild("body"));
+		}
+	}
+
+}
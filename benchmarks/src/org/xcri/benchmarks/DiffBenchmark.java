@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jdom.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.diff.CatalogDelta;
+import org.xcri.diff.CatalogDiff;
+import org.xcri.diff.CatalogUpdater;
+import org.xcri.diff.Fingerprint;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.util.RawXMLStreamWriter;
+
+/**
+ * Comparing two parsed versions of a feed with CatalogDiff, compared with
+ * writing out every course of both and comparing the XML; and applying the
+ * changes to the catalog in memory, compared with parsing the new version
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class DiffBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Versions {
+		public Catalog previous;
+		public Catalog current;
+		public Map<String, Fingerprint> fingerprints;
+
+		@Setup(Level.Trial)
+		public void parse(FeedState feed) throws InvalidElementException{
+			previous = new Catalog();
+			previous.fromXml((Document)feed.document.clone());
+			current = new Catalog();
+			current.fromXml((Document)feed.document.clone());
+			Course[] courses = current.getProviders()[0].getCourses();
+			courses[courses.length / 2].getTitles()[0].setValue("Changed");
+			fingerprints = new CatalogDiff().fingerprint(previous);
+		}
+	}
+
+	/**
+	 * A fresh copy of the previous version for each call, as apply() modifies it
+	 */
+	@State(Scope.Thread)
+	public static class Resident {
+		public Catalog catalog;
+
+		@Setup(Level.Invocation)
+		public void parse(FeedState feed) throws InvalidElementException{
+			catalog = new Catalog();
+			catalog.fromXml((Document)feed.document.clone());
+		}
+	}
+
+	@Benchmark
+	public Map<String, Fingerprint> fingerprint(Versions versions){
+		return new CatalogDiff().fingerprint(versions.current);
+	}
+
+	@Benchmark
+	public CatalogDelta diff(Versions versions){
+		return new CatalogDiff().diff(versions.previous, versions.current);
+	}
+
+	@Benchmark
+	public CatalogDelta diffFingerprints(Versions versions){
+		return new CatalogDiff().diff(versions.fingerprints, versions.current);
+	}
+
+	@Benchmark
+	public int diffXml(Versions versions) throws XMLStreamException{
+		HashMap<String, String> previous = new HashMap<String, String>();
+		for (Course course : versions.previous.getProviders()[0].getCourses()){
+			previous.put(course.getIdentifiers()[0].getValue(), xml(course));
+		}
+		int changed = 0;
+		for (Course course : versions.current.getProviders()[0].getCourses()){
+			if (!xml(course).equals(previous.get(course.getIdentifiers()[0].getValue()))) changed++;
+		}
+		return changed;
+	}
+
+	private static String xml(Course course) throws XMLStreamException{
+		StringWriter out = new StringWriter();
+		RawXMLStreamWriter writer = new RawXMLStreamWriter(out);
+		course.writeXml(writer);
+		writer.flush();
+		return out.toString();
+	}
+
+	@Benchmark
+	public Catalog apply(Versions versions, Resident resident){
+		CatalogDelta delta = new CatalogDiff().diff(versions.fingerprints, versions.current);
+		new CatalogUpdater().apply(resident.catalog, delta);
+		return resident.catalog;
+	}
+
+	@Benchmark
+	public Catalog reparse(CatalogBenchmark.DocumentCopy copy) throws InvalidElementException{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(copy.document);
+		return catalog;
+	}
+
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jdom.Document;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.xcri.util.FeedGenerator;
+
+/**
+ * A generated feed, shared by all threads of a benchmark. Every course
+ * has an XHTML description and a single presentation that inherits it.
+ * With broken=true a tenth of the elements have the wrong case and a
+ * tenth are in the wrong namespace.
+ */
+@State(Scope.Benchmark)
+public class FeedState {
+
+	@Param({"1", "1000", "100000"})
+	public int courses;
+
+	@Param({"false"})
+	public boolean broken;
+
+	public Document document;
+	public byte[] bytes;
+
+	@Setup
+	public void createFeed() throws IOException, XMLStreamException, JDOMException{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(1);
+		generator.setCoursesPerProvider(courses);
+		generator.setXhtmlDescriptions(1.0);
+		if (broken){
+			generator.setMisspelledElements(0.1);
+			generator.setWrongNamespaceElements(0.1);
+		}
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.generate(out);
+		bytes = out.toByteArray();
+		document = new SAXBuilder().build(new ByteArrayInputStream(bytes));
+	}
+
+}
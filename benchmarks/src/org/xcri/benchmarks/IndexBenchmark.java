@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jdom.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xcri.common.Identifier;
+import org.xcri.common.Description;
+import org.xcri.common.Subject;
+import org.xcri.common.Title;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.index.CatalogIndex;
+import org.xcri.index.SearchResult;
+import org.xcri.index.TextIndex;
+import org.xcri.util.W3CDateTime;
+
+/**
+ * Queries on a parsed catalog using a CatalogIndex or TextIndex, compared
+ * with walking the providers, courses and presentations each time
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class IndexBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Indexed {
+		public Catalog catalog;
+		public CatalogIndex index;
+		public TextIndex textIndex;
+		public String identifier;
+		public long from = W3CDateTime.parse("2012-03-01").getTime();
+		public long to = W3CDateTime.parse("2012-06-01").getTime();
+
+		@Setup(Level.Trial)
+		public void parse(FeedState feed) throws InvalidElementException{
+			catalog = new Catalog();
+			catalog.fromXml((Document)feed.document.clone());
+			index = new CatalogIndex(catalog);
+			textIndex = new TextIndex();
+			textIndex.add(catalog);
+			Course[] courses = catalog.getProviders()[0].getCourses();
+			identifier = courses[courses.length / 2].getIdentifiers()[0].getValue();
+		}
+	}
+
+	@Benchmark
+	public CatalogIndex build(Indexed indexed){
+		return new CatalogIndex(indexed.catalog);
+	}
+
+	@Benchmark
+	public Course courseByIdentifier(Indexed indexed){
+		return indexed.index.getCourse(indexed.identifier);
+	}
+
+	@Benchmark
+	public Course courseByIdentifierScan(Indexed indexed){
+		for (Provider provider : indexed.catalog.getProviders()){
+			for (Course course : provider.getCourses()){
+				for (Identifier identifier : course.getIdentifiers()){
+					if (identifier.getValue().equals(indexed.identifier)) return course;
+				}
+			}
+		}
+		return null;
+	}
+
+	@Benchmark
+	public List<Course> coursesWithSubject(Indexed indexed){
+		return indexed.index.getCoursesWithSubject("History");
+	}
+
+	@Benchmark
+	public List<Course> coursesWithSubjectScan(Indexed indexed){
+		List<Course> courses = new ArrayList<Course>();
+		for (Provider provider : indexed.catalog.getProviders()){
+			for (Course course : provider.getCourses()){
+				for (Subject subject : course.getResolvedSubjects()){
+					if (subject.getValue().equals("History")){
+						courses.add(course);
+						break;
+					}
+				}
+			}
+		}
+		return courses;
+	}
+
+	@Benchmark
+	public List<Presentation> presentationsByStudyMode(Indexed indexed){
+		return indexed.index.getPresentationsByStudyMode("FT");
+	}
+
+	@Benchmark
+	public List<Presentation> presentationsByStudyModeScan(Indexed indexed){
+		List<Presentation> presentations = new ArrayList<Presentation>();
+		for (Provider provider : indexed.catalog.getProviders()){
+			for (Course course : provider.getCourses()){
+				for (Presentation presentation : course.getPresentations()){
+					if (presentation.getStudyMode() != null && "FT".equals(presentation.getStudyMode().getIdentifier())){
+						presentations.add(presentation);
+					}
+				}
+			}
+		}
+		return presentations;
+	}
+
+	@Benchmark
+	public List<Presentation> presentationsStartingBetween(Indexed indexed){
+		return indexed.index.getPresentationsStartingBetween(indexed.from, indexed.to);
+	}
+
+	@Benchmark
+	public List<Presentation> presentationsStartingBetweenScan(Indexed indexed){
+		List<Presentation> presentations = new ArrayList<Presentation>();
+		for (Provider provider : indexed.catalog.getProviders()){
+			for (Course course : provider.getCourses()){
+				for (Presentation presentation : course.getPresentations()){
+					if (presentation.getStart() != null && !presentation.getStart().isBefore(indexed.from) && presentation.getStart().isBefore(indexed.to)){
+						presentations.add(presentation);
+					}
+				}
+			}
+		}
+		return presentations;
+	}
+
+	@Benchmark
+	public TextIndex buildTextIndex(Indexed indexed){
+		TextIndex index = new TextIndex();
+		index.add(indexed.catalog);
+		return index;
+	}
+
+	@Benchmark
+	public List<SearchResult> search(Indexed indexed){
+		return indexed.textIndex.search("applied history", 10);
+	}
+
+	@Benchmark
+	public List<SearchResult> searchPhrase(Indexed indexed){
+		return indexed.textIndex.search("\"applied history\"", 10);
+	}
+
+	/**
+	 * Case-insensitive substring matching on the title and description text
+	 */
+	@Benchmark
+	public List<Course> searchScan(Indexed indexed){
+		List<Course> courses = new ArrayList<Course>();
+		for (Provider provider : indexed.catalog.getProviders()){
+			for (Course course : provider.getCourses()){
+				StringBuilder text = new StringBuilder();
+				for (Title title : course.getTitles()) text.append(title.getValue()).append(' ');
+				for (Description description : course.getResolvedDescriptions()) text.append(description.getValue()).append(' ');
+				String lower = text.toString().toLowerCase();
+				if (lower.contains("applied") && lower.contains("history")) courses.add(course);
+			}
+		}
+		return courses;
+	}
+
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.jdom.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.exceptions.InvalidElementException;
+
+/**
+ * Presentations inheriting their descriptions from their course
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class InheritanceBenchmark {
+
+	@State(Scope.Thread)
+	public static class Presentations {
+		public List<Presentation> presentations = new ArrayList<Presentation>();
+
+		@Setup(Level.Trial)
+		public void parse(FeedState feed) throws InvalidElementException{
+			Catalog catalog = new Catalog();
+			catalog.fromXml((Document)feed.document.clone());
+			for (Course course : catalog.getProviders()[0].getCourses()){
+				for (Presentation presentation : course.getPresentations()){
+					presentations.add(presentation);
+				}
+			}
+		}
+	}
+
+	@State(Scope.Thread)
+	public static class ResetPresentations extends Presentations {
+		/**
+		 * getDescriptions() keeps what it inherits, so forget it again before each call
+		 */
+		@Setup(Level.Invocation)
+		public void reset(){
+			for (Presentation presentation : presentations){
+				presentation.setDescriptions(null);
+			}
+		}
+	}
+
+	@Benchmark
+	public void getDescriptions(ResetPresentations presentations, Blackhole blackhole){
+		for (Presentation presentation : presentations.presentations){
+			blackhole.consume(presentation.getDescriptions());
+		}
+	}
+
+	/**
+	 * The resolved view is memoised, so nothing needs resetting between calls
+	 */
+	@Benchmark
+	public void getResolvedDescriptions(Presentations presentations, Blackhole blackhole){
+		for (Presentation presentation : presentations.presentations){
+			blackhole.consume(presentation.getResolvedDescriptions());
+		}
+	}
+
+}
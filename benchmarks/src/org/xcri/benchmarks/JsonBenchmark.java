@@ -0,0 +1,78 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jdom.output.XMLOutputter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xcri.core.CatalogStreamReader;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.json.CatalogJsonWriter;
+
+/**
+ * Writing a parsed catalog as JSON, compared with building and writing
+ * its XML; and converting a feed to JSON a course at a time
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class JsonBenchmark {
+
+	@Benchmark
+	public void toXml(CatalogBenchmark.ParsedCatalog parsed) throws IOException{
+		new XMLOutputter().output(parsed.catalog.toXml(), new NullOutputStream());
+	}
+
+	@Benchmark
+	public void writeJson(CatalogBenchmark.ParsedCatalog parsed) throws IOException{
+		new CatalogJsonWriter(new NullOutputStream()).write(parsed.catalog);
+	}
+
+	@Benchmark
+	public void streamJson(FeedState feed) throws IOException, XMLStreamException, InvalidElementException{
+		CatalogStreamReader reader = new CatalogStreamReader(new ByteArrayInputStream(feed.bytes));
+		new CatalogJsonWriter(new NullOutputStream()).write(reader);
+		reader.close();
+	}
+
+	private static class NullOutputStream extends OutputStream{
+		@Override
+		public void write(int b) {
+		}
+		@Override
+		public void write(byte[] b, int off, int len) {
+		}
+	}
+
+}
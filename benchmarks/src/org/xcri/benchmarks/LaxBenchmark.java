@@ -0,0 +1,90 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jdom.Element;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xcri.Namespaces;
+import org.xcri.util.lax.ChildIndex;
+import org.xcri.util.lax.Lax;
+
+/**
+ * Child element lookup, first for the courses of a provider, and then
+ * for every child name CommonType.fromXml() asks for, on each course.
+ * Lax corrects misplaced elements the first time they are found, so
+ * after the first call these measure the lookup alone.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class LaxBenchmark {
+
+	private static final Log log = LogFactory.getLog(LaxBenchmark.class);
+
+	private static final String[] COMMON_NAMES = {"date", "hasPart", "isPartOf", "contributor", "description", "identifier", "subject", "title", "type"};
+
+	private static Element provider(FeedState feed){
+		return Lax.getChildQuietly(feed.document.getRootElement(), "provider", Namespaces.XCRI_NAMESPACE_NS, log);
+	}
+
+	@Benchmark
+	public List<Element> laxCourses(FeedState feed){
+		return Lax.getChildrenQuietly(provider(feed), "course", Namespaces.XCRI_NAMESPACE_NS, log);
+	}
+
+	@Benchmark
+	public List<Element> childIndexCourses(FeedState feed){
+		return new ChildIndex(provider(feed)).getChildrenQuietly("course", Namespaces.XCRI_NAMESPACE_NS, log);
+	}
+
+	@Benchmark
+	public void laxCommonType(FeedState feed, Blackhole blackhole){
+		for (Element course : Lax.getChildrenQuietly(provider(feed), "course", Namespaces.XCRI_NAMESPACE_NS, log)){
+			for (String name : COMMON_NAMES){
+				blackhole.consume(Lax.getChildrenQuietly(course, name, Namespaces.DC_NAMESPACE_NS, log));
+			}
+		}
+	}
+
+	@Benchmark
+	public void childIndexCommonType(FeedState feed, Blackhole blackhole){
+		for (Element course : Lax.getChildrenQuietly(provider(feed), "course", Namespaces.XCRI_NAMESPACE_NS, log)){
+			ChildIndex children = new ChildIndex(course);
+			for (String name : COMMON_NAMES){
+				blackhole.consume(children.getChildrenQuietly(name, Namespaces.DC_NAMESPACE_NS, log));
+			}
+		}
+	}
+
+}
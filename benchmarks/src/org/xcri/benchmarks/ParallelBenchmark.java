@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.jdom.Document;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xcri.ParserConfiguration;
+import org.xcri.core.Catalog;
+import org.xcri.exceptions.InvalidElementException;
+
+/**
+ * Converting the courses of a catalog in parallel. threads=0 is the
+ * sequential parser, for comparison; the speedup is bounded by the
+ * number of cores available.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class ParallelBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Executor {
+		@Param({"0", "1", "4", "16"})
+		public int threads;
+
+		public ExecutorService executor;
+		public ParserConfiguration configuration = new ParserConfiguration();
+
+		@Setup
+		public void start(){
+			if (threads > 0){
+				executor = Executors.newFixedThreadPool(threads);
+				configuration.setExecutor(executor);
+			}
+		}
+
+		@TearDown
+		public void stop(){
+			if (executor != null) executor.shutdown();
+		}
+	}
+
+	@Benchmark
+	public Catalog fromXml(CatalogBenchmark.DocumentCopy copy, Executor executor) throws InvalidElementException{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(copy.document, executor.configuration);
+		return catalog;
+	}
+
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.jdom.Document;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xcri.core.Catalog;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.snapshot.CatalogSnapshot;
+
+/**
+ * Loading a catalog from a snapshot, from memory and from a mapped file,
+ * compared with parsing the feed; and writing the snapshot
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class SnapshotBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class Snapshot {
+		public Catalog catalog;
+		public byte[] bytes;
+		public File file;
+
+		@Setup
+		public void write(FeedState feed) throws InvalidElementException, IOException{
+			catalog = new Catalog();
+			catalog.fromXml((Document)feed.document.clone());
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			new CatalogSnapshot().write(catalog, out);
+			bytes = out.toByteArray();
+			file = File.createTempFile("catalog", ".snapshot");
+			new CatalogSnapshot().write(catalog, file);
+		}
+
+		@TearDown
+		public void delete(){
+			file.delete();
+		}
+	}
+
+	@Benchmark
+	public Catalog parse(FeedState feed) throws JDOMException, IOException, InvalidElementException{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new ByteArrayInputStream(feed.bytes)));
+		return catalog;
+	}
+
+	@Benchmark
+	public Catalog read(Snapshot snapshot) throws IOException{
+		return new CatalogSnapshot().read(ByteBuffer.wrap(snapshot.bytes));
+	}
+
+	@Benchmark
+	public Catalog readFile(Snapshot snapshot) throws IOException{
+		return new CatalogSnapshot().read(snapshot.file);
+	}
+
+	@Benchmark
+	public byte[] write(Snapshot snapshot) throws IOException{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CatalogSnapshot().write(snapshot.catalog, out);
+		return out.toByteArray();
+	}
+
+}
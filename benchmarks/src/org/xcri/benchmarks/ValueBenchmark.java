@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.xml.bind.DatatypeConverter;
+
+import org.jdom.Element;
+import org.joda.time.format.ISOPeriodFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xcri.Namespaces;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.presentation.Age;
+import org.xcri.presentation.Duration;
+import org.xcri.presentation.Start;
+import org.xcri.util.W3CDateTime;
+
+/**
+ * Reading the age, duration and start date of each presentation, with the
+ * few distinct values typical of a real feed, compared with parsing each
+ * value from scratch as they were originally; and filtering presentations
+ * by start date, compared with going through java.util.Date
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g", "-Dorg.apache.commons.logging.Log=org.apache.commons.logging.impl.NoOpLog"})
+public class ValueBenchmark {
+
+	private static final String[] AGES = {"any", "16+", "18+", "19-25", "not known"};
+	private static final String[] INTERVALS = {"P1Y", "P2Y", "P3Y", "P6M", "P10W"};
+
+	@State(Scope.Benchmark)
+	public static class Values {
+		@Param({"1000"})
+		public int presentations;
+
+		public List<Element> ages = new ArrayList<Element>();
+		public List<Element> durations = new ArrayList<Element>();
+		public List<Element> starts = new ArrayList<Element>();
+		public List<Start> parsedStarts = new ArrayList<Start>();
+		public long cutoff = W3CDateTime.parse("2013-06-01").getTime();
+
+		@Setup
+		public void generate() throws InvalidElementException{
+			Random random = new Random(1);
+			for (int i = 0; i < presentations; i++){
+				ages.add(new Element("age", Namespaces.XCRI_NAMESPACE_NS).setText(AGES[random.nextInt(AGES.length)]));
+				durations.add(new Element("duration", Namespaces.MLO_NAMESPACE_NS).setAttribute("interval", INTERVALS[random.nextInt(INTERVALS.length)]).setText("Some time"));
+				int month = 1 + random.nextInt(12);
+				String start = (2011 + random.nextInt(5)) + "-" + (month < 10 ? "0" : "") + month + "-01";
+				starts.add(new Element("start", Namespaces.MLO_NAMESPACE_NS).setAttribute("dtf", start).setText(start));
+				Start parsed = new Start();
+				parsed.fromXml(starts.get(i));
+				parsedStarts.add(parsed);
+			}
+		}
+	}
+
+	@Benchmark
+	public void age(Values values, Blackhole blackhole) throws InvalidElementException{
+		for (Element element : values.ages){
+			Age age = new Age();
+			age.fromXml(element);
+			blackhole.consume(age);
+		}
+	}
+
+	@Benchmark
+	public void ageUncached(Values values, Blackhole blackhole){
+		for (Element element : values.ages){
+			Matcher matcher = Pattern.compile("(any|not known|^\\d+-\\d+|^\\d+\\+)$").matcher(element.getText());
+			blackhole.consume(matcher.find());
+			matcher = Pattern.compile("(^\\d+)-(\\d+)$").matcher(element.getText());
+			if (matcher.find()) blackhole.consume(Integer.parseInt(matcher.group(1)) > Integer.parseInt(matcher.group(2)));
+		}
+	}
+
+	@Benchmark
+	public void duration(Values values, Blackhole blackhole) throws InvalidElementException{
+		for (Element element : values.durations){
+			Duration duration = new Duration();
+			duration.fromXml(element);
+			blackhole.consume(duration);
+		}
+	}
+
+	@Benchmark
+	public void durationUncached(Values values, Blackhole blackhole){
+		for (Element element : values.durations){
+			blackhole.consume(ISOPeriodFormat.standard().parsePeriod(element.getAttributeValue("interval")));
+		}
+	}
+
+	@Benchmark
+	public void start(Values values, Blackhole blackhole) throws InvalidElementException{
+		for (Element element : values.starts){
+			Start start = new Start();
+			start.fromXml(element);
+			blackhole.consume(start);
+		}
+	}
+
+	@Benchmark
+	public void startUncached(Values values, Blackhole blackhole){
+		for (Element element : values.starts){
+			blackhole.consume(DatatypeConverter.parseDateTime(element.getAttributeValue("dtf")).getTime());
+		}
+	}
+
+	@Benchmark
+	public int startsBefore(Values values){
+		int count = 0;
+		for (Start start : values.parsedStarts){
+			if (start.isBefore(values.cutoff)) count++;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public int startsBeforeDate(Values values){
+		Date cutoff = new Date(values.cutoff);
+		int count = 0;
+		for (Start start : values.parsedStarts){
+			if (start.getDtf() != null && start.getDtf().before(cutoff)) count++;
+		}
+		return count;
+	}
+
+	@Benchmark
+	public void startToXml(Values values, Blackhole blackhole){
+		for (Start start : values.parsedStarts){
+			blackhole.consume(start.toXml());
+		}
+	}
+
+}
@@ -0,0 +1,139 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jdom.Document;
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.util.FeedGenerator;
+import org.xcri.util.InternPool;
+
+public class ParserConfigurationTest {
+
+	private static byte[] feed() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setCoursesPerProvider(50);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.generate(out);
+		return out.toByteArray();
+	}
+
+	private static Document document(byte[] feed) throws Exception{
+		return new SAXBuilder().build(new ByteArrayInputStream(feed));
+	}
+
+	private static ParserConfiguration withPool(InternPool pool){
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setInternPool(pool);
+		return configuration;
+	}
+
+	@Test
+	public void defaultWhenUnbound(){
+		assertSame(ParserConfiguration.getDefault(), ParserConfiguration.getInstance());
+	}
+
+	@Test
+	public void bind(){
+		ParserConfiguration configuration = new ParserConfiguration();
+		assertNull(ParserConfiguration.bind(configuration));
+		try {
+			assertSame(configuration, ParserConfiguration.getInstance());
+		} finally {
+			assertSame(configuration, ParserConfiguration.bind(null));
+		}
+		assertSame(ParserConfiguration.getDefault(), ParserConfiguration.getInstance());
+	}
+
+	@Test
+	public void fromXmlWithConfiguration() throws Exception{
+		InternPool pool = new InternPool();
+		Catalog catalog = new Catalog();
+		catalog.fromXml(document(feed()), withPool(pool));
+		assertTrue(pool.getHits() > 0);
+		Course course = catalog.getProviders()[0].getCourses()[0];
+		String identifier = course.getPresentations()[0].getStudyMode().getIdentifier();
+		assertSame(identifier, pool.intern(new String(identifier)));
+		assertSame(ParserConfiguration.getDefault(), ParserConfiguration.getInstance());
+	}
+
+	@Test
+	public void streamingWithConfiguration() throws Exception{
+		InternPool pool = new InternPool();
+		new StreamingCatalogParser(withPool(pool)).parse(new ByteArrayInputStream(feed()));
+		assertTrue(pool.getHits() > 0);
+		assertSame(ParserConfiguration.getDefault(), ParserConfiguration.getInstance());
+	}
+
+	/**
+	 * Feeds parsed at the same time on different threads each use their own configuration
+	 */
+	@Test
+	public void concurrentParses() throws Exception{
+		final byte[] feed = feed();
+		final List<Throwable> errors = new ArrayList<Throwable>();
+		final InternPool[] pools = new InternPool[4];
+		final Catalog[] catalogs = new Catalog[pools.length];
+		Thread[] threads = new Thread[pools.length];
+		for (int i = 0; i < threads.length; i++){
+			final int index = i;
+			pools[i] = new InternPool();
+			threads[i] = new Thread(){
+				@Override
+				public void run(){
+					try {
+						Catalog catalog = new Catalog();
+						catalog.fromXml(document(feed), withPool(pools[index]));
+						catalogs[index] = catalog;
+					} catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		for (Thread thread : threads){
+			thread.join();
+		}
+		assertEquals(0, errors.size());
+		for (int i = 0; i < pools.length; i++){
+			assertEquals(pools[0].getHits(), pools[i].getHits());
+		}
+		for (int i = 0; i < pools.length; i++){
+			String identifier = catalogs[i].getProviders()[0].getCourses()[0].getPresentations()[0].getStudyMode().getIdentifier();
+			assertSame(identifier, pools[i].intern(new String(identifier)));
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.XMLOutputter;
+import org.junit.Test;
+import org.xcri.core.Catalog;
+import org.xcri.core.Provider;
+import org.xcri.exceptions.InvalidElementException;
+
+public class StreamingCatalogParserTest {
+
+	private Catalog parseWithJdom(String file) throws JDOMException, IOException, InvalidElementException{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new File(file)));
+		return catalog;
+	}
+
+	private Catalog parseWithStax(String file) throws IOException, XMLStreamException, InvalidElementException{
+		InputStream in = new FileInputStream(file);
+		try {
+			return new StreamingCatalogParser().parse(in);
+		} finally {
+			in.close();
+		}
+	}
+
+	private void assertSameAsJdom(String file) throws Exception{
+		Catalog expected = parseWithJdom(file);
+		Catalog actual = parseWithStax(file);
+		actual.setGenerated(expected.getGenerated());
+		XMLOutputter outputter = new XMLOutputter();
+		assertEquals(outputter.outputString(expected.toXml()), outputter.outputString(actual.toXml()));
+	}
+
+	@Test
+	public void sameAsJdom() throws Exception{
+		assertSameAsJdom("src-test/test.xml");
+		assertSameAsJdom("src-test/xhtml_test.xml");
+		assertSameAsJdom("src-test/cdata_test.xml");
+		assertSameAsJdom("src-test/cdata_plain_test.xml");
+		assertSameAsJdom("src-test/really_bad_xcri.xml");
+	}
+
+	@Test
+	public void parentsAreSet() throws Exception{
+		Catalog catalog = parseWithStax("src-test/test.xml");
+		Provider provider = catalog.getProviders()[0];
+		assertEquals(catalog, provider.getParent());
+		assertEquals(provider, provider.getCourses()[0].getParent());
+		assertEquals(provider.getCourses()[0], provider.getCourses()[0].getPresentations()[0].getParent());
+		assertEquals("HND Business Computing", provider.getCourses()[0].getPresentations()[0].getTitles()[0].getValue());
+	}
+
+	@Test
+	public void laxCourseElements() throws Exception{
+		Logger logger = Logger.getLogger(Provider.class.getName());
+		Formatter formatter = new SimpleFormatter();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		Handler handler = new StreamHandler(out, formatter);
+		logger.addHandler(handler);
+
+		try {
+			Catalog catalog = new StreamingCatalogParser().parse(new StringReader("<catalog><Provider><title>Provider</title><COURSE><title>Course 1</title></COURSE><course><title>Course 2</title></course><url>http://test.org/</url></Provider></catalog>"));
+			assertEquals(1, catalog.getProviders().length);
+			assertEquals("Provider", catalog.getProviders()[0].getTitles()[0].getValue());
+			assertEquals("http://test.org/", catalog.getProviders()[0].getUrls()[0].getValue());
+			assertEquals(2, catalog.getProviders()[0].getCourses().length);
+			assertEquals("Course 1", catalog.getProviders()[0].getCourses()[0].getTitles()[0].getValue());
+			assertEquals("Course 2", catalog.getProviders()[0].getCourses()[1].getTitles()[0].getValue());
+
+			handler.flush();
+			String logMsg = out.toString();
+			assertTrue(logMsg.contains("elements uses incorrect name:course"));
+		} finally {
+			logger.removeHandler(handler);
+		}
+	}
+
+	@Test(expected = InvalidElementException.class)
+	public void invalidGeneratedDate() throws Exception{
+		new StreamingCatalogParser().parse(new StringReader("<catalog generated='invalid'/>"));
+	}
+
+}
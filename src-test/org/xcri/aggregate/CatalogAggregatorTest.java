@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.aggregate;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeoutException;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.cache.CatalogCache;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Provider;
+import org.xcri.diff.CatalogDiff;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.util.FeedGenerator;
+
+public class CatalogAggregatorTest {
+
+	private static final String HEAD = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\" xmlns:mlo=\""+Namespaces.MLO_NAMESPACE+"\" generated=\"2012-01-01T00:00:00Z\">";
+	private static final String TAIL = "</catalog>";
+
+	private static String provider(String identifier, String... courses){
+		StringBuilder provider = new StringBuilder("<provider><dc:title>"+identifier+"</dc:title><dc:identifier>"+identifier+"</dc:identifier>");
+		for (String course : courses){
+			provider.append("<course><dc:identifier>"+course+"</dc:identifier><dc:title>"+course+"</dc:title></course>");
+		}
+		return provider.append("</provider>").toString();
+	}
+
+	private static Feed feed(String name, String content) throws Exception{
+		return Feed.of(name, content.getBytes("UTF-8"));
+	}
+
+	private static String[] identifiers(Provider provider){
+		String[] identifiers = new String[provider.getCourses().length];
+		for (int i = 0; i < identifiers.length; i++){
+			identifiers[i] = provider.getCourses()[i].getIdentifiers()[0].getValue();
+		}
+		return identifiers;
+	}
+
+	@Test
+	public void mergeProviders() throws Exception{
+		Feed a = feed("a", HEAD + provider("http://www.example.org/", "c1", "c2") + TAIL);
+		Feed b = feed("b", HEAD + provider("HTTP://WWW.EXAMPLE.ORG", "c2", "c3") + provider("http://www.example.com/", "c4") + TAIL);
+		Aggregation aggregation = new CatalogAggregator(2).aggregate(a, b);
+
+		Catalog catalog = aggregation.getCatalog();
+		assertEquals(2, catalog.getProviders().length);
+		Provider merged = catalog.getProviders()[0];
+		assertEquals("http://www.example.org/", merged.getIdentifiers()[0].getValue());
+		assertEquals(Arrays.asList("c1", "c2", "c3"), Arrays.asList(identifiers(merged)));
+		for (Course course : merged.getCourses()){
+			assertSame(merged, course.getParent());
+		}
+		assertSame(catalog, merged.getParent());
+
+		FeedReport first = aggregation.getReports().get(0);
+		FeedReport second = aggregation.getReports().get(1);
+		assertEquals(2, first.getCourses());
+		assertEquals(2, second.getCourses());
+		assertEquals(1, second.getDuplicateCourses());
+		assertEquals(2, second.getProviders());
+		assertEquals(1, second.getMergedProviders());
+		assertSame(first, aggregation.getSource(merged.getCourses()[1]));
+		assertSame(second, aggregation.getSource(merged.getCourses()[2]));
+		assertEquals(Arrays.asList(first, second), aggregation.getSources(merged));
+		assertEquals(Arrays.asList(second), aggregation.getSources(catalog.getProviders()[1]));
+	}
+
+	@Test
+	public void failuresDoNotStopOtherFeeds() throws Exception{
+		Feed good = feed("good", HEAD + provider("http://www.example.org/", "c1") + TAIL);
+		Feed invalidDate = feed("invalid date", HEAD.replace("2012-01-01T00:00:00Z", "invalid") + provider("http://www.example.com/", "c2") + TAIL);
+		Feed malformed = feed("malformed", HEAD + "<provider>");
+		Feed missing = Feed.of(new File("src-test/missing.xml"));
+		Aggregation aggregation = new CatalogAggregator(2).aggregate(invalidDate, good, malformed, missing);
+
+		assertEquals(1, aggregation.getCatalog().getProviders().length);
+		assertEquals(4, aggregation.getReports().size());
+		assertEquals(3, aggregation.getFailures().size());
+		assertTrue(aggregation.getReports().get(0).getFailure() instanceof InvalidElementException);
+		assertTrue(aggregation.getReports().get(1).isSuccessful());
+		assertEquals(1, aggregation.getReports().get(1).getCourses());
+		assertTrue(aggregation.getReports().get(2).getFailure() instanceof XMLStreamException);
+		assertTrue(aggregation.getReports().get(3).getFailure() instanceof FileNotFoundException);
+		assertNull(aggregation.getReports().get(3).getGenerated());
+	}
+
+	@Test
+	public void timeout() throws Exception{
+		Feed slow = new Feed("slow"){
+			@Override
+			public InputStream open() throws IOException {
+				try {
+					Thread.sleep(60000);
+				} catch (InterruptedException e) {
+					throw new IOException("interrupted");
+				}
+				return null;
+			}
+		};
+		CatalogAggregator aggregator = new CatalogAggregator(2);
+		aggregator.setTimeoutMillis(3000);
+		Aggregation aggregation = aggregator.aggregate(slow, feed("good", HEAD + provider("http://www.example.org/", "c1") + TAIL));
+		assertTrue(aggregation.getReports().get(0).getFailure() instanceof TimeoutException);
+		assertTrue(aggregation.getReports().get(1).isSuccessful());
+		assertTrue(aggregation.getElapsedMillis() < 30000);
+	}
+
+	@Test
+	public void inheritedValuesAreKept() throws Exception{
+		Feed a = feed("a", HEAD + provider("http://www.example.org/", "c1") + TAIL);
+		Feed b = feed("b", HEAD + "<dc:description>From catalog b</dc:description>"
+			+ provider("http://www.example.org/", "c2").replace("</dc:identifier>", "</dc:identifier><dc:subject>From provider b</dc:subject>")
+			+ provider("http://www.example.com/", "c3") + TAIL);
+		Catalog catalog = new CatalogAggregator(1).aggregate(a, b).getCatalog();
+
+		Course moved = catalog.getProviders()[0].getCourses()[1];
+		assertEquals("From provider b", moved.getResolvedSubjects()[0].getValue());
+		assertEquals("From catalog b", moved.getResolvedDescriptions()[0].getValue());
+		assertEquals(0, catalog.getProviders()[0].getCourses()[0].getResolvedSubjects().length);
+		assertEquals("From catalog b", catalog.getProviders()[1].getResolvedDescriptions()[0].getValue());
+		assertEquals(0, catalog.getProviders()[0].getResolvedDescriptions().length);
+	}
+
+	@Test
+	public void sameResultWithAnyNumberOfThreads() throws Exception{
+		Feed[] feeds = new Feed[6];
+		for (int i = 0; i < feeds.length; i++){
+			FeedGenerator generator = new FeedGenerator();
+			generator.setSeed(i);
+			generator.setProviders(2);
+			generator.setCoursesPerProvider(20 + i * 5);
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			generator.generate(out);
+			feeds[i] = Feed.of("feed " + i, out.toByteArray());
+		}
+		Aggregation sequential = new CatalogAggregator(1).aggregate(feeds);
+		Aggregation parallel = new CatalogAggregator(4).aggregate(feeds);
+		assertTrue(sequential.getFailures().isEmpty());
+		assertEquals(2, parallel.getCatalog().getProviders().length);
+		assertEquals(45, parallel.getCatalog().getProviders()[0].getCourses().length);
+		assertTrue(new CatalogDiff().diff(sequential.getCatalog(), parallel.getCatalog()).isEmpty());
+		assertFalse(parallel.getReports().get(5).getDuplicateCourses() == 0);
+	}
+
+	@Test
+	public void cachedFeeds() throws Exception{
+		Feed a = feed("a", HEAD + provider("http://www.example.org/", "c1", "c2") + TAIL);
+		Feed b = feed("b", HEAD + provider("http://www.example.com/", "c3") + TAIL);
+		CatalogAggregator aggregator = new CatalogAggregator(2);
+		aggregator.setCache(new CatalogCache(1 << 20));
+		Aggregation first = aggregator.aggregate(a, b);
+		Aggregation second = aggregator.aggregate(a, b);
+		assertEquals(2, aggregator.getCache().getMisses());
+		assertEquals(2, aggregator.getCache().getHits());
+		assertTrue(new CatalogDiff().diff(first.getCatalog(), second.getCatalog()).isEmpty());
+		assertEquals(2, second.getReports().get(0).getCourses());
+	}
+
+}
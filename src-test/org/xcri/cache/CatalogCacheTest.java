@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jdom.output.XMLOutputter;
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
+import org.xcri.StreamingCatalogParser;
+import org.xcri.core.Catalog;
+import org.xcri.snapshot.CatalogSnapshot;
+
+public class CatalogCacheTest {
+
+	private static final String HEAD = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\" xmlns:mlo=\""+Namespaces.MLO_NAMESPACE+"\" generated=\"2012-01-01T00:00:00Z\">"
+		+ "<provider><dc:title>Provider</dc:title><dc:description>Inherited</dc:description><dc:identifier>http://www.example.org/</dc:identifier>";
+	private static final String TAIL = "</provider></catalog>";
+
+	private static byte[] feed(String... courses) throws Exception{
+		StringBuilder feed = new StringBuilder(HEAD);
+		for (String course : courses){
+			feed.append("<course><dc:identifier>"+course+"</dc:identifier><dc:title>"+course+"</dc:title>"
+				+ "<presentation><mlo:start dtf=\"2012-09-01\">September</mlo:start></presentation></course>");
+		}
+		return feed.append(TAIL).toString().getBytes("UTF-8");
+	}
+
+	/**
+	 * @return the size of the cache entry for the feed
+	 */
+	private static long size(byte[] feed) throws Exception{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CatalogSnapshot().write(new StreamingCatalogParser().parse(new ByteArrayInputStream(feed)), out);
+		return CatalogCache.sizeOf(out.toByteArray());
+	}
+
+	private static String xml(Catalog catalog){
+		return new XMLOutputter().outputString(catalog.toXml());
+	}
+
+	@Test
+	public void hit() throws Exception{
+		CatalogCache cache = new CatalogCache(1 << 20);
+		byte[] feed = feed("c1", "c2");
+		Catalog parsed = cache.parse(new ByteArrayInputStream(feed));
+		Catalog cached = cache.parse(new ByteArrayInputStream(feed));
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertEquals(0.5, cache.getHitRatio(), 0);
+		assertEquals(1, cache.getEntries());
+		assertEquals(size(feed), cache.getSize());
+		assertNotSame(parsed, cached);
+		assertEquals(xml(parsed), xml(cached));
+		assertEquals("Inherited", cached.getProviders()[0].getCourses()[1].getPresentations()[0].getResolvedDescriptions()[0].getValue());
+	}
+
+	@Test
+	public void catalogsCanBeChanged() throws Exception{
+		CatalogCache cache = new CatalogCache(1 << 20);
+		byte[] feed = feed("c1");
+		cache.parse(feed).getProviders()[0].getCourses()[0].getTitles()[0].setValue("Changed");
+		Catalog first = cache.parse(feed);
+		assertEquals("c1", first.getProviders()[0].getCourses()[0].getTitles()[0].getValue());
+		first.getProviders()[0].getCourses()[0].getTitles()[0].setValue("Changed");
+		assertEquals("c1", cache.parse(feed).getProviders()[0].getCourses()[0].getTitles()[0].getValue());
+		assertEquals(2, cache.getHits());
+	}
+
+	@Test
+	public void differentFeeds() throws Exception{
+		CatalogCache cache = new CatalogCache(1 << 20);
+		cache.parse(feed("c1"));
+		cache.parse(feed("c2"));
+		//
+		// Only the bytes matter
+		//
+		cache.parse(new String(feed("c1"), "UTF-8").replace("<course>", "<course >").getBytes("UTF-8"));
+		assertEquals(3, cache.getMisses());
+		assertEquals(3, cache.getEntries());
+	}
+
+	@Test
+	public void evictLeastRecentlyUsed() throws Exception{
+		byte[] a = feed("a1");
+		byte[] b = feed("b1");
+		byte[] c = feed("c1");
+		CatalogCache cache = new CatalogCache(size(a) + size(b) + size(c) - 1);
+		cache.parse(a);
+		cache.parse(b);
+		cache.parse(a);
+		cache.parse(c);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(2, cache.getEntries());
+		assertEquals(size(a) + size(c), cache.getSize());
+		cache.parse(a);
+		assertEquals(2, cache.getHits());
+		cache.parse(b);
+		assertEquals(4, cache.getMisses());
+		assertEquals(2, cache.getEvictions());
+	}
+
+	@Test
+	public void evictBySize() throws Exception{
+		byte[] small = feed("s1");
+		byte[] large = feed("l1", "l2", "l3", "l4", "l5", "l6", "l7", "l8");
+		CatalogCache cache = new CatalogCache(size(large));
+		cache.parse(small);
+		cache.parse(small);
+		cache.parse(large);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(1, cache.getEntries());
+		assertEquals(cache.getMaxSize(), cache.getSize());
+
+		//
+		// A feed larger than the whole cache is parsed but not kept
+		//
+		cache = new CatalogCache(size(small));
+		cache.parse(small);
+		cache.parse(large);
+		cache.parse(large);
+		assertEquals(0, cache.getEvictions());
+		assertEquals(3, cache.getMisses());
+		assertEquals(size(small), cache.getSize());
+	}
+
+	@Test
+	public void cachedForEachConfiguration() throws Exception{
+		CatalogCache cache = new CatalogCache(1 << 20);
+		byte[] feed = feed("c1");
+		ParserConfiguration configuration = new ParserConfiguration();
+		ParserConfiguration other = new ParserConfiguration();
+		cache.parse(feed, configuration);
+		cache.parse(new ByteArrayInputStream(feed), other);
+		assertEquals(2, cache.getMisses());
+		assertEquals(2, cache.getEntries());
+		cache.parse(new ByteArrayInputStream(feed), configuration);
+		cache.parse(feed, other);
+		assertEquals(2, cache.getHits());
+		cache.parse(feed);
+		assertEquals(3, cache.getMisses());
+	}
+
+	@Test
+	public void invalidFeedsAreNotCached() throws Exception{
+		CatalogCache cache = new CatalogCache(1 << 20);
+		byte[] malformed = (HEAD + "<course>").getBytes("UTF-8");
+		for (int i = 0; i < 2; i++){
+			try {
+				cache.parse(malformed);
+				fail();
+			} catch (XMLStreamException e) {
+			}
+		}
+		assertEquals(2, cache.getMisses());
+		assertEquals(0, cache.getEntries());
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void file() throws Exception{
+		byte[] feed = feed("c1", "c2");
+		File file = File.createTempFile("feed", ".xml");
+		try {
+			OutputStream out = new FileOutputStream(file);
+			out.write(feed);
+			out.close();
+			CatalogCache cache = new CatalogCache(1 << 20);
+			Catalog parsed = cache.parse(file);
+			Catalog cached = cache.parse(feed);
+			assertEquals(1, cache.getHits());
+			assertEquals(xml(parsed), xml(cached));
+			cache.parse(file);
+			assertEquals(2, cache.getHits());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void clear() throws Exception{
+		CatalogCache cache = new CatalogCache(1 << 20);
+		cache.parse(feed("c1"));
+		cache.clear();
+		assertEquals(0, cache.getEntries());
+		assertEquals(0, cache.getSize());
+		cache.parse(feed("c1"));
+		assertEquals(2, cache.getMisses());
+		assertTrue(cache.toString().contains("2 misses"));
+	}
+
+}
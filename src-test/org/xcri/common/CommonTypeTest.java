@@ -19,7 +19,9 @@
  */
 package org.xcri.common;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
@@ -37,6 +39,9 @@ import org.jdom.input.SAXBuilder;
 import org.junit.Test;
 import org.xcri.Namespaces;
 import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.CommonType;
 
@@ -301,4 +306,142 @@ public class CommonTypeTest {
             logger.removeHandler(handler);
         }	
 	}
+
+	/**
+	 * Resolved descriptions, subjects, images and titles are shared with
+	 * the ancestor they are inherited from, not copied
+	 */
+	@Test
+	public void resolvedInheritance() throws InvalidElementException, JDOMException, IOException{
+		Catalog catalog = new Catalog();
+		SAXBuilder builder = new SAXBuilder();
+		Document document = builder.build(new StringReader("<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:mlo=\""+Namespaces.MLO_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\"><provider><dc:title>Provider</dc:title><image src=\"provider.png\" alt=\"Provider\"/><course><dc:title>Course</dc:title><dc:description>Course description</dc:description><dc:subject>Computing</dc:subject><presentation></presentation></course></provider></catalog>"));
+		catalog.fromXml(document);
+		Provider provider = catalog.getProviders()[0];
+		Course course = provider.getCourses()[0];
+		Presentation presentation = course.getPresentations()[0];
+
+		assertSame(course.getDescriptions(), presentation.getResolvedDescriptions());
+		assertSame(presentation.getResolvedDescriptions(), presentation.getResolvedDescriptions());
+		assertSame(course.getSubjects(), presentation.getResolvedSubjects());
+		assertSame(provider.getImages(), presentation.getResolvedImages());
+		assertSame(course.getTitles(), presentation.getResolvedTitles());
+
+		//
+		// Only presentations inherit titles, and nothing is ever null
+		//
+		Course untitled = new Course();
+		untitled.setParent(provider);
+		assertEquals(0, untitled.getResolvedTitles().length);
+		assertEquals(0, catalog.getResolvedSubjects().length);
+	}
+
+	/**
+	 * Changing an ancestor, or moving an element, invalidates what has been resolved
+	 */
+	@Test
+	public void resolvedInheritanceChanges() throws InvalidElementException{
+		Course course = new Course();
+		Presentation presentation = new Presentation();
+		presentation.setParent(course);
+		assertEquals(0, presentation.getResolvedSubjects().length);
+
+		Subject subject = new Subject();
+		subject.setValue("Computing");
+		Subject[] subjects = new Subject[]{subject};
+		course.setSubjects(subjects);
+		assertSame(subjects, presentation.getResolvedSubjects());
+
+		Course other = new Course();
+		Subject[] otherSubjects = new Subject[]{new Subject()};
+		other.setSubjects(otherSubjects);
+		presentation.setParent(other);
+		assertSame(otherSubjects, presentation.getResolvedSubjects());
+
+		Subject[] ownSubjects = new Subject[]{new Subject()};
+		presentation.setSubjects(ownSubjects);
+		assertSame(ownSubjects, presentation.getResolvedSubjects());
+	}
+
+	/**
+	 * Inherited values are invalidated for the tree that changed, including
+	 * elements more than one level below the change and subtrees that move
+	 */
+	@Test
+	public void resolvedInheritanceChangesInTree() throws InvalidElementException{
+		Catalog catalog = new Catalog();
+		Provider provider = new Provider();
+		provider.setParent(catalog);
+		Course course = new Course();
+		course.setParent(provider);
+		Presentation presentation = new Presentation();
+		presentation.setParent(course);
+		assertEquals(0, presentation.getResolvedImages().length);
+
+		Image[] images = new Image[]{new Image()};
+		catalog.setImages(images);
+		assertSame(images, presentation.getResolvedImages());
+
+		//
+		// Changes to another catalog make no difference
+		//
+		Catalog other = new Catalog();
+		Provider otherProvider = new Provider();
+		otherProvider.setParent(other);
+		Image[] otherImages = new Image[]{new Image()};
+		otherProvider.setImages(otherImages);
+		assertSame(images, presentation.getResolvedImages());
+
+		//
+		// Moving a course moves its presentations, which inherit from the new tree
+		//
+		course.setParent(otherProvider);
+		assertSame(otherImages, presentation.getResolvedImages());
+		course.setParent(provider);
+		assertSame(images, presentation.getResolvedImages());
+
+		//
+		// A course that is changed while detached is resolved again when it is attached
+		//
+		course.setParent(null);
+		assertEquals(0, presentation.getResolvedImages().length);
+		Image[] courseImages = new Image[]{new Image()};
+		course.setImages(courseImages);
+		course.setParent(provider);
+		assertSame(courseImages, presentation.getResolvedImages());
+	}
+
+	/**
+	 * Values are resolved against the root they were cached with only while
+	 * no element between them has moved to another tree
+	 */
+	@Test
+	public void resolvedInheritanceAncestorMoves() throws InvalidElementException{
+		Catalog catalog = new Catalog();
+		Image[] images = new Image[]{new Image()};
+		catalog.setImages(images);
+		Provider provider = new Provider();
+		provider.setParent(catalog);
+		Course course = new Course();
+		course.setParent(provider);
+		Presentation presentation = new Presentation();
+		presentation.setParent(course);
+		assertSame(images, presentation.getResolvedImages());
+
+		Catalog other = new Catalog();
+		Image[] otherImages = new Image[]{new Image()};
+		other.setImages(otherImages);
+		provider.setParent(other);
+		assertSame(otherImages, presentation.getResolvedImages());
+
+		//
+		// The old catalog is no longer the root of the presentation
+		//
+		catalog.setImages(new Image[]{new Image()});
+		assertSame(otherImages, presentation.getResolvedImages());
+		Image[] newImages = new Image[]{new Image()};
+		other.setImages(newImages);
+		assertSame(newImages, presentation.getResolvedImages());
+	}
+
 }
@@ -21,11 +21,13 @@ package org.xcri.common;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Formatter;
 import java.util.logging.Handler;
 import java.util.logging.Logger;
@@ -33,10 +35,13 @@ import java.util.logging.SimpleFormatter;
 import java.util.logging.StreamHandler;
 
 import org.jdom.Document;
+import org.jdom.Element;
 import org.jdom.JDOMException;
 import org.jdom.input.SAXBuilder;
+import org.jdom.output.XMLOutputter;
 import org.junit.Test;
 import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
 import org.xcri.core.Catalog;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.DescriptiveTextType;
@@ -118,6 +123,88 @@ public class DescriptionTest {
 		
 		assertEquals(0, catalog.getProviders()[0].getDescriptions().length);
 	}
+
+	/**
+	 * With lazyXHTML set the text form of XHTML content is only produced when asked for,
+	 * and is the same as when it is produced while parsing
+	 */
+	@Test
+	public void lazyXhtml() throws JDOMException, IOException, InvalidElementException{
+		String feed = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\"><provider><dc:description><div xmlns=\"http://www.w3.org/1999/xhtml\"><p>Hello <em>World</em></p></div></dc:description><course><dc:description>plain text</dc:description></course></provider></catalog>";
+		Catalog eager = new Catalog();
+		eager.fromXml(new SAXBuilder().build(new StringReader(feed)));
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setLazyXHTML(true);
+		Catalog lazy = new Catalog();
+		lazy.fromXml(new SAXBuilder().build(new StringReader(feed)), configuration);
+
+		Description description = lazy.getProviders()[0].getDescriptions()[0];
+		assertTrue(description.isXhtml());
+		XMLOutputter outputter = new XMLOutputter();
+		assertEquals(outputter.outputString(eager.getProviders()[0].toXml()), outputter.outputString(lazy.getProviders()[0].toXml()));
+		assertEquals(eager.getProviders()[0].getDescriptions()[0].getValue(), description.getValue());
+		assertEquals(outputter.outputString(eager.getProviders()[0].getDescriptions()[0].getXhtml()), outputter.outputString(description.getXhtml()));
+		assertSame(description.getXhtml(), description.getXhtml());
+		assertEquals(eager.getProviders()[0].getCourses()[0].getDescriptions()[0].getValue(), lazy.getProviders()[0].getCourses()[0].getDescriptions()[0].getValue());
+	}
+
+	/**
+	 * Copies of lazily-read descriptions, such as those inherited by presentations, have the same text
+	 */
+	@Test
+	public void lazyXhtmlClone() throws JDOMException, IOException, InvalidElementException{
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setLazyXHTML(true);
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new StringReader("<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\"><provider><dc:description><div xmlns=\"http://www.w3.org/1999/xhtml\"><p>Hello</p></div></dc:description></provider></catalog>")), configuration);
+		Description description = catalog.getProviders()[0].getDescriptions()[0];
+		Description copy = description.clone();
+		assertEquals(description.getValue(), copy.getValue());
+		assertNotNull(copy.getXhtml());
+	}
+
+	/**
+	 * Threads asking for the text of lazily-read XHTML at the same time all get it
+	 */
+	@Test
+	public void lazyXhtmlConcurrent() throws Exception{
+		final Description[] descriptions = new Description[1000];
+		for (int i = 0; i < descriptions.length; i++){
+			descriptions[i] = new Description();
+			Element div = new Element("div", Namespaces.XHTML_NAMESPACE_NS);
+			div.setText("Description " + i);
+			descriptions[i].setXhtmlValue(div);
+		}
+		final AtomicInteger missing = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++){
+			threads[t] = new Thread(){
+				@Override
+				public void run(){
+					for (Description description : descriptions){
+						if (description.getValue() == null) missing.incrementAndGet();
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads){
+			thread.join();
+		}
+		assertEquals(0, missing.get());
+	}
+
+	/**
+	 * The href check still applies to lazily-read XHTML content
+	 */
+	@Test
+	public void lazyXhtmlBoth() throws JDOMException, IOException, InvalidElementException{
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setLazyXHTML(true);
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new StringReader("<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\"><provider><dc:description href=\"http://xcri.org/test\"><div xmlns=\"http://www.w3.org/1999/xhtml\"><p>Hello</p></div></dc:description></provider></catalog>")), configuration);
+		assertEquals(0, catalog.getProviders()[0].getDescriptions().length);
+	}
 	
 	/**
 	 * TODO Encoding schemes: Use of vocabularies for types of Descriptive Text Elements is encouraged.
@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
+import org.xcri.diagnostics.DiagnosticCollector;
+import org.xcri.diagnostics.Rule;
+import org.xcri.exceptions.CatalogStreamException;
+
+public class CatalogStreamReaderTest {
+
+	private static final String FEED = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\">"
+		+ "<dc:title>Catalog</dc:title>"
+		+ "<provider><dc:title>Provider 1</dc:title><image src=\"provider.png\"/>"
+		+ "<course><dc:title>Course 1</dc:title><presentation><dc:identifier>p1</dc:identifier></presentation></course>"
+		+ "<course><dc:title>Course 2</dc:title></course>"
+		+ "</provider>"
+		+ "<provider><dc:title>Provider 2</dc:title></provider>"
+		+ "<provider><dc:title>Provider 3</dc:title><course><dc:title>Course 3</dc:title></course></provider>"
+		+ "</catalog>";
+
+	@Test
+	public void iterate() throws Exception{
+		CatalogStreamReader reader = new CatalogStreamReader(new StringReader(FEED));
+		assertNull(reader.getCatalog());
+
+		assertTrue(reader.hasNext());
+		Course course = reader.next();
+		assertEquals("Course 1", course.getTitles()[0].getValue());
+		assertEquals("Catalog", reader.getCatalog().getTitles()[0].getValue());
+		assertEquals("Provider 1", reader.getProvider().getTitles()[0].getValue());
+		assertEquals(reader.getProvider(), course.getParent());
+		assertEquals(reader.getCatalog(), reader.getProvider().getParent());
+		assertEquals("Course 1", course.getPresentations()[0].getTitles()[0].getValue());
+
+		//
+		// Inherited from the provider header
+		//
+		assertEquals("provider.png", course.getImages()[0].getSrc());
+
+		assertEquals("Course 2", reader.next().getTitles()[0].getValue());
+
+		course = reader.next();
+		assertEquals("Course 3", course.getTitles()[0].getValue());
+		assertEquals("Provider 3", reader.getProvider().getTitles()[0].getValue());
+
+		assertFalse(reader.hasNext());
+		assertEquals(3, reader.getCatalog().getProviders().length);
+		assertEquals("Provider 2", reader.getCatalog().getProviders()[1].getTitles()[0].getValue());
+		assertEquals(0, reader.getCatalog().getProviders()[1].getCourses().length);
+	}
+
+	@Test
+	public void callback() throws Exception{
+		InputStream in = new FileInputStream("src-test/test.xml");
+		try {
+			final CatalogStreamReader reader = new CatalogStreamReader(in);
+			final ArrayList<String> titles = new ArrayList<String>();
+			reader.read(new CourseHandler() {
+				public void handleCourse(Course course) {
+					titles.add(reader.getProvider().getTitles()[0].getValue()+"/"+course.getTitles()[0].getValue());
+				}
+			});
+			assertEquals(1, titles.size());
+			assertEquals("Example provider/HND Business Computing", titles.get(0));
+		} finally {
+			in.close();
+		}
+	}
+
+	@Test
+	public void headerAfterCourses() throws Exception{
+		CatalogStreamReader reader = new CatalogStreamReader(new StringReader("<catalog><provider><course><title>Course</title></course><title>Provider</title></provider></catalog>"));
+		Course course = reader.next();
+		assertEquals(0, ((Provider)course.getParent()).getTitles().length);
+		assertFalse(reader.hasNext());
+		assertEquals("Provider", ((Provider)course.getParent()).getTitles()[0].getValue());
+	}
+
+	@Test
+	public void headerAfterCoursesReportedOnce() throws Exception{
+		DiagnosticCollector collector = new DiagnosticCollector();
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setDiagnostics(collector);
+		CatalogStreamReader reader = new CatalogStreamReader(new StringReader("<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\">"
+			+ "<provider><dc:title>Provider</dc:title><course><dc:title>Course</dc:title></course><dc:subject>Subject</dc:subject><dc:date>2012</dc:date></provider></catalog>"));
+		reader.setConfiguration(configuration);
+		assertEquals("Course", reader.next().getTitles()[0].getValue());
+		assertFalse(reader.hasNext());
+		assertEquals("Subject", reader.getCatalog().getProviders()[0].getSubjects()[0].getValue());
+		assertEquals(1, collector.getCount(Rule.PROVIDER_NO_URL));
+		//
+		// Problems in the header after the courses are still reported
+		//
+		assertEquals(1, collector.getCount(Rule.DATE_NOT_RECOMMENDED));
+	}
+
+	@Test(expected = CatalogStreamException.class)
+	public void invalidCatalog() throws Exception{
+		CatalogStreamReader reader = new CatalogStreamReader(new StringReader("<catalog generated='invalid'><provider><course/></provider></catalog>"));
+		reader.hasNext();
+	}
+
+}
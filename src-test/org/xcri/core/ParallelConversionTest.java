@@ -0,0 +1,111 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.jdom.Document;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.XMLOutputter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xcri.ParserConfiguration;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.util.FeedGenerator;
+import org.xcri.util.InternPool;
+
+public class ParallelConversionTest {
+
+	private ExecutorService executor;
+	private ParserConfiguration parallel;
+
+	@Before
+	public void setup(){
+		//
+		// Fewer threads than providers, to show that nested conversions cannot deadlock
+		//
+		executor = Executors.newFixedThreadPool(2);
+		parallel = new ParserConfiguration();
+		parallel.setExecutor(executor);
+	}
+
+	@After
+	public void shutdown(){
+		executor.shutdownNow();
+	}
+
+	private Document generate(int providers) throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(3);
+		generator.setProviders(providers);
+		generator.setCoursesPerProvider(40);
+		generator.setCdataDescriptions(0.3);
+		generator.setMisspelledElements(0.05);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.generate(out);
+		return new SAXBuilder().build(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	private void assertSameAsSequential(Document document) throws InvalidElementException{
+		Catalog sequential = new Catalog();
+		sequential.fromXml((Document)document.clone());
+		Catalog catalog = new Catalog();
+		catalog.fromXml((Document)document.clone(), parallel);
+		XMLOutputter outputter = new XMLOutputter();
+		assertEquals(outputter.outputString(sequential.toXml()), outputter.outputString(catalog.toXml()));
+		for (Provider provider : catalog.getProviders()){
+			assertSame(catalog, provider.getParent());
+			for (Course course : provider.getCourses()){
+				assertSame(provider, course.getParent());
+			}
+		}
+	}
+
+	@Test
+	public void courses() throws Exception{
+		assertSameAsSequential(generate(1));
+	}
+
+	@Test
+	public void providers() throws Exception{
+		assertSameAsSequential(generate(5));
+	}
+
+	/**
+	 * Workers use the configuration of the parse that started them
+	 */
+	@Test
+	public void configurationBound() throws Exception{
+		InternPool pool = new InternPool();
+		parallel.setInternPool(pool);
+		Catalog catalog = new Catalog();
+		catalog.fromXml(generate(1), parallel);
+		String identifier = catalog.getProviders()[0].getCourses()[39].getPresentations()[0].getStudyMode().getIdentifier();
+		assertSame(identifier, pool.intern(new String(identifier)));
+	}
+
+}
@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diagnostics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
+import org.xcri.core.Catalog;
+
+public class DiagnosticsTest {
+
+	private static Log log = LogFactory.getLog(DiagnosticsTest.class);
+
+	private static final String FEED = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\" generated=\"2011-01-01T00:00:00\">"
+			+ "<provider><dc:title>Provider</dc:title>"
+			+ "<course><dc:title>One</dc:title><dc:identifier>not a uri</dc:identifier></course>"
+			+ "<course><dc:Title>Two</dc:Title><dc:identifier>http://example.com/2</dc:identifier></course>"
+			+ "</provider></catalog>";
+
+	private Document document() throws Exception{
+		return new SAXBuilder().build(new StringReader(FEED));
+	}
+
+	private Diagnostic find(List<Diagnostic> diagnostics, Rule rule){
+		for (Diagnostic diagnostic : diagnostics){
+			if (diagnostic.getRule() == rule) return diagnostic;
+		}
+		return null;
+	}
+
+	@Test
+	public void collect() throws Exception{
+		DiagnosticCollector collector = new DiagnosticCollector();
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setDiagnostics(collector);
+		new Catalog().fromXml(document(), configuration);
+
+		List<Diagnostic> diagnostics = collector.getDiagnostics();
+		Diagnostic noType = find(diagnostics, Rule.COURSE_IDENTIFIER_NO_TYPE);
+		assertEquals("COURSE_IDENTIFIER_NO_TYPE", noType.getCode());
+		assertEquals(Severity.WARNING, noType.getSeverity());
+		assertEquals("/catalog/xcri:provider/xcri:course[1]", noType.getPath());
+		assertEquals("course: course contains a non-URI identifier with no type:not a uri", noType.getMessage());
+		assertEquals(-1, noType.getLine());
+
+		Diagnostic misspelled = find(diagnostics, Rule.INCORRECT_NAME);
+		assertEquals("/catalog/xcri:provider/xcri:course[2]/dc:title", misspelled.getPath());
+		assertEquals("elements uses incorrect name:title", misspelled.getMessage());
+
+		assertEquals(1, collector.getCount(Rule.COURSE_IDENTIFIER_NO_TYPE));
+		assertEquals(2, collector.getCount(Rule.COURSE_NO_SUBJECT));
+		assertEquals(diagnostics.size(), sum(collector));
+	}
+
+	private long sum(Diagnostics diagnostics){
+		long total = 0;
+		for (long count : diagnostics.getCounts().values()) total += count;
+		return total;
+	}
+
+	@Test
+	public void disabledRule() throws Exception{
+		DiagnosticCollector collector = new DiagnosticCollector();
+		collector.setEnabled(Rule.COURSE_NO_SUBJECT, false);
+		assertFalse(collector.isEnabled(Rule.COURSE_NO_SUBJECT));
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setDiagnostics(collector);
+		new Catalog().fromXml(document(), configuration);
+		assertNull(find(collector.getDiagnostics(), Rule.COURSE_NO_SUBJECT));
+		assertEquals(0, collector.getCount(Rule.COURSE_NO_SUBJECT));
+		assertFalse(collector.getCounts().containsKey(Rule.COURSE_NO_SUBJECT));
+		assertTrue(collector.getCount(Rule.COURSE_IDENTIFIER_NO_TYPE) > 0);
+	}
+
+	/**
+	 * Problems are counted even when they aren't handled
+	 */
+	@Test
+	public void countedWhenNotHandled(){
+		Diagnostics diagnostics = new Diagnostics(){
+			@Override
+			protected boolean isHandled(Log log, Rule rule){
+				return false;
+			}
+			@Override
+			protected void handle(Log log, Diagnostic diagnostic){
+				throw new AssertionError();
+			}
+		};
+		diagnostics.report(log, Rule.PROVIDER_NO_URL, null);
+		diagnostics.report(log, Rule.PROVIDER_NO_URL, null);
+		assertEquals(2, diagnostics.getCount(Rule.PROVIDER_NO_URL));
+		diagnostics.resetCounts();
+		assertEquals(0, diagnostics.getCount(Rule.PROVIDER_NO_URL));
+	}
+
+	@Test
+	public void diagnostic(){
+		Element parent = new Element("course", Namespaces.XCRI_NAMESPACE_NS);
+		Element child = new Element("presentation", Namespaces.XCRI_NAMESPACE_NS);
+		parent.addContent(child);
+		Diagnostic diagnostic = new Diagnostic(Rule.INVALID_CHILD, child, new Object[]{"course", "presentation", "reason"});
+		diagnostic.setLocation(3, 7);
+		assertEquals("course : skipping invalid presentation element: reason", diagnostic.getMessage());
+		assertEquals("WARNING INVALID_CHILD /xcri:course/xcri:presentation (3:7): course : skipping invalid presentation element: reason", diagnostic.toString());
+	}
+
+	private String path(Element element){
+		return new Diagnostic(Rule.INVALID_CHILD, element, null).getPath();
+	}
+
+	/**
+	 * Paths are still right for elements with many children, including after children are added
+	 */
+	@Test
+	public void pathsOfManySiblings(){
+		Element catalog = new Element("catalog", Namespaces.XCRI_NAMESPACE_NS);
+		Element provider = new Element("provider", Namespaces.XCRI_NAMESPACE_NS);
+		catalog.addContent(provider);
+		Element title = new Element("title", Namespaces.DC_NAMESPACE_NS);
+		provider.addContent(title);
+		for (int i = 0; i < 100; i++){
+			Element course = new Element("course", Namespaces.XCRI_NAMESPACE_NS);
+			course.addContent(new Element("title", Namespaces.DC_NAMESPACE_NS));
+			provider.addContent(course);
+		}
+		assertEquals("/xcri:catalog/xcri:provider/dc:title", path(title));
+		assertEquals("/xcri:catalog/xcri:provider/xcri:course[1]/dc:title", path(((Element)provider.getContent(1)).getChild("title", Namespaces.DC_NAMESPACE_NS)));
+		assertEquals("/xcri:catalog/xcri:provider/xcri:course[100]/dc:title", path(((Element)provider.getContent(100)).getChild("title", Namespaces.DC_NAMESPACE_NS)));
+		assertEquals("/xcri:catalog/xcri:provider/xcri:course[37]", path((Element)provider.getContent(37)));
+
+		Element second = new Element("title", Namespaces.DC_NAMESPACE_NS);
+		provider.addContent(second);
+		assertEquals("/xcri:catalog/xcri:provider/dc:title[1]", path(title));
+		assertEquals("/xcri:catalog/xcri:provider/dc:title[2]", path(second));
+	}
+
+}
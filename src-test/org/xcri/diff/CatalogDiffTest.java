@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.util.FeedGenerator;
+
+public class CatalogDiffTest {
+
+	private static final String HEAD = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\" xmlns:mlo=\""+Namespaces.MLO_NAMESPACE+"\">"
+		+ "<provider><dc:title>Provider</dc:title><dc:identifier>http://www.example.org/</dc:identifier>";
+	private static final String TAIL = "</provider></catalog>";
+
+	private static final String COURSE_1 = "<course><dc:identifier>c1</dc:identifier><dc:title>Law</dc:title><dc:subject>Law</dc:subject>"
+		+ "<presentation><dc:identifier>c1p1</dc:identifier><mlo:start dtf=\"2012-09-01\">September</mlo:start></presentation>"
+		+ "<presentation><dc:identifier>c1p2</dc:identifier><mlo:start dtf=\"2013-01-01\">January</mlo:start></presentation></course>";
+	private static final String COURSE_2 = "<course><dc:identifier>c2</dc:identifier><dc:title>History</dc:title></course>";
+	private static final String COURSE_3 = "<course><dc:identifier>c3</dc:identifier><dc:title>Music</dc:title></course>";
+
+	private static Catalog parse(String feed) throws Exception{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new StringReader(feed)));
+		return catalog;
+	}
+
+	private static byte[] generate(long seed) throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(seed);
+		generator.setCoursesPerProvider(100);
+		generator.setPresentationsPerCourse(2);
+		generator.setXhtmlDescriptions(0.5);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.generate(out);
+		return out.toByteArray();
+	}
+
+	@Test
+	public void same() throws Exception{
+		CatalogDelta delta = new CatalogDiff().diff(parse(HEAD + COURSE_1 + COURSE_2 + TAIL), parse(HEAD + COURSE_1 + COURSE_2 + TAIL));
+		assertTrue(delta.isEmpty());
+		assertEquals(2, delta.getUnchangedCourses());
+	}
+
+	@Test
+	public void addedAndRemoved() throws Exception{
+		Catalog current = parse(HEAD + COURSE_3 + COURSE_1 + TAIL);
+		CatalogDelta delta = new CatalogDiff().diff(parse(HEAD + COURSE_1 + COURSE_2 + TAIL), current);
+		assertEquals(2, delta.getChanges().size());
+		Change added = delta.getChanges().get(0);
+		assertEquals(Change.Type.ADDED, added.getType());
+		assertEquals("c3", added.getCourseKey());
+		assertFalse(added.isPresentation());
+		assertSame(current.getProviders()[0].getCourses()[0], added.getCourse());
+		Change removed = delta.getChanges().get(1);
+		assertEquals(Change.Type.REMOVED, removed.getType());
+		assertEquals("c2", removed.getCourseKey());
+		assertNull(removed.getCourse());
+		assertEquals(1, delta.getUnchangedCourses());
+	}
+
+	@Test
+	public void changedFields() throws Exception{
+		String changed = COURSE_1.replace("<dc:title>Law</dc:title>", "<dc:title>Criminal Law</dc:title>").replace("<dc:subject>Law</dc:subject>", "<dc:subject>Law</dc:subject><dc:subject>Criminology</dc:subject>");
+		CatalogDelta delta = new CatalogDiff().diff(parse(HEAD + COURSE_1 + TAIL), parse(HEAD + changed + TAIL));
+		Change change = delta.getChanges().get(0);
+		assertEquals(Change.Type.CHANGED, change.getType());
+		assertFalse(change.isPresentation());
+		assertEquals(Arrays.asList("title", "subject"), change.getFields());
+		assertEquals(0, delta.getUnchangedCourses());
+
+		//
+		// The presentations inherit the title and subjects, and write them out too
+		//
+		assertEquals(3, delta.getChanges().size());
+		assertEquals("c1p1", delta.getChanges().get(1).getPresentationKey());
+		assertEquals(Arrays.asList("title", "subject"), delta.getChanges().get(1).getFields());
+	}
+
+	@Test
+	public void presentations() throws Exception{
+		String changed = COURSE_1.replace("2013-01-01", "2013-02-01")
+			.replace("<presentation><dc:identifier>c1p1</dc:identifier><mlo:start dtf=\"2012-09-01\">September</mlo:start></presentation>", "<presentation><dc:identifier>c1p3</dc:identifier></presentation>");
+		Catalog current = parse(HEAD + changed + TAIL);
+		List<Change> changes = new CatalogDiff().diff(parse(HEAD + COURSE_1 + TAIL), current).getChanges();
+		assertEquals(3, changes.size());
+		assertEquals(Change.Type.ADDED, changes.get(0).getType());
+		assertEquals("c1p3", changes.get(0).getPresentationKey());
+		assertSame(current.getProviders()[0].getCourses()[0].getPresentations()[0], changes.get(0).getPresentation());
+		assertEquals(Change.Type.CHANGED, changes.get(1).getType());
+		assertEquals("c1p2", changes.get(1).getPresentationKey());
+		assertEquals(Arrays.asList("start"), changes.get(1).getFields());
+		assertEquals(Change.Type.REMOVED, changes.get(2).getType());
+		assertEquals("c1p1", changes.get(2).getPresentationKey());
+		assertEquals("c1", changes.get(2).getCourseKey());
+		assertTrue(changes.get(2).isPresentation());
+	}
+
+	@Test
+	public void inheritedChange() throws Exception{
+		//
+		// The course inherits the description of the provider
+		//
+		String previous = HEAD.replace("<dc:title>Provider</dc:title>", "<dc:title>Provider</dc:title><dc:description>Old</dc:description>") + COURSE_2 + TAIL;
+		String current = HEAD.replace("<dc:title>Provider</dc:title>", "<dc:title>Provider</dc:title><dc:description>New</dc:description>") + COURSE_2 + TAIL;
+		List<Change> changes = new CatalogDiff().diff(parse(previous), parse(current)).getChanges();
+		assertEquals(1, changes.size());
+		assertEquals(Arrays.asList("description"), changes.get(0).getFields());
+	}
+
+	@Test
+	public void withoutIdentifiers() throws Exception{
+		String course = "<course><dc:title>Art</dc:title></course>";
+		CatalogDelta delta = new CatalogDiff().diff(parse(HEAD + course + course + TAIL), parse(HEAD + course + course + TAIL));
+		assertTrue(delta.isEmpty());
+		assertEquals(2, delta.getUnchangedCourses());
+
+		delta = new CatalogDiff().diff(parse(HEAD + course + TAIL), parse(HEAD + course.replace("Art", "Fine Art") + TAIL));
+		assertEquals(2, delta.getChanges().size());
+		assertTrue(delta.getChanges().get(0).getCourseKey().startsWith("#"));
+	}
+
+	@Test
+	public void duplicateIdentifiers() throws Exception{
+		Map<String, Fingerprint> fingerprints = new CatalogDiff().fingerprint(parse(HEAD + COURSE_2 + COURSE_2 + TAIL));
+		assertEquals(Arrays.asList("c2", "c2#2"), Arrays.asList(fingerprints.keySet().toArray()));
+	}
+
+	@Test
+	public void streams() throws Exception{
+		byte[] previous = generate(1);
+		byte[] current = new String(previous, "UTF-8").replace("courses/5/</dc:identifier><dc:title>", "courses/5/</dc:identifier><dc:title>New ").getBytes("UTF-8");
+		CatalogDelta streamed = new CatalogDiff().diff(new ByteArrayInputStream(previous), new ByteArrayInputStream(current));
+		CatalogDelta parsed = new CatalogDiff().diff(parse(new String(previous, "UTF-8")), parse(new String(current, "UTF-8")));
+		assertEquals(3, streamed.getChanges().size());
+		assertEquals(parsed.getChanges().toString(), streamed.getChanges().toString());
+		assertEquals(parsed.getUnchangedCourses(), streamed.getUnchangedCourses());
+		for (Change change : streamed.getChanges()){
+			assertEquals(Change.Type.CHANGED, change.getType());
+			assertEquals(Arrays.asList("title"), change.getFields());
+			assertNotNull(change.getCourse().getParent());
+		}
+	}
+
+	@Test
+	public void unrelatedFeeds() throws Exception{
+		CatalogDelta delta = new CatalogDiff().diff(new CatalogDiff().fingerprint(new ByteArrayInputStream(generate(1))), parse(new String(generate(2), "UTF-8")));
+		//
+		// Course identifiers are the same, but the content is not
+		//
+		assertEquals(0, delta.getChanges(Change.Type.ADDED).size());
+		assertEquals(0, delta.getChanges(Change.Type.REMOVED).size());
+		assertTrue(delta.getChanges(Change.Type.CHANGED).size() > 50);
+	}
+
+	@Test
+	public void fingerprintDoesNotCopyInheritedDescriptions() throws Exception{
+		Catalog catalog = parse(HEAD.replace("<dc:title>Provider</dc:title>", "<dc:title>Provider</dc:title><dc:description>Old</dc:description>") + COURSE_1 + TAIL);
+		Course course = catalog.getProviders()[0].getCourses()[0];
+		Fingerprint.of(course);
+		catalog.getProviders()[0].getDescriptions()[0].setValue("New");
+		catalog.getProviders()[0].setDescriptions(catalog.getProviders()[0].getDescriptions());
+		assertEquals("New", course.getPresentations()[0].getResolvedDescriptions()[0].getValue());
+	}
+
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diff;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Map;
+
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+import org.xcri.util.FeedGenerator;
+
+public class CatalogUpdaterTest {
+
+	private static final String HEAD = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\" xmlns:mlo=\""+Namespaces.MLO_NAMESPACE+"\">"
+		+ "<provider><dc:title>Provider</dc:title><dc:description>Provider description</dc:description><dc:identifier>http://www.example.org/</dc:identifier>";
+	private static final String TAIL = "</provider></catalog>";
+
+	private static final String COURSE_1 = "<course><dc:identifier>c1</dc:identifier><dc:title>Law</dc:title><dc:subject>Law</dc:subject>"
+		+ "<presentation><dc:identifier>c1p1</dc:identifier><mlo:start dtf=\"2012-09-01\">September</mlo:start></presentation>"
+		+ "<presentation><dc:identifier>c1p2</dc:identifier><mlo:start dtf=\"2013-01-01\">January</mlo:start></presentation></course>";
+	private static final String COURSE_2 = "<course><dc:identifier>c2</dc:identifier><dc:title>History</dc:title></course>";
+	private static final String COURSE_3 = "<course><dc:identifier>c3</dc:identifier><dc:title>Music</dc:title></course>";
+
+	private static Catalog parse(String feed) throws Exception{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new StringReader(feed)));
+		return catalog;
+	}
+
+	/**
+	 * Apply the delta between the two versions to the first, and check it then matches the second
+	 * @return the updated first version
+	 */
+	private static Catalog update(String previous, String current) throws Exception{
+		Catalog catalog = parse(previous);
+		new CatalogUpdater().apply(catalog, new CatalogDiff().diff(parse(previous), parse(current)));
+		assertTrue(new CatalogDiff().diff(catalog, parse(current)).isEmpty());
+		return catalog;
+	}
+
+	@Test
+	public void addedChangedAndRemoved() throws Exception{
+		Catalog catalog = parse(HEAD + COURSE_1 + COURSE_2 + TAIL);
+		Provider provider = catalog.getProviders()[0];
+		Course unchanged = provider.getCourses()[1];
+		String changed = HEAD + COURSE_1.replace("Law</dc:title>", "Criminal Law</dc:title>") + COURSE_2 + COURSE_3 + TAIL;
+		Catalog current = parse(changed);
+		new CatalogUpdater().apply(catalog, new CatalogDiff().diff(parse(HEAD + COURSE_1 + COURSE_2 + TAIL), current));
+		assertTrue(new CatalogDiff().diff(catalog, parse(changed)).isEmpty());
+
+		assertEquals(3, provider.getCourses().length);
+		assertSame(unchanged, provider.getCourses()[1]);
+		assertSame(current.getProviders()[0].getCourses()[0], provider.getCourses()[0]);
+		for (Course course : provider.getCourses()){
+			assertSame(provider, course.getParent());
+		}
+
+		catalog = update(HEAD + COURSE_1 + COURSE_2 + TAIL, HEAD + COURSE_2 + TAIL);
+		assertEquals(1, catalog.getProviders()[0].getCourses().length);
+	}
+
+	@Test
+	public void presentations() throws Exception{
+		String previous = HEAD + COURSE_1 + TAIL;
+		Catalog catalog = parse(previous);
+		Course course = catalog.getProviders()[0].getCourses()[0];
+		Presentation unchanged = course.getPresentations()[0];
+		Catalog current = parse(HEAD + COURSE_1.replace("2013-01-01", "2013-02-01").replace("</course>", "<presentation><dc:identifier>c1p3</dc:identifier></presentation></course>") + TAIL);
+		new CatalogUpdater().apply(catalog, new CatalogDiff().diff(parse(previous), current));
+
+		assertSame(course, catalog.getProviders()[0].getCourses()[0]);
+		assertEquals(3, course.getPresentations().length);
+		assertSame(unchanged, course.getPresentations()[0]);
+		assertNotSame(current.getProviders()[0].getCourses()[0].getPresentations()[0], course.getPresentations()[0]);
+		assertSame(current.getProviders()[0].getCourses()[0].getPresentations()[1], course.getPresentations()[1]);
+		for (Presentation presentation : course.getPresentations()){
+			assertSame(course, presentation.getParent());
+			assertEquals("Law", presentation.getResolvedTitles()[0].getValue());
+		}
+
+		update(previous, HEAD + COURSE_1.replace("<presentation><dc:identifier>c1p1</dc:identifier><mlo:start dtf=\"2012-09-01\">September</mlo:start></presentation>", "") + TAIL);
+	}
+
+	@Test
+	public void inheritance() throws Exception{
+		Catalog catalog = update(HEAD + COURSE_2 + TAIL, HEAD + COURSE_2 + COURSE_1 + TAIL);
+		Provider provider = catalog.getProviders()[0];
+		Course course = provider.getCourses()[1];
+		assertSame(provider.getResolvedDescriptions(), course.getResolvedDescriptions());
+		assertSame(provider.getResolvedDescriptions(), course.getPresentations()[0].getResolvedDescriptions());
+
+		//
+		// Changes to the provider in the catalog are inherited by the new course
+		//
+		provider.getDescriptions()[0].setValue("Changed");
+		provider.setDescriptions(provider.getDescriptions());
+		assertEquals("Changed", course.getPresentations()[1].getResolvedDescriptions()[0].getValue());
+	}
+
+	@Test
+	public void newProvider() throws Exception{
+		String other = "<provider><dc:title>Other</dc:title><dc:identifier>http://www.example.com/</dc:identifier>" + COURSE_3 + "</provider>";
+		Catalog catalog = update(HEAD + COURSE_2 + TAIL, HEAD + COURSE_2 + "</provider>" + other + "</catalog>");
+		assertEquals(2, catalog.getProviders().length);
+		assertEquals("Other", catalog.getProviders()[1].getTitles()[0].getValue());
+		assertSame(catalog, catalog.getProviders()[1].getParent());
+		assertSame(catalog.getProviders()[1], catalog.getProviders()[1].getCourses()[0].getParent());
+	}
+
+	/**
+	 * The new version the delta was computed against is left as it was
+	 */
+	@Test
+	public void newVersionUnchanged() throws Exception{
+		String other = "<provider><dc:title>Other</dc:title><dc:identifier>http://www.example.com/</dc:identifier>" + COURSE_3 + "</provider>";
+		String changed = HEAD + COURSE_2 + "</provider>" + other + "</catalog>";
+		Catalog catalog = parse(HEAD + COURSE_2 + TAIL);
+		Catalog current = parse(changed);
+		Provider provider = current.getProviders()[1];
+		Course course = provider.getCourses()[0];
+		new CatalogUpdater().apply(catalog, new CatalogDiff().diff(parse(HEAD + COURSE_2 + TAIL), current));
+
+		assertNotSame(provider, catalog.getProviders()[1]);
+		assertSame(current, provider.getParent());
+		assertEquals(1, provider.getCourses().length);
+		assertSame(course, provider.getCourses()[0]);
+		assertTrue(new CatalogDiff().diff(current, parse(changed)).isEmpty());
+		assertTrue(new CatalogDiff().diff(catalog, parse(changed)).isEmpty());
+	}
+
+	@Test
+	public void withoutIdentifiers() throws Exception{
+		String course = "<course><dc:title>Art</dc:title></course>";
+		Catalog catalog = update(HEAD + course + COURSE_2 + course + TAIL, HEAD + course + COURSE_2 + course.replace("Art", "Fine Art") + TAIL);
+		assertEquals(3, catalog.getProviders()[0].getCourses().length);
+		assertEquals("Art", catalog.getProviders()[0].getCourses()[0].getTitles()[0].getValue());
+		assertEquals("Fine Art", catalog.getProviders()[0].getCourses()[2].getTitles()[0].getValue());
+	}
+
+	@Test
+	public void streams() throws Exception{
+		byte[] previous = generate(1);
+		byte[] current = generate(2);
+		Catalog catalog = parse(new String(previous, "UTF-8"));
+		Map<String, Fingerprint> fingerprints = new CatalogDiff().fingerprint(catalog);
+		new CatalogUpdater().apply(catalog, new CatalogDiff().diff(fingerprints, new ByteArrayInputStream(current)));
+		assertTrue(new CatalogDiff().diff(catalog, parse(new String(current, "UTF-8"))).isEmpty());
+		for (Course course : catalog.getProviders()[0].getCourses()){
+			assertSame(catalog.getProviders()[0], course.getParent());
+		}
+	}
+
+	private static byte[] generate(long seed) throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(seed);
+		generator.setCoursesPerProvider(100);
+		generator.setPresentationsPerCourse(2);
+		generator.setXhtmlDescriptions(0.5);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.generate(out);
+		return out.toByteArray();
+	}
+
+}
@@ -0,0 +1,191 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jdom.input.SAXBuilder;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.common.Subject;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+import org.xcri.presentation.StudyMode.StudyModeType;
+import org.xcri.presentation.Venue;
+import org.xcri.util.FeedGenerator;
+import org.xcri.util.W3CDateTime;
+
+public class CatalogIndexTest {
+
+	private static Catalog catalog;
+	private static CatalogIndex index;
+
+	@BeforeClass
+	public static void generate() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(7);
+		generator.setProviders(2);
+		generator.setCoursesPerProvider(50);
+		generator.setPresentationsPerCourse(3);
+		generator.setVenuesPerPresentation(2);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.generate(out);
+		catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new ByteArrayInputStream(out.toByteArray())));
+		index = new CatalogIndex(catalog);
+	}
+
+	private static List<Presentation> allPresentations(){
+		List<Presentation> presentations = new ArrayList<Presentation>();
+		for (Provider provider : catalog.getProviders()){
+			for (Course course : provider.getCourses()){
+				for (Presentation presentation : course.getPresentations()){
+					presentations.add(presentation);
+				}
+			}
+		}
+		return presentations;
+	}
+
+	@Test
+	public void everything(){
+		assertEquals(100, index.getCourses().size());
+		assertEquals(300, index.getPresentations().size());
+		assertEquals(allPresentations(), index.getPresentations());
+		assertSame(catalog, index.getCatalog());
+	}
+
+	@Test
+	public void courseByIdentifier(){
+		Course course = catalog.getProviders()[1].getCourses()[17];
+		assertSame(course, index.getCourse(course.getIdentifiers()[0].getValue()));
+		assertEquals(1, index.getCourses(course.getIdentifiers()[0].getValue()).size());
+		assertNull(index.getCourse("http://www.example.org/none"));
+		assertTrue(index.getCourses("http://www.example.org/none").isEmpty());
+	}
+
+	@Test
+	public void presentationByIdentifier(){
+		Presentation presentation = catalog.getProviders()[0].getCourses()[3].getPresentations()[2];
+		assertSame(presentation, index.getPresentation(presentation.getIdentifiers()[0].getValue()));
+	}
+
+	@Test
+	public void coursesWithSubject(){
+		List<Course> expected = new ArrayList<Course>();
+		for (Provider provider : catalog.getProviders()){
+			for (Course course : provider.getCourses()){
+				for (Subject subject : course.getSubjects()){
+					if (subject.getValue().equals("History")){
+						expected.add(course);
+						break;
+					}
+				}
+			}
+		}
+		assertTrue(expected.size() > 0);
+		assertEquals(expected, index.getCoursesWithSubject("History"));
+	}
+
+	@Test
+	public void presentationsByMode(){
+		List<Presentation> fullTime = new ArrayList<Presentation>();
+		List<Presentation> campus = new ArrayList<Presentation>();
+		for (Presentation presentation : allPresentations()){
+			if (presentation.getStudyMode().getIdentifier().equals("FT")) fullTime.add(presentation);
+			if (presentation.getAttendanceMode().getIdentifier().equals("CM")) campus.add(presentation);
+		}
+		assertTrue(fullTime.size() > 0);
+		assertEquals(fullTime, index.getPresentationsByStudyMode("FT"));
+		assertEquals(fullTime, index.getPresentationsByStudyMode(StudyModeType.FT));
+		assertEquals(campus, index.getPresentationsByAttendanceMode("CM"));
+	}
+
+	@Test
+	public void presentationsAtVenue(){
+		List<Presentation> expected = new ArrayList<Presentation>();
+		for (Presentation presentation : allPresentations()){
+			for (Venue venue : presentation.getVenues()){
+				if (venue.getProvider().getTitles()[0].getValue().equals("Campus 1")){
+					expected.add(presentation);
+					break;
+				}
+			}
+		}
+		assertEquals(300, expected.size());
+		assertEquals(expected, index.getPresentationsAtVenue("Campus 1"));
+		assertTrue(index.getPresentationsAtVenue("Campus 2").isEmpty());
+	}
+
+	@Test
+	public void presentationsStartingBetween(){
+		long from = W3CDateTime.parse("2012-03-01").getTime();
+		long to = W3CDateTime.parse("2013-03-01").getTime();
+		int expected = 0;
+		for (Presentation presentation : allPresentations()){
+			long start = presentation.getStart().getTime();
+			if (start >= from && start < to) expected++;
+		}
+		List<Presentation> presentations = index.getPresentationsStartingBetween(from, to);
+		assertTrue(expected > 0);
+		assertEquals(expected, presentations.size());
+		for (int i = 1; i < presentations.size(); i++){
+			assertTrue(presentations.get(i - 1).getStart().getTime() <= presentations.get(i).getStart().getTime());
+		}
+		assertEquals(presentations, index.getPresentationsStartingBetween(W3CDateTime.parse("2012-03-01").toDate(), W3CDateTime.parse("2013-03-01").toDate()));
+		assertTrue(index.getPresentationsStartingBetween(to, from).isEmpty());
+		assertTrue(index.getPresentationsStartingBetween(from, from).isEmpty());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void unmodifiable(){
+		index.getPresentationsByStudyMode("FT").clear();
+	}
+
+	@Test
+	public void inheritedSubjectsAndMissingValues() throws Exception{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new StringReader(
+			"<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\" xmlns:mlo=\""+Namespaces.MLO_NAMESPACE+"\">"
+			+ "<provider><dc:title>Provider</dc:title><dc:identifier>http://www.example.org/</dc:identifier><dc:subject>Law</dc:subject>"
+			+ "<course><dc:title>Course</dc:title><dc:identifier>http://www.example.org/1</dc:identifier><dc:identifier>http://www.example.org/1</dc:identifier>"
+			+ "<presentation><dc:identifier>http://www.example.org/1/a</dc:identifier><mlo:start>Autumn</mlo:start></presentation>"
+			+ "</course></provider></catalog>")));
+		CatalogIndex index = new CatalogIndex(catalog);
+		assertEquals(1, index.getCourses("http://www.example.org/1").size());
+		assertEquals(1, index.getCoursesWithSubject("Law").size());
+		assertEquals(1, index.getPresentations().size());
+		assertTrue(index.getPresentationsStartingBetween(Long.MIN_VALUE, Long.MAX_VALUE).isEmpty());
+		assertTrue(index.getPresentationsByStudyMode("FT").isEmpty());
+	}
+
+}
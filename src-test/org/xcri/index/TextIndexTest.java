@@ -0,0 +1,202 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.index;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.common.Description;
+import org.xcri.common.Title;
+import org.xcri.core.Catalog;
+import org.xcri.core.CatalogStreamReader;
+import org.xcri.core.Course;
+import org.xcri.util.FeedGenerator;
+
+public class TextIndexTest {
+
+	private static final String FEED = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\" xmlns:mlo=\""+Namespaces.MLO_NAMESPACE+"\">"
+		+ "<provider><dc:title>Provider</dc:title>"
+		+ "<course><dc:title>Adult Nursing</dc:title>"
+		+ "<dc:description><div xmlns=\""+Namespaces.XHTML_NAMESPACE+"\"><p class=\"nursing\">Become a registered nurse working <b>part</b> time.</p></div></dc:description>"
+		+ "<learningOutcome>Care for adults in hospital</learningOutcome></course>"
+		+ "<course><dc:title>Business Studies</dc:title>"
+		+ "<dc:description>Study business part-time, alongside nursing shifts.</dc:description>"
+		+ "<abstract>Time management for nurses</abstract>"
+		+ "<mlo:prerequisite>GCSE Maths</mlo:prerequisite></course>"
+		+ "<course><dc:title>Nursing</dc:title><dc:title>Part</dc:title><dc:description>Time for nursing.</dc:description></course>"
+		+ "</provider></catalog>";
+
+	private TextIndex index() throws Exception{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new StringReader(FEED)));
+		TextIndex index = new TextIndex();
+		index.add(catalog);
+		return index;
+	}
+
+	private static String title(SearchResult result){
+		return result.getCourse().getTitles()[0].getValue();
+	}
+
+	@Test
+	public void words(){
+		assertEquals(Arrays.asList("part", "time", "level", "3", "café"), TextIndex.words(" Part-time (Level 3) CAFÉ!"));
+		assertTrue(TextIndex.words(" -- ").isEmpty());
+	}
+
+	/**
+	 * Courses without any words to index can be added at any position
+	 */
+	@Test
+	public void coursesWithoutWords(){
+		TextIndex index = new TextIndex();
+		for (int i = 0; i < 40; i++){
+			Course course = new Course();
+			if (i % 16 != 0){
+				Title title = new Title();
+				title.setValue("Course " + i);
+				course.setTitles(new Title[]{title});
+			}
+			index.add(course);
+		}
+		assertEquals(40, index.size());
+		assertEquals(37, index.search("course").size());
+	}
+
+	/**
+	 * HTML kept as text, for example from a CDATA section, is indexed without its markup
+	 */
+	@Test
+	public void htmlTextMarkupNotIndexed(){
+		Course course = new Course();
+		Description description = new Description();
+		description.setValue("<div><p class=\"intro\">Fish &amp; chips<br/>for 3 &lt; 4</p><!-- note --></div>");
+		course.setDescriptions(new Description[]{description});
+		TextIndex index = new TextIndex();
+		index.add(course);
+		assertEquals(1, index.search("chips").size());
+		assertEquals(0, index.search("p").size());
+		assertEquals(0, index.search("div").size());
+		assertEquals(0, index.search("amp").size());
+		assertEquals(0, index.search("intro").size());
+		assertEquals(0, index.search("note").size());
+		assertEquals(" Fish   chips for 3   4 ", TextIndex.withoutMarkup("<p>Fish &amp; chips<br/>for 3 &lt; 4</p>"));
+		assertEquals("3 < 4 & 5", TextIndex.withoutMarkup("3 < 4 & 5"));
+	}
+
+	@Test
+	public void search() throws Exception{
+		TextIndex index = index();
+		assertEquals(3, index.size());
+		List<SearchResult> results = index.search("nursing");
+		assertEquals(3, results.size());
+		assertEquals("Business Studies", title(results.get(2)));
+		assertTrue(results.get(0).getScore() >= results.get(1).getScore());
+		assertTrue(results.get(1).getScore() > results.get(2).getScore());
+	}
+
+	@Test
+	public void allWordsRequired() throws Exception{
+		TextIndex index = index();
+		List<SearchResult> results = index.search("NURSING business");
+		assertEquals(1, results.size());
+		assertEquals("Business Studies", title(results.get(0)));
+		assertTrue(index.search("nursing astronomy").isEmpty());
+		assertTrue(index.search("").isEmpty());
+		assertTrue(index.search("\"\"").isEmpty());
+	}
+
+	@Test
+	public void fields() throws Exception{
+		TextIndex index = index();
+		assertEquals("Adult Nursing", title(index.search("hospital").get(0)));
+		assertEquals("Business Studies", title(index.search("management").get(0)));
+		assertEquals("Business Studies", title(index.search("gcse").get(0)));
+	}
+
+	@Test
+	public void xhtmlMarkupNotIndexed() throws Exception{
+		TextIndex index = index();
+		assertEquals(1, index.search("registered").size());
+		assertTrue(index.search("div").isEmpty());
+		assertTrue(index.search("class").isEmpty());
+	}
+
+	@Test
+	public void phrase() throws Exception{
+		TextIndex index = index();
+		//
+		// Across inline XHTML, and across punctuation, but not across two titles or a title and description
+		//
+		List<SearchResult> results = index.search("\"part time\"");
+		assertEquals(2, results.size());
+		assertTrue(title(results.get(0)).equals("Business Studies") || title(results.get(1)).equals("Business Studies"));
+		assertTrue(title(results.get(0)).equals("Adult Nursing") || title(results.get(1)).equals("Adult Nursing"));
+		assertEquals(1, index.search("\"registered nurse\" \"part time\"").size());
+		assertTrue(index.search("\"nurse registered\"").isEmpty());
+		assertEquals(3, index.search("\"nursing\"").size());
+	}
+
+	@Test
+	public void limit() throws Exception{
+		TextIndex index = index();
+		assertEquals(2, index.search("nursing", 2).size());
+		assertEquals(index.search("nursing").subList(0, 2).get(1).getCourse(), index.search("nursing", 2).get(1).getCourse());
+	}
+
+	@Test
+	public void streaming() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(3);
+		generator.setCoursesPerProvider(200);
+		generator.setXhtmlDescriptions(0.5);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.generate(out);
+
+		TextIndex streamed = new TextIndex();
+		new CatalogStreamReader(new ByteArrayInputStream(out.toByteArray())).read(streamed);
+
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new ByteArrayInputStream(out.toByteArray())));
+		TextIndex built = new TextIndex();
+		built.add(catalog);
+
+		assertEquals(200, streamed.size());
+		assertEquals(built.getTermCount(), streamed.getTermCount());
+		List<SearchResult> expected = built.search("history");
+		List<SearchResult> actual = streamed.search("history");
+		assertTrue(expected.size() > 0);
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++){
+			assertEquals(title(expected.get(i)), title(actual.get(i)));
+			assertEquals(expected.get(i).getScore(), actual.get(i).getScore(), 0);
+		}
+	}
+
+}
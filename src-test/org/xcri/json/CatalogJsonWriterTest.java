@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.core.Catalog;
+import org.xcri.core.CatalogStreamReader;
+import org.xcri.core.Course;
+import org.xcri.util.FeedGenerator;
+
+public class CatalogJsonWriterTest {
+
+	private static final String HEAD = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\" xmlns:mlo=\""+Namespaces.MLO_NAMESPACE+"\" "
+		+ "xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" generated=\"2012-01-01T00:00:00Z\">";
+	private static final String TAIL = "</catalog>";
+
+	private static final String FEED = HEAD
+		+ "<provider><dc:title>Provider</dc:title><dc:description>Inherited</dc:description>"
+		+ "<course><dc:identifier>c1</dc:identifier><dc:title xml:lang=\"en\">Law</dc:title><dc:subject>Law</dc:subject>"
+		+ "<dc:description xsi:type=\"xcri:aim\"><div xmlns=\"http://www.w3.org/1999/xhtml\"><p>Some <b>bold</b> text</p></div></dc:description>"
+		+ "<presentation><mlo:start dtf=\"2012-09\">September</mlo:start><mlo:duration interval=\"P1Y\">1 year</mlo:duration>"
+		+ "<studyMode identifier=\"FT\">Full time</studyMode><mlo:languageOfInstruction>en</mlo:languageOfInstruction>"
+		+ "<venue><provider><dc:title>Campus</dc:title></provider></venue></presentation></course></provider>"
+		+ "<provider><dc:title>No courses</dc:title></provider>"
+		+ TAIL;
+
+	private static final String JSON = "{\"generated\":\"2012-01-01T00:00:00Z\",\"providers\":["
+		+ "{\"descriptions\":[{\"value\":\"Inherited\"}],\"titles\":[{\"value\":\"Provider\"}],\"courses\":["
+		+ "{\"descriptions\":[{\"type\":\"xcri:aim\",\"xhtml\":\"<xhtml:div xmlns:xhtml=\\\"http://www.w3.org/1999/xhtml\\\"><p xmlns=\\\"http://www.w3.org/1999/xhtml\\\">Some <b>bold</b> text</p></xhtml:div>\"}],"
+		+ "\"identifiers\":[{\"value\":\"c1\"}],\"titles\":[{\"lang\":\"en\",\"value\":\"Law\"}],\"subjects\":[{\"value\":\"Law\"}],"
+		+ "\"presentations\":[{\"descriptions\":[{\"type\":\"xcri:aim\",\"xhtml\":\"<xhtml:div xmlns:xhtml=\\\"http://www.w3.org/1999/xhtml\\\"><p xmlns=\\\"http://www.w3.org/1999/xhtml\\\">Some <b>bold</b> text</p></xhtml:div>\"}],"
+		+ "\"titles\":[{\"lang\":\"en\",\"value\":\"Law\"}],\"subjects\":[{\"value\":\"Law\"}],"
+		+ "\"start\":{\"value\":\"September\",\"dtf\":\"2012-09\"},\"duration\":{\"value\":\"1 year\",\"interval\":\"P1Y\"},"
+		+ "\"studyMode\":{\"value\":\"Full time\",\"identifier\":\"FT\"},\"languageOfInstruction\":[{\"value\":\"en\"}],"
+		+ "\"venues\":[{\"provider\":{\"titles\":[{\"value\":\"Campus\"}]}}]}]}]},"
+		+ "{\"titles\":[{\"value\":\"No courses\"}],\"courses\":[]}]}";
+
+	private static Catalog parse(String feed) throws Exception{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new StringReader(feed)));
+		return catalog;
+	}
+
+	private static String json(Catalog catalog) throws Exception{
+		StringWriter out = new StringWriter();
+		new CatalogJsonWriter(out).write(catalog);
+		return out.toString();
+	}
+
+	@Test
+	public void schema() throws Exception{
+		assertEquals(JSON, json(parse(FEED)));
+	}
+
+	@Test
+	public void streamed() throws Exception{
+		StringWriter out = new StringWriter();
+		new CatalogJsonWriter(out).write(new CatalogStreamReader(new StringReader(FEED)));
+		assertEquals(JSON, out.toString());
+	}
+
+	@Test
+	public void generatedFeed() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(1);
+		generator.setProviders(3);
+		generator.setCoursesPerProvider(20);
+		generator.setXhtmlDescriptions(0.5);
+		ByteArrayOutputStream feed = new ByteArrayOutputStream();
+		generator.generate(feed);
+
+		ByteArrayOutputStream streamed = new ByteArrayOutputStream();
+		new CatalogJsonWriter(streamed).write(new CatalogStreamReader(new ByteArrayInputStream(feed.toByteArray())));
+		assertEquals(json(parse(new String(feed.toByteArray(), "UTF-8"))), new String(streamed.toByteArray(), "UTF-8"));
+	}
+
+	@Test
+	public void escaping() throws Exception{
+		String title = "Quotes \" backslash \\ tab \t control \u0001 separator \u2028 and \u00e9";
+		Catalog catalog = parse(HEAD + "<provider><dc:title>x</dc:title></provider>" + TAIL);
+		catalog.getProviders()[0].getTitles()[0].setValue(title);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CatalogJsonWriter(out).write(catalog);
+		assertTrue(new String(out.toByteArray(), "UTF-8").contains("\"titles\":[{\"value\":\"Quotes \\\" backslash \\\\ tab \\t control \\u0001 separator \\u2028 and \u00e9\"}]"));
+	}
+
+	@Test
+	public void writeCourses() throws Exception{
+		Catalog catalog = parse(HEAD + "<provider><dc:title>A</dc:title><course><dc:title>1</dc:title></course><course><dc:title>2</dc:title></course></provider>"
+			+ "<provider><dc:title>B</dc:title><course><dc:title>3</dc:title></course></provider>" + TAIL);
+		StringWriter out = new StringWriter();
+		CatalogJsonWriter writer = new CatalogJsonWriter(out);
+		for (Course course : catalog.getProviders()[1].getCourses()) writer.writeCourse(course);
+		writer.writeCourse(catalog.getProviders()[0].getCourses()[1]);
+		writer.finish();
+		assertEquals("{\"generated\":\"2012-01-01T00:00:00Z\",\"providers\":["
+			+ "{\"titles\":[{\"value\":\"B\"}],\"courses\":[{\"titles\":[{\"value\":\"3\"}]}]},"
+			+ "{\"titles\":[{\"value\":\"A\"}],\"courses\":[{\"titles\":[{\"value\":\"2\"}]}]}]}", out.toString());
+	}
+
+	@Test
+	public void empty() throws Exception{
+		StringWriter out = new StringWriter();
+		CatalogJsonWriter writer = new CatalogJsonWriter(out);
+		writer.finish();
+		writer.finish();
+		assertEquals("{\"providers\":[]}", out.toString());
+	}
+
+}
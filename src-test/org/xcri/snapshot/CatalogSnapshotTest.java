@@ -0,0 +1,307 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.snapshot;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+import org.xcri.Extension;
+import org.xcri.Namespaces;
+import org.xcri.common.ExtensionManager;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.provider.Location;
+import org.xcri.types.XcriElement;
+import org.xcri.util.FeedGenerator;
+import org.xcri.util.RawXMLStreamWriter;
+
+public class CatalogSnapshotTest {
+
+	private static final String FEED = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\" xmlns:mlo=\""+Namespaces.MLO_NAMESPACE+"\" generated=\"2012-03-04T05:06:07+01:00\">"
+		+ "<provider><dc:title>Provider</dc:title><dc:description>Inherited description</dc:description><dc:identifier>http://www.example.org/</dc:identifier>"
+		+ "<dc:subject>Inherited subject</dc:subject><mlo:url>http://www.example.org/</mlo:url>"
+		+ "<course><dc:identifier>c1</dc:identifier><dc:title xml:lang=\"en\">Law</dc:title><dc:contributor>Someone</dc:contributor>"
+		+ "<abstract>An abstract</abstract><mlo:objective>To learn</mlo:objective><dc:description href=\"http://www.example.org/law\"/>"
+		+ "<dc:description xsi:type=\"xcri:aim\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\"><div xmlns=\"http://www.w3.org/1999/xhtml\"><p class=\"lead\">Some <b>bold</b> text &amp; more</p><!-- note --></div></dc:description>"
+		+ "<presentation><dc:identifier>c1p1</dc:identifier><mlo:start dtf=\"2012-09\">September</mlo:start><end dtf=\"2013-06-30T17:00:00.5Z\">June</end>"
+		+ "<mlo:duration interval=\"P1Y6M\">18 months</mlo:duration><applyTo>http://www.example.org/apply</applyTo>"
+		+ "<studyMode identifier=\"FT\">Full time</studyMode><attendanceMode identifier=\"CM\">Campus</attendanceMode><attendancePattern identifier=\"DT\">Daytime</attendancePattern>"
+		+ "<mlo:languageOfInstruction>en</mlo:languageOfInstruction><mlo:places>20</mlo:places><mlo:cost>1000</mlo:cost><age>18+</age>"
+		+ "<venue><provider><dc:title>Campus</dc:title><dc:identifier>http://www.example.org/campus</dc:identifier></provider></venue></presentation>"
+		+ "<presentation><dc:title>Own title</dc:title></presentation></course></provider></catalog>";
+
+	private static Catalog parse(String feed) throws Exception{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new StringReader(feed)));
+		return catalog;
+	}
+
+	private static Catalog parse(File file) throws Exception{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(file));
+		return catalog;
+	}
+
+	private static String xml(XcriElement element) throws Exception{
+		StringWriter out = new StringWriter();
+		RawXMLStreamWriter writer = new RawXMLStreamWriter(out);
+		element.writeXml(writer);
+		writer.flush();
+		return out.toString();
+	}
+
+	private static byte[] snapshot(Catalog catalog) throws IOException{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CatalogSnapshot().write(catalog, out);
+		return out.toByteArray();
+	}
+
+	private static Catalog load(byte[] snapshot) throws IOException{
+		return new CatalogSnapshot().read(ByteBuffer.wrap(snapshot));
+	}
+
+	@Test
+	public void sameXml() throws Exception{
+		for (Catalog catalog : Arrays.asList(parse(FEED), parse(new File("src-test/test.xml")), parse(new File("src-test/xhtml_test.xml")))){
+			assertEquals(xml(catalog), xml(load(snapshot(catalog))));
+		}
+	}
+
+	@Test
+	public void fields() throws Exception{
+		Catalog catalog = parse(FEED);
+		Location location = new Location();
+		location.setStreet("1 High Street");
+		location.setAddress(new String[]{"1 High Street", "Bolton"});
+		location.setEmail("info@example.org");
+		catalog.getProviders()[0].setLocation(location);
+
+		Catalog loaded = load(snapshot(catalog));
+		assertEquals(catalog.getGeneratedDateTime(), loaded.getGeneratedDateTime());
+		Location loadedLocation = loaded.getProviders()[0].getLocation();
+		assertEquals("1 High Street", loadedLocation.getStreet());
+		assertArrayEquals(new String[]{"1 High Street", "Bolton"}, loadedLocation.getAddress());
+		assertEquals("info@example.org", loadedLocation.getEmail());
+		assertNull(loadedLocation.getPhone());
+
+		Presentation original = catalog.getProviders()[0].getCourses()[0].getPresentations()[0];
+		Presentation presentation = loaded.getProviders()[0].getCourses()[0].getPresentations()[0];
+		assertEquals(original.getStart().getDateTime(), presentation.getStart().getDateTime());
+		assertEquals(original.getEnd().getTime(), presentation.getEnd().getTime());
+		assertEquals(original.getDuration().getInterval(), presentation.getDuration().getInterval());
+		assertEquals("FT", presentation.getStudyMode().getIdentifier());
+		assertEquals("Campus", presentation.getVenues()[0].getProvider().getTitles()[0].getValue());
+	}
+
+	@Test
+	public void inheritance() throws Exception{
+		Catalog loaded = load(snapshot(parse(FEED)));
+		Course course = loaded.getProviders()[0].getCourses()[0];
+		assertSame(loaded.getProviders()[0], course.getParent());
+		assertSame(loaded, loaded.getProviders()[0].getParent());
+		assertSame(course, course.getPresentations()[0].getParent());
+		assertSame(loaded.getProviders()[0].getResolvedSubjects(), course.getResolvedSubjects());
+		assertEquals("Law", course.getPresentations()[0].getTitles()[0].getValue());
+		assertEquals("Own title", course.getPresentations()[1].getTitles()[0].getValue());
+
+		//
+		// Inherited values are inherited again, not copied
+		//
+		assertSame(course.getTitles(), course.getPresentations()[0].getTitles());
+		loaded.getProviders()[0].getSubjects()[0].setValue("Changed");
+		assertEquals("Changed", course.getResolvedSubjects()[0].getValue());
+	}
+
+	@Test
+	public void xhtml() throws Exception{
+		Catalog catalog = parse(FEED);
+		Course original = catalog.getProviders()[0].getCourses()[0];
+		Course course = load(snapshot(catalog)).getProviders()[0].getCourses()[0];
+		assertTrue(course.getDescriptions()[1].isXhtml());
+		assertEquals(original.getDescriptions()[1].getValue(), course.getDescriptions()[1].getValue());
+		assertEquals("xcri:aim", course.getDescriptions()[1].getType());
+		assertEquals("http://www.example.org/law", course.getDescriptions()[0].getHref());
+	}
+
+	@Test
+	public void sharedStrings() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(1);
+		generator.setCoursesPerProvider(50);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.generate(out);
+		Catalog catalog = parse(new String(out.toByteArray(), "UTF-8"));
+		Catalog loaded = load(snapshot(catalog));
+		assertEquals(xml(catalog), xml(loaded));
+
+		Course[] courses = loaded.getProviders()[0].getCourses();
+		String studyMode = null;
+		for (Course course : courses){
+			for (Presentation presentation : course.getPresentations()){
+				if (!"FT".equals(presentation.getStudyMode().getIdentifier())) continue;
+				if (studyMode == null) studyMode = presentation.getStudyMode().getValue();
+				assertSame(studyMode, presentation.getStudyMode().getValue());
+			}
+		}
+	}
+
+	@Test
+	public void file() throws Exception{
+		Catalog catalog = parse(FEED);
+		File file = File.createTempFile("catalog", ".snapshot");
+		try {
+			new CatalogSnapshot().write(catalog, file);
+			assertEquals(xml(catalog), xml(new CatalogSnapshot().read(file)));
+			assertEquals(xml(catalog), xml(new CatalogSnapshot().read(new ByteArrayInputStream(snapshot(catalog)))));
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void extensions() throws Exception{
+		ExtensionManager.registerExtension(new Rating());
+		try {
+			Catalog catalog = parse(FEED.replace("<dc:identifier>c1</dc:identifier>", "<dc:identifier>c1</dc:identifier><x:rating xmlns:x=\"http://www.example.org/x\">5</x:rating>"));
+			Course course = load(snapshot(catalog)).getProviders()[0].getCourses()[0];
+			assertEquals(1, course.getExtensions().length);
+			assertEquals("5", course.getExtensions()[0].getValue());
+		} finally {
+			ExtensionManager.clear();
+		}
+	}
+
+	@Test
+	public void otherVersions() throws Exception{
+		byte[] snapshot = snapshot(parse(FEED));
+		snapshot[7]++;
+		try {
+			load(snapshot);
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("version"));
+		}
+		try {
+			load(Arrays.copyOf(snapshot(parse(FEED)), 100));
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("truncated"));
+		}
+		try {
+			load("<catalog/>".getBytes("UTF-8"));
+			fail();
+		} catch (IOException e) {
+			assertTrue(e.getMessage().contains("not a catalog snapshot"));
+		}
+	}
+
+	/**
+	 * Negative counts and lengths are reported as a corrupt snapshot
+	 */
+	@Test
+	public void negativeLengths() throws Exception{
+		byte[] snapshot = snapshot(parse(FEED));
+		byte[] minusOne = new byte[]{(byte)0xFF, (byte)0xFF, (byte)0xFF, (byte)0xFF, 0x0F};
+		for (int offset : new int[]{8, 9}){
+			byte[] corrupt = new byte[snapshot.length + minusOne.length];
+			System.arraycopy(snapshot, 0, corrupt, 0, offset);
+			System.arraycopy(minusOne, 0, corrupt, offset, minusOne.length);
+			System.arraycopy(snapshot, offset, corrupt, offset + minusOne.length, snapshot.length - offset);
+			try {
+				load(corrupt);
+				fail();
+			} catch (IOException e) {
+				assertTrue(e.getMessage().contains("corrupt"));
+			}
+		}
+	}
+
+	/**
+	 * Whatever byte of a snapshot is changed, reading it either works or fails with an IOException
+	 */
+	@Test
+	public void corruptBytes() throws Exception{
+		ExtensionManager.registerExtension(new Rating());
+		try {
+			byte[] snapshot = snapshot(parse(FEED.replace("<dc:identifier>c1</dc:identifier>", "<dc:identifier>c1</dc:identifier><x:rating xmlns:x=\"http://www.example.org/x\">5</x:rating>")));
+			for (int i = 8; i < snapshot.length; i++){
+				for (int value : new int[]{0x00, 0x7F, 0x80, 0xFF}){
+					byte[] corrupt = snapshot.clone();
+					corrupt[i] = (byte)value;
+					try {
+						load(corrupt);
+					} catch (IOException e) {
+						// expected
+					}
+				}
+			}
+		} finally {
+			ExtensionManager.clear();
+		}
+	}
+
+	public static class Rating implements Extension {
+		private String value;
+
+		public void fromXml(Element element) throws InvalidElementException {
+			value = element.getText();
+		}
+
+		public Element toXml() {
+			return new Element("rating", getNamespace()).setText(value);
+		}
+
+		public XcriElement getParent() {
+			return null;
+		}
+
+		public String getValue() {
+			return value;
+		}
+
+		public Namespace getNamespace() {
+			return Namespace.getNamespace("x", "http://www.example.org/x");
+		}
+
+		public String getName() {
+			return "rating";
+		}
+	}
+
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+
+import org.jdom.Attribute;
+import org.jdom.Element;
+import org.jdom.JDOMException;
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
+import org.xcri.core.Catalog;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.util.ContentSecurityFilter.Policy;
+
+public class ContentSecurityFilterTest {
+
+	@Test
+	public void defaultElements(){
+		ContentSecurityFilter filter = new ContentSecurityFilter();
+		assertTrue(filter.matches(new Element("script")));
+		assertTrue(filter.matches(new Element("IFrame", Namespaces.XHTML_NAMESPACE_NS)));
+		assertTrue(filter.matches(new Element("IMG")));
+		assertFalse(filter.matches(new Element("p")));
+		assertFalse(filter.matches(new Element("scripts")));
+		assertFalse(filter.matches("script"));
+	}
+
+	@Test
+	public void attributes(){
+		ContentSecurityFilter filter = new ContentSecurityFilter();
+		assertTrue(filter.isUnsafe(new Attribute("onclick", "alert(1)")));
+		assertTrue(filter.isUnsafe(new Attribute("OnMouseOver", "alert(1)")));
+		assertTrue(filter.isUnsafe(new Attribute("href", "javascript:alert(1)")));
+		assertTrue(filter.isUnsafe(new Attribute("href", " JavaScript:alert(1)")));
+		assertTrue(filter.isUnsafe(new Attribute("href", "java\tscript:alert(1)")));
+		assertTrue(filter.isUnsafe(new Attribute("src", "vbscript:msgbox")));
+		assertFalse(filter.isUnsafe(new Attribute("href", "http://xcri.org/javascript:")));
+		assertFalse(filter.isUnsafe(new Attribute("href", "javascript")));
+		assertFalse(filter.isUnsafe(new Attribute("on", "x")));
+		assertFalse(filter.isUnsafe(new Attribute("class", "one")));
+	}
+
+	@Test
+	public void allowList(){
+		ContentSecurityFilter filter = new ContentSecurityFilter(Policy.ALLOW, "p", "UL", "li", "em");
+		assertEquals(Policy.ALLOW, filter.getPolicy());
+		assertFalse(filter.matches(new Element("P")));
+		assertFalse(filter.matches(new Element("ul")));
+		assertTrue(filter.matches(new Element("table")));
+		assertTrue(filter.matches(new Element("script")));
+	}
+
+	@Test
+	public void denyList(){
+		ContentSecurityFilter filter = new ContentSecurityFilter(Policy.DENY, "table");
+		assertTrue(filter.matches(new Element("TABLE")));
+		assertFalse(filter.matches(new Element("script")));
+	}
+
+	@Test
+	public void scan() throws JDOMException, IOException{
+		Element root = new SAXBuilder().build(new StringReader("<div><p onclick=\"x()\">One<script>a()</script></p><object><embed src=\"javascript:b()\"/></object><a href=\"http://xcri.org\">Two</a></div>")).getRootElement();
+		ArrayList<Element> elements = new ArrayList<Element>();
+		ArrayList<Attribute> attributes = new ArrayList<Attribute>();
+		new ContentSecurityFilter().scan(root, elements, attributes);
+		assertEquals(3, elements.size());
+		assertEquals("script", elements.get(0).getName());
+		assertEquals("object", elements.get(1).getName());
+		assertEquals("embed", elements.get(2).getName());
+		assertEquals(2, attributes.size());
+		assertEquals("onclick", attributes.get(0).getName());
+		assertEquals("src", attributes.get(1).getName());
+	}
+
+	@Test
+	public void sanitizeAttributes() throws JDOMException, IOException, InvalidElementException{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new StringReader("<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\"><dc:description><div xmlns=\"http://www.w3.org/1999/xhtml\"><p onclick=\"x()\" class=\"intro\">Hello <a href=\"javascript:y()\">World</a></p></div></dc:description></catalog>")));
+		Element p = catalog.getDescriptions()[0].getXhtml().getChild("p", Namespaces.XHTML_NAMESPACE_NS);
+		assertNull(p.getAttribute("onclick"));
+		assertEquals("intro", p.getAttributeValue("class"));
+		assertNull(p.getChild("a", Namespaces.XHTML_NAMESPACE_NS).getAttribute("href"));
+	}
+
+	@Test
+	public void configuredFilter() throws JDOMException, IOException, InvalidElementException{
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setContentSecurityFilter(new ContentSecurityFilter(Policy.ALLOW, "p"));
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new StringReader("<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\"><dc:description><div xmlns=\"http://www.w3.org/1999/xhtml\"><p>Hello</p><table><tr><td>World</td></tr></table></div></dc:description></catalog>")), configuration);
+		Element div = catalog.getDescriptions()[0].getXhtml();
+		assertEquals(1, div.getChildren().size());
+		assertEquals("p", ((Element)div.getChildren().get(0)).getName());
+	}
+
+}
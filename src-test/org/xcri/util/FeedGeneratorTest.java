@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+import java.util.logging.SimpleFormatter;
+import java.util.logging.StreamHandler;
+
+import org.jdom.input.SAXBuilder;
+import org.junit.Test;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+
+public class FeedGeneratorTest {
+
+	private byte[] generate(FeedGenerator generator) throws Exception{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.generate(out);
+		return out.toByteArray();
+	}
+
+	private Catalog parse(byte[] feed) throws Exception{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new ByteArrayInputStream(feed)));
+		return catalog;
+	}
+
+	@Test
+	public void sameSeedSameFeed() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(42);
+		generator.setXhtmlDescriptions(0.5);
+		generator.setMisspelledElements(0.1);
+		byte[] first = generate(generator);
+		byte[] second = generate(generator);
+		assertTrue(Arrays.equals(first, second));
+
+		generator.setSeed(43);
+		assertFalse(Arrays.equals(first, generate(generator)));
+	}
+
+	@Test
+	public void sameFeedInAnyLocale() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(42);
+		generator.setMisspelledElements(0.5);
+		byte[] english = generate(generator);
+		Locale locale = Locale.getDefault();
+		try {
+			Locale.setDefault(new Locale("tr", "TR"));
+			assertTrue(Arrays.equals(english, generate(generator)));
+		} finally {
+			Locale.setDefault(locale);
+		}
+	}
+
+	@Test
+	public void validFeed() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setProviders(2);
+		generator.setCoursesPerProvider(5);
+		generator.setPresentationsPerCourse(3);
+		generator.setVenuesPerPresentation(2);
+		generator.setXhtmlDescriptions(1.0);
+
+		Catalog catalog = parse(generate(generator));
+		assertEquals(2, catalog.getProviders().length);
+		for (Provider provider : catalog.getProviders()){
+			assertEquals(5, provider.getCourses().length);
+			for (Course course : provider.getCourses()){
+				assertNotNull(course.getDescriptions()[0].getXhtml());
+				assertEquals(3, course.getPresentations().length);
+				for (Presentation presentation : course.getPresentations()){
+					assertNotNull(presentation.getStart());
+					assertEquals(2, presentation.getVenues().length);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void cdataDescriptions() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setCdataDescriptions(1.0);
+		Catalog catalog = parse(generate(generator));
+		String value = catalog.getProviders()[0].getCourses()[0].getDescriptions()[0].getValue();
+		assertTrue(value.startsWith("<p>"));
+	}
+
+	@Test
+	public void brokenFeed() throws Exception{
+		Formatter formatter = new SimpleFormatter();
+		ByteArrayOutputStream log = new ByteArrayOutputStream();
+		Handler handler = new StreamHandler(log, formatter);
+
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(7);
+		generator.setCoursesPerProvider(50);
+		generator.setMisspelledElements(0.2);
+		generator.setWrongNamespaceElements(0.2);
+		String feed = new String(generate(generator), "UTF-8");
+		assertTrue(feed.contains("<TITLE>") || feed.contains("<Title>") || feed.contains("<dc:TITLE>") || feed.contains("<dc:Title>"));
+
+		Logger providerLogger = Logger.getLogger(Provider.class.getName());
+		providerLogger.addHandler(handler);
+		try {
+			Catalog catalog = parse(feed.getBytes("UTF-8"));
+			assertEquals(50, catalog.getProviders()[0].getCourses().length);
+			handler.flush();
+			assertTrue(log.toString().contains("elements uses incorrect name") || log.toString().contains("elements use incorrect namespace"));
+		} finally {
+			providerLogger.removeHandler(handler);
+		}
+	}
+
+}
@@ -20,15 +20,19 @@
 package org.xcri.util;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 
 import org.jdom.Document;
+import org.jdom.Element;
 import org.jdom.JDOMException;
 import org.jdom.input.SAXBuilder;
 import org.jdom.output.XMLOutputter;
 import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
 import org.xcri.common.Description;
 import org.xcri.core.Catalog;
 import org.xcri.exceptions.InvalidElementException;
@@ -54,6 +58,32 @@ public class HtmlTest {
 		assertEquals(myString, output);
 	}
 	
+	@Test
+	public void parseCdataConverted() throws IOException, JDOMException, InvalidElementException{
+		
+		Catalog catalog = new Catalog();
+		SAXBuilder builder = new SAXBuilder();
+		
+		Document document = builder.build(new File("src-test/cdata_test.xml"));
+		
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setConvertCDATA(true);
+		catalog.fromXml(document, configuration);
+		
+		Description description = catalog.getProviders()[0].getCourses()[0].getDescriptions()[0];
+		
+		assertTrue(description.isXhtml());
+		
+		Element p = description.getXhtml().getChild("p", Namespaces.XHTML_NAMESPACE_NS);
+		assertEquals("This is a computing course, its great!", p.getText());
+		
+		String output = new XMLOutputter().outputString(description.toXml()).replaceAll("\\s+<", "<");
+		
+		String myString = "<dc:description xmlns:dc=\"http://purl.org/dc/elements/1.1/\"><xhtml:div xmlns:xhtml=\"http://www.w3.org/1999/xhtml\"><xhtml:p>This is a computing course, its great!</xhtml:p></xhtml:div></dc:description>";
+		
+		assertEquals(myString, output);
+	}
+	
 	@Test
 	public void parsePlain() throws IOException, JDOMException, InvalidElementException{
 		
@@ -0,0 +1,130 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import org.jdom.input.SAXBuilder;
+import org.junit.After;
+import org.junit.Test;
+import org.xcri.ParserConfiguration;
+import org.xcri.StreamingCatalogParser;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+
+public class InternPoolTest {
+
+	@After
+	public void resetConfiguration(){
+		ParserConfiguration.getInstance().setInternPool(null);
+		ParserConfiguration.getInstance().setInternValues(true);
+	}
+
+	@Test
+	public void intern(){
+		InternPool pool = new InternPool();
+		String first = new String("en");
+		String second = new String("en");
+		assertSame(first, pool.intern(first));
+		assertSame(first, pool.intern(second));
+		assertNull(pool.intern(null));
+		assertEquals(1, pool.size());
+		assertEquals(1, pool.getHits());
+		assertEquals(1, pool.getMisses());
+		assertEquals(0.5, pool.getHitRate(), 0);
+		pool.clear();
+		assertEquals(0, pool.size());
+		assertEquals(0, pool.getHitRate(), 0);
+	}
+
+	private byte[] feed() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(7);
+		generator.setCoursesPerProvider(20);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		generator.generate(out);
+		return out.toByteArray();
+	}
+
+	private Catalog parse() throws Exception{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(new SAXBuilder().build(new ByteArrayInputStream(feed())));
+		return catalog;
+	}
+
+	/**
+	 * @return the study mode identifiers of two different presentations with the same study mode
+	 */
+	private String[] sameStudyModes(Catalog catalog){
+		Course[] courses = catalog.getProviders()[0].getCourses();
+		Presentation first = courses[0].getPresentations()[0];
+		for (int i = 1; i < courses.length; i++){
+			Presentation other = courses[i].getPresentations()[0];
+			if (first.getStudyMode().getIdentifier().equals(other.getStudyMode().getIdentifier())){
+				return new String[]{first.getStudyMode().getIdentifier(), other.getStudyMode().getIdentifier()};
+			}
+		}
+		throw new AssertionError("no repeated study mode");
+	}
+
+	@Test
+	public void parsedValuesShared() throws Exception{
+		InternPool pool = new InternPool();
+		ParserConfiguration.getInstance().setInternPool(pool);
+		String[] identifiers = sameStudyModes(parse());
+		assertSame(identifiers[0], identifiers[1]);
+		assertTrue(pool.getHits() > pool.getMisses());
+	}
+
+	/**
+	 * Without a configured pool each parse uses its own, which is not kept afterwards
+	 */
+	@Test
+	public void poolForEachParse() throws Exception{
+		String[] identifiers = sameStudyModes(parse());
+		assertSame(identifiers[0], identifiers[1]);
+		String[] again = sameStudyModes(parse());
+		assertNotSame(identifiers[0], again[0]);
+		assertNull(ParserConfiguration.getInstance().getInternPool());
+	}
+
+	@Test
+	public void poolForEachStreamedParse() throws Exception{
+		String[] identifiers = sameStudyModes(new StreamingCatalogParser().parse(new ByteArrayInputStream(feed())));
+		assertSame(identifiers[0], identifiers[1]);
+		assertNull(ParserConfiguration.getInstance().getInternPool());
+	}
+
+	@Test
+	public void disabled() throws Exception{
+		ParserConfiguration.getInstance().setInternValues(false);
+		String[] identifiers = sameStudyModes(parse());
+		assertNotSame(identifiers[0], identifiers[1]);
+	}
+
+}
@@ -0,0 +1,184 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Iterator;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.jdom.CDATA;
+import org.jdom.Comment;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.EntityRef;
+import org.jdom.Namespace;
+import org.jdom.ProcessingInstruction;
+import org.jdom.input.SAXBuilder;
+import org.jdom.output.Format;
+import org.jdom.output.XMLOutputter;
+import org.junit.Test;
+import org.xcri.core.Catalog;
+
+public class RawXMLStreamWriterTest {
+
+	private Catalog parse(Document document) throws Exception{
+		Catalog catalog = new Catalog();
+		catalog.fromXml(document);
+		return catalog;
+	}
+
+	/**
+	 * writeXml() must be called first, as toXml() moves the XHTML out of descriptions
+	 */
+	private void assertSameAsOutputter(Catalog catalog) throws Exception{
+		StringWriter out = new StringWriter();
+		RawXMLStreamWriter writer = new RawXMLStreamWriter(out);
+		catalog.writeXml(writer);
+		writer.flush();
+		assertEquals(new XMLOutputter().outputString(catalog.toXml()), out.toString());
+	}
+
+	@Test
+	public void fixtures() throws Exception{
+		String[] files = {"src-test/test.xml", "src-test/xhtml_test.xml", "src-test/cdata_test.xml", "src-test/cdata_plain_test.xml", "src-test/really_bad_xcri.xml"};
+		for (String file : files){
+			assertSameAsOutputter(parse(new SAXBuilder().build(new File(file))));
+		}
+	}
+
+	@Test
+	public void generatedFeed() throws Exception{
+		FeedGenerator generator = new FeedGenerator();
+		generator.setSeed(3);
+		generator.setProviders(2);
+		generator.setCoursesPerProvider(20);
+		generator.setPresentationsPerCourse(2);
+		generator.setVenuesPerPresentation(1);
+		generator.setXhtmlDescriptions(0.4);
+		generator.setCdataDescriptions(0.3);
+		generator.setMisspelledElements(0.05);
+		generator.setWrongNamespaceElements(0.05);
+		StringWriter feed = new StringWriter();
+		generator.generate(feed);
+		assertSameAsOutputter(parse(new SAXBuilder().build(new StringReader(feed.toString()))));
+	}
+
+	@Test
+	public void document() throws Exception{
+		Catalog catalog = parse(new SAXBuilder().build(new File("src-test/xhtml_test.xml")));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		RawXMLStreamWriter writer = new RawXMLStreamWriter(out);
+		writer.writeStartDocument();
+		catalog.writeXml(writer);
+		writer.writeEndDocument();
+		writer.close();
+
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		new XMLOutputter().output(new Document(catalog.toXml()), expected);
+		assertEquals(expected.toString("UTF-8"), out.toString("UTF-8"));
+	}
+
+	@Test
+	public void jdomContent() throws Exception{
+		Element element = new Element("a", Namespace.getNamespace("x", "urn:x"));
+		element.setAttribute("t", "v\t\n\r<>&\"'é", Namespace.getNamespace("xsi", "urn:xsi"));
+		element.setText("t\n\r<>&\"'é");
+		element.addContent(new Element("b", Namespace.getNamespace("x", "urn:x")));
+		element.addContent(new Element("c").setText(""));
+		Element d = new Element("d", Namespace.getNamespace("urn:def"));
+		d.addNamespaceDeclaration(Namespace.getNamespace("q", "urn:q"));
+		d.addContent(new Element("g"));
+		d.addContent(new CDATA("x\ny"));
+		d.addContent(new Comment("comment"));
+		d.addContent(new ProcessingInstruction("pi", ""));
+		d.addContent(new EntityRef("amp"));
+		element.addContent(d);
+
+		StringWriter out = new StringWriter();
+		RawXMLStreamWriter writer = new RawXMLStreamWriter(out);
+		StaxOutputter.writeElement(writer, element);
+		writer.flush();
+		assertEquals(new XMLOutputter().outputString(element), out.toString());
+	}
+
+	/**
+	 * Prefixes from the namespace context are used unless an element rebinds them
+	 */
+	@Test
+	public void namespaceContext() throws Exception{
+		StringWriter out = new StringWriter();
+		RawXMLStreamWriter writer = new RawXMLStreamWriter(out);
+		writer.setNamespaceContext(new NamespaceContext(){
+			public String getNamespaceURI(String prefix) {
+				return prefix.equals("x") ? "urn:x" : null;
+			}
+			public String getPrefix(String namespaceURI) {
+				return namespaceURI.equals("urn:x") ? "x" : null;
+			}
+			public Iterator<String> getPrefixes(String namespaceURI) {
+				return Collections.singletonList(getPrefix(namespaceURI)).iterator();
+			}
+		});
+		assertEquals("urn:x", writer.getNamespaceContext().getNamespaceURI("x"));
+
+		writer.writeStartElement("urn:x", "a");
+		writer.writeNamespace("x", "urn:x");
+		writer.writeStartElement("x", "b", "urn:other");
+		writer.writeNamespace("x", "urn:other");
+		assertEquals(null, writer.getPrefix("urn:x"));
+		try {
+			writer.setNamespaceContext(writer.getNamespaceContext());
+			fail();
+		} catch (XMLStreamException e) {
+		}
+		writer.writeEndElement();
+		writer.writeEmptyElement("urn:x", "c");
+		writer.writeEndElement();
+		writer.flush();
+		assertEquals("<x:a xmlns:x=\"urn:x\"><x:b xmlns:x=\"urn:other\" /><x:c /></x:a>", out.toString());
+	}
+
+	/**
+	 * Other StAX writers format empty elements and newlines differently, but the document is the same
+	 */
+	@Test
+	public void standardWriter() throws Exception{
+		Catalog catalog = parse(new SAXBuilder().build(new File("src-test/test.xml")));
+		StringWriter out = new StringWriter();
+		XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+		catalog.writeXml(writer);
+		writer.flush();
+		Element written = new SAXBuilder().build(new StringReader(out.toString())).getRootElement();
+		XMLOutputter outputter = new XMLOutputter(Format.getCompactFormat());
+		assertEquals(outputter.outputString(catalog.toXml()), outputter.outputString(written));
+	}
+
+}
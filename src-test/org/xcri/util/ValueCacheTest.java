@@ -0,0 +1,161 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jdom.Element;
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.presentation.Duration;
+import org.xcri.presentation.Start;
+import org.xcri.types.TemporalType;
+
+public class ValueCacheTest {
+
+	@Test
+	public void getAndPut(){
+		ValueCache<Integer> cache = new ValueCache<Integer>(2);
+		assertNull(cache.get("one"));
+		cache.put("one", 1);
+		assertEquals(Integer.valueOf(1), cache.get("one"));
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getHits());
+	}
+
+	/**
+	 * The least recently used value is discarded when the cache is full
+	 */
+	@Test
+	public void bounded(){
+		ValueCache<Integer> cache = new ValueCache<Integer>(2);
+		cache.put("one", 1);
+		cache.put("two", 2);
+		cache.get("one");
+		cache.put("three", 3);
+		assertEquals(2, cache.size());
+		assertEquals(Integer.valueOf(1), cache.get("one"));
+		assertNull(cache.get("two"));
+		assertEquals(Integer.valueOf(3), cache.get("three"));
+	}
+
+	/**
+	 * Values are right and the cache stays about the right size when used by several threads
+	 */
+	@Test
+	public void concurrent() throws Exception{
+		final ValueCache<Integer> cache = new ValueCache<Integer>(16);
+		final AtomicInteger wrong = new AtomicInteger();
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++){
+			final int seed = t;
+			threads[t] = new Thread(){
+				@Override
+				public void run(){
+					Random random = new Random(seed);
+					for (int i = 0; i < 100000; i++){
+						int number = random.nextInt(64);
+						Integer value = cache.get(String.valueOf(number));
+						if (value == null){
+							cache.put(String.valueOf(number), number);
+						} else if (value != number){
+							wrong.incrementAndGet();
+						}
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread thread : threads){
+			thread.join();
+		}
+		assertEquals(0, wrong.get());
+		assertTrue(cache.size() <= 16 + threads.length);
+		assertEquals(threads.length * 100000, cache.getHits() + cache.getMisses());
+	}
+
+	/**
+	 * Dates without a time zone are in the default time zone when they are parsed
+	 */
+	@Test
+	public void datesWithoutZone(){
+		TimeZone zone = TimeZone.getDefault();
+		try {
+			TimeZone.setDefault(TimeZone.getTimeZone("GMT"));
+			long gmt = TemporalType.parseDateTime("2011-09-01T09:00:00").getTime();
+			TimeZone.setDefault(TimeZone.getTimeZone("GMT+02:00"));
+			assertEquals(gmt - 2 * 60 * 60 * 1000, TemporalType.parseDateTime("2011-09-01T09:00:00").getTime());
+		} finally {
+			TimeZone.setDefault(zone);
+		}
+	}
+
+	/**
+	 * Dates without a time zone are shared while the default time zone stays the same
+	 */
+	@Test
+	public void sharedDatesWithoutZone(){
+		assertSame(TemporalType.parseDateTime("2012-09-24"), TemporalType.parseDateTime("2012-09-24"));
+		assertSame(TemporalType.parseDateTime("2012-09-24T09:00"), TemporalType.parseDateTime("2012-09-24T09:00"));
+	}
+
+	/**
+	 * Durations with the same interval share a Period
+	 */
+	@Test
+	public void sharedIntervals() throws InvalidElementException{
+		Duration first = new Duration();
+		first.fromXml(new Element("duration", Namespaces.MLO_NAMESPACE_NS).setAttribute("interval", "P1Y").setText("1 year"));
+		Duration second = new Duration();
+		second.fromXml(new Element("duration", Namespaces.MLO_NAMESPACE_NS).setAttribute("interval", "P1Y").setText("One year"));
+		assertSame(first.getInterval(), second.getInterval());
+		assertEquals(1, first.getInterval().getYears());
+	}
+
+	/**
+	 * Parsed dates are immutable, so the same one is shared, but each
+	 * element returns its own Date
+	 */
+	@Test
+	public void sharedDates() throws InvalidElementException{
+		assertSame(TemporalType.parseDateTime("2011-09-01T09:00:00Z"), TemporalType.parseDateTime("2011-09-01T09:00:00Z"));
+		Start start = new Start();
+		start.fromXml(new Element("start", Namespaces.MLO_NAMESPACE_NS).setAttribute("dtf", "2011-09-01T09:00:00Z").setText("September"));
+		Date first = start.getDtf();
+		first.setTime(0);
+		assertNotSame(first, start.getDtf());
+		assertEquals(TemporalType.parseDateTime("2011-09-01T09:00:00Z").getTime(), start.getDtf().getTime());
+	}
+
+}
@@ -0,0 +1,135 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.TimeZone;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xcri.util.W3CDateTime.Precision;
+
+public class W3CDateTimeTest {
+
+	private TimeZone zone;
+
+	@Before
+	public void setUp(){
+		zone = TimeZone.getDefault();
+		TimeZone.setDefault(TimeZone.getTimeZone("Europe/London"));
+	}
+
+	@After
+	public void tearDown(){
+		TimeZone.setDefault(zone);
+	}
+
+	@Test
+	public void parseUtc(){
+		W3CDateTime dateTime = W3CDateTime.parse("2011-11-11T10:30:00Z");
+		assertEquals(1321007400000L, dateTime.getTime());
+		assertEquals(Precision.SECOND, dateTime.getPrecision());
+		assertEquals(0, dateTime.getOffset());
+		assertEquals("2011-11-11T10:30:00Z", dateTime.toString());
+	}
+
+	@Test
+	public void parseOffset(){
+		W3CDateTime dateTime = W3CDateTime.parse("2011-11-11T12:00+01:30");
+		assertEquals(1321007400000L, dateTime.getTime());
+		assertEquals(Precision.MINUTE, dateTime.getPrecision());
+		assertEquals(90, dateTime.getOffset());
+		assertEquals("2011-11-11T12:00+01:30", dateTime.toString());
+	}
+
+	@Test
+	public void parseFraction(){
+		W3CDateTime dateTime = W3CDateTime.parse("1969-12-31T23:59:59.5Z");
+		assertEquals(-500L, dateTime.getTime());
+		assertEquals(Precision.FRACTION, dateTime.getPrecision());
+		assertEquals("1969-12-31T23:59:59.500Z", dateTime.toString());
+	}
+
+	@Test
+	public void parseDates(){
+		assertEquals(Precision.YEAR, W3CDateTime.parse("2012").getPrecision());
+		assertEquals(Precision.MONTH, W3CDateTime.parse("2012-02").getPrecision());
+		assertEquals(Precision.DAY, W3CDateTime.parse("2012-02-29").getPrecision());
+		assertEquals("2012", W3CDateTime.parse("2012").toString());
+		assertEquals("2012-02", W3CDateTime.parse("2012-02").toString());
+		assertEquals("2012-02-29", W3CDateTime.parse(" 2012-02-29 ").toString());
+		assertEquals(1330473600000L, W3CDateTime.parse("2012-02-29Z").getTime());
+		assertEquals("2012-02-29Z", W3CDateTime.parse("2012-02-29Z").toString());
+	}
+
+	@Test
+	public void parseDefaultTimeZone(){
+		//
+		// British Summer Time is an hour ahead of UTC
+		//
+		assertEquals(W3CDateTime.parse("2011-07-01T09:00:00Z").getTime(), W3CDateTime.parse("2011-07-01T10:00:00").getTime());
+		assertEquals("2011-07-01T10:00:00+01:00", W3CDateTime.parse("2011-07-01T10:00:00").toString());
+		assertEquals(W3CDateTime.parse("2011-01-01T10:00:00Z").getTime(), W3CDateTime.parse("2011-01-01T10:00:00").getTime());
+	}
+
+	@Test
+	public void invalid(){
+		String[] values = {"", "invalid", "11-11-2011", "2011-13", "2011-02-29", "2011-11-31", "2011-11-11T25:00Z",
+			"2011-11-11T10:60Z", "2011-11-11T10", "2011-11-11T10:00:00.Z", "2011-11-11T10:00+1:00", "2011-11-11T10:00Zulu"};
+		for (String value : values){
+			try {
+				W3CDateTime.parse(value);
+				throw new AssertionError(value);
+			} catch (IllegalArgumentException e) {
+			}
+		}
+	}
+
+	@Test
+	public void roundTrip(){
+		String[] values = {"2011", "2011-11", "2011-11-11", "2011-11-11T10:30Z", "2011-11-11T10:30:15-05:00", "2011-11-11T10:30:15.125Z", "0001-01-01T00:00:00Z"};
+		for (String value : values){
+			assertEquals(value, W3CDateTime.parse(value).toString());
+			assertEquals(W3CDateTime.parse(value), W3CDateTime.parse(W3CDateTime.parse(value).toString()));
+		}
+	}
+
+	@Test
+	public void valueOf(){
+		assertEquals("2011-11-11T10:30:00Z", W3CDateTime.valueOf(1321007400000L).toString());
+		assertEquals("2011-11-11T10:30:00.001Z", W3CDateTime.valueOf(1321007400001L).toString());
+	}
+
+	@Test
+	public void compare(){
+		W3CDateTime utc = W3CDateTime.parse("2011-11-11T10:30:00Z");
+		W3CDateTime offset = W3CDateTime.parse("2011-11-11T12:00:00+01:30");
+		assertEquals(0, utc.compareTo(offset));
+		assertTrue(!utc.equals(offset));
+		assertTrue(utc.compareTo(W3CDateTime.parse("2011-11-12")) < 0);
+		assertTrue(W3CDateTime.parse("2011-11-12").compareTo(utc) > 0);
+		assertEquals(utc, W3CDateTime.parse("2011-11-11T10:30:00Z"));
+		assertEquals(utc.hashCode(), W3CDateTime.parse("2011-11-11T10:30:00Z").hashCode());
+	}
+
+}
@@ -0,0 +1,65 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+
+import org.jdom.Element;
+import org.jdom.output.XMLOutputter;
+import org.junit.Test;
+import org.xcri.Namespaces;
+
+public class XhtmlConverterTest {
+
+	private String convert(String html){
+		return new XMLOutputter().outputString(XhtmlConverter.getInstance().convert(html));
+	}
+
+	@Test
+	public void wellFormed(){
+		assertEquals("<xhtml:div xmlns:xhtml=\"http://www.w3.org/1999/xhtml\"><xhtml:p class=\"intro\">Fish &amp; chips</xhtml:p></xhtml:div>", convert("<p class=\"intro\">Fish &amp; chips</p>"));
+	}
+
+	@Test
+	public void cleaned(){
+		assertEquals("<xhtml:div xmlns:xhtml=\"http://www.w3.org/1999/xhtml\"><xhtml:p>One<xhtml:br />Two</xhtml:p>Three <xhtml:b>bold</xhtml:b></xhtml:div>", convert("<P>One<br>Two</p>Three <b>bold<!-- comment -->"));
+	}
+
+	@Test
+	public void entities(){
+		Element div = XhtmlConverter.getInstance().convert("<p>caf&eacute; &lt;b&gt;</p>");
+		assertEquals("caf\u00e9 <b>", div.getChild("p", Namespaces.XHTML_NAMESPACE_NS).getText());
+	}
+
+	@Test
+	public void text(){
+		Element div = XhtmlConverter.getInstance().convert("just text");
+		assertEquals("just text", div.getText());
+		assertNotNull(XhtmlConverter.getInstance().convert(""));
+	}
+
+	@Test
+	public void perThread(){
+		assertSame(XhtmlConverter.getInstance(), XhtmlConverter.getInstance());
+	}
+
+}
@@ -0,0 +1,104 @@
+package org.xcri.util.lax;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jdom.Element;
+import org.junit.Test;
+import org.xcri.Namespaces;
+
+public class ChildIndexTest {
+
+	private static Log log = LogFactory.getLog(ChildIndexTest.class);
+
+	@Test
+	public void getChildrenInOrder() throws LaxException{
+		Element root = new Element("root");
+		root.addContent(new Element("title", Namespaces.DC_NAMESPACE_NS).setText("1"));
+		root.addContent(new Element("subject", Namespaces.DC_NAMESPACE_NS));
+		root.addContent(new Element("title", Namespaces.DC_NAMESPACE_NS).setText("2"));
+		List<Element> results = new ChildIndex(root).getChildren("title", Namespaces.DC_NAMESPACE_NS);
+		assertEquals(2, results.size());
+		assertEquals("1", results.get(0).getText());
+		assertEquals("2", results.get(1).getText());
+	}
+
+	@Test
+	public void getChildrenNone() throws LaxException{
+		Element root = new Element("root");
+		root.addContent(new Element("title", Namespaces.DC_NAMESPACE_NS));
+		assertTrue(new ChildIndex(root).getChildren("subject", Namespaces.DC_NAMESPACE_NS).isEmpty());
+	}
+
+	@Test
+	public void getChildrenWrongNamespace(){
+		Element root = new Element("root");
+		root.addContent(new Element("TestElement", Namespaces.MLO_NAMESPACE));
+		try {
+			new ChildIndex(root).getChildren("TestElement", Namespaces.DC_NAMESPACE_NS);
+			fail();
+		} catch (LaxException e) {
+			assertTrue(e.isIncorrectNamespace());
+			assertEquals(Namespaces.DC_NAMESPACE_NS, e.getElements().get(0).getNamespace());
+		}
+	}
+
+	@Test
+	public void getChildrenMisspelling(){
+		Element root = new Element("root");
+		root.addContent(new Element("testElement"));
+		try {
+			new ChildIndex(root).getChildren("TestElement", Namespaces.DC_NAMESPACE_NS);
+			fail();
+		} catch (LaxException e) {
+			assertTrue(e.isMisspelled());
+			assertEquals("TestElement", e.getElements().get(0).getName());
+		}
+	}
+
+	@Test
+	public void getSingleChildWrongNamespace() throws SingleElementException{
+		Element root = new Element("root");
+		root.addContent(new Element("TestElement", Namespaces.MLO_NAMESPACE));
+		Element result = new ChildIndex(root).getChild("TestElement", Namespaces.DC_NAMESPACE_NS);
+		assertEquals("TestElement", result.getName());
+		assertEquals(Namespaces.DC_NAMESPACE_NS, result.getNamespace());
+	}
+
+	@Test
+	public void getSingleChildNone() throws SingleElementException{
+		Element root = new Element("root");
+		assertNull(new ChildIndex(root).getChild("TestElement", Namespaces.DC_NAMESPACE_NS));
+	}
+
+	@Test(expected = SingleElementException.class)
+	public void getSingleChildMultiple() throws SingleElementException{
+		Element root = new Element("root");
+		root.addContent(new Element("testElement", Namespaces.DC_NAMESPACE_NS));
+		root.addContent(new Element("TestElement", Namespaces.DC_NAMESPACE_NS));
+		new ChildIndex(root).getChild("TestElement", Namespaces.DC_NAMESPACE_NS);
+	}
+
+	@Test
+	public void sameAsLax(){
+		Element root = new Element("root");
+		root.addContent(new Element("Title", Namespaces.DC_NAMESPACE_NS));
+		root.addContent(new Element("title", Namespaces.XCRI_NAMESPACE_NS));
+		root.addContent(new Element("url", Namespaces.XCRI_NAMESPACE_NS));
+		Element copy = (Element)root.clone();
+		List<Element> expected = Lax.getChildrenQuietly(root, "title", Namespaces.DC_NAMESPACE_NS, log);
+		List<Element> actual = new ChildIndex(copy).getChildrenQuietly("title", Namespaces.DC_NAMESPACE_NS, log);
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++){
+			assertEquals(expected.get(i).getName(), actual.get(i).getName());
+			assertEquals(expected.get(i).getNamespace(), actual.get(i).getNamespace());
+		}
+	}
+
+}
@@ -0,0 +1,198 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.validation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.StringReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jdom.Document;
+import org.jdom.Element;
+import org.jdom.input.SAXBuilder;
+import org.junit.After;
+import org.junit.Test;
+import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.diagnostics.Diagnostic;
+import org.xcri.diagnostics.DiagnosticCollector;
+import org.xcri.diagnostics.Diagnostics;
+import org.xcri.diagnostics.Rule;
+import org.xcri.presentation.Age;
+import org.xcri.presentation.Venue;
+
+public class ValidatorTest {
+
+	private static final String FEED = "<catalog xmlns=\""+Namespaces.XCRI_NAMESPACE+"\" xmlns:dc=\""+Namespaces.DC_NAMESPACE+"\" generated=\"2011-01-01T00:00:00\">"
+			+ "<provider><dc:title>Provider</dc:title>"
+			+ "<course><dc:title>One</dc:title><dc:identifier>not a uri</dc:identifier><presentation/></course>"
+			+ "<course><dc:title>Two</dc:title><dc:identifier>http://example.com/2</dc:identifier></course>"
+			+ "</provider></catalog>";
+
+	private DiagnosticCollector collector = new DiagnosticCollector();
+
+	private Document document() throws Exception{
+		return new SAXBuilder().build(new StringReader(FEED));
+	}
+
+	private Catalog parse(ParserConfiguration configuration) throws Exception{
+		configuration.setDiagnostics(collector);
+		Catalog catalog = new Catalog();
+		catalog.fromXml(document(), configuration);
+		return catalog;
+	}
+
+	@After
+	public void unbind(){
+		ParserConfiguration.bind(null);
+	}
+
+	@Test
+	public void validatedWhileParsing() throws Exception{
+		parse(new ParserConfiguration());
+		assertEquals(1, collector.getCount(Rule.COURSE_IDENTIFIER_NO_TYPE));
+		assertEquals(1, collector.getCount(Rule.COURSE_NO_URI_IDENTIFIER));
+		assertEquals(2, collector.getCount(Rule.COURSE_NO_SUBJECT));
+		assertEquals(1, collector.getCount(Rule.PRESENTATION_NO_START));
+		assertEquals(1, collector.getCount(Rule.PROVIDER_NO_URL));
+		for (Diagnostic diagnostic : collector.getDiagnostics()){
+			if (diagnostic.getRule() == Rule.PRESENTATION_NO_START){
+				assertEquals("/catalog/xcri:provider/xcri:course[1]/xcri:presentation", diagnostic.getPath());
+			}
+		}
+	}
+
+	/**
+	 * A trusted feed can be read without running any rules
+	 */
+	@Test
+	public void trusted() throws Exception{
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setValidator(null);
+		Catalog catalog = parse(configuration);
+		assertEquals(2, catalog.getProviders()[0].getCourses().length);
+		assertEquals(0, collector.getCount(Rule.COURSE_NO_SUBJECT));
+		assertEquals(0, collector.getCount(Rule.PRESENTATION_NO_START));
+		assertEquals(0, collector.getCount(Rule.PROVIDER_NO_URL));
+	}
+
+	@Test
+	public void disabledRule() throws Exception{
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.getValidator().getRule(CourseSubjectRule.class).setEnabled(false);
+		parse(configuration);
+		assertEquals(0, collector.getCount(Rule.COURSE_NO_SUBJECT));
+		assertEquals(1, collector.getCount(Rule.COURSE_IDENTIFIER_NO_TYPE));
+	}
+
+	/**
+	 * Validating a model after reading it without validation finds the same problems
+	 */
+	@Test
+	public void validateModel() throws Exception{
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setValidator(null);
+		Catalog catalog = parse(configuration);
+		ParserConfiguration.bind(configuration);
+		collector.clear();
+		new Validator().validate(catalog);
+		assertEquals(1, collector.getCount(Rule.COURSE_IDENTIFIER_NO_TYPE));
+		assertEquals(2, collector.getCount(Rule.COURSE_NO_SUBJECT));
+		assertEquals(1, collector.getCount(Rule.PRESENTATION_NO_START));
+		assertNull(collector.getDiagnostics().get(0).getPath());
+	}
+
+	@Test
+	public void validateInParallel() throws Exception{
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setValidator(null);
+		Catalog catalog = parse(configuration);
+		ParserConfiguration.bind(configuration);
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			new Validator().validate(catalog, executor);
+		} finally {
+			executor.shutdown();
+		}
+		assertEquals(1, collector.getCount(Rule.COURSE_IDENTIFIER_NO_TYPE));
+		assertEquals(2, collector.getCount(Rule.COURSE_NO_SUBJECT));
+		assertEquals(1, collector.getCount(Rule.PRESENTATION_NO_START));
+		assertEquals(1, collector.getCount(Rule.PROVIDER_NO_URL));
+	}
+
+	/**
+	 * Rules the parser enforces by rejecting elements are only run over models
+	 */
+	@Test
+	public void enforcedByParser(){
+		ParserConfiguration configuration = new ParserConfiguration();
+		configuration.setDiagnostics(collector);
+		ParserConfiguration.bind(configuration);
+
+		Age age = new Age();
+		age.setValue("18-16");
+		Venue venue = new Venue();
+		Validator validator = new Validator();
+		validator.validate(age);
+		validator.validate(venue);
+		assertEquals(1, collector.getCount(Rule.AGE_INVALID));
+		assertEquals("age : start age greater than end age", collector.getDiagnostics().get(0).getMessage());
+		assertEquals(1, collector.getCount(Rule.VENUE_NO_PROVIDER));
+
+		validator.validateParsed(age, new Element("age"));
+		assertEquals(1, collector.getCount(Rule.AGE_INVALID));
+	}
+
+	@Test
+	public void register(){
+		final AtomicInteger presentations = new AtomicInteger();
+		Validator validator = new Validator(new CourseTitleRule());
+		Course course = new Course();
+		course.setPresentations(new Presentation[]{new Presentation()});
+		ParserConfiguration.bind(new ParserConfiguration());
+		validator.validate(course);
+		assertEquals(0, presentations.get());
+
+		ValidationRule<Presentation> rule = new ValidationRule<Presentation>(Presentation.class){
+			@Override
+			public void validate(Presentation object, Element element, Diagnostics diagnostics) {
+				presentations.incrementAndGet();
+			}
+		};
+		validator.register(rule);
+		validator.validate(course);
+		assertEquals(1, presentations.get());
+		assertSame(rule, validator.getRules()[1]);
+		assertNotNull(validator.getRule(CourseTitleRule.class));
+
+		validator.unregister(rule);
+		validator.validate(course);
+		assertEquals(1, presentations.get());
+	}
+
+}
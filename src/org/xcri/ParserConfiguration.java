@@ -19,20 +19,102 @@
  */
 package org.xcri;
 
+import java.util.concurrent.ExecutorService;
+
+import org.xcri.diagnostics.Diagnostics;
+import org.xcri.util.ContentSecurityFilter;
+import org.xcri.util.InternPool;
+import org.xcri.validation.Validator;
+
+/**
+ * Options that control how feeds are parsed.
+ *
+ * Parsing uses the configuration bound to the current thread, if any,
+ * and otherwise the shared default returned by getDefault(). To parse
+ * feeds with different options at the same time, create a configuration
+ * for each and pass it to Catalog.fromXml(Document, ParserConfiguration),
+ * StreamingCatalogParser or CatalogStreamReader, which bind it for the
+ * duration of the parse.
+ */
 public class ParserConfiguration {
 	
-	private static ParserConfiguration instance;
+	private static final ParserConfiguration DEFAULT = new ParserConfiguration();
+	
+	private static final ThreadLocal<ParserConfiguration> current = new ThreadLocal<ParserConfiguration>();
 	
-	private boolean sanitizeXHTML = true;
-	private boolean fixCDATA = true;
+	private volatile boolean sanitizeXHTML = true;
+	private volatile boolean fixCDATA = true;
+	private volatile boolean convertCDATA = false;
+	private volatile boolean lazyXHTML = false;
+	private volatile boolean internValues = true;
+	private volatile InternPool internPool;
+	private volatile ExecutorService executor;
+	private volatile Diagnostics diagnostics = new Diagnostics();
+	private volatile ContentSecurityFilter contentSecurityFilter = new ContentSecurityFilter();
+	private volatile Validator validator = new Validator();
 	
-	private ParserConfiguration(){
+	/**
+	 * Create a configuration with the default options
+	 */
+	public ParserConfiguration(){
 		
 	}
 	
+	/**
+	 * Create a configuration with the same options as another
+	 * @param configuration the configuration to copy
+	 */
+	public ParserConfiguration(ParserConfiguration configuration){
+		this.sanitizeXHTML = configuration.sanitizeXHTML;
+		this.fixCDATA = configuration.fixCDATA;
+		this.convertCDATA = configuration.convertCDATA;
+		this.lazyXHTML = configuration.lazyXHTML;
+		this.internValues = configuration.internValues;
+		this.internPool = configuration.internPool;
+		this.executor = configuration.executor;
+		this.diagnostics = configuration.diagnostics;
+		this.contentSecurityFilter = configuration.contentSecurityFilter;
+		this.validator = configuration.validator;
+	}
+	
+	/**
+	 * @return the configuration bound to the current thread, or the default configuration if there is none
+	 */
 	public static ParserConfiguration getInstance(){
-		if (instance == null) instance = new ParserConfiguration();
-		return instance;
+		ParserConfiguration configuration = current.get();
+		if (configuration == null) return DEFAULT;
+		return configuration;
+	}
+	
+	/**
+	 * @return the configuration used when none is bound to the current thread
+	 */
+	public static ParserConfiguration getDefault(){
+		return DEFAULT;
+	}
+	
+	/**
+	 * Bind a configuration to the current thread. Callers should restore the
+	 * previous binding when they have finished, in a finally block:
+	 * <pre>
+	 * ParserConfiguration previous = ParserConfiguration.bind(configuration);
+	 * try {
+	 *     ...
+	 * } finally {
+	 *     ParserConfiguration.bind(previous);
+	 * }
+	 * </pre>
+	 * @param configuration the configuration, or null to remove the binding
+	 * @return the configuration previously bound to the current thread, or null if there was none
+	 */
+	public static ParserConfiguration bind(ParserConfiguration configuration){
+		ParserConfiguration previous = current.get();
+		if (configuration == null){
+			current.remove();
+		} else {
+			current.set(configuration);
+		}
+		return previous;
 	}
 
 	/**
@@ -63,4 +145,139 @@ public class ParserConfiguration {
 		this.fixCDATA = fixCDATA;
 	}
 
+	/**
+	 * @return whether HTML in CDATA sections is converted to XHTML
+	 */
+	public boolean convertCDATA() {
+		return convertCDATA;
+	}
+
+	/**
+	 * @param convertCDATA true to convert HTML in CDATA sections to XHTML, rather than
+	 * keeping it as text; this only applies if fixCDATA is also true
+	 */
+	public void setConvertCDATA(boolean convertCDATA) {
+		this.convertCDATA = convertCDATA;
+	}
+
+	/**
+	 * @return whether XHTML descriptions are only kept as text, with the element read again when first asked for
+	 */
+	public boolean lazyXHTML() {
+		return lazyXHTML;
+	}
+
+	/**
+	 * @param lazyXHTML true to keep only the text form of XHTML descriptions, returned by
+	 * getValue(), and read the element returned by getXhtml() from it when it is first
+	 * asked for. The element is still built and checked while parsing, so this saves
+	 * memory rather than parsing time.
+	 */
+	public void setLazyXHTML(boolean lazyXHTML) {
+		this.lazyXHTML = lazyXHTML;
+	}
+
+	/**
+	 * @return whether repeated attribute and vocabulary values are shared using an InternPool
+	 */
+	public boolean internValues() {
+		return internValues;
+	}
+
+	/**
+	 * @param internValues true to share repeated attribute and vocabulary values using an InternPool (the default)
+	 */
+	public void setInternValues(boolean internValues) {
+		this.internValues = internValues;
+	}
+
+	/**
+	 * @return the pool used to share repeated values across parses, or null if each parse uses a pool of its own
+	 */
+	public InternPool getInternPool() {
+		return internPool;
+	}
+
+	/**
+	 * @param internPool the pool to share between every parse that uses this configuration, 
+	 * or null to use a new pool for each parse that is discarded with it (the default)
+	 */
+	public void setInternPool(InternPool internPool) {
+		this.internPool = internPool;
+	}
+
+	/**
+	 * Get the configuration to bind while parsing a single feed. If values are 
+	 * interned but no pool has been set, this is a copy of the configuration
+	 * with a new pool, so that the values of one feed are not kept once it
+	 * has been parsed.
+	 * @return this configuration, or a copy of it with a pool for the parse
+	 */
+	public ParserConfiguration forParse() {
+		if (!internValues || internPool != null) return this;
+		ParserConfiguration configuration = new ParserConfiguration(this);
+		configuration.internPool = new InternPool();
+		return configuration;
+	}
+
+	/**
+	 * @return the executor used to convert providers and courses in parallel, or null if they are converted sequentially
+	 */
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Convert the providers of a catalog, and the courses of a provider, as
+	 * separate tasks on the given executor. The order of providers and
+	 * courses is preserved. The executor is not shut down by the parser.
+	 * @param executor the executor to use, or null to convert sequentially (the default)
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * @return the diagnostics that problems found while parsing are reported to
+	 */
+	public Diagnostics getDiagnostics() {
+		return diagnostics;
+	}
+
+	/**
+	 * @param diagnostics the diagnostics to report problems to; by default they are logged
+	 */
+	public void setDiagnostics(Diagnostics diagnostics) {
+		this.diagnostics = diagnostics;
+	}
+
+	/**
+	 * @return the filter used to find dangerous elements and attributes in XHTML descriptions
+	 */
+	public ContentSecurityFilter getContentSecurityFilter() {
+		return contentSecurityFilter;
+	}
+
+	/**
+	 * @param contentSecurityFilter the filter to use, for example one that only allows a list of formatting elements
+	 */
+	public void setContentSecurityFilter(ContentSecurityFilter contentSecurityFilter) {
+		this.contentSecurityFilter = contentSecurityFilter;
+	}
+
+	/**
+	 * @return the validator run on each element as it is read, or null if elements are not validated
+	 */
+	public Validator getValidator() {
+		return validator;
+	}
+
+	/**
+	 * @param validator the validator to run on each element as it is read; null to skip validation,
+	 * for example for a trusted feed. Elements that break a MUST rule are still rejected.
+	 */
+	public void setValidator(Validator validator) {
+		this.validator = validator;
+	}
+
 }
@@ -0,0 +1,137 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xcri.core.Catalog;
+import org.xcri.core.CatalogStreamReader;
+import org.xcri.core.Course;
+import org.xcri.core.Provider;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.util.StaxBuilder;
+
+/**
+ * Parses a Catalog from a StAX stream without building a JDOM Document
+ * for the whole feed.
+ *
+ * The catalog and provider elements are read directly from the stream;
+ * each course is built as a small JDOM fragment, converted using
+ * Course.fromXml() and then discarded, so at most one course is held
+ * as XML at any time. The resulting object graph, and the warnings
+ * logged, are the same as for Catalog.fromXml(Document).
+ *
+ * To process courses one at a time without keeping them all, use
+ * CatalogStreamReader instead.
+ */
+public class StreamingCatalogParser {
+
+	private XMLInputFactory factory = StaxBuilder.createInputFactory();
+	private ParserConfiguration configuration;
+
+	/**
+	 * Create a parser that uses the configuration bound to the calling thread
+	 */
+	public StreamingCatalogParser(){
+	}
+
+	/**
+	 * Create a parser that always uses the given configuration
+	 * @param configuration
+	 */
+	public StreamingCatalogParser(ParserConfiguration configuration){
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Parse a catalog from a byte stream; the encoding is detected from the XML declaration
+	 * @param in
+	 * @return the catalog
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException
+	 */
+	public Catalog parse(InputStream in) throws XMLStreamException, InvalidElementException{
+		XMLStreamReader reader = factory.createXMLStreamReader(in);
+		try {
+			return parse(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Parse a catalog from a character stream
+	 * @param in
+	 * @return the catalog
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException
+	 */
+	public Catalog parse(Reader in) throws XMLStreamException, InvalidElementException{
+		XMLStreamReader reader = factory.createXMLStreamReader(in);
+		try {
+			return parse(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Parse a catalog from a StAX reader. The reader is left positioned on the
+	 * end of the root element.
+	 * @param reader
+	 * @return the catalog
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException
+	 */
+	public Catalog parse(XMLStreamReader reader) throws XMLStreamException, InvalidElementException{
+		CatalogStreamReader courses = new CatalogStreamReader(reader);
+		courses.setConfiguration(configuration);
+		IdentityHashMap<Provider, List<Course>> coursesByProvider = new IdentityHashMap<Provider, List<Course>>();
+		Course course;
+		while ((course = courses.nextCourse()) != null){
+			List<Course> providerCourses = coursesByProvider.get(courses.getProvider());
+			if (providerCourses == null){
+				providerCourses = new ArrayList<Course>();
+				coursesByProvider.put(courses.getProvider(), providerCourses);
+			}
+			providerCourses.add(course);
+		}
+
+		//
+		// Providers without any courses have already been completed by the reader
+		//
+		Catalog catalog = courses.getCatalog();
+		for (Provider provider : catalog.getProviders()){
+			if (coursesByProvider.containsKey(provider)){
+				provider.completeCourses(coursesByProvider.get(provider));
+			}
+		}
+		return catalog;
+	}
+
+}
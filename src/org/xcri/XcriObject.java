@@ -20,6 +20,9 @@
 
 package org.xcri;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.jdom.Element;
 import org.xcri.exceptions.InvalidElementException;
 
@@ -29,4 +32,11 @@ public interface XcriObject {
 
 	public Element toXml();
 
+	/**
+	 * Write the same XML as toXml() directly to a StAX stream
+	 * @param writer
+	 * @throws XMLStreamException
+	 */
+	public void writeXml(XMLStreamWriter writer) throws XMLStreamException;
+
 }
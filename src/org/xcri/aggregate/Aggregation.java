@@ -0,0 +1,110 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.aggregate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Provider;
+
+/**
+ * The result of aggregating feeds: the merged Catalog, a report for each
+ * feed, and which feed each course and provider came from.
+ */
+public class Aggregation {
+
+	private final Catalog catalog;
+	private final List<FeedReport> reports;
+	private final Map<Course, FeedReport> courseSources;
+	private final Map<Provider, List<FeedReport>> providerSources;
+	private final long elapsedMillis;
+
+	Aggregation(Catalog catalog, List<FeedReport> reports, Map<Course, FeedReport> courseSources, Map<Provider, List<FeedReport>> providerSources, long elapsedMillis){
+		this.catalog = catalog;
+		this.reports = Collections.unmodifiableList(reports);
+		this.courseSources = courseSources;
+		this.providerSources = providerSources;
+		this.elapsedMillis = elapsedMillis;
+	}
+
+	/**
+	 * @return the catalog of every provider and course from the feeds that were read successfully
+	 */
+	public Catalog getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * @return a report for each feed, in the order the feeds were given
+	 */
+	public List<FeedReport> getReports() {
+		return reports;
+	}
+
+	/**
+	 * @return the reports of the feeds that could not be read
+	 */
+	public List<FeedReport> getFailures(){
+		ArrayList<FeedReport> failures = new ArrayList<FeedReport>();
+		for (FeedReport report : reports){
+			if (!report.isSuccessful()) failures.add(report);
+		}
+		return failures;
+	}
+
+	/**
+	 * @param course a course in the catalog
+	 * @return the report of the feed the course came from, or null if it is not from this aggregation
+	 */
+	public FeedReport getSource(Course course){
+		return courseSources.get(course);
+	}
+
+	/**
+	 * @param provider a provider in the catalog
+	 * @return the reports of the feeds the provider appeared in, in order; empty if it is not from this aggregation
+	 */
+	public List<FeedReport> getSources(Provider provider){
+		List<FeedReport> sources = providerSources.get(provider);
+		if (sources == null) return Collections.emptyList();
+		return Collections.unmodifiableList(sources);
+	}
+
+	/**
+	 * @return the time taken to read every feed and merge them, in milliseconds
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		return courseSources.size() + " courses from " + providerSources.size() + " providers in " + (reports.size() - getFailures().size())
+			+ " of " + reports.size() + " feeds in " + elapsedMillis + "ms";
+	}
+
+}
@@ -0,0 +1,351 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.aggregate;
+
+import java.io.BufferedInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.xcri.ParserConfiguration;
+import org.xcri.StreamingCatalogParser;
+import org.xcri.cache.CatalogCache;
+import org.xcri.common.Description;
+import org.xcri.common.Image;
+import org.xcri.common.Subject;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Provider;
+import org.xcri.types.CommonType;
+import org.xcri.types.XcriElement;
+
+/**
+ * Reads many feeds concurrently and merges them into a single Catalog.
+ *
+ * Feeds are parsed with a StreamingCatalogParser on a pool of a fixed
+ * number of threads, created for each aggregation. A feed that cannot be
+ * read or parsed, or that has not finished when the timeout expires, is
+ * reported as failed and left out; the others are unaffected. To avoid
+ * parsing feeds that have not changed since they were last read, set a
+ * CatalogCache.
+ *
+ * Providers are merged by their first dc:identifier or, if they have
+ * none, their first mlo:url, ignoring case and any trailing '/'. Feeds
+ * are merged in the order they are given, so where a provider appears in
+ * more than one feed the first one's header is kept, and a course with
+ * the same identifier as one already added for the provider is left out.
+ * Descriptions, subjects and images that providers and courses inherited
+ * in their own feed are kept when they are moved into the merged catalog.
+ */
+public class CatalogAggregator {
+
+	private Log log = LogFactory.getLog(CatalogAggregator.class);
+
+	private final int threads;
+	private ParserConfiguration configuration;
+	private long timeoutMillis;
+	private CatalogCache cache;
+
+	/**
+	 * @param threads the number of feeds to read at once
+	 */
+	public CatalogAggregator(int threads){
+		if (threads < 1) throw new IllegalArgumentException("threads must be at least 1");
+		this.threads = threads;
+	}
+
+	/**
+	 * @return the configuration to parse feeds with, or null to use the one bound to the thread calling aggregate()
+	 */
+	public ParserConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * @param configuration the configuration to parse feeds with, or null to use the one bound to the thread calling aggregate()
+	 */
+	public void setConfiguration(ParserConfiguration configuration) {
+		this.configuration = configuration;
+	}
+
+	/**
+	 * @return the time allowed for all the feeds to be read, in milliseconds, or 0 for no limit
+	 */
+	public long getTimeoutMillis() {
+		return timeoutMillis;
+	}
+
+	/**
+	 * @param timeoutMillis the time allowed for all the feeds to be read, in milliseconds, or 0 for no limit
+	 */
+	public void setTimeoutMillis(long timeoutMillis) {
+		this.timeoutMillis = timeoutMillis;
+	}
+
+	/**
+	 * @return the cache of parsed feeds, or null if every feed is parsed
+	 */
+	public CatalogCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * @param cache the cache of parsed feeds, or null to parse every feed
+	 */
+	public void setCache(CatalogCache cache) {
+		this.cache = cache;
+	}
+
+	/**
+	 * @param feeds
+	 * @return the merged catalog and a report of each feed
+	 * @see #aggregate(List)
+	 */
+	public Aggregation aggregate(Feed... feeds){
+		return aggregate(Arrays.asList(feeds));
+	}
+
+	/**
+	 * Read the feeds and merge them
+	 * @param feeds the feeds, in order of priority
+	 * @return the merged catalog and a report of each feed
+	 */
+	public Aggregation aggregate(List<Feed> feeds){
+		long start = System.nanoTime();
+		final ParserConfiguration configuration = this.configuration == null ? ParserConfiguration.getInstance() : this.configuration;
+		final CatalogCache cache = this.cache;
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, Math.max(feeds.size(), 1)));
+		ArrayList<Future<Parsed>> futures = new ArrayList<Future<Parsed>>(feeds.size());
+		ArrayList<Parsed> parsed = new ArrayList<Parsed>(feeds.size());
+		try {
+			for (final Feed feed : feeds){
+				futures.add(executor.submit(new Callable<Parsed>(){
+					public Parsed call() {
+						return parse(feed, configuration, cache);
+					}
+				}));
+			}
+			long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+			for (int i = 0; i < futures.size(); i++){
+				parsed.add(result(feeds.get(i), futures.get(i), deadline, start));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		return merge(parsed, start);
+	}
+
+	/**
+	 * Wait for a feed to be parsed
+	 * @param feed
+	 * @param future
+	 * @param deadline the value of System.nanoTime() to wait until, if there is a timeout
+	 * @param start
+	 * @return the parsed feed, or its failure
+	 */
+	private Parsed result(Feed feed, Future<Parsed> future, long deadline, long start){
+		try {
+			if (timeoutMillis <= 0) return future.get();
+			return future.get(Math.max(deadline - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+		} catch (TimeoutException e) {
+			future.cancel(true);
+			log.warn("feed timed out: " + feed);
+			return new Parsed(new FeedReport(feed, e, elapsedMillis(start), null), null);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("interrupted while aggregating feeds", e);
+		} catch (ExecutionException e) {
+			//
+			// parse() catches exceptions, so this is an Error
+			//
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) throw (Error)cause;
+			throw new IllegalStateException(cause);
+		}
+	}
+
+	/**
+	 * Parse a feed; called on a worker thread, renamed after the feed so that anything logged can be attributed to it
+	 * @param feed
+	 * @param configuration
+	 * @param cache the cache of parsed feeds, or null
+	 * @return the parsed feed, or its failure
+	 */
+	private Parsed parse(Feed feed, ParserConfiguration configuration, CatalogCache cache){
+		Thread thread = Thread.currentThread();
+		String threadName = thread.getName();
+		thread.setName(threadName + " [" + feed + "]");
+		long start = System.nanoTime();
+		try {
+			InputStream in = new BufferedInputStream(feed.open());
+			try {
+				Catalog catalog = cache == null ? new StreamingCatalogParser(configuration).parse(in) : cache.parse(in, configuration);
+				return new Parsed(new FeedReport(feed, null, elapsedMillis(start), catalog.getGenerated()), catalog);
+			} finally {
+				in.close();
+			}
+		} catch (Exception e) {
+			log.warn("feed could not be read: " + feed + ": " + e.getMessage());
+			return new Parsed(new FeedReport(feed, e, elapsedMillis(start), null), null);
+		} finally {
+			thread.setName(threadName);
+		}
+	}
+
+	/**
+	 * Merge the feeds that were parsed, in order
+	 * @param feeds
+	 * @param start
+	 * @return the aggregation
+	 */
+	private Aggregation merge(List<Parsed> feeds, long start){
+		Catalog merged = new Catalog();
+		merged.setGenerated(new Date());
+		ArrayList<Provider> providers = new ArrayList<Provider>();
+		HashMap<String, Provider> providersByKey = new HashMap<String, Provider>();
+		IdentityHashMap<Provider, HashSet<String>> courseIdentifiers = new IdentityHashMap<Provider, HashSet<String>>();
+		IdentityHashMap<Provider, List<Course>> courses = new IdentityHashMap<Provider, List<Course>>();
+		IdentityHashMap<Course, FeedReport> courseSources = new IdentityHashMap<Course, FeedReport>();
+		IdentityHashMap<Provider, List<FeedReport>> providerSources = new IdentityHashMap<Provider, List<FeedReport>>();
+		ArrayList<FeedReport> reports = new ArrayList<FeedReport>(feeds.size());
+
+		for (Parsed feed : feeds){
+			FeedReport report = feed.report;
+			reports.add(report);
+			if (feed.catalog == null || feed.catalog.getProviders() == null) continue;
+			for (Provider provider : feed.catalog.getProviders()){
+				String key = providerKey(provider);
+				Provider target = key == null ? null : providersByKey.get(key);
+				report.addProvider(target != null);
+				if (target == null){
+					target = provider;
+					moveTo(provider, merged);
+					providers.add(provider);
+					if (key != null) providersByKey.put(key, provider);
+					courseIdentifiers.put(provider, new HashSet<String>());
+					courses.put(provider, new ArrayList<Course>());
+					providerSources.put(provider, new ArrayList<FeedReport>());
+				}
+				List<FeedReport> sources = providerSources.get(target);
+				if (!sources.contains(report)) sources.add(report);
+				if (provider.getCourses() == null) continue;
+				for (Course course : provider.getCourses()){
+					String identifier = identifier(course);
+					if (identifier != null && !courseIdentifiers.get(target).add(identifier)){
+						report.addDuplicateCourse();
+						continue;
+					}
+					if (target != provider) moveTo(course, target);
+					courses.get(target).add(course);
+					courseSources.put(course, report);
+					report.addCourse();
+				}
+			}
+		}
+
+		for (Provider provider : providers){
+			List<Course> providerCourses = courses.get(provider);
+			provider.setCourses(providerCourses.toArray(new Course[providerCourses.size()]));
+		}
+		merged.setProviders(providers.toArray(new Provider[providers.size()]));
+		return new Aggregation(merged, reports, courseSources, providerSources, elapsedMillis(start));
+	}
+
+	/**
+	 * Move an element to a new parent, keeping the descriptions, subjects and images it inherited from the old one
+	 * @param element
+	 * @param parent
+	 */
+	private static void moveTo(CommonType element, XcriElement parent){
+		if (element.getParent() == null){
+			element.setParent(parent);
+			return;
+		}
+		Description[] descriptions = element.getResolvedDescriptions();
+		Subject[] subjects = element.getResolvedSubjects();
+		Image[] images = element.getResolvedImages();
+		element.setParent(parent);
+		if (descriptions.length > 0 && element.getResolvedDescriptions() != descriptions) element.setDescriptions(descriptions);
+		if (subjects.length > 0 && element.getResolvedSubjects() != subjects) element.setSubjects(subjects);
+		if (images.length > 0 && element.getResolvedImages() != images) element.setImages(images);
+	}
+
+	/**
+	 * @param provider
+	 * @return the key to merge the provider by: its first identifier or else its first url, normalized; or null if it has neither
+	 */
+	private static String providerKey(Provider provider){
+		String key = identifier(provider);
+		if (key == null && provider.getUrls() != null && provider.getUrls().length > 0){
+			key = provider.getUrls()[0].getValue();
+			if (key != null) key = key.trim();
+		}
+		if (key == null || key.length() == 0) return null;
+		key = key.toLowerCase(Locale.ENGLISH);
+		while (key.endsWith("/")) key = key.substring(0, key.length() - 1);
+		return key;
+	}
+
+	/**
+	 * @param element
+	 * @return the first dc:identifier, trimmed, or null if there is none
+	 */
+	private static String identifier(CommonType element){
+		if (element.getIdentifiers() == null || element.getIdentifiers().length == 0) return null;
+		String identifier = element.getIdentifiers()[0].getValue();
+		if (identifier == null) return null;
+		identifier = identifier.trim();
+		return identifier.length() == 0 ? null : identifier;
+	}
+
+	private static long elapsedMillis(long start){
+		return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+	}
+
+	/**
+	 * A feed that has been parsed, or has failed
+	 */
+	private static class Parsed {
+		private final FeedReport report;
+		private final Catalog catalog;
+
+		private Parsed(FeedReport report, Catalog catalog){
+			this.report = report;
+			this.catalog = catalog;
+		}
+	}
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.aggregate;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+
+/**
+ * A feed to be aggregated: a name to report it by, and a way of reading it.
+ * open() is called on a worker thread, once for each aggregation.
+ */
+public abstract class Feed {
+
+	private final String name;
+
+	/**
+	 * @param name the name to report the feed by, such as its URL
+	 */
+	protected Feed(String name){
+		if (name == null) throw new IllegalArgumentException("name is required");
+		this.name = name;
+	}
+
+	/**
+	 * @return a new stream of the content of the feed, which is closed by the caller
+	 * @throws IOException
+	 */
+	public abstract InputStream open() throws IOException;
+
+	/**
+	 * @return the name of the feed
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		return name;
+	}
+
+	/**
+	 * @param file
+	 * @return a feed read from the file, named by its path
+	 */
+	public static Feed of(final File file){
+		return new Feed(file.getPath()){
+			@Override
+			public InputStream open() throws IOException {
+				return new FileInputStream(file);
+			}
+		};
+	}
+
+	/**
+	 * @param url
+	 * @return a feed read from the URL, named by the URL
+	 */
+	public static Feed of(final URL url){
+		return new Feed(url.toString()){
+			@Override
+			public InputStream open() throws IOException {
+				return url.openStream();
+			}
+		};
+	}
+
+	/**
+	 * @param name
+	 * @param content the feed, which is not copied
+	 * @return a feed read from memory
+	 */
+	public static Feed of(String name, final byte[] content){
+		return new Feed(name){
+			@Override
+			public InputStream open() {
+				return new ByteArrayInputStream(content);
+			}
+		};
+	}
+
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.aggregate;
+
+import java.util.Date;
+
+/**
+ * What happened to one feed in an aggregation: how long it took, what it
+ * contributed, or why it failed.
+ */
+public class FeedReport {
+
+	private final Feed feed;
+	private final Exception failure;
+	private final long elapsedMillis;
+	private final Date generated;
+	private int providers;
+	private int mergedProviders;
+	private int courses;
+	private int duplicateCourses;
+
+	FeedReport(Feed feed, Exception failure, long elapsedMillis, Date generated){
+		this.feed = feed;
+		this.failure = failure;
+		this.elapsedMillis = elapsedMillis;
+		this.generated = generated;
+	}
+
+	/**
+	 * @return the feed
+	 */
+	public Feed getFeed() {
+		return feed;
+	}
+
+	/**
+	 * @return true if the feed was read and its courses added to the catalog
+	 */
+	public boolean isSuccessful(){
+		return failure == null;
+	}
+
+	/**
+	 * @return the reason the feed could not be read, such as an IOException, an XMLStreamException,
+	 * an InvalidElementException or a TimeoutException; null if it was read successfully
+	 */
+	public Exception getFailure() {
+		return failure;
+	}
+
+	/**
+	 * @return the time taken to read and parse the feed, in milliseconds, not including any time waiting for a thread
+	 */
+	public long getElapsedMillis() {
+		return elapsedMillis;
+	}
+
+	/**
+	 * @return the @generated date of the feed, or null if it could not be read
+	 */
+	public Date getGenerated() {
+		return generated;
+	}
+
+	/**
+	 * @return the number of providers in the feed
+	 */
+	public int getProviders() {
+		return providers;
+	}
+
+	/**
+	 * @return the number of providers in the feed that were already in the catalog from an earlier feed
+	 */
+	public int getMergedProviders() {
+		return mergedProviders;
+	}
+
+	/**
+	 * @return the number of courses added to the catalog from the feed
+	 */
+	public int getCourses() {
+		return courses;
+	}
+
+	/**
+	 * @return the number of courses left out because a course with the same identifier
+	 * was already in the catalog for the same provider
+	 */
+	public int getDuplicateCourses() {
+		return duplicateCourses;
+	}
+
+	void addProvider(boolean merged){
+		providers++;
+		if (merged) mergedProviders++;
+	}
+
+	void addCourse(){
+		courses++;
+	}
+
+	void addDuplicateCourse(){
+		duplicateCourses++;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		if (failure != null) return feed + ": failed after " + elapsedMillis + "ms: " + failure;
+		return feed + ": " + courses + " courses from " + providers + " providers in " + elapsedMillis + "ms"
+			+ (duplicateCourses == 0 ? "" : ", " + duplicateCourses + " duplicate courses");
+	}
+
+}
@@ -0,0 +1,376 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.cache;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.xcri.ParserConfiguration;
+import org.xcri.StreamingCatalogParser;
+import org.xcri.core.Catalog;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.snapshot.CatalogSnapshot;
+
+/**
+ * Parses feeds, keeping the result for feeds that have been parsed before.
+ *
+ * Feeds are identified by a SHA-256 digest of their bytes, taken as they
+ * are read, so a feed that is fetched again unchanged is not parsed again
+ * whatever its URL or timestamp. The cache does not hold the catalogs
+ * themselves, which callers are free to change, but a CatalogSnapshot of
+ * each; a hit returns a new catalog loaded from the snapshot, which is
+ * much quicker than parsing.
+ *
+ * The cache is limited by the total size of its snapshots, which is a
+ * close estimate of the heap it uses. When it is full the least recently
+ * used feeds are evicted. It can be shared by several threads; if two
+ * threads parse the same feed at once, both miss.
+ *
+ * A feed parsed with one ParserConfiguration may give a different catalog
+ * with another, so feeds are cached for each configuration instance they
+ * are parsed with. Changes made to a configuration after it has been used
+ * are not noticed: use a new configuration instead.
+ *
+ * A feed read from a stream is held in memory until it has been parsed,
+ * and while it is being read the buffer holding it may briefly take up to
+ * twice its size; a feed in a file is never held in memory.
+ */
+public class CatalogCache {
+
+	/**
+	 * The digest used to identify feeds
+	 */
+	public static final String ALGORITHM = "SHA-256";
+
+	//
+	// An estimate of the heap used by each entry besides its snapshot: the
+	// map entry, the key and the array header
+	//
+	static final int ENTRY_OVERHEAD = 256;
+
+	private final long maxSize;
+	private final LinkedHashMap<String, byte[]> snapshots = new LinkedHashMap<String, byte[]>(16, 0.75f, true);
+	//
+	// The configurations feeds have been parsed with, compared by identity
+	// as ParserConfiguration does not override equals()
+	//
+	private final WeakHashMap<ParserConfiguration, Integer> configurations = new WeakHashMap<ParserConfiguration, Integer>();
+	private int nextConfiguration;
+	private long size;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param maxSize the estimated heap the cache may use, in bytes
+	 */
+	public CatalogCache(long maxSize){
+		if (maxSize < 0) throw new IllegalArgumentException("maxSize must not be negative");
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Parse a feed with the configuration bound to the calling thread
+	 * @param in the feed, which is read to the end but not closed
+	 * @return the catalog
+	 * @see #parse(InputStream, ParserConfiguration)
+	 */
+	public Catalog parse(InputStream in) throws IOException, XMLStreamException, InvalidElementException{
+		return parse(in, ParserConfiguration.getInstance());
+	}
+
+	/**
+	 * Read a feed, parsing it only if it is not in the cache. The feed is
+	 * held in memory until it has been parsed; while it is being read, the
+	 * buffer may briefly take up to twice the size of the feed.
+	 * @param in the feed, which is read to the end but not closed
+	 * @param configuration the configuration to parse the feed with
+	 * @return the catalog
+	 * @throws IOException if the feed cannot be read
+	 * @throws XMLStreamException if the feed is not well-formed
+	 * @throws InvalidElementException if the feed is not valid
+	 */
+	public Catalog parse(InputStream in, ParserConfiguration configuration) throws IOException, XMLStreamException, InvalidElementException{
+		MessageDigest digest = digest();
+		Buffer feed = new Buffer();
+		copy(new DigestInputStream(in, digest), feed);
+		String key = key(digest, configuration);
+		Catalog catalog = get(key);
+		if (catalog != null) return catalog;
+		return put(key, feed.toInputStream(), configuration);
+	}
+
+	/**
+	 * Parse a feed with the configuration bound to the calling thread
+	 * @param feed
+	 * @return the catalog
+	 * @see #parse(InputStream, ParserConfiguration)
+	 */
+	public Catalog parse(byte[] feed) throws IOException, XMLStreamException, InvalidElementException{
+		return parse(feed, ParserConfiguration.getInstance());
+	}
+
+	/**
+	 * @param feed
+	 * @param configuration the configuration to parse the feed with
+	 * @return the catalog
+	 * @see #parse(InputStream, ParserConfiguration)
+	 */
+	public Catalog parse(byte[] feed, ParserConfiguration configuration) throws IOException, XMLStreamException, InvalidElementException{
+		MessageDigest digest = digest();
+		digest.update(feed);
+		String key = key(digest, configuration);
+		Catalog catalog = get(key);
+		if (catalog != null) return catalog;
+		return put(key, new ByteArrayInputStream(feed), configuration);
+	}
+
+	/**
+	 * Parse a feed with the configuration bound to the calling thread
+	 * @param file
+	 * @return the catalog
+	 * @see #parse(File, ParserConfiguration)
+	 */
+	public Catalog parse(File file) throws IOException, XMLStreamException, InvalidElementException{
+		return parse(file, ParserConfiguration.getInstance());
+	}
+
+	/**
+	 * Read a feed, parsing it only if it is not in the cache. The file is
+	 * read once to find its digest and, on a miss, again to parse it, so
+	 * it is never held in memory.
+	 * @param file
+	 * @param configuration the configuration to parse the feed with
+	 * @return the catalog
+	 * @see #parse(InputStream, ParserConfiguration)
+	 */
+	public Catalog parse(File file, ParserConfiguration configuration) throws IOException, XMLStreamException, InvalidElementException{
+		MessageDigest digest = digest();
+		InputStream in = new DigestInputStream(new FileInputStream(file), digest);
+		try {
+			copy(in, null);
+		} finally {
+			in.close();
+		}
+		String key = key(digest, configuration);
+		Catalog catalog = get(key);
+		if (catalog != null) return catalog;
+		in = new BufferedInputStream(new FileInputStream(file), 65536);
+		try {
+			return put(key, in, configuration);
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @param key
+	 * @return a new catalog loaded from the snapshot of the feed, or null on a miss
+	 * @throws IOException
+	 */
+	private Catalog get(String key) throws IOException{
+		byte[] snapshot;
+		synchronized (this){
+			snapshot = snapshots.get(key);
+			if (snapshot == null){
+				misses++;
+				return null;
+			}
+			hits++;
+		}
+		return new CatalogSnapshot().read(ByteBuffer.wrap(snapshot));
+	}
+
+	/**
+	 * Parse a feed that missed, and keep its snapshot if there is room
+	 * @param key
+	 * @param in
+	 * @param configuration
+	 * @return the catalog
+	 */
+	private Catalog put(String key, InputStream in, ParserConfiguration configuration) throws IOException, XMLStreamException, InvalidElementException{
+		Catalog catalog = new StreamingCatalogParser(configuration).parse(in);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new CatalogSnapshot().write(catalog, out);
+		byte[] snapshot = out.toByteArray();
+		long entrySize = sizeOf(snapshot);
+		if (entrySize > maxSize) return catalog;
+
+		synchronized (this){
+			byte[] previous = snapshots.put(key, snapshot);
+			if (previous != null) size -= sizeOf(previous);
+			size += entrySize;
+			//
+			// Evict the least recently used, which come first
+			//
+			Iterator<Map.Entry<String, byte[]>> entries = snapshots.entrySet().iterator();
+			while (size > maxSize){
+				Map.Entry<String, byte[]> eldest = entries.next();
+				size -= sizeOf(eldest.getValue());
+				entries.remove();
+				evictions++;
+			}
+		}
+		return catalog;
+	}
+
+	/**
+	 * Remove every feed, keeping the counts of hits, misses and evictions
+	 */
+	public synchronized void clear(){
+		snapshots.clear();
+		size = 0;
+	}
+
+	/**
+	 * @return the estimated heap the cache may use, in bytes
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the estimated heap used by the feeds in the cache, in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * @return the number of feeds in the cache
+	 */
+	public synchronized int getEntries() {
+		return snapshots.size();
+	}
+
+	/**
+	 * @return the number of feeds that were found in the cache
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of feeds that were not found in the cache, and so were parsed
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of feeds removed to make room for others
+	 */
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return the proportion of feeds that were found in the cache, or 0 if none have been read
+	 */
+	public synchronized double getHitRatio() {
+		if (hits + misses == 0) return 0;
+		return (double)hits / (hits + misses);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString(){
+		return "CatalogCache[" + snapshots.size() + " feeds, " + size + "/" + maxSize + " bytes, " + hits + " hits, " + misses + " misses, " + evictions + " evictions]";
+	}
+
+	static long sizeOf(byte[] snapshot){
+		return snapshot.length + ENTRY_OVERHEAD;
+	}
+
+	private static MessageDigest digest(){
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			//
+			// Every Java platform has SHA-256
+			//
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param digest the digest of the feed
+	 * @param configuration the configuration the feed is parsed with
+	 * @return the key of the feed, which is different for each configuration
+	 */
+	private String key(MessageDigest digest, ParserConfiguration configuration){
+		Integer id;
+		synchronized (configurations){
+			id = configurations.get(configuration);
+			if (id == null){
+				id = nextConfiguration++;
+				configurations.put(configuration, id);
+			}
+		}
+		byte[] hash = digest.digest();
+		StringBuilder key = new StringBuilder(hash.length * 2 + 9);
+		key.append(Integer.toHexString(id)).append(':');
+		for (byte b : hash){
+			key.append(Character.forDigit((b >> 4) & 0xf, 16));
+			key.append(Character.forDigit(b & 0xf, 16));
+		}
+		return key.toString();
+	}
+
+	/**
+	 * @param in
+	 * @param out the stream to copy to, or null to only read to the end
+	 * @throws IOException
+	 */
+	private static void copy(InputStream in, Buffer out) throws IOException{
+		byte[] buffer = new byte[65536];
+		int length;
+		while ((length = in.read(buffer)) != -1){
+			if (out != null) out.write(buffer, 0, length);
+		}
+	}
+
+	/**
+	 * A stream that can be read back without copying what was written to it
+	 */
+	private static class Buffer extends ByteArrayOutputStream {
+		private InputStream toInputStream(){
+			return new ByteArrayInputStream(buf, 0, count);
+		}
+	}
+
+}
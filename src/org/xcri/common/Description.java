@@ -20,7 +20,6 @@
 
 package org.xcri.common;
 
-import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
 import org.xcri.types.DescriptiveTextType;
@@ -51,10 +50,7 @@ public class Description extends DescriptiveTextType{
 		description.setHref(this.getHref());
 		description.setLang(this.getLang());
 		description.setType(this.getType());
-		if (this.getXhtml() != null)
-			description.setXhtml((Element)this.getXhtml().clone());
-		description.setValue(this.getValue());
-		description.setIsXhtml(this.isXhtml());
+		this.copyContentTo(description);
 		return description;
 	}
 	
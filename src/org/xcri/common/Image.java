@@ -20,6 +20,9 @@
 
 package org.xcri.common;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
@@ -92,6 +95,17 @@ public class Image extends XcriElement{
 		if (this.getTitle() != null) element.setAttribute("title", this.getTitle());
 		return element;
 	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#writeAttributes(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeAttributes(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeAttributes(writer);
+		if (this.getAlt() != null) writer.writeAttribute("alt", this.getAlt());
+		if (this.getSrc() != null) writer.writeAttribute("src", this.getSrc());
+		if (this.getTitle() != null) writer.writeAttribute("title", this.getTitle());
+	}
 	/* (non-Javadoc)
 	 * @see org.xcri.types.XcriElement#fromXml(org.jdom.Element)
 	 */
@@ -101,6 +115,7 @@ public class Image extends XcriElement{
 		this.setAlt(element.getAttributeValue("alt"));
 		this.setSrc(element.getAttributeValue("src"));
 		this.setTitle(element.getAttributeValue("title"));
+		validate(element);
 	}
 	
 	
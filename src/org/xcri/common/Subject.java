@@ -42,4 +42,12 @@ public class Subject extends XcriElement{
 		return "subject";
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#internValue()
+	 */
+	@Override
+	protected boolean internValue() {
+		return true;
+	}
+
 }
@@ -22,8 +22,11 @@ package org.xcri.core;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
-import javax.xml.bind.DatatypeConverter;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -31,21 +34,40 @@ import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.CommonType;
+import org.xcri.types.TemporalType;
+import org.xcri.util.W3CDateTime;
 import org.xcri.util.lax.Lax;
 
 public class Catalog extends CommonType{
 
-	private Log log = LogFactory.getLog(Catalog.class);
+	private static Log log = LogFactory.getLog(Catalog.class);
 
-	private Date generated;
+	private W3CDateTime generated;
 	private Provider[] providers;
 	
 	public void fromXml(Document document) throws InvalidElementException{
 		this.fromXml(document.getRootElement());
 	}
 	
+	/**
+	 * Parse a document using the given configuration rather than the default
+	 * @param document
+	 * @param configuration
+	 * @throws InvalidElementException
+	 */
+	public void fromXml(Document document, ParserConfiguration configuration) throws InvalidElementException{
+		ParserConfiguration previous = ParserConfiguration.bind(configuration);
+		try {
+			this.fromXml(document.getRootElement());
+		} finally {
+			ParserConfiguration.bind(previous);
+		}
+	}
+	
 	/* (non-Javadoc)
 	 * @see org.xcri.types.Common#toXml()
 	 */
@@ -53,15 +75,79 @@ public class Catalog extends CommonType{
 	public Element toXml() {
 		Element element = super.toXml();
 		if (this.getProviders() != null) for (Provider provider: this.getProviders()) element.addContent(provider.toXml());		
-		if (this.getGenerated() != null) element.setAttribute("generated", this.getGenerated().toString());
+		if (generated != null) element.setAttribute("generated", generated.toString());
 		return element;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#writeAttributes(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeAttributes(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeAttributes(writer);
+		if (generated != null) writer.writeAttribute("generated", generated.toString());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.CommonType#writeContent(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeContent(writer);
+		if (this.getProviders() != null) for (Provider provider: this.getProviders()) provider.writeXml(writer);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.xcri.types.Common#fromXml(org.jdom.Element)
 	 */
 	@Override
 	public void fromXml(Element element) throws InvalidElementException {
+		//
+		// Use a pool of interned values for this parse, unless one is configured
+		//
+		ParserConfiguration configuration = ParserConfiguration.getInstance();
+		ParserConfiguration parse = configuration.forParse();
+		if (parse != configuration){
+			ParserConfiguration previous = ParserConfiguration.bind(parse);
+			try {
+				this.fromXml(element);
+			} finally {
+				ParserConfiguration.bind(previous);
+			}
+			return;
+		}
+		
+		this.headerFromXml(element);
+
+		//
+		// Add children
+		//
+		List<Element> providerElements = Lax.getChildrenQuietly(element, "provider", Namespaces.XCRI_NAMESPACE_NS, log);
+		ExecutorService executor = ParallelConversion.getExecutor(providerElements);
+		List<Provider> providers;
+		if (executor == null){
+			providers = new ArrayList<Provider>();
+			for (Element providerElement : providerElements){
+				providers.add(this.providerFromXml(providerElement));
+			}
+		} else {
+			providers = new ParallelConversion<Provider>(){
+				@Override
+				protected Provider convert(Element element) throws InvalidElementException {
+					return providerFromXml(element);
+				}
+			}.convertAll(executor, providerElements, "provider");
+		}
+		this.setProviders(providers.toArray(new Provider[providers.size()]));
+	}
+	
+	/**
+	 * Process the catalog element, ignoring any &lt;provider&gt; children. This
+	 * is used by streaming parsers, which process each provider separately.
+	 * @param element the catalog element
+	 * @throws InvalidElementException
+	 */
+	public void headerFromXml(Element element) throws InvalidElementException {
 		super.fromXml(element);
 
 		//
@@ -69,37 +155,38 @@ public class Catalog extends CommonType{
 		//
 		if (element.getAttribute("generated")!= null){
 			try {
-				Date date = new Date();
-				date = DatatypeConverter.parseDateTime(element.getAttributeValue("generated")).getTime();
-				this.setGenerated(date);
+				this.setGeneratedDateTime(TemporalType.parseDateTime(element.getAttributeValue("generated")));
 
 				//
 				// Time and Year?
 				//
 				if (!element.getAttributeValue("generated").contains("T") || element.getAttributeValue("generated").split("T")[1].length()!=9){
-					log.warn("catalog: @generated contains date but not time:"+element.getAttributeValue("generated"));
+					getDiagnostics().report(log, Rule.GENERATED_NO_TIME, element, element.getAttributeValue("generated"));
 				}
 
 			} catch (Exception e) {
 
-				log.error("catalog: @generated contains invalid date:"+element.getAttributeValue("generated"));
+				getDiagnostics().report(log, Rule.GENERATED_INVALID, element, element.getAttributeValue("generated"));
 				throw new InvalidElementException("catalog: @generated contains invalid date:"+element.getAttributeValue("generated"));
 			}
 		} else {
 			this.setGenerated(new Date());
 		}
-
-		//
-		// Add children
-		//
-		ArrayList<Provider> providers = new ArrayList<Provider>();
-		for (Element providerElement : Lax.getChildrenQuietly(element, "provider", Namespaces.XCRI_NAMESPACE_NS, log)){
-			Provider provider = new Provider();
-			provider.fromXml(providerElement);
-			provider.setParent(this);
-			providers.add(provider);
-		}
-		this.setProviders(providers.toArray(new Provider[providers.size()]));
+		
+		validate(element);
+	}
+	
+	/**
+	 * Process a single &lt;provider&gt; child element of this catalog
+	 * @param element the provider element
+	 * @return the provider
+	 * @throws InvalidElementException
+	 */
+	public Provider providerFromXml(Element element) throws InvalidElementException {
+		Provider provider = new Provider();
+		provider.fromXml(element);
+		provider.setParent(this);
+		return provider;
 	}
 
 	/* (non-Javadoc)
@@ -119,16 +206,31 @@ public class Catalog extends CommonType{
 	}
 
 	/**
-	 * @return the generated
+	 * @return the generated, as a new Date
 	 */
 	public Date getGenerated() {
+		if (generated == null) return null;
+		return generated.toDate();
+	}
+
+	/**
+	 * @param generated the generated to set; it is written out in UTC
+	 */
+	public void setGenerated(Date generated) {
+		this.generated = generated == null ? null : W3CDateTime.valueOf(generated.getTime());
+	}
+
+	/**
+	 * @return the generated, with the precision and time zone it was given in
+	 */
+	public W3CDateTime getGeneratedDateTime() {
 		return generated;
 	}
 
 	/**
 	 * @param generated the generated to set
 	 */
-	public void setGenerated(Date generated) {
+	public void setGeneratedDateTime(W3CDateTime generated) {
 		this.generated = generated;
 	}
 
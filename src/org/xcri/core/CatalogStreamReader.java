@@ -0,0 +1,399 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.core;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jdom.Element;
+import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
+import org.xcri.exceptions.CatalogStreamException;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.util.StaxBuilder;
+import org.xcri.util.lax.LaxStreamMatcher;
+
+/**
+ * Reads the courses in a catalog one at a time from a StAX stream.
+ *
+ * Each Course is returned, complete with its presentations, as soon as
+ * its closing tag has been read. Courses are not retained by the reader
+ * or by their Provider, so a feed of any size can be processed in
+ * constant memory as long as the caller does not keep them either.
+ *
+ * The enclosing Provider is available from getProvider() (and as the
+ * parent of each course, so inherited descriptions, subjects and images
+ * work as usual); its header is processed from the elements that precede
+ * its first course. If a provider has further header elements after its
+ * courses then the header is processed again, including them, when the
+ * provider closes; only problems that were not found the first time are
+ * reported then. The Catalog header is handled in the same way.
+ *
+ * Providers are retained by the catalog, so once the reader is exhausted
+ * getCatalog().getProviders() returns every provider, without courses.
+ */
+public class CatalogStreamReader implements Iterator<Course> {
+
+	private Log catalogLog = LogFactory.getLog(Catalog.class);
+	private Log providerLog = LogFactory.getLog(Provider.class);
+
+	private static final int START = 0;
+	private static final int IN_CATALOG = 1;
+	private static final int IN_PROVIDER = 2;
+	private static final int DONE = 3;
+
+	private XMLStreamReader reader;
+	private StaxBuilder builder = new StaxBuilder();
+	private int state = START;
+
+	private Catalog catalog;
+	private Element catalogElement;
+	private boolean catalogHeaderProcessed;
+	private boolean catalogHeaderChanged;
+	private int catalogHeaderSize;
+	private HeaderDiagnostics catalogDiagnostics;
+	private LaxStreamMatcher providerMatcher;
+	private ArrayList<Provider> providers = new ArrayList<Provider>();
+
+	private Provider provider;
+	private Element providerElement;
+	private boolean providerHeaderProcessed;
+	private boolean providerHeaderChanged;
+	private int providerHeaderSize;
+	private HeaderDiagnostics providerDiagnostics;
+	private LaxStreamMatcher courseMatcher;
+	private int courseCount;
+
+	private Course nextCourse;
+
+	private ParserConfiguration configuration;
+	private ParserConfiguration readConfiguration;
+	private ParserConfiguration parseConfiguration;
+
+	/**
+	 * @param in a byte stream; the encoding is detected from the XML declaration
+	 * @throws XMLStreamException
+	 */
+	public CatalogStreamReader(InputStream in) throws XMLStreamException{
+		this(StaxBuilder.createInputFactory().createXMLStreamReader(in));
+	}
+
+	/**
+	 * @param in a character stream
+	 * @throws XMLStreamException
+	 */
+	public CatalogStreamReader(Reader in) throws XMLStreamException{
+		this(StaxBuilder.createInputFactory().createXMLStreamReader(in));
+	}
+
+	/**
+	 * @param reader a reader positioned before, or on, the catalog element. For CDATA
+	 * to be handled correctly it should be created using StaxBuilder.createInputFactory()
+	 */
+	public CatalogStreamReader(XMLStreamReader reader){
+		this.reader = reader;
+	}
+
+	/**
+	 * Call the handler for each remaining course in the catalog
+	 * @param handler
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException
+	 */
+	public void read(CourseHandler handler) throws XMLStreamException, InvalidElementException{
+		Course course;
+		while ((course = nextCourse()) != null){
+			handler.handleCourse(course);
+		}
+	}
+
+	/**
+	 * Read the next course
+	 * @return the next course, or null if there are no more courses in the catalog
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException if the catalog element is invalid
+	 */
+	public Course nextCourse() throws XMLStreamException, InvalidElementException{
+		if (nextCourse != null){
+			Course course = nextCourse;
+			nextCourse = null;
+			return course;
+		}
+		return readCourse();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#hasNext()
+	 */
+	public boolean hasNext() {
+		if (nextCourse == null){
+			try {
+				nextCourse = readCourse();
+			} catch (XMLStreamException e) {
+				throw new CatalogStreamException(e);
+			} catch (InvalidElementException e) {
+				throw new CatalogStreamException(e);
+			}
+		}
+		return nextCourse != null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#next()
+	 */
+	public Course next() {
+		if (!hasNext()) throw new NoSuchElementException();
+		Course course = nextCourse;
+		nextCourse = null;
+		return course;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.Iterator#remove()
+	 */
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	/**
+	 * Close the underlying StAX reader. This does not close the stream it reads from.
+	 * @throws XMLStreamException
+	 */
+	public void close() throws XMLStreamException{
+		reader.close();
+	}
+
+	/**
+	 * @return the catalog, or null if the catalog element has not been read yet
+	 */
+	public Catalog getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * @return the provider of the most recently read course
+	 */
+	public Provider getProvider() {
+		return provider;
+	}
+
+	/**
+	 * @return the configuration used to read courses, or null to use the one bound to the calling thread
+	 */
+	public ParserConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * @param configuration the configuration to bind while reading, or null to use the one bound to the calling thread
+	 */
+	public void setConfiguration(ParserConfiguration configuration) {
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Read the next valid course using the configuration of this reader
+	 * @return the course, or null at the end of the catalog
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException
+	 */
+	private Course readCourse() throws XMLStreamException, InvalidElementException{
+		ParserConfiguration configuration = this.configuration == null ? ParserConfiguration.getInstance() : this.configuration;
+		
+		//
+		// Keep the same pool of interned values for the rest of the feed
+		//
+		if (configuration != readConfiguration){
+			readConfiguration = configuration;
+			parseConfiguration = configuration.forParse();
+		}
+		if (parseConfiguration == ParserConfiguration.getInstance()) return advance();
+		ParserConfiguration previous = ParserConfiguration.bind(parseConfiguration);
+		try {
+			return advance();
+		} finally {
+			ParserConfiguration.bind(previous);
+		}
+	}
+
+	/**
+	 * Advance the stream until the next valid course has been read
+	 * @return the course, or null at the end of the catalog
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException
+	 */
+	private Course advance() throws XMLStreamException, InvalidElementException{
+		while (state != DONE){
+			if (state == START){
+				startCatalog();
+				continue;
+			}
+			int event = reader.next();
+			if (state == IN_CATALOG){
+				if (event == XMLStreamConstants.START_ELEMENT){
+					if (providerMatcher.matches(reader)){
+						startProvider();
+					} else {
+						catalogElement.addContent(builder.buildElement(reader));
+						if (catalogHeaderProcessed) catalogHeaderChanged = true;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT){
+					endCatalog();
+				} else {
+					builder.addContent(catalogElement, reader);
+				}
+			} else {
+				if (event == XMLStreamConstants.START_ELEMENT){
+					if (courseMatcher.matches(reader)){
+						Element courseElement = builder.buildElement(reader);
+						processProviderHeader();
+						Course course = provider.courseFromXml(courseElement);
+						if (course != null){
+							courseCount++;
+							return course;
+						}
+					} else {
+						providerElement.addContent(builder.buildElement(reader));
+						if (providerHeaderProcessed) providerHeaderChanged = true;
+					}
+				} else if (event == XMLStreamConstants.END_ELEMENT){
+					endProvider();
+				} else {
+					builder.addContent(providerElement, reader);
+				}
+			}
+		}
+		return null;
+	}
+
+	private void startCatalog() throws XMLStreamException{
+		while (reader.getEventType() != XMLStreamConstants.START_ELEMENT){
+			reader.next();
+		}
+		catalog = new Catalog();
+		catalogElement = builder.buildStartElement(reader);
+		catalogDiagnostics = new HeaderDiagnostics(ParserConfiguration.getInstance().getDiagnostics());
+		providerMatcher = new LaxStreamMatcher("provider", Namespaces.XCRI_NAMESPACE_NS);
+		state = IN_CATALOG;
+	}
+
+	private void endCatalog() throws InvalidElementException{
+		if (!catalogHeaderProcessed || catalogHeaderChanged){
+			ParserConfiguration previous = bindHeader(catalogDiagnostics, catalogElement, catalogHeaderSize);
+			try {
+				catalog.headerFromXml(catalogElement);
+			} finally {
+				ParserConfiguration.bind(previous);
+			}
+		} else {
+			catalog.setValue(catalogElement.getText());
+		}
+		providerMatcher.logWarnings(catalogLog);
+		catalog.setProviders(providers.toArray(new Provider[providers.size()]));
+		state = DONE;
+	}
+
+	private void startProvider() throws InvalidElementException{
+		if (!catalogHeaderProcessed){
+			//
+			// Use a copy, so the header can be processed again if it continues after the providers
+			//
+			Element header = (Element)catalogElement.clone();
+			ParserConfiguration previous = bindHeader(catalogDiagnostics, header, 0);
+			try {
+				catalog.headerFromXml(header);
+			} finally {
+				ParserConfiguration.bind(previous);
+			}
+			catalogHeaderSize = header.getContentSize();
+			catalogHeaderProcessed = true;
+		}
+		provider = new Provider();
+		provider.setParent(catalog);
+		providerElement = builder.buildStartElement(reader);
+		providerHeaderProcessed = false;
+		providerHeaderChanged = false;
+		providerHeaderSize = 0;
+		providerDiagnostics = new HeaderDiagnostics(ParserConfiguration.getInstance().getDiagnostics());
+		courseMatcher = new LaxStreamMatcher("course", Namespaces.XCRI_NAMESPACE_NS);
+		courseCount = 0;
+		state = IN_PROVIDER;
+	}
+
+	private void processProviderHeader() throws InvalidElementException{
+		if (!providerHeaderProcessed){
+			Element header = (Element)providerElement.clone();
+			ParserConfiguration previous = bindHeader(providerDiagnostics, header, 0);
+			try {
+				provider.headerFromXml(header);
+			} finally {
+				ParserConfiguration.bind(previous);
+			}
+			providerHeaderSize = header.getContentSize();
+			providerHeaderProcessed = true;
+		}
+	}
+
+	private void endProvider() throws InvalidElementException{
+		if (!providerHeaderProcessed || providerHeaderChanged){
+			ParserConfiguration previous = bindHeader(providerDiagnostics, providerElement, providerHeaderSize);
+			try {
+				provider.headerFromXml(providerElement);
+			} finally {
+				ParserConfiguration.bind(previous);
+			}
+		} else {
+			provider.setValue(providerElement.getText());
+		}
+		courseMatcher.logWarnings(providerLog);
+		if (courseCount == 0){
+			provider.completeCourses(Collections.<Course>emptyList());
+		}
+		providers.add(provider);
+		providerElement = null;
+		providerDiagnostics = null;
+		state = IN_CATALOG;
+	}
+
+	/**
+	 * Bind a copy of the current configuration that reports problems through the diagnostics of a header
+	 * @param diagnostics
+	 * @param header the header element about to be processed
+	 * @param processed the number of content nodes of the header processed before
+	 * @return the configuration previously bound to the current thread, to bind again afterwards
+	 */
+	private ParserConfiguration bindHeader(HeaderDiagnostics diagnostics, Element header, int processed){
+		diagnostics.start(header, processed);
+		ParserConfiguration configuration = new ParserConfiguration(ParserConfiguration.getInstance());
+		configuration.setDiagnostics(diagnostics);
+		return ParserConfiguration.bind(configuration);
+	}
+
+}
@@ -19,26 +19,27 @@
  */
 package org.xcri.core;
 
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.ArrayList;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
-import org.xcri.common.Identifier;
 import org.xcri.course.Credit;
 import org.xcri.course.Qualification;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.factory.PresentationFactory;
 import org.xcri.types.CommonDescriptiveType;
-import org.xcri.util.lax.Lax;
+import org.xcri.util.lax.ChildIndex;
 
 public class Course extends CommonDescriptiveType {
 
-	private Log log = LogFactory.getLog(Course.class);
+	private static Log log = LogFactory.getLog(Course.class);
 
 	private Presentation[] presentations;
 	private Qualification[] qualifications;
@@ -72,67 +73,42 @@ public class Course extends CommonDescriptiveType {
 	}
 
 	/* (non-Javadoc)
-	 * @see org.xcri.types.CommonType#fromXml(org.jdom.Element)
+	 * @see org.xcri.types.CommonDescriptiveType#writeContent(javax.xml.stream.XMLStreamWriter)
 	 */
 	@Override
-	public void fromXml(Element element) throws InvalidElementException {
-		super.fromXml(element);
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeContent(writer);
+		if (this.getPresentations()!= null) for (Presentation presentation:this.getPresentations()) presentation.writeXml(writer);
+		if (this.getQualifications()!= null) for (Qualification qualification:this.getQualifications()) qualification.writeXml(writer);
+		if (this.getCredits()!= null) for (Credit credit:this.getCredits()) credit.writeXml(writer);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.CommonDescriptiveType#fromXml(org.jdom.Element, org.xcri.util.lax.ChildIndex)
+	 */
+	@Override
+	protected void fromXml(Element element, ChildIndex children) throws InvalidElementException {
+		super.fromXml(element, children);
 
-		//
-		// Check identifiers
-		//
-		if (this.getIdentifiers() == null || this.getIdentifiers().length == 0){
-			log.warn("course: course does not contain any identifiers");
-		} else {
-			boolean hasUrl = false;
-			for (Identifier identifier: this.getIdentifiers()){
-				try {
-					new URL(identifier.getValue());
-					hasUrl = true;
-				} catch (MalformedURLException e) {
-					if (identifier.getType() == null){
-						log.warn("course: course contains a non-URI identifier with no type:"+identifier.getValue());							
-					}
-				}
-			}
-			if (!hasUrl){
-				log.warn("course: course does not contain a URI identifier");
-			}
-		}
-		
-		//
-		// Check titles
-		//
-		if (this.getTitles() == null || this.getTitles().length == 0){
-			log.warn("course: course has no title");
-		}
-		
-		//
-		// Check subjects
-		//
-		if (this.getSubjects() == null || this.getSubjects().length == 0){
-			log.warn("course: course does not contain a subject");
-		}
-		
 		//
 		// Level
 		//
 		if (element.getChild("level", Namespaces.MLO_NAMESPACE_NS) != null){
-			log.warn("course: level is not recommended");
+			getDiagnostics().report(log, Rule.COURSE_LEVEL_NOT_RECOMMENDED, element);
 		}
 
 		//
 		// Add children
 		//
 		ArrayList<Presentation> presentations = new ArrayList<Presentation>();
-		for (Object obj : Lax.getChildrenQuietly(element, "presentation", Namespaces.XCRI_NAMESPACE_NS, log)){
+		for (Object obj : children.getChildrenQuietly("presentation", Namespaces.XCRI_NAMESPACE_NS, log)){
 			try {
 				Presentation presentation = PresentationFactory.getPresentation(Presentation.class);
 				presentation.fromXml((Element)obj);
 				presentation.setParent(this);
 				presentations.add(presentation);
 			} catch (InvalidElementException e) {
-				log.warn("course : presentation invalid, skipping");
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, "course", "presentation", e.getMessage());
 			} catch (InstantiationException e) {
 				// TODO Auto-generated catch block
 				e.printStackTrace();
@@ -144,30 +120,30 @@ public class Course extends CommonDescriptiveType {
 		this.setPresentations(presentations.toArray(new Presentation[presentations.size()]));
 
 		ArrayList<Qualification> qualifications = new ArrayList<Qualification>();
-		for (Object obj : Lax.getChildrenQuietly(element, "qualification", Namespaces.MLO_NAMESPACE_NS, log)){
+		for (Object obj : children.getChildrenQuietly("qualification", Namespaces.MLO_NAMESPACE_NS, log)){
 			Qualification qualification = new Qualification();
 			try {
 				qualification.fromXml((Element)obj);
 				qualifications.add(qualification);
 			} catch (InvalidElementException e) {
-				log.warn("course : qualification invalid, skipping");
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, "course", "qualification", e.getMessage());
 			}
 		}
 		this.setQualifications(qualifications.toArray(new Qualification[qualifications.size()]));
 
 		ArrayList<Credit> credits = new ArrayList<Credit>();
-		for (Object obj : Lax.getChildrenQuietly(element, "credit", Namespaces.MLO_NAMESPACE_NS, log)){
+		for (Object obj : children.getChildrenQuietly("credit", Namespaces.MLO_NAMESPACE_NS, log)){
 			Credit credit = new Credit();
 			try {
 				credit.fromXml((Element)obj);
 				credits.add(credit);
 			} catch (InvalidElementException e) {
-				log.warn("course : credit invalid, skipping");
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, "course", "credit", e.getMessage());
 			}
 		}
 		this.setCredits(credits.toArray(new Credit[credits.size()]));
 
-
+		validate(element);
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.core;
+
+import java.util.EnumSet;
+
+import org.apache.commons.logging.Log;
+import org.jdom.Element;
+import org.xcri.diagnostics.Diagnostics;
+import org.xcri.diagnostics.Rule;
+
+/**
+ * Reports problems found in the header of a streamed catalog or provider
+ * to the configured diagnostics, but only once.
+ *
+ * CatalogStreamReader processes a header when the first child after it is
+ * read, and again, from the start, if the header continues after them.
+ * On the second pass only problems in the elements added since, and
+ * problems with the header element itself that were not found the first
+ * time, are reported.
+ */
+class HeaderDiagnostics extends Diagnostics {
+
+	private final Diagnostics diagnostics;
+	private final EnumSet<Rule> headerRules = EnumSet.noneOf(Rule.class);
+	private Element header;
+	private int processed;
+
+	/**
+	 * @param diagnostics the diagnostics to report to
+	 */
+	HeaderDiagnostics(Diagnostics diagnostics){
+		this.diagnostics = diagnostics;
+	}
+
+	/**
+	 * Start a pass over the header
+	 * @param header the header element being processed
+	 * @param processed the number of content nodes of the header that have been processed before
+	 */
+	void start(Element header, int processed){
+		this.header = header;
+		this.processed = processed;
+	}
+
+	/**
+	 * @param rule
+	 * @param element
+	 * @return true if the problem has not been reported by an earlier pass
+	 */
+	private boolean isNew(Rule rule, Element element){
+		if (element == null || element == header) return headerRules.add(rule);
+		Element child = element;
+		while (child.getParentElement() != header){
+			child = child.getParentElement();
+			if (child == null) return true;
+		}
+		return header.indexOf(child) >= processed;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.diagnostics.Diagnostics#isEnabled(org.xcri.diagnostics.Rule)
+	 */
+	@Override
+	public boolean isEnabled(Rule rule){
+		return diagnostics.isEnabled(rule);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.diagnostics.Diagnostics#report(org.apache.commons.logging.Log, org.xcri.diagnostics.Rule, org.jdom.Element)
+	 */
+	@Override
+	public void report(Log log, Rule rule, Element element){
+		if (isNew(rule, element)) diagnostics.report(log, rule, element);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.diagnostics.Diagnostics#report(org.apache.commons.logging.Log, org.xcri.diagnostics.Rule, org.jdom.Element, java.lang.Object)
+	 */
+	@Override
+	public void report(Log log, Rule rule, Element element, Object argument){
+		if (isNew(rule, element)) diagnostics.report(log, rule, element, argument);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.diagnostics.Diagnostics#report(org.apache.commons.logging.Log, org.xcri.diagnostics.Rule, org.jdom.Element, java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public void report(Log log, Rule rule, Element element, Object first, Object second){
+		if (isNew(rule, element)) diagnostics.report(log, rule, element, first, second);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.diagnostics.Diagnostics#report(org.apache.commons.logging.Log, org.xcri.diagnostics.Rule, org.jdom.Element, java.lang.Object, java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public void report(Log log, Rule rule, Element element, Object first, Object second, Object third){
+		if (isNew(rule, element)) diagnostics.report(log, rule, element, first, second, third);
+	}
+
+}
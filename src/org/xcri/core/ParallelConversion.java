@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jdom.Element;
+import org.xcri.ParserConfiguration;
+import org.xcri.exceptions.InvalidElementException;
+
+/**
+ * Converts sibling elements, such as the courses of a provider, as separate
+ * tasks on the executor set in the ParserConfiguration, returning the results
+ * in document order.
+ *
+ * Each task runs with the caller's configuration bound, and with the worker
+ * thread renamed after the element it is converting so that anything logged
+ * can be attributed to it. Conversions started from within a task are not
+ * split up again, so a bounded executor cannot deadlock waiting for itself.
+ */
+abstract class ParallelConversion<T> {
+
+	private static final ThreadLocal<Boolean> inTask = new ThreadLocal<Boolean>();
+
+	/**
+	 * Convert a single element; called on a worker thread
+	 * @param element
+	 * @return the result, which may be null
+	 * @throws InvalidElementException
+	 */
+	protected abstract T convert(Element element) throws InvalidElementException;
+
+	/**
+	 * @param elements
+	 * @return the executor to convert the elements with, or null if they should be converted sequentially
+	 */
+	static ExecutorService getExecutor(List<Element> elements){
+		ExecutorService executor = ParserConfiguration.getInstance().getExecutor();
+		if (executor == null || elements.size() < 2 || inTask.get() != null) return null;
+		return executor;
+	}
+
+	/**
+	 * Convert the elements on the executor and wait for all of them to complete
+	 * @param executor
+	 * @param elements
+	 * @param label used, with the position of the element, to name the worker thread
+	 * @return the results, in the same order as the elements
+	 * @throws InvalidElementException if any conversion failed; the first failure in document order is thrown
+	 */
+	List<T> convertAll(ExecutorService executor, List<Element> elements, String label) throws InvalidElementException{
+		final ParserConfiguration configuration = ParserConfiguration.getInstance();
+		ArrayList<Future<T>> futures = new ArrayList<Future<T>>(elements.size());
+		for (int i = 0; i < elements.size(); i++){
+			final Element element = elements.get(i);
+			final String name = label + " " + (i + 1);
+			futures.add(executor.submit(new Callable<T>(){
+				public T call() throws Exception {
+					Thread thread = Thread.currentThread();
+					String threadName = thread.getName();
+					thread.setName(threadName + " [" + name + "]");
+					ParserConfiguration previous = ParserConfiguration.bind(configuration);
+					inTask.set(Boolean.TRUE);
+					try {
+						return convert(element);
+					} finally {
+						inTask.remove();
+						ParserConfiguration.bind(previous);
+						thread.setName(threadName);
+					}
+				}
+			}));
+		}
+
+		ArrayList<T> results = new ArrayList<T>(elements.size());
+		InvalidElementException failure = null;
+		for (Future<T> future : futures){
+			try {
+				results.add(future.get());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				for (Future<T> remaining : futures) remaining.cancel(true);
+				throw new IllegalStateException("interrupted while converting " + label + " elements", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof InvalidElementException){
+					if (failure == null) failure = (InvalidElementException)cause;
+				} else if (cause instanceof RuntimeException){
+					throw (RuntimeException)cause;
+				} else if (cause instanceof Error){
+					throw (Error)cause;
+				} else {
+					throw new IllegalStateException(cause);
+				}
+			}
+		}
+		if (failure != null) throw failure;
+		return results;
+	}
+
+}
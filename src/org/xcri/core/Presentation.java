@@ -21,12 +21,16 @@ package org.xcri.core;
 
 import java.util.ArrayList;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
 import org.xcri.common.Title;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.presentation.Age;
 import org.xcri.presentation.ApplyFrom;
@@ -46,11 +50,11 @@ import org.xcri.presentation.StudyMode;
 import org.xcri.presentation.Venue;
 import org.xcri.types.CommonDescriptiveType;
 import org.xcri.types.CommonType;
-import org.xcri.util.lax.Lax;
+import org.xcri.util.lax.ChildIndex;
 
 public class Presentation extends CommonDescriptiveType {
 	
-	private Log log = LogFactory.getLog(Presentation.class);
+	private static Log log = LogFactory.getLog(Presentation.class);
 	
 	private Start start;
 	private End end;
@@ -109,172 +113,204 @@ public class Presentation extends CommonDescriptiveType {
 	}
 
 	/* (non-Javadoc)
-	 * @see org.xcri.types.CommonType#fromXml(org.jdom.Element)
+	 * @see org.xcri.types.CommonDescriptiveType#writeContent(javax.xml.stream.XMLStreamWriter)
 	 */
 	@Override
-	public void fromXml(Element element) throws InvalidElementException {
-		super.fromXml(element);
-		if (Lax.getChildQuietly(element, "start", Namespaces.MLO_NAMESPACE_NS, log) !=null){
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeContent(writer);
+		if (this.getStart() != null) this.getStart().writeXml(writer);
+		if (this.getEnd() != null) this.getEnd().writeXml(writer);
+		if (this.getDuration() != null) this.getDuration().writeXml(writer);
+		if (this.getApplyFrom() != null) this.getApplyFrom().writeXml(writer);
+		if (this.getApplyUntil() != null) this.getApplyUntil().writeXml(writer);
+		if (this.getApplyTo() != null) this.getApplyTo().writeXml(writer);
+		// TODO Engagement
+		if (this.getStudyMode() != null) this.getStudyMode().writeXml(writer);
+		if (this.getAttendanceMode() != null) this.getAttendanceMode().writeXml(writer);
+		if (this.getAttendancePattern() != null) this.getAttendancePattern().writeXml(writer);
+		if (this.getLanguageOfInstruction() != null){
+			for (LanguageOfInstruction lang: this.getLanguageOfInstruction()){
+				lang.writeXml(writer);
+			}
+		}
+		if (this.getLanguageOfAssessment() != null){
+			for (LanguageOfAssessment lang: this.getLanguageOfAssessment()){
+				lang.writeXml(writer);
+			}
+		}
+		if (this.getPlaces() != null) this.getPlaces().writeXml(writer);
+		if (this.getCost() != null) this.getCost().writeXml(writer);
+		if (this.getAge() != null) this.getAge().writeXml(writer);
+
+		if (this.getVenues() != null){
+			for (Venue venue: this.getVenues()){
+				venue.writeXml(writer);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.CommonDescriptiveType#fromXml(org.jdom.Element, org.xcri.util.lax.ChildIndex)
+	 */
+	@Override
+	protected void fromXml(Element element, ChildIndex children) throws InvalidElementException {
+		super.fromXml(element, children);
+		Element startElement = children.getChildQuietly("start", Namespaces.MLO_NAMESPACE_NS, log);
+		if (startElement != null){
 			Start start = new Start();
 			try {
-				start.fromXml(Lax.getChildQuietly(element, "start", Namespaces.MLO_NAMESPACE_NS, log));
+				start.fromXml(startElement);
 				this.setStart(start);
 			} catch (InvalidElementException e) {
-				log.warn("presentation : skipping invalid start element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, startElement, "presentation", "start", e.getMessage());
 			}
 		}
-		if (Lax.getChildQuietly(element, "end", Namespaces.XCRI_NAMESPACE_NS, log)!=null){
+		Element endElement = children.getChildQuietly("end", Namespaces.XCRI_NAMESPACE_NS, log);
+		if (endElement != null){
 			End end = new End();
 			try {
-				end.fromXml(Lax.getChildQuietly(element, "end", Namespaces.XCRI_NAMESPACE_NS, log));
+				end.fromXml(endElement);
 				this.setEnd(end);
 			} catch (InvalidElementException e) {
-				log.warn("presentation : skipping invalid end element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, endElement, "presentation", "end", e.getMessage());
 			}
 		}
-		if (Lax.getChildQuietly(element, "duration", Namespaces.MLO_NAMESPACE_NS, log)!=null){
+		Element durationElement = children.getChildQuietly("duration", Namespaces.MLO_NAMESPACE_NS, log);
+		if (durationElement != null){
 			Duration duration = new Duration();
 			try {
-				duration.fromXml(Lax.getChildQuietly(element, "duration", Namespaces.MLO_NAMESPACE_NS, log));
+				duration.fromXml(durationElement);
 				this.setDuration(duration);
 			} catch (InvalidElementException e) {
-				log.warn("presentation : skipping invalid duration element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, durationElement, "presentation", "duration", e.getMessage());
 			}
 		}
-		/**
-		 * Start dates : A Producer SHOULD include a start element even if there is no specific 
-		 * start date as this can still be used to describe the start details- see the section on 
-		 * Temporal Elements.
-		 */
-		if (this.getStart() == null){
-			log.warn("presentation : A Producer SHOULD include a start element");
-		}
-		
-		/**
-		 *  Duration: A Producer SHOULD include a duration element or start and end dates, or both.
-		 */
-		if (this.getDuration() == null && this.getStart() == null && this.getEnd() == null){
-			log.warn("presentation : A Producer SHOULD include a duration element or start and end dates, or both.");
-		}
-		
-		if (Lax.getChildQuietly(element, "applyFrom", Namespaces.XCRI_NAMESPACE_NS, log)!=null){
+		Element applyFromElement = children.getChildQuietly("applyFrom", Namespaces.XCRI_NAMESPACE_NS, log);
+		if (applyFromElement != null){
 			ApplyFrom applyFrom = new ApplyFrom();
 			try {
-				applyFrom.fromXml(Lax.getChildQuietly(element, "applyFrom", Namespaces.XCRI_NAMESPACE_NS, log));
+				applyFrom.fromXml(applyFromElement);
 				this.setApplyFrom(applyFrom);
 			} catch (InvalidElementException e) {
-				log.warn("presentation : skipping invalid applyFrom element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, applyFromElement, "presentation", "applyFrom", e.getMessage());
 			}
 		}
 		
-		if (Lax.getChildQuietly(element, "applyUntil", Namespaces.XCRI_NAMESPACE_NS, log)!=null){
+		Element applyUntilElement = children.getChildQuietly("applyUntil", Namespaces.XCRI_NAMESPACE_NS, log);
+		if (applyUntilElement != null){
 			ApplyUntil applyUntil = new ApplyUntil();
 			try {
-				applyUntil.fromXml(Lax.getChildQuietly(element, "applyUntil", Namespaces.XCRI_NAMESPACE_NS, log));
+				applyUntil.fromXml(applyUntilElement);
 				this.setApplyUntil(applyUntil);
 			} catch (InvalidElementException e) {
-				log.warn("presentation : skipping invalid applyUntil element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, applyUntilElement, "presentation", "applyUntil", e.getMessage());
 			}
 		}
 		
 		
-		if (Lax.getChildQuietly(element, "applyTo", Namespaces.XCRI_NAMESPACE_NS, log)!=null){
+		Element applyToElement = children.getChildQuietly("applyTo", Namespaces.XCRI_NAMESPACE_NS, log);
+		if (applyToElement != null){
 			ApplyTo applyTo = new ApplyTo();
 			try {
-				applyTo.fromXml(Lax.getChildQuietly(element, "applyTo", Namespaces.XCRI_NAMESPACE_NS, log));
+				applyTo.fromXml(applyToElement);
 				this.setApplyTo(applyTo);
 			} catch (InvalidElementException e) {
-				log.warn("presentation : skipping invalid applyTo element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, applyToElement, "presentation", "applyTo", e.getMessage());
 			}
 		}
 		
 		// TODO engagement
 		
-		if (Lax.getChildQuietly(element, "studyMode", Namespaces.XCRI_NAMESPACE_NS, log)!=null){
+		Element studyModeElement = children.getChildQuietly("studyMode", Namespaces.XCRI_NAMESPACE_NS, log);
+		if (studyModeElement != null){
 			StudyMode studyMode = new StudyMode();
 			try {
-				studyMode.fromXml(Lax.getChildQuietly(element, "studyMode", Namespaces.XCRI_NAMESPACE_NS, log));
+				studyMode.fromXml(studyModeElement);
 				this.setStudyMode(studyMode);
 			} catch (InvalidElementException e) {
-				log.warn("presentation : skipping invalid studyMode element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, studyModeElement, "presentation", "studyMode", e.getMessage());
 			}
 		}
-		if (Lax.getChildQuietly(element, "attendanceMode", Namespaces.XCRI_NAMESPACE_NS, log)!=null){
+		Element attendanceModeElement = children.getChildQuietly("attendanceMode", Namespaces.XCRI_NAMESPACE_NS, log);
+		if (attendanceModeElement != null){
 			AttendanceMode attendanceMode = new AttendanceMode();
 			try {
-				attendanceMode.fromXml(Lax.getChildQuietly(element, "attendanceMode", Namespaces.XCRI_NAMESPACE_NS, log));
+				attendanceMode.fromXml(attendanceModeElement);
 				this.setAttendanceMode(attendanceMode);
 			} catch (InvalidElementException e) {
-				log.warn("presentation : skipping invalid attendanceMode element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, attendanceModeElement, "presentation", "attendanceMode", e.getMessage());
 			}
 		}
-		if (Lax.getChildQuietly(element, "attendancePattern", Namespaces.XCRI_NAMESPACE_NS, log)!=null){
+		Element attendancePatternElement = children.getChildQuietly("attendancePattern", Namespaces.XCRI_NAMESPACE_NS, log);
+		if (attendancePatternElement != null){
 			AttendancePattern attendancePattern = new AttendancePattern();
 			try {
-				attendancePattern.fromXml(Lax.getChildQuietly(element, "attendancePattern", Namespaces.XCRI_NAMESPACE_NS, log));
+				attendancePattern.fromXml(attendancePatternElement);
 				this.setAttendancePattern(attendancePattern);
 			} catch (InvalidElementException e) {
-				log.warn("presentation : skipping invalid attendancePattern element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, attendancePatternElement, "presentation", "attendancePattern", e.getMessage());
 			}
 		}
-		if (Lax.getChildrenQuietly(element, "languageOfInstruction", Namespaces.MLO_NAMESPACE_NS, log)!=null){
-			ArrayList<LanguageOfInstruction> languages = new ArrayList<LanguageOfInstruction>();
-			for (Element langElement: Lax.getChildrenQuietly(element, "languageOfInstruction", Namespaces.MLO_NAMESPACE_NS, log)){
-				LanguageOfInstruction lang = new LanguageOfInstruction();
-				lang.fromXml(langElement);
-				languages.add(lang);
-			}
-			this.setLanguageOfInstruction(languages.toArray(new LanguageOfInstruction[languages.size()]));
+		ArrayList<LanguageOfInstruction> languagesOfInstruction = new ArrayList<LanguageOfInstruction>();
+		for (Element langElement: children.getChildrenQuietly("languageOfInstruction", Namespaces.MLO_NAMESPACE_NS, log)){
+			LanguageOfInstruction lang = new LanguageOfInstruction();
+			lang.fromXml(langElement);
+			languagesOfInstruction.add(lang);
 		}
-		if (Lax.getChildrenQuietly(element, "languageOfAssessment", Namespaces.MLO_NAMESPACE_NS, log)!=null){
-			ArrayList<LanguageOfAssessment> languages = new ArrayList<LanguageOfAssessment>();
-			for (Element langElement: Lax.getChildrenQuietly(element, "languageOfAssessment", Namespaces.XCRI_NAMESPACE_NS, log)){
-				LanguageOfAssessment lang = new LanguageOfAssessment();
-				lang.fromXml(langElement);
-				languages.add(lang);
-			}
-			this.setLanguageOfAssessment(languages.toArray(new LanguageOfAssessment[languages.size()]));
+		this.setLanguageOfInstruction(languagesOfInstruction.toArray(new LanguageOfInstruction[languagesOfInstruction.size()]));
+		
+		ArrayList<LanguageOfAssessment> languagesOfAssessment = new ArrayList<LanguageOfAssessment>();
+		for (Element langElement: children.getChildrenQuietly("languageOfAssessment", Namespaces.XCRI_NAMESPACE_NS, log)){
+			LanguageOfAssessment lang = new LanguageOfAssessment();
+			lang.fromXml(langElement);
+			languagesOfAssessment.add(lang);
 		}
+		this.setLanguageOfAssessment(languagesOfAssessment.toArray(new LanguageOfAssessment[languagesOfAssessment.size()]));
 		
-		if (Lax.getChildQuietly(element, "places", Namespaces.MLO_NAMESPACE_NS, log)!=null){
+		Element placesElement = children.getChildQuietly("places", Namespaces.MLO_NAMESPACE_NS, log);
+		if (placesElement != null){
 			Places places = new Places();
 			try {
-				places.fromXml(Lax.getChildQuietly(element, "places", Namespaces.MLO_NAMESPACE_NS, log));
+				places.fromXml(placesElement);
 				this.setPlaces(places);
 			} catch (Exception e) {
-				log.warn("presentation: skipping invalid places element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, placesElement, "presentation", "places", e.getMessage());
 			}
 		}
-		if (Lax.getChildQuietly(element, "cost", Namespaces.MLO_NAMESPACE_NS, log)!=null){
+		Element costElement = children.getChildQuietly("cost", Namespaces.MLO_NAMESPACE_NS, log);
+		if (costElement != null){
 			Cost cost = new Cost();
 			try {
-				cost.fromXml(Lax.getChildQuietly(element, "cost", Namespaces.MLO_NAMESPACE_NS, log));
+				cost.fromXml(costElement);
 				this.setCost(cost);
 			} catch (Exception e) {
-				log.warn("presentation: skipping invalid cost element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, costElement, "presentation", "cost", e.getMessage());
 			}
 		}
 		
-		if (Lax.getChildQuietly(element, "age", Namespaces.XCRI_NAMESPACE_NS, log)!=null){
+		Element ageElement = children.getChildQuietly("age", Namespaces.XCRI_NAMESPACE_NS, log);
+		if (ageElement != null){
 			Age age = new Age();
 			try {
-				age.fromXml(Lax.getChildQuietly(element, "age", Namespaces.XCRI_NAMESPACE_NS, log));
+				age.fromXml(ageElement);
 				this.setAge(age);
 			} catch (Exception e) {
-				log.warn("presentation: skipping invalid age element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, ageElement, "presentation", "age", e.getMessage());
 			}
 		}
 		
-		if (Lax.getChildrenQuietly(element, "venue", Namespaces.XCRI_NAMESPACE_NS, log)!=null){
-			ArrayList<Venue> venues = new ArrayList<Venue>();
-			for (Element venueElement: Lax.getChildrenQuietly(element, "venue", Namespaces.XCRI_NAMESPACE_NS, log)){
-				Venue venue = new Venue();
-				venue.fromXml(venueElement);
-				venues.add(venue);
-			}
-			this.setVenues(venues.toArray( new Venue[venues.size()]));
+		ArrayList<Venue> venues = new ArrayList<Venue>();
+		for (Element venueElement: children.getChildrenQuietly("venue", Namespaces.XCRI_NAMESPACE_NS, log)){
+			Venue venue = new Venue();
+			venue.fromXml(venueElement);
+			venues.add(venue);
 		}
+		this.setVenues(venues.toArray( new Venue[venues.size()]));
 		
+		//
+		// Start dates and duration are checked by PresentationStartRule and PresentationDurationRule
+		//
+		validate(element);
 	}
 
 	/* (non-Javadoc)
@@ -334,6 +370,14 @@ public class Presentation extends CommonDescriptiveType {
 		return titles;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.CommonType#inheritsTitles()
+	 */
+	@Override
+	protected boolean inheritsTitles() {
+		return true;
+	}
+
 	/**
 	 * @return the duration
 	 */
@@ -21,12 +21,18 @@
 package org.xcri.core;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.factory.CourseFactory;
 import org.xcri.provider.Location;
@@ -36,7 +42,7 @@ import org.xcri.util.lax.SingleElementException;
 
 public class Provider extends CommonType{
 	
-	private Log log = LogFactory.getLog(Provider.class);
+	private static Log log = LogFactory.getLog(Provider.class);
 	
 	private Course[] courses;
 	private Location location;
@@ -65,64 +71,71 @@ public class Provider extends CommonType{
 		return element;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.CommonType#writeContent(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeContent(writer);
+		if (this.getCourses()!=null){
+			for (Course course: courses){
+				course.writeXml(writer);
+			}
+		}
+		if (this.getLocation() != null) this.getLocation().writeXml(writer);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.xcri.types.Common#fromXml(org.jdom.Element)
 	 */
 	@Override
 	public void fromXml(Element element) throws InvalidElementException {
-		super.fromXml(element);
-		
-		//
-		// Check URL
-		//
-		if (this.getUrls() == null || this.getUrls().length==0){
-			log.warn("provider: provider has no URL");
-		}
-		
-		//
-		// TODO Check types use xsi:type
-		//
-		
-		//
-		// Check titles
-		//
-		if (this.getTitles() == null || this.getTitles().length == 0){
-			log.warn("provider: provider has no title");
-		}
+		this.headerFromXml(element);
 	
 		//
 		// Add children
 		//
+		List<Element> courseElements = Lax.getChildrenQuietly(element, "course", Namespaces.XCRI_NAMESPACE_NS, log);
+		ExecutorService executor = ParallelConversion.getExecutor(courseElements);
 		ArrayList<Course> courses = new ArrayList<Course>();
-		for (Element obj : Lax.getChildrenQuietly(element, "course", Namespaces.XCRI_NAMESPACE_NS, log)){
-			
-			try {
-				Course course = CourseFactory.getCourse(Course.class);
-				course.fromXml(obj);
-				course.setParent(this);
-				courses.add(course);
-		
-			} catch (InvalidElementException e) {
-				log.warn("provider : skipping invalid <course> element : "+e.getMessage());
-			} catch (InstantiationException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
-			} catch (IllegalAccessException e) {
-				// TODO Auto-generated catch block
-				e.printStackTrace();
+		if (executor == null){
+			for (Element obj : courseElements){
+				Course course = this.courseFromXml(obj);
+				if (course != null) courses.add(course);
+			}
+		} else {
+			List<Course> results = new ParallelConversion<Course>(){
+				@Override
+				protected Course convert(Element element) {
+					return courseFromXml(element);
+				}
+			}.convertAll(executor, courseElements, "course");
+			for (Course course : results){
+				if (course != null) courses.add(course);
 			}
 		}
-		this.setCourses(courses.toArray(new Course[courses.size()]));
-		if (courses.size()==0) {
-			log.warn("provider: provider contains no courses");
-		}
+		this.completeCourses(courses);
+	}
+	
+	/**
+	 * Process the provider element, ignoring any &lt;course&gt; children. This
+	 * is used by streaming parsers, which process each course separately
+	 * using courseFromXml()
+	 * @param element the provider element
+	 * @throws InvalidElementException
+	 */
+	public void headerFromXml(Element element) throws InvalidElementException {
+		super.fromXml(element);
 		
+		//
+		// TODO Check types use xsi:type
+		//
 
 		Element locationElement;
 		try {
 			locationElement = Lax.getChild(element, "location", Namespaces.MLO_NAMESPACE_NS);
 		} catch (SingleElementException e1) {
-			log.warn("provider : multiple <location> elements found; skipping all but first occurrence");
+			getDiagnostics().report(log, Rule.PROVIDER_MULTIPLE_LOCATIONS, element);
 			locationElement = e1.getElements().get(0);
 		}
 
@@ -132,9 +145,46 @@ public class Provider extends CommonType{
 				location.fromXml(locationElement);
 				this.setLocation(location);
 			} catch (InvalidElementException e) {
-				log.warn("provider : skipping invalid <location> element : "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, locationElement, "provider", "location", e.getMessage());
 			}
 		}
+		
+		validate(element);
+	}
+	
+	/**
+	 * Process a single &lt;course&gt; child element of this provider
+	 * @param element the course element
+	 * @return the course, or null if the element is invalid and has been skipped
+	 */
+	public Course courseFromXml(Element element){
+		try {
+			Course course = CourseFactory.getCourse(Course.class);
+			course.fromXml(element);
+			course.setParent(this);
+			return course;
+		} catch (InvalidElementException e) {
+			getDiagnostics().report(log, Rule.INVALID_CHILD, element, "provider", "course", e.getMessage());
+		} catch (InstantiationException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		} catch (IllegalAccessException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+		return null;
+	}
+	
+	/**
+	 * Set the courses of this provider once all of its &lt;course&gt; elements
+	 * have been processed
+	 * @param courses the valid courses
+	 */
+	public void completeCourses(List<Course> courses){
+		this.setCourses(courses.toArray(new Course[courses.size()]));
+		if (courses.size()==0) {
+			getDiagnostics().report(log, Rule.PROVIDER_NO_COURSES, null);
+		}
 	}
 
 	/* (non-Javadoc)
@@ -20,16 +20,21 @@
 
 package org.xcri.course;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.XcriElement;
+import org.xcri.util.StaxOutputter;
 
 public class Credit extends XcriElement {
-	private Log log = LogFactory.getLog(Credit.class);
+	private static Log log = LogFactory.getLog(Credit.class);
 	
 	public static final String CREDIT_NAMESPACE = "http://purl.org/net/cm";
 	private static final Namespace CREDIT_NAMESPACE_NS = Namespace.getNamespace(CREDIT_NAMESPACE);
@@ -111,6 +116,17 @@ public class Credit extends XcriElement {
 		}
 		return element;
 	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#writeContent(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeContent(writer);
+		if (this.getScheme() != null) StaxOutputter.writeTextElement(writer, CREDIT_NAMESPACE_NS, "scheme", getScheme());
+		if (this.getLevel() != null) StaxOutputter.writeTextElement(writer, CREDIT_NAMESPACE_NS, "level", getLevel());
+		if (this.getCreditValue() != null) StaxOutputter.writeTextElement(writer, CREDIT_NAMESPACE_NS, "value", getCreditValue());
+	}
 	/* (non-Javadoc)
 	 * @see org.xcri.types.XcriElement#fromXml(org.jdom.Element)
 	 */
@@ -122,22 +138,22 @@ public class Credit extends XcriElement {
 		Element level = element.getChild("level", CREDIT_NAMESPACE_NS);
 		Element value = element.getChild("value", CREDIT_NAMESPACE_NS);
 		
-		if (scheme != null && scheme.getText() != null && scheme.getText().trim().length() > 0) this.setScheme(scheme.getText());
-		if (level != null && level.getText() != null && level.getText().trim().length() > 0) this.setLevel(level.getText());
+		if (scheme != null && scheme.getText() != null && scheme.getText().trim().length() > 0) this.setScheme(intern(scheme.getText()));
+		if (level != null && level.getText() != null && level.getText().trim().length() > 0) this.setLevel(intern(level.getText()));
 		if (value != null && value.getText() != null && value.getText().trim().length() > 0) this.setCreditValue(value.getText());
 		
 		/**
 		 * multiple credit schemes: Producers SHOULD use a separate credit element to represent the credits for each scheme.
          */
 		if (element.getChildren("value", CREDIT_NAMESPACE_NS).size() > 1){
-			log.warn("credit : Multiple credit values found: Producers SHOULD use a separate credit element to represent the credits for each scheme");
+			getDiagnostics().report(log, Rule.CREDIT_MULTIPLE_VALUES, element);
 		}
 		
 		/**
 		 * scheme: While scheme is optional, the scheme SHOULD be stated unless a default has been agreed between the Producer and the Aggregator.
 		 */
 		if (this.getScheme() == null){
-			log.warn("credit: While scheme is optional, the scheme SHOULD be stated unless a default has been agreed between the Producer and the Aggregator");
+			getDiagnostics().report(log, Rule.CREDIT_NO_SCHEME, element);
 		}
 	}
 
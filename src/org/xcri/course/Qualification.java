@@ -20,11 +20,15 @@
 
 package org.xcri.course;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.CommonType;
+import org.xcri.util.StaxOutputter;
 
 public class Qualification extends CommonType {
 
@@ -62,6 +66,18 @@ public class Qualification extends CommonType {
 		return element;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.CommonType#writeContent(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeContent(writer);
+		if(this.getAbbr()!=null) StaxOutputter.writeTextElement(writer, Namespaces.XCRI_NAMESPACE_NS, "abbr", this.getAbbr());
+		if(this.getEducationLevel()!=null) StaxOutputter.writeTextElement(writer, Namespaces.DCTerms_NAMESPACE_NS, "educationLevel", this.getEducationLevel());
+		if(this.getAwardedBy()!=null) StaxOutputter.writeTextElement(writer, Namespaces.XCRI_NAMESPACE_NS, "awardedBy", this.getAwardedBy());
+		if(this.getAccreditedBy()!=null) StaxOutputter.writeTextElement(writer, Namespaces.XCRI_NAMESPACE_NS, "accreditedBy", this.getAccreditedBy());
+	}
+
 	/* (non-Javadoc)
 	 * @see org.xcri.types.CommonType#fromXml(org.jdom.Element)
 	 */
@@ -72,6 +88,7 @@ public class Qualification extends CommonType {
 		if (element.getChild("awardedBy", Namespaces.XCRI_NAMESPACE_NS) != null) this.setAwardedBy(element.getChild("awardedBy", Namespaces.XCRI_NAMESPACE_NS).getText());
 		if (element.getChild("accreditedBy", Namespaces.XCRI_NAMESPACE_NS) != null) this.setAccreditedBy(element.getChild("accreditedBy", Namespaces.XCRI_NAMESPACE_NS).getText());
 		if (element.getChild("educationLevel", Namespaces.DCTerms_NAMESPACE_NS) != null) this.setEducationLevel(element.getChild("educationLevel", Namespaces.DCTerms_NAMESPACE_NS).getText());
+		validate(element);
 	}
 
 	/* (non-Javadoc)
@@ -0,0 +1,265 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diagnostics;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.jdom.Element;
+
+/**
+ * A single problem found while parsing a feed.
+ *
+ * The message and the path of the element are only worked out when they
+ * are first asked for. Line and column numbers are only known for
+ * elements read by a parser that records them; JDOM does not, so for
+ * now they are always -1.
+ */
+public class Diagnostic {
+
+	//
+	// Elements with fewer children than this are counted again each time
+	//
+	private static final int POSITIONS_THRESHOLD = 32;
+	
+	//
+	// The positions of the children of the last large element seen at each
+	// depth, so that the paths of problems with each of thousands of courses
+	// don't each count all the other courses
+	//
+	private static final ThreadLocal<List<Positions>> positions = new ThreadLocal<List<Positions>>(){
+		@Override
+		protected List<Positions> initialValue(){
+			return new ArrayList<Positions>();
+		}
+	};
+
+	private Rule rule;
+	private Object[] arguments;
+	private Element element;
+	private String path;
+	private String message;
+	private int line = -1;
+	private int column = -1;
+
+	/**
+	 * @param rule the rule that was broken
+	 * @param element the element concerned, or null if it isn't known
+	 * @param arguments the values to format the message of the rule with
+	 */
+	public Diagnostic(Rule rule, Element element, Object[] arguments){
+		this.rule = rule;
+		this.element = element;
+		this.arguments = arguments;
+	}
+
+	/**
+	 * @return the rule that was broken
+	 */
+	public Rule getRule() {
+		return rule;
+	}
+
+	/**
+	 * @return the code of the rule, for example COURSE_NO_TITLE
+	 */
+	public String getCode() {
+		return rule.name();
+	}
+
+	/**
+	 * @return the severity of the rule
+	 */
+	public Severity getSeverity() {
+		return rule.getSeverity();
+	}
+
+	/**
+	 * @return the arguments of the message
+	 */
+	public Object[] getArguments() {
+		return arguments;
+	}
+
+	/**
+	 * @return the message, formatted from the rule and the arguments
+	 */
+	public String getMessage() {
+		if (message == null){
+			message = String.format(rule.getFormat(), arguments);
+		}
+		return message;
+	}
+
+	/**
+	 * The location of the element in the document, for example
+	 * /catalog/provider/course[3]/dc:title. Once worked out the element
+	 * itself is no longer referenced.
+	 * @return the path, or null if the element isn't known
+	 */
+	public String getPath() {
+		if (path == null && element != null){
+			path = path(element);
+			element = null;
+		}
+		return path;
+	}
+
+	/**
+	 * @return the line number, or -1 if it isn't known
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	/**
+	 * @return the column number, or -1 if it isn't known
+	 */
+	public int getColumn() {
+		return column;
+	}
+
+	/**
+	 * @param line the line number
+	 * @param column the column number
+	 */
+	public void setLocation(int line, int column) {
+		this.line = line;
+		this.column = column;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		StringBuilder builder = new StringBuilder();
+		builder.append(getSeverity()).append(' ').append(getCode());
+		if (getPath() != null) builder.append(' ').append(getPath());
+		if (line != -1) builder.append(" (").append(line).append(':').append(column).append(')');
+		builder.append(": ").append(getMessage());
+		return builder.toString();
+	}
+
+	/**
+	 * @param element
+	 * @return the path of the element, with the position of each element amongst
+	 * its siblings of the same name where there is more than one
+	 */
+	private static String path(Element element){
+		List<Element> ancestors = new ArrayList<Element>();
+		while (element != null){
+			ancestors.add(element);
+			element = element.getParentElement();
+		}
+		StringBuilder builder = new StringBuilder();
+		for (int depth = 0; depth < ancestors.size(); depth++){
+			element = ancestors.get(ancestors.size() - 1 - depth);
+			builder.append('/').append(element.getQualifiedName());
+			if (depth > 0){
+				int position = position(ancestors.get(ancestors.size() - depth), element, depth);
+				if (position > 0) builder.append('[').append(position).append(']');
+			}
+		}
+		return builder.toString();
+	}
+	
+	/**
+	 * @param parent
+	 * @param element
+	 * @param depth the depth of the element below the root
+	 * @return the position of the element amongst its siblings of the same name, or 0 if it has none
+	 */
+	private static int position(Element parent, Element element, int depth){
+		if (parent.getContentSize() >= POSITIONS_THRESHOLD){
+			List<Positions> cache = positions.get();
+			while (cache.size() < depth) cache.add(null);
+			Positions known = cache.get(depth - 1);
+			int position = known == null ? -1 : known.position(parent, element);
+			if (position == -1){
+				known = new Positions(parent);
+				cache.set(depth - 1, known);
+				position = known.position(parent, element);
+			}
+			if (position != -1) return position;
+		}
+		@SuppressWarnings("rawtypes")
+		List siblings = parent.getChildren(element.getName(), element.getNamespace());
+		if (siblings.size() > 1){
+			return siblings.indexOf(element) + 1;
+		}
+		return 0;
+	}
+	
+	/**
+	 * The positions of the child elements of an element amongst their siblings of 
+	 * the same name. Only the identity hash codes of the children are kept, so 
+	 * that the document can still be collected.
+	 */
+	private static final class Positions {
+		
+		private final WeakReference<Element> parent;
+		private final int size;
+		private final HashMap<Integer, Integer> indexes = new HashMap<Integer, Integer>();
+		private final int[] steps;
+		
+		Positions(Element parent){
+			this.parent = new WeakReference<Element>(parent);
+			this.size = parent.getContentSize();
+			this.steps = new int[size];
+			String[] names = new String[size];
+			HashMap<String, Integer> counts = new HashMap<String, Integer>();
+			for (int i = 0; i < size; i++){
+				Object content = parent.getContent(i);
+				if (content instanceof Element){
+					Element child = (Element)content;
+					names[i] = child.getNamespaceURI() + " " + child.getName();
+					Integer count = counts.get(names[i]);
+					steps[i] = count == null ? 1 : count + 1;
+					counts.put(names[i], steps[i]);
+					//
+					// Where children share a hash code only the first is found
+					//
+					Integer hash = System.identityHashCode(child);
+					if (!indexes.containsKey(hash)) indexes.put(hash, i);
+				}
+			}
+			for (int i = 0; i < size; i++){
+				if (names[i] != null && counts.get(names[i]) == 1) steps[i] = 0;
+			}
+		}
+		
+		/**
+		 * @param parent
+		 * @param element
+		 * @return the position of the element, 0 if it has no siblings of the same name,
+		 * or -1 if it isn't known
+		 */
+		int position(Element parent, Element element){
+			if (this.parent.get() != parent || parent.getContentSize() != size) return -1;
+			Integer index = indexes.get(System.identityHashCode(element));
+			if (index == null || parent.getContent(index) != element) return -1;
+			return steps[index];
+		}
+	}
+
+}
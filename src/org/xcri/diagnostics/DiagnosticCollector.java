@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+
+/**
+ * Diagnostics that keeps every problem reported, rather than logging it,
+ * for example to produce a feed quality report:
+ * <pre>
+ * DiagnosticCollector collector = new DiagnosticCollector();
+ * ParserConfiguration configuration = new ParserConfiguration();
+ * configuration.setDiagnostics(collector);
+ * catalog.fromXml(document, configuration);
+ * for (Diagnostic diagnostic : collector.getDiagnostics()) ...
+ * </pre>
+ */
+public class DiagnosticCollector extends Diagnostics {
+
+	private List<Diagnostic> diagnostics = new ArrayList<Diagnostic>();
+
+	/**
+	 * @return a copy of the problems reported so far, in the order they were reported
+	 */
+	public synchronized List<Diagnostic> getDiagnostics(){
+		return new ArrayList<Diagnostic>(diagnostics);
+	}
+
+	/**
+	 * Forget the problems reported so far, and reset the counts
+	 */
+	public synchronized void clear(){
+		diagnostics.clear();
+		resetCounts();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.diagnostics.Diagnostics#isHandled(org.apache.commons.logging.Log, org.xcri.diagnostics.Rule)
+	 */
+	@Override
+	protected boolean isHandled(Log log, Rule rule){
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.diagnostics.Diagnostics#handle(org.apache.commons.logging.Log, org.xcri.diagnostics.Diagnostic)
+	 */
+	@Override
+	protected void handle(Log log, Diagnostic diagnostic){
+		//
+		// Work out the path now, so the document isn't kept in memory
+		//
+		diagnostic.getPath();
+		synchronized (this) {
+			diagnostics.add(diagnostic);
+		}
+	}
+
+}
@@ -0,0 +1,199 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diagnostics;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.commons.logging.Log;
+import org.jdom.Element;
+
+/**
+ * Receives the problems found while parsing, and counts them by rule.
+ *
+ * By default every rule is enabled and each problem is logged, at the level
+ * matching its severity, to the Log of the class that found it - exactly as
+ * before diagnostics were introduced. Nothing is allocated for a rule that
+ * has been disabled, nor for one whose log level is disabled, unless a
+ * subclass overrides isHandled().
+ *
+ * Subclasses can override handle() to send problems elsewhere; see
+ * DiagnosticCollector. The diagnostics used are those of the current
+ * ParserConfiguration, and may receive problems from several threads.
+ */
+public class Diagnostics {
+
+	private static final Rule[] RULES = Rule.values();
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
+	private volatile boolean[] enabled;
+	private AtomicLongArray counts = new AtomicLongArray(RULES.length);
+
+	public Diagnostics(){
+		enabled = new boolean[RULES.length];
+		for (int i = 0; i < enabled.length; i++){
+			enabled[i] = true;
+		}
+	}
+
+	/**
+	 * @param rule
+	 * @return true if problems are counted and reported for the rule
+	 */
+	public boolean isEnabled(Rule rule){
+		return enabled[rule.ordinal()];
+	}
+
+	/**
+	 * Enable or disable a rule. A disabled rule is neither counted nor reported.
+	 * @param rule
+	 * @param enabled
+	 */
+	public synchronized void setEnabled(Rule rule, boolean enabled){
+		boolean[] copy = this.enabled.clone();
+		copy[rule.ordinal()] = enabled;
+		this.enabled = copy;
+	}
+
+	/**
+	 * @param rule
+	 * @return the number of times the rule has been broken
+	 */
+	public long getCount(Rule rule){
+		return counts.get(rule.ordinal());
+	}
+
+	/**
+	 * @return the number of times each rule has been broken, for the rules that have been
+	 */
+	public Map<Rule, Long> getCounts(){
+		EnumMap<Rule, Long> result = new EnumMap<Rule, Long>(Rule.class);
+		for (Rule rule : RULES){
+			long count = counts.get(rule.ordinal());
+			if (count > 0) result.put(rule, count);
+		}
+		return result;
+	}
+
+	/**
+	 * Set all the counts back to zero
+	 */
+	public void resetCounts(){
+		for (int i = 0; i < RULES.length; i++){
+			counts.set(i, 0);
+		}
+	}
+
+	/**
+	 * Report a problem with no message arguments
+	 * @param log the log of the class reporting the problem
+	 * @param rule
+	 * @param element the element concerned, or null if it isn't known
+	 */
+	public void report(Log log, Rule rule, Element element){
+		if (count(rule) && isHandled(log, rule)){
+			handle(log, new Diagnostic(rule, element, NO_ARGUMENTS));
+		}
+	}
+
+	/**
+	 * Report a problem with one message argument
+	 * @param log the log of the class reporting the problem
+	 * @param rule
+	 * @param element the element concerned, or null if it isn't known
+	 * @param argument
+	 */
+	public void report(Log log, Rule rule, Element element, Object argument){
+		if (count(rule) && isHandled(log, rule)){
+			handle(log, new Diagnostic(rule, element, new Object[]{argument}));
+		}
+	}
+
+	/**
+	 * Report a problem with two message arguments
+	 * @param log the log of the class reporting the problem
+	 * @param rule
+	 * @param element the element concerned, or null if it isn't known
+	 * @param first
+	 * @param second
+	 */
+	public void report(Log log, Rule rule, Element element, Object first, Object second){
+		if (count(rule) && isHandled(log, rule)){
+			handle(log, new Diagnostic(rule, element, new Object[]{first, second}));
+		}
+	}
+
+	/**
+	 * Report a problem with three message arguments
+	 * @param log the log of the class reporting the problem
+	 * @param rule
+	 * @param element the element concerned, or null if it isn't known
+	 * @param first
+	 * @param second
+	 * @param third
+	 */
+	public void report(Log log, Rule rule, Element element, Object first, Object second, Object third){
+		if (count(rule) && isHandled(log, rule)){
+			handle(log, new Diagnostic(rule, element, new Object[]{first, second, third}));
+		}
+	}
+
+	/**
+	 * Count a problem, if its rule is enabled
+	 * @param rule
+	 * @return true if the rule is enabled
+	 */
+	private boolean count(Rule rule){
+		int index = rule.ordinal();
+		if (!enabled[index]) return false;
+		counts.incrementAndGet(index);
+		return true;
+	}
+
+	/**
+	 * Whether a problem needs to be passed to handle(); by default only if
+	 * the log is enabled for its severity
+	 * @param log
+	 * @param rule
+	 * @return true if handle() should be called
+	 */
+	protected boolean isHandled(Log log, Rule rule){
+		switch (rule.getSeverity()){
+			case INFO: return log.isInfoEnabled();
+			case WARNING: return log.isWarnEnabled();
+			default: return log.isErrorEnabled();
+		}
+	}
+
+	/**
+	 * Deal with a problem; by default it is logged at the level matching its severity
+	 * @param log the log of the class reporting the problem
+	 * @param diagnostic
+	 */
+	protected void handle(Log log, Diagnostic diagnostic){
+		switch (diagnostic.getSeverity()){
+			case INFO: log.info(diagnostic.getMessage()); break;
+			case WARNING: log.warn(diagnostic.getMessage()); break;
+			default: log.error(diagnostic.getMessage());
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diagnostics;
+
+/**
+ * The problems that can be reported while parsing a feed. Each rule has
+ * a fixed severity and a message format, which is only applied to the
+ * arguments of a Diagnostic when its message is needed.
+ */
+public enum Rule {
+
+	//
+	// Lax matching of element names
+	//
+	INCORRECT_NAME(Severity.WARNING, "elements uses incorrect name:%s"),
+	INCORRECT_NAMESPACE(Severity.WARNING, "elements use incorrect namespace:%s"),
+	MULTIPLE_ELEMENTS(Severity.WARNING, "multiple '%s' child elements returned instead of a single element; ignoring all but the first child element found"),
+
+	//
+	// Any element: parent name, child name, reason
+	//
+	INVALID_CHILD(Severity.WARNING, "%s : skipping invalid %s element: %s"),
+	INVALID_URL(Severity.ERROR, "%s"),
+	INVALID_EXTENSION(Severity.ERROR, "%s"),
+
+	//
+	// Common elements
+	//
+	DATE_NOT_RECOMMENDED(Severity.WARNING, "date: Producers SHOULD NOT use the <date> element, but instead where possible use the <start> element and the temporal elements defined in this document: <end>, <applyFrom>, and <applyUntil"),
+	PART_NOT_RECOMMENDED(Severity.WARNING, "hasPart/isPartOf: these elements are included for compatibility with the [EN 15982] standard. Producers SHOULD NOT use these elements"),
+	CONTRIBUTOR_NO_TYPE(Severity.INFO, "contributor : Producers SHOULD use refinements of this element, for example for \"presenter\" or \"lecturer\" or other contributor types relevant to  the type of course or presentation."),
+	TITLE_DUPLICATE_LANGUAGE(Severity.WARNING, "title : there SHOULD NOT be more than one occurrence of title per language tag."),
+	IMAGE_NO_ALT(Severity.WARNING, "image: While @alt is optional, following the structure of XHTML, a Producer SHOULD provide meaningful alternative text"),
+	IMAGE_FORMAT(Severity.WARNING, "image : A Producer SHOULD offer images in standard formats, such as PNG and JPEG"),
+	ABSTRACT_TOO_LONG(Severity.WARNING, "%s: Abstract: Producers MUST NOT create a value of this element that exceeds 140 characters."),
+
+	//
+	// Descriptive text
+	//
+	CDATA_CONVERTED(Severity.WARNING, "description: uses CDATA instead of XHTML. Attempting to convert inline HTML into XHTML."),
+	UNSAFE_XHTML(Severity.WARNING, "description : content contains potentially dangerous XHTML :%s"),
+	UNSAFE_XHTML_REMOVED(Severity.WARNING, "description : removing XHTML element :%s"),
+	UNSAFE_XHTML_ATTRIBUTE(Severity.WARNING, "description : content contains potentially dangerous XHTML attribute :%s on %s"),
+	UNSAFE_XHTML_ATTRIBUTE_REMOVED(Severity.WARNING, "description : removing XHTML attribute :%s from %s"),
+
+	//
+	// Catalog
+	//
+	GENERATED_NO_TIME(Severity.WARNING, "catalog: @generated contains date but not time:%s"),
+	GENERATED_INVALID(Severity.ERROR, "catalog: @generated contains invalid date:%s"),
+
+	//
+	// Provider
+	//
+	PROVIDER_NO_URL(Severity.WARNING, "provider: provider has no URL"),
+	PROVIDER_NO_TITLE(Severity.WARNING, "provider: provider has no title"),
+	PROVIDER_MULTIPLE_LOCATIONS(Severity.WARNING, "provider : multiple <location> elements found; skipping all but first occurrence"),
+	PROVIDER_NO_COURSES(Severity.WARNING, "provider: provider contains no courses"),
+
+	//
+	// Course
+	//
+	COURSE_NO_IDENTIFIER(Severity.WARNING, "course: course does not contain any identifiers"),
+	COURSE_IDENTIFIER_NO_TYPE(Severity.WARNING, "course: course contains a non-URI identifier with no type:%s"),
+	COURSE_NO_URI_IDENTIFIER(Severity.WARNING, "course: course does not contain a URI identifier"),
+	COURSE_NO_TITLE(Severity.WARNING, "course: course has no title"),
+	COURSE_NO_SUBJECT(Severity.WARNING, "course: course does not contain a subject"),
+	COURSE_LEVEL_NOT_RECOMMENDED(Severity.WARNING, "course: level is not recommended"),
+	CREDIT_MULTIPLE_VALUES(Severity.WARNING, "credit : Multiple credit values found: Producers SHOULD use a separate credit element to represent the credits for each scheme"),
+	CREDIT_NO_SCHEME(Severity.WARNING, "credit: While scheme is optional, the scheme SHOULD be stated unless a default has been agreed between the Producer and the Aggregator"),
+
+	//
+	// Presentation
+	//
+	PRESENTATION_NO_START(Severity.WARNING, "presentation : A Producer SHOULD include a start element"),
+	PRESENTATION_NO_DURATION(Severity.WARNING, "presentation : A Producer SHOULD include a duration element or start and end dates, or both."),
+	UNRECOGNISED_IDENTIFIER(Severity.WARNING, "%s : identifier (\"%s\") is not a member of the recommended vocabulary"),
+	AGE_INVALID(Severity.ERROR, "age : %s"),
+	INVALID_INTERVAL(Severity.WARNING, "duration : skipping invalid interval attribute"),
+	VENUE_NO_LOCATION(Severity.WARNING, "Location: When a provider element is used in a venue element, Producers SHOULD include a location element."),
+	VENUE_NO_PROVIDER(Severity.ERROR, "venue: If a <venue> element does not contain one and only one <provider> element, Aggregators MUST treat the <venue> element as being in error.");
+
+	private Severity severity;
+	private String format;
+
+	private Rule(Severity severity, String format){
+		this.severity = severity;
+		this.format = format;
+	}
+
+	/**
+	 * @return the severity of problems reported under this rule
+	 */
+	public Severity getSeverity() {
+		return severity;
+	}
+
+	/**
+	 * @return the message format, as used by String.format()
+	 */
+	public String getFormat() {
+		return format;
+	}
+
+}
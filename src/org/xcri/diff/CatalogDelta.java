@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diff;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The changes between two versions of a catalog, found by CatalogDiff.
+ *
+ * Changes are listed in the order of the courses in the new version, with
+ * the courses that were removed at the end. A course that was added or
+ * removed is a single change; its presentations are not listed separately.
+ */
+public class CatalogDelta {
+
+	private final List<Change> changes;
+	private final int unchanged;
+
+	CatalogDelta(List<Change> changes, int unchanged){
+		this.changes = Collections.unmodifiableList(changes);
+		this.unchanged = unchanged;
+	}
+
+	/**
+	 * @return every change
+	 */
+	public List<Change> getChanges() {
+		return changes;
+	}
+
+	/**
+	 * @param type
+	 * @return the changes of one type
+	 */
+	public List<Change> getChanges(Change.Type type){
+		ArrayList<Change> selected = new ArrayList<Change>();
+		for (Change change : changes){
+			if (change.getType() == type) selected.add(change);
+		}
+		return selected;
+	}
+
+	/**
+	 * @return true if the two versions have the same content
+	 */
+	public boolean isEmpty(){
+		return changes.isEmpty();
+	}
+
+	/**
+	 * @return the number of courses in both versions with no change to them or their presentations
+	 */
+	public int getUnchangedCourses() {
+		return unchanged;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		return changes.size() + " changes, " + unchanged + " courses unchanged";
+	}
+
+}
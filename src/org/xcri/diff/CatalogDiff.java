@@ -0,0 +1,276 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diff;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.xcri.core.Catalog;
+import org.xcri.core.CatalogStreamReader;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+import org.xcri.exceptions.InvalidElementException;
+
+/**
+ * Finds the courses and presentations that have been added, removed or
+ * changed between two versions of a catalog, and which of their fields
+ * changed.
+ *
+ * Courses are matched by their first dc:identifier, and presentations by
+ * theirs within the course (see Change for those without one). Each is
+ * compared using its Fingerprint, so the time taken is proportional to
+ * the size of the two versions, and only the fields of the courses and
+ * presentations that differ are compared.
+ *
+ * Versions can be given as Catalogs, or read from streams a course at a
+ * time so that neither is held in memory; only the courses that changed
+ * are kept. To compare each new version with the last one without reading
+ * the last one again, keep the fingerprints returned by fingerprint().
+ *
+ * Fingerprints are 64-bit hashes, so there is a very small chance that a
+ * change is missed.
+ */
+public class CatalogDiff {
+
+	/**
+	 * @param catalog
+	 * @return the fingerprints of the courses in the catalog, by key, in document order
+	 */
+	public Map<String, Fingerprint> fingerprint(Catalog catalog){
+		return fingerprint(courses(catalog).iterator());
+	}
+
+	/**
+	 * @param courses
+	 * @return the fingerprints of the courses, by key, in order
+	 */
+	public Map<String, Fingerprint> fingerprint(Iterator<Course> courses){
+		LinkedHashMap<String, Fingerprint> fingerprints = new LinkedHashMap<String, Fingerprint>();
+		while (courses.hasNext()){
+			Fingerprint fingerprint = Fingerprint.of(courses.next());
+			fingerprints.put(key(fingerprints, courseKey(fingerprint)), fingerprint);
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * Read a feed a course at a time, keeping only the fingerprints
+	 * @param feed
+	 * @return the fingerprints of the courses in the feed, by key, in document order
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException
+	 */
+	public Map<String, Fingerprint> fingerprint(InputStream feed) throws XMLStreamException, InvalidElementException{
+		LinkedHashMap<String, Fingerprint> fingerprints = new LinkedHashMap<String, Fingerprint>();
+		CatalogStreamReader reader = new CatalogStreamReader(feed);
+		try {
+			Course course;
+			while ((course = reader.nextCourse()) != null){
+				Fingerprint fingerprint = Fingerprint.of(course);
+				fingerprints.put(key(fingerprints, courseKey(fingerprint)), fingerprint);
+			}
+		} finally {
+			reader.close();
+		}
+		return fingerprints;
+	}
+
+	/**
+	 * @param previous
+	 * @param current
+	 * @return the changes from the previous version to the current one
+	 */
+	public CatalogDelta diff(Catalog previous, Catalog current){
+		return diff(fingerprint(previous), courses(current).iterator());
+	}
+
+	/**
+	 * @param previous the fingerprints of the previous version
+	 * @param current
+	 * @return the changes from the previous version to the current one
+	 */
+	public CatalogDelta diff(Map<String, Fingerprint> previous, Catalog current){
+		return diff(previous, courses(current).iterator());
+	}
+
+	/**
+	 * @param previous the fingerprints of the previous version
+	 * @param current the courses of the current version
+	 * @return the changes from the previous version to the current one
+	 */
+	public CatalogDelta diff(Map<String, Fingerprint> previous, Iterator<Course> current){
+		Comparison comparison = new Comparison(previous);
+		while (current.hasNext()){
+			comparison.compare(current.next());
+		}
+		return comparison.finish();
+	}
+
+	/**
+	 * Compare two feeds, reading each a course at a time
+	 * @param previous
+	 * @param current
+	 * @return the changes from the previous version to the current one
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException
+	 */
+	public CatalogDelta diff(InputStream previous, InputStream current) throws XMLStreamException, InvalidElementException{
+		return diff(fingerprint(previous), current);
+	}
+
+	/**
+	 * Compare a feed, read a course at a time, with the fingerprints of the previous version
+	 * @param previous the fingerprints of the previous version
+	 * @param current
+	 * @return the changes from the previous version to the current one
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException
+	 */
+	public CatalogDelta diff(Map<String, Fingerprint> previous, InputStream current) throws XMLStreamException, InvalidElementException{
+		Comparison comparison = new Comparison(previous);
+		CatalogStreamReader reader = new CatalogStreamReader(current);
+		try {
+			Course course;
+			while ((course = reader.nextCourse()) != null){
+				comparison.compare(course);
+			}
+		} finally {
+			reader.close();
+		}
+		return comparison.finish();
+	}
+
+	static List<Course> courses(Catalog catalog){
+		ArrayList<Course> courses = new ArrayList<Course>();
+		if (catalog.getProviders() != null) for (Provider provider : catalog.getProviders()){
+			if (provider.getCourses() == null) continue;
+			for (Course course : provider.getCourses()){
+				courses.add(course);
+			}
+		}
+		return courses;
+	}
+
+	static String courseKey(Fingerprint fingerprint){
+		if (fingerprint.getIdentifier() != null) return fingerprint.getIdentifier();
+		return "#" + Long.toHexString(fingerprint.getHash());
+	}
+
+	/**
+	 * @param course
+	 * @return the key of the course, as courseKey(Fingerprint.of(course)) but only
+	 * taking the fingerprint of a course without an identifier
+	 */
+	static String courseKey(Course course){
+		String identifier = Fingerprint.identifier(course);
+		if (identifier != null) return identifier;
+		return courseKey(Fingerprint.of(course));
+	}
+
+	static String presentationKey(String identifier, int index){
+		if (identifier != null) return identifier;
+		return "#" + (index + 1);
+	}
+
+	/**
+	 * @param keys the keys used so far
+	 * @param key
+	 * @return the key, made unique by adding "#2", "#3" and so on if it has been used
+	 */
+	static String key(Map<String, ?> keys, String key){
+		if (!keys.containsKey(key)) return key;
+		int n = 2;
+		while (keys.containsKey(key + "#" + n)) n++;
+		return key + "#" + n;
+	}
+
+	/**
+	 * Matches the courses of the current version with the fingerprints of the previous one
+	 */
+	private static class Comparison {
+		private final LinkedHashMap<String, Fingerprint> previous;
+		private final LinkedHashMap<String, Fingerprint> seen = new LinkedHashMap<String, Fingerprint>();
+		private final ArrayList<Change> changes = new ArrayList<Change>();
+		private int unchanged;
+
+		private Comparison(Map<String, Fingerprint> previous){
+			this.previous = new LinkedHashMap<String, Fingerprint>(previous);
+		}
+
+		private void compare(Course course){
+			Fingerprint current = Fingerprint.of(course);
+			String key = key(seen, courseKey(current));
+			seen.put(key, current);
+			Fingerprint old = previous.remove(key);
+			if (old == null){
+				changes.add(new Change(Change.Type.ADDED, key, null, null, course, null));
+				return;
+			}
+
+			int before = changes.size();
+			if (old.getHash() != current.getHash()){
+				changes.add(new Change(Change.Type.CHANGED, key, null, old.getChangedFields(current), course, null));
+			}
+
+			//
+			// Presentations
+			//
+			LinkedHashMap<String, Fingerprint> oldPresentations = new LinkedHashMap<String, Fingerprint>();
+			List<Fingerprint> presentations = old.getPresentations();
+			for (int i = 0; i < presentations.size(); i++){
+				oldPresentations.put(key(oldPresentations, presentationKey(presentations.get(i).getIdentifier(), i)), presentations.get(i));
+			}
+			LinkedHashMap<String, Fingerprint> newPresentations = new LinkedHashMap<String, Fingerprint>();
+			presentations = current.getPresentations();
+			for (int i = 0; i < presentations.size(); i++){
+				Fingerprint presentation = presentations.get(i);
+				String presentationKey = key(newPresentations, presentationKey(presentation.getIdentifier(), i));
+				newPresentations.put(presentationKey, presentation);
+				Presentation model = course.getPresentations()[i];
+				Fingerprint oldPresentation = oldPresentations.remove(presentationKey);
+				if (oldPresentation == null){
+					changes.add(new Change(Change.Type.ADDED, key, presentationKey, null, course, model));
+				} else if (oldPresentation.getHash() != presentation.getHash()){
+					changes.add(new Change(Change.Type.CHANGED, key, presentationKey, oldPresentation.getChangedFields(presentation), course, model));
+				}
+			}
+			for (String presentationKey : oldPresentations.keySet()){
+				changes.add(new Change(Change.Type.REMOVED, key, presentationKey, null, course, null));
+			}
+
+			if (changes.size() == before) unchanged++;
+		}
+
+		private CatalogDelta finish(){
+			for (String key : previous.keySet()){
+				changes.add(new Change(Change.Type.REMOVED, key, null, null, null, null));
+			}
+			return new CatalogDelta(changes, unchanged);
+		}
+	}
+
+}
@@ -0,0 +1,271 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jdom.Element;
+import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+import org.xcri.diagnostics.Diagnostics;
+import org.xcri.diagnostics.Rule;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.types.XcriElement;
+
+/**
+ * Applies a CatalogDelta to a Catalog held in memory, so that it matches
+ * the version the delta was computed against without reading the whole
+ * feed again.
+ *
+ * The catalog should be the previous version of the delta, or a catalog
+ * the previous deltas have been applied to: courses and presentations are
+ * found using the same keys as CatalogDiff. Added and changed courses are
+ * the new versions from the delta, moved into the catalog; a course whose
+ * only changes are to its presentations keeps its unchanged presentations.
+ * Parents are set so that inherited descriptions, subjects, images and
+ * titles come from the catalog.
+ *
+ * A course added to a provider that is not in the catalog, matched by its
+ * first dc:identifier or else its first title, brings a copy of the new
+ * version of the provider, without its courses, with it. The providers of
+ * the new version are left as they were. Any CatalogIndex or TextIndex of
+ * the catalog needs to be built again.
+ */
+public class CatalogUpdater {
+
+	private Log log = LogFactory.getLog(CatalogUpdater.class);
+
+	/**
+	 * Apply the changes to the catalog in place
+	 * @param catalog
+	 * @param delta
+	 */
+	public void apply(Catalog catalog, CatalogDelta delta){
+		if (delta.isEmpty()) return;
+
+		//
+		// Find the courses of the catalog by key, as CatalogDiff does
+		//
+		LinkedHashMap<String, Course> courses = new LinkedHashMap<String, Course>();
+		for (Course course : CatalogDiff.courses(catalog)){
+			courses.put(CatalogDiff.key(courses, CatalogDiff.courseKey(course)), course);
+		}
+
+		//
+		// Group the changes by course
+		//
+		LinkedHashMap<String, List<Change>> changesByCourse = new LinkedHashMap<String, List<Change>>();
+		for (Change change : delta.getChanges()){
+			List<Change> changes = changesByCourse.get(change.getCourseKey());
+			if (changes == null){
+				changes = new ArrayList<Change>();
+				changesByCourse.put(change.getCourseKey(), changes);
+			}
+			changes.add(change);
+		}
+
+		IdentityHashMap<Course, Course> replacements = new IdentityHashMap<Course, Course>();
+		Set<Course> removed = Collections.newSetFromMap(new IdentityHashMap<Course, Boolean>());
+		LinkedHashMap<XcriElement, List<Course>> additions = new LinkedHashMap<XcriElement, List<Course>>();
+		for (Map.Entry<String, List<Change>> entry : changesByCourse.entrySet()){
+			Course existing = courses.get(entry.getKey());
+			Change first = entry.getValue().get(0);
+			if (!first.isPresentation() && first.getType() == Change.Type.REMOVED){
+				if (existing == null){
+					log.warn("course to be removed is not in the catalog: " + entry.getKey());
+				} else {
+					removed.add(existing);
+				}
+			} else if (existing == null){
+				if (first.getType() != Change.Type.ADDED) log.warn("course to be changed is not in the catalog, so has been added: " + entry.getKey());
+				XcriElement provider = first.getCourse().getParent();
+				List<Course> added = additions.get(provider);
+				if (added == null){
+					added = new ArrayList<Course>();
+					additions.put(provider, added);
+				}
+				added.add(first.getCourse());
+			} else if (!first.isPresentation()){
+				replacements.put(existing, first.getCourse());
+			} else {
+				updatePresentations(existing, first.getCourse(), entry.getValue());
+			}
+		}
+
+		//
+		// Update the courses of each provider
+		//
+		if (catalog.getProviders() == null) catalog.setProviders(new Provider[0]);
+		HashMap<String, Provider> providers = new HashMap<String, Provider>();
+		for (Provider provider : catalog.getProviders()){
+			String key = providerKey(provider);
+			if (key != null && !providers.containsKey(key)) providers.put(key, provider);
+		}
+		if (!replacements.isEmpty() || !removed.isEmpty()){
+			for (Provider provider : catalog.getProviders()){
+				if (provider.getCourses() == null) continue;
+				ArrayList<Course> updated = new ArrayList<Course>(provider.getCourses().length);
+				boolean changed = false;
+				for (Course course : provider.getCourses()){
+					Course replacement = replacements.get(course);
+					if (removed.contains(course)){
+						changed = true;
+					} else if (replacement != null){
+						replacement.setParent(provider);
+						updated.add(replacement);
+						changed = true;
+					} else {
+						updated.add(course);
+					}
+				}
+				if (changed) provider.setCourses(updated.toArray(new Course[updated.size()]));
+			}
+		}
+		ArrayList<Provider> newProviders = new ArrayList<Provider>();
+		for (Map.Entry<XcriElement, List<Course>> entry : additions.entrySet()){
+			Provider provider = findProvider(catalog, providers, entry.getKey());
+			List<Course> added = entry.getValue();
+			if (provider == null){
+				provider = entry.getKey() instanceof Provider ? copyHeader((Provider)entry.getKey()) : new Provider();
+				provider.setCourses(new Course[0]);
+				provider.setParent(catalog);
+				newProviders.add(provider);
+				String key = providerKey(provider);
+				if (key != null) providers.put(key, provider);
+			}
+			Course[] existing = provider.getCourses() == null ? new Course[0] : provider.getCourses();
+			Course[] updated = Arrays.copyOf(existing, existing.length + added.size());
+			for (int i = 0; i < added.size(); i++){
+				added.get(i).setParent(provider);
+				updated[existing.length + i] = added.get(i);
+			}
+			provider.setCourses(updated);
+		}
+		if (!newProviders.isEmpty()){
+			newProviders.addAll(0, Arrays.asList(catalog.getProviders()));
+			catalog.setProviders(newProviders.toArray(new Provider[newProviders.size()]));
+		}
+	}
+
+	/**
+	 * Copy the provider of a new version, without its courses, by writing it out
+	 * and reading it again. Problems with it were reported when the new version
+	 * was read, so they aren't reported again.
+	 * @param source the provider of the new version
+	 * @return a new provider with the same header
+	 */
+	private Provider copyHeader(Provider source){
+		Element element = source.toXml();
+		element.removeChildren("course", Namespaces.XCRI_NAMESPACE_NS);
+		ParserConfiguration configuration = new ParserConfiguration(ParserConfiguration.getInstance());
+		Diagnostics diagnostics = new Diagnostics();
+		for (Rule rule : Rule.values()) diagnostics.setEnabled(rule, false);
+		configuration.setDiagnostics(diagnostics);
+		configuration.setValidator(null);
+		Provider provider = new Provider();
+		ParserConfiguration previous = ParserConfiguration.bind(configuration);
+		try {
+			provider.headerFromXml(element);
+		} catch (InvalidElementException e) {
+			log.warn("provider could not be copied: " + e.getMessage());
+		} finally {
+			ParserConfiguration.bind(previous);
+		}
+		return provider;
+	}
+
+	/**
+	 * Update the presentations of a course from its new version, keeping those that have not changed
+	 * @param course the course in the catalog
+	 * @param current the new version of the course
+	 * @param changes the changes to its presentations
+	 */
+	private void updatePresentations(Course course, Course current, List<Change> changes){
+		HashSet<String> changed = new HashSet<String>();
+		for (Change change : changes){
+			if (change.getType() != Change.Type.REMOVED) changed.add(change.getPresentationKey());
+		}
+		LinkedHashMap<String, Presentation> existing = new LinkedHashMap<String, Presentation>();
+		if (course.getPresentations() != null){
+			Presentation[] presentations = course.getPresentations();
+			for (int i = 0; i < presentations.length; i++){
+				existing.put(CatalogDiff.key(existing, CatalogDiff.presentationKey(Fingerprint.identifier(presentations[i]), i)), presentations[i]);
+			}
+		}
+		Presentation[] presentations = current.getPresentations() == null ? new Presentation[0] : current.getPresentations();
+		Presentation[] updated = new Presentation[presentations.length];
+		HashMap<String, Presentation> keys = new HashMap<String, Presentation>();
+		for (int i = 0; i < presentations.length; i++){
+			String key = CatalogDiff.key(keys, CatalogDiff.presentationKey(Fingerprint.identifier(presentations[i]), i));
+			keys.put(key, presentations[i]);
+			Presentation presentation = existing.get(key);
+			if (presentation == null || changed.contains(key)){
+				presentation = presentations[i];
+				presentation.setParent(course);
+			}
+			updated[i] = presentation;
+		}
+		course.setPresentations(updated);
+	}
+
+	/**
+	 * @param catalog
+	 * @param providers the providers of the catalog by key
+	 * @param provider a provider from the new version
+	 * @return the provider in the catalog matching the one in the new version, or null if there is none
+	 */
+	private static Provider findProvider(Catalog catalog, Map<String, Provider> providers, XcriElement provider){
+		if (provider instanceof Provider){
+			String key = providerKey((Provider)provider);
+			if (key != null) return providers.get(key);
+		}
+		if (catalog.getProviders().length == 1) return catalog.getProviders()[0];
+		return null;
+	}
+
+	/**
+	 * @param provider
+	 * @return the first dc:identifier of the provider, or else its first title, or null if it has neither
+	 */
+	private static String providerKey(Provider provider){
+		String identifier = Fingerprint.identifier(provider);
+		if (identifier != null) return identifier;
+		if (provider.getTitles() != null && provider.getTitles().length > 0 && provider.getTitles()[0].getValue() != null){
+			return "title:" + provider.getTitles()[0].getValue().trim();
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diff;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+
+/**
+ * A course or presentation that has been added, removed or changed between
+ * two versions of a catalog
+ */
+public class Change {
+
+	public enum Type {
+		ADDED,
+		REMOVED,
+		CHANGED
+	}
+
+	private final Type type;
+	private final String courseKey;
+	private final String presentationKey;
+	private final List<String> fields;
+	private final Course course;
+	private final Presentation presentation;
+
+	Change(Type type, String courseKey, String presentationKey, List<String> fields, Course course, Presentation presentation){
+		this.type = type;
+		this.courseKey = courseKey;
+		this.presentationKey = presentationKey;
+		this.fields = fields == null ? Collections.<String>emptyList() : Collections.unmodifiableList(fields);
+		this.course = course;
+		this.presentation = presentation;
+	}
+
+	/**
+	 * @return whether the course or presentation was added, removed or changed
+	 */
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return true if this is a change to a presentation, rather than a course
+	 */
+	public boolean isPresentation(){
+		return presentationKey != null;
+	}
+
+	/**
+	 * The key the course was matched by: its first dc:identifier or, if it has
+	 * none, "#" followed by the hash of its content. A second course with the
+	 * same key as an earlier one has "#2" added, and so on.
+	 * @return the key of the course, or of the course of the presentation
+	 */
+	public String getCourseKey() {
+		return courseKey;
+	}
+
+	/**
+	 * The key the presentation was matched by within its course: its first
+	 * dc:identifier or, if it has none, "#" followed by its position in the
+	 * course, counting from 1
+	 * @return the key of the presentation, or null for a change to a course
+	 */
+	public String getPresentationKey() {
+		return presentationKey;
+	}
+
+	/**
+	 * @return the names of the fields that changed, as in Fingerprint.getFields(); empty unless the type is CHANGED
+	 */
+	public List<String> getFields() {
+		return fields;
+	}
+
+	/**
+	 * @return the new version of the course, or of the course of the presentation; null if the course was removed
+	 */
+	public Course getCourse() {
+		return course;
+	}
+
+	/**
+	 * @return the new version of the presentation; null for a change to a course, or if the presentation was removed
+	 */
+	public Presentation getPresentation() {
+		return presentation;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		return type + " " + (presentationKey == null ? "course " + courseKey : "presentation " + presentationKey + " of " + courseKey) + (fields.isEmpty() ? "" : " " + fields);
+	}
+
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diff;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.types.CommonType;
+
+/**
+ * A summary of the content of a course or presentation: a 64-bit hash of
+ * each of its fields, and of the whole.
+ *
+ * A field is all the child elements with the same name, such as every
+ * dc:subject, as they would be written by writeXml(); inherited values
+ * are included, as they are in the output. The attributes and text of
+ * the element itself are the field named SELF. Presentations are not a
+ * field of their course: each has a fingerprint of its own, so a change
+ * to one presentation does not change the course.
+ *
+ * Fingerprints are small and do not refer to the model, so those of a
+ * previous version of a feed can be kept while the model is discarded.
+ */
+public final class Fingerprint {
+
+	/**
+	 * The name of the field holding the attributes and text of the element itself
+	 */
+	public static final String SELF = "@";
+
+	private final String identifier;
+	private final long hash;
+	private final String[] fields;
+	private final long[] fieldHashes;
+	private final Fingerprint[] presentations;
+
+	/**
+	 * @param element
+	 * @return the first dc:identifier of the element, trimmed, or null if there is none
+	 */
+	static String identifier(CommonType element){
+		if (element.getIdentifiers() == null || element.getIdentifiers().length == 0) return null;
+		String identifier = element.getIdentifiers()[0].getValue();
+		return identifier == null ? null : identifier.trim();
+	}
+
+	Fingerprint(String identifier, String[] fields, long[] fieldHashes, Fingerprint[] presentations){
+		this.identifier = identifier;
+		this.fields = fields;
+		this.fieldHashes = fieldHashes;
+		this.presentations = presentations;
+		long hash = FingerprintWriter.OFFSET;
+		for (int i = 0; i < fields.length; i++){
+			hash = FingerprintWriter.mix(hash, fields[i]);
+			hash = (hash ^ fieldHashes[i]) * FingerprintWriter.PRIME;
+		}
+		this.hash = hash;
+	}
+
+	/**
+	 * @param course
+	 * @return the fingerprint of the course and its presentations
+	 */
+	public static Fingerprint of(Course course){
+		return create(course);
+	}
+
+	/**
+	 * @param presentation
+	 * @return the fingerprint of the presentation; the same as it has in the fingerprint of its course
+	 */
+	public static Fingerprint of(Presentation presentation){
+		return create(presentation);
+	}
+
+	private static Fingerprint create(CommonType element){
+		FingerprintWriter writer = new FingerprintWriter(element);
+		try {
+			element.writeXml(writer);
+		} catch (XMLStreamException e) {
+			//
+			// The writer never throws
+			//
+			throw new IllegalStateException(e);
+		}
+		return writer.getFingerprint();
+	}
+
+	/**
+	 * @return the first dc:identifier, or null if there is none
+	 */
+	public String getIdentifier() {
+		return identifier;
+	}
+
+	/**
+	 * @return the hash of every field, not including presentations
+	 */
+	public long getHash() {
+		return hash;
+	}
+
+	/**
+	 * @return the names of the fields, in the order they are written
+	 */
+	public List<String> getFields() {
+		return Collections.unmodifiableList(Arrays.asList(fields));
+	}
+
+	/**
+	 * @param field
+	 * @return the hash of the field, or 0 if there is no such field
+	 */
+	public long getFieldHash(String field){
+		for (int i = 0; i < fields.length; i++){
+			if (fields[i].equals(field)) return fieldHashes[i];
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the fingerprints of the presentations of a course, in order
+	 */
+	public List<Fingerprint> getPresentations() {
+		return Collections.unmodifiableList(Arrays.asList(presentations));
+	}
+
+	/**
+	 * @param other another version of the same course or presentation
+	 * @return the names of the fields that differ, including those that only one of them has
+	 */
+	public List<String> getChangedFields(Fingerprint other){
+		ArrayList<String> changed = new ArrayList<String>();
+		if (hash == other.hash) return changed;
+		for (int i = 0; i < fields.length; i++){
+			if (!other.hasField(fields[i]) || other.getFieldHash(fields[i]) != fieldHashes[i]){
+				changed.add(fields[i]);
+			}
+		}
+		for (String field : other.fields){
+			if (!hasField(field)) changed.add(field);
+		}
+		return changed;
+	}
+
+	private boolean hasField(String field){
+		for (String name : fields){
+			if (name.equals(field)) return true;
+		}
+		return false;
+	}
+
+}
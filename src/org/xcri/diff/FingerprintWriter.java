@@ -0,0 +1,434 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.diff;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.xcri.Namespaces;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.types.CommonType;
+
+/**
+ * An XMLStreamWriter that writes nothing, but hashes the elements,
+ * attributes and text it is given into the fields of a Fingerprint.
+ *
+ * Namespaces are hashed by URI, so prefixes and namespace declarations
+ * make no difference, and text is hashed a character at a time, so it
+ * makes no difference how it is split between calls. Comments and
+ * processing instructions are ignored.
+ */
+class FingerprintWriter implements XMLStreamWriter {
+
+	//
+	// 64-bit FNV-1a
+	//
+	static final long OFFSET = 0xcbf29ce484222325L;
+	static final long PRIME = 0x100000001b3L;
+
+	//
+	// Markers for structure, outside the range of characters
+	//
+	private static final int START = 0x10001;
+	private static final int END = 0x10002;
+	private static final int ATTRIBUTE = 0x10003;
+	private static final int STRING = 0x10004;
+	private static final int ENTITY = 0x10005;
+
+	private static final NamespaceContext NO_NAMESPACES = new NamespaceContext() {
+		public String getNamespaceURI(String prefix) {
+			return null;
+		}
+		public String getPrefix(String namespaceURI) {
+			return null;
+		}
+		public Iterator<String> getPrefixes(String namespaceURI) {
+			return Collections.<String>emptyList().iterator();
+		}
+	};
+
+	/**
+	 * The fields of a course or presentation being written
+	 */
+	private class Entity {
+		private final int depth;
+		private final Entity parent;
+		private final CommonType element;
+		private final ArrayList<String> fields = new ArrayList<String>();
+		private long[] hashes = new long[8];
+		private int field;
+		private final ArrayList<Fingerprint> presentations = new ArrayList<Fingerprint>();
+
+		private Entity(int depth, Entity parent, CommonType element){
+			this.depth = depth;
+			this.parent = parent;
+			this.element = element;
+			startField(Fingerprint.SELF);
+		}
+
+		private void startField(String name){
+			field = fields.indexOf(name);
+			if (field < 0){
+				field = fields.size();
+				fields.add(name);
+				if (field == hashes.length) hashes = Arrays.copyOf(hashes, field * 2);
+				hashes[field] = OFFSET;
+			}
+		}
+
+		private void mix(int value){
+			hashes[field] = (hashes[field] ^ value) * PRIME;
+		}
+
+		private Fingerprint finish(){
+			return new Fingerprint(element == null ? null : Fingerprint.identifier(element), fields.toArray(new String[fields.size()]), Arrays.copyOf(hashes, fields.size()),
+				presentations.toArray(new Fingerprint[presentations.size()]));
+		}
+	}
+
+	private final CommonType root;
+	private Entity entity;
+	private Fingerprint fingerprint;
+	private int depth;
+	private boolean emptyElement;
+
+	/**
+	 * @param root the course or presentation that will be written
+	 */
+	FingerprintWriter(CommonType root){
+		this.root = root;
+	}
+
+	/**
+	 * @return the fingerprint, once the element has been written
+	 */
+	Fingerprint getFingerprint(){
+		return fingerprint;
+	}
+
+	static long mix(long hash, String value){
+		for (int i = 0; i < value.length(); i++){
+			hash = (hash ^ value.charAt(i)) * PRIME;
+		}
+		return (hash ^ STRING) * PRIME;
+	}
+
+	private void mix(String value){
+		if (value == null) value = "";
+		for (int i = 0; i < value.length(); i++){
+			entity.mix(value.charAt(i));
+		}
+		entity.mix(STRING);
+	}
+
+	/**
+	 * End an empty element before anything other than its attributes
+	 */
+	private void endEmptyElement(){
+		if (emptyElement){
+			emptyElement = false;
+			endElement();
+		}
+	}
+
+	private void startElement(String localName, String namespaceURI){
+		endEmptyElement();
+		depth++;
+		if (entity == null){
+			entity = new Entity(depth, null, root);
+		} else if (depth == entity.depth + 1){
+			if (root instanceof Course && entity.parent == null && "presentation".equals(localName) && Namespaces.XCRI_NAMESPACE.equals(namespaceURI)){
+				Presentation[] presentations = ((Course)root).getPresentations();
+				int index = entity.presentations.size();
+				entity = new Entity(depth, entity, presentations != null && index < presentations.length ? presentations[index] : null);
+			} else {
+				entity.startField(localName);
+			}
+		}
+		entity.mix(START);
+		mix(namespaceURI);
+		mix(localName);
+	}
+
+	private void endElement(){
+		entity.mix(END);
+		if (depth == entity.depth){
+			Fingerprint finished = entity.finish();
+			entity = entity.parent;
+			if (entity == null){
+				fingerprint = finished;
+			} else {
+				entity.presentations.add(finished);
+			}
+		} else if (depth == entity.depth + 1){
+			entity.startField(Fingerprint.SELF);
+		}
+		depth--;
+	}
+
+	private void attribute(String namespaceURI, String localName, String value){
+		entity.mix(ATTRIBUTE);
+		mix(namespaceURI);
+		mix(localName);
+		mix(value);
+	}
+
+	private void characters(CharSequence text){
+		endEmptyElement();
+		if (entity == null) return;
+		for (int i = 0; i < text.length(); i++){
+			entity.mix(text.charAt(i));
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String)
+	 */
+	public void writeStartElement(String localName) throws XMLStreamException {
+		startElement(localName, "");
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String, java.lang.String)
+	 */
+	public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+		startElement(localName, namespaceURI);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		startElement(localName, namespaceURI);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String, java.lang.String)
+	 */
+	public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+		startElement(localName, namespaceURI);
+		emptyElement = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		startElement(localName, namespaceURI);
+		emptyElement = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String)
+	 */
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		startElement(localName, "");
+		emptyElement = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEndElement()
+	 */
+	public void writeEndElement() throws XMLStreamException {
+		endEmptyElement();
+		if (depth == 0) throw new XMLStreamException("No element to end");
+		endElement();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEndDocument()
+	 */
+	public void writeEndDocument() throws XMLStreamException {
+		endEmptyElement();
+		while (depth > 0){
+			endElement();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#close()
+	 */
+	public void close() throws XMLStreamException {
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#flush()
+	 */
+	public void flush() throws XMLStreamException {
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String, java.lang.String)
+	 */
+	public void writeAttribute(String localName, String value) throws XMLStreamException {
+		attribute("", localName, value);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String, java.lang.String, java.lang.String, java.lang.String)
+	 */
+	public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+		attribute(namespaceURI, localName, value);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+		attribute(namespaceURI, localName, value);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeNamespace(java.lang.String, java.lang.String)
+	 */
+	public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeDefaultNamespace(java.lang.String)
+	 */
+	public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeComment(java.lang.String)
+	 */
+	public void writeComment(String data) throws XMLStreamException {
+		endEmptyElement();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeProcessingInstruction(java.lang.String)
+	 */
+	public void writeProcessingInstruction(String target) throws XMLStreamException {
+		endEmptyElement();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeProcessingInstruction(java.lang.String, java.lang.String)
+	 */
+	public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+		endEmptyElement();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeCData(java.lang.String)
+	 */
+	public void writeCData(String data) throws XMLStreamException {
+		characters(data);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeDTD(java.lang.String)
+	 */
+	public void writeDTD(String dtd) throws XMLStreamException {
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEntityRef(java.lang.String)
+	 */
+	public void writeEntityRef(String name) throws XMLStreamException {
+		endEmptyElement();
+		if (entity == null) return;
+		entity.mix(ENTITY);
+		mix(name);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument()
+	 */
+	public void writeStartDocument() throws XMLStreamException {
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument(java.lang.String)
+	 */
+	public void writeStartDocument(String version) throws XMLStreamException {
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument(java.lang.String, java.lang.String)
+	 */
+	public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeCharacters(java.lang.String)
+	 */
+	public void writeCharacters(String text) throws XMLStreamException {
+		characters(text);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeCharacters(char[], int, int)
+	 */
+	public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+		characters(CharBuffer.wrap(text, start, len));
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#getPrefix(java.lang.String)
+	 */
+	public String getPrefix(String uri) throws XMLStreamException {
+		return null;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#setPrefix(java.lang.String, java.lang.String)
+	 */
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#setDefaultNamespace(java.lang.String)
+	 */
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#setNamespaceContext(javax.xml.namespace.NamespaceContext)
+	 */
+	public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+	}
+
+	/**
+	 * No prefix is ever bound, so namespaces are always declared; the declarations are ignored
+	 * @see javax.xml.stream.XMLStreamWriter#getNamespaceContext()
+	 */
+	public NamespaceContext getNamespaceContext() {
+		return NO_NAMESPACES;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#getProperty(java.lang.String)
+	 */
+	public Object getProperty(String name) throws IllegalArgumentException {
+		throw new IllegalArgumentException(name);
+	}
+
+}
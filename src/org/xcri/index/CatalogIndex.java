@@ -0,0 +1,303 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.xcri.common.Identifier;
+import org.xcri.common.Subject;
+import org.xcri.common.Title;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+import org.xcri.presentation.AttendanceMode.AttendanceModeType;
+import org.xcri.presentation.StudyMode.StudyModeType;
+import org.xcri.presentation.Venue;
+
+/**
+ * Indexes the courses and presentations of a parsed Catalog so they can be
+ * looked up without walking every provider, course and presentation.
+ *
+ * The index is built in a single pass over the catalog: identifiers,
+ * subjects, venues and modes are held in hash indexes, and presentations
+ * with a start date are held in an array sorted by date so that a date
+ * range can be found by binary search.
+ *
+ * The index is a snapshot. If the catalog is changed afterwards, build a
+ * new index. Once built it is never modified, so it can be shared between
+ * threads. Lists returned by queries are in document order (date order for
+ * date ranges) and cannot be modified.
+ */
+public class CatalogIndex {
+
+	private static final Comparator<Presentation> BY_START = new Comparator<Presentation>() {
+		public int compare(Presentation a, Presentation b) {
+			long x = a.getStart().getTime();
+			long y = b.getStart().getTime();
+			return x < y ? -1 : (x == y ? 0 : 1);
+		}
+	};
+
+	private final Catalog catalog;
+	private final List<Course> courses;
+	private final List<Presentation> presentations;
+
+	private final Map<String, List<Course>> coursesByIdentifier = new HashMap<String, List<Course>>();
+	private final Map<String, List<Course>> coursesBySubject = new HashMap<String, List<Course>>();
+	private final Map<String, List<Presentation>> presentationsByIdentifier = new HashMap<String, List<Presentation>>();
+	private final Map<String, List<Presentation>> presentationsByVenue = new HashMap<String, List<Presentation>>();
+	private final Map<String, List<Presentation>> presentationsByStudyMode = new HashMap<String, List<Presentation>>();
+	private final Map<String, List<Presentation>> presentationsByAttendanceMode = new HashMap<String, List<Presentation>>();
+
+	private final Presentation[] byStart;
+	private final long[] startTimes;
+
+	/**
+	 * Index a catalog
+	 * @param catalog
+	 */
+	public CatalogIndex(Catalog catalog){
+		this.catalog = catalog;
+		ArrayList<Course> courses = new ArrayList<Course>();
+		ArrayList<Presentation> presentations = new ArrayList<Presentation>();
+		ArrayList<Presentation> started = new ArrayList<Presentation>();
+
+		if (catalog.getProviders() != null) for (Provider provider : catalog.getProviders()){
+			if (provider.getCourses() == null) continue;
+			for (Course course : provider.getCourses()){
+				courses.add(course);
+				if (course.getIdentifiers() != null) for (Identifier identifier : course.getIdentifiers()){
+					add(coursesByIdentifier, identifier.getValue(), course);
+				}
+				for (Subject subject : course.getResolvedSubjects()){
+					add(coursesBySubject, subject.getValue(), course);
+				}
+				if (course.getPresentations() == null) continue;
+				for (Presentation presentation : course.getPresentations()){
+					presentations.add(presentation);
+					index(presentation);
+					if (presentation.getStart() != null && presentation.getStart().hasDtf()){
+						started.add(presentation);
+					}
+				}
+			}
+		}
+
+		//
+		// The sort is stable, so presentations starting together stay in document order
+		//
+		Collections.sort(started, BY_START);
+		byStart = started.toArray(new Presentation[started.size()]);
+		startTimes = new long[byStart.length];
+		for (int i = 0; i < byStart.length; i++){
+			startTimes[i] = byStart[i].getStart().getTime();
+		}
+
+		this.courses = Collections.unmodifiableList(courses);
+		this.presentations = Collections.unmodifiableList(presentations);
+	}
+
+	private void index(Presentation presentation){
+		if (presentation.getIdentifiers() != null) for (Identifier identifier : presentation.getIdentifiers()){
+			add(presentationsByIdentifier, identifier.getValue(), presentation);
+		}
+		if (presentation.getVenues() != null) for (Venue venue : presentation.getVenues()){
+			Provider provider = venue.getProvider();
+			if (provider == null) continue;
+			if (provider.getIdentifiers() != null) for (Identifier identifier : provider.getIdentifiers()){
+				add(presentationsByVenue, identifier.getValue(), presentation);
+			}
+			if (provider.getTitles() != null) for (Title title : provider.getTitles()){
+				add(presentationsByVenue, title.getValue(), presentation);
+			}
+		}
+		if (presentation.getStudyMode() != null){
+			add(presentationsByStudyMode, presentation.getStudyMode().getIdentifier(), presentation);
+		}
+		if (presentation.getAttendanceMode() != null){
+			add(presentationsByAttendanceMode, presentation.getAttendanceMode().getIdentifier(), presentation);
+		}
+	}
+
+	/**
+	 * Add a value to the list for a key, once only. Values are added one at a
+	 * time, so a duplicate can only be the last value in the list.
+	 */
+	private static <T> void add(Map<String, List<T>> index, String key, T value){
+		if (key == null) return;
+		List<T> values = index.get(key);
+		if (values == null){
+			values = new ArrayList<T>(2);
+			index.put(key, values);
+		} else if (values.get(values.size() - 1) == value){
+			return;
+		}
+		values.add(value);
+	}
+
+	private static <T> List<T> get(Map<String, List<T>> index, String key){
+		List<T> values = index.get(key);
+		if (values == null) return Collections.emptyList();
+		return Collections.unmodifiableList(values);
+	}
+
+	/**
+	 * @return the catalog that was indexed
+	 */
+	public Catalog getCatalog() {
+		return catalog;
+	}
+
+	/**
+	 * @return every course in the catalog
+	 */
+	public List<Course> getCourses() {
+		return courses;
+	}
+
+	/**
+	 * @return every presentation in the catalog
+	 */
+	public List<Presentation> getPresentations() {
+		return presentations;
+	}
+
+	/**
+	 * @param identifier a dc:identifier of the course
+	 * @return the first course with the identifier, or null if there is none
+	 */
+	public Course getCourse(String identifier){
+		List<Course> courses = coursesByIdentifier.get(identifier);
+		return courses == null ? null : courses.get(0);
+	}
+
+	/**
+	 * @param identifier a dc:identifier of the course
+	 * @return the courses with the identifier; usually no more than one
+	 */
+	public List<Course> getCourses(String identifier){
+		return get(coursesByIdentifier, identifier);
+	}
+
+	/**
+	 * @param subject the text of a dc:subject
+	 * @return the courses with the subject, including those that inherit it from their provider
+	 */
+	public List<Course> getCoursesWithSubject(String subject){
+		return get(coursesBySubject, subject);
+	}
+
+	/**
+	 * @param identifier a dc:identifier of the presentation
+	 * @return the first presentation with the identifier, or null if there is none
+	 */
+	public Presentation getPresentation(String identifier){
+		List<Presentation> presentations = presentationsByIdentifier.get(identifier);
+		return presentations == null ? null : presentations.get(0);
+	}
+
+	/**
+	 * @param venue a dc:identifier or dc:title of the provider of the venue
+	 * @return the presentations at the venue
+	 */
+	public List<Presentation> getPresentationsAtVenue(String venue){
+		return get(presentationsByVenue, venue);
+	}
+
+	/**
+	 * @param identifier the identifier of the study mode, e.g. "FT"
+	 * @return the presentations with the study mode
+	 */
+	public List<Presentation> getPresentationsByStudyMode(String identifier){
+		return get(presentationsByStudyMode, identifier);
+	}
+
+	/**
+	 * @param studyMode
+	 * @return the presentations with the study mode
+	 */
+	public List<Presentation> getPresentationsByStudyMode(StudyModeType studyMode){
+		return getPresentationsByStudyMode(studyMode.name());
+	}
+
+	/**
+	 * @param identifier the identifier of the attendance mode, e.g. "CM"
+	 * @return the presentations with the attendance mode
+	 */
+	public List<Presentation> getPresentationsByAttendanceMode(String identifier){
+		return get(presentationsByAttendanceMode, identifier);
+	}
+
+	/**
+	 * @param attendanceMode
+	 * @return the presentations with the attendance mode
+	 */
+	public List<Presentation> getPresentationsByAttendanceMode(AttendanceModeType attendanceMode){
+		return getPresentationsByAttendanceMode(attendanceMode.name());
+	}
+
+	/**
+	 * @param from milliseconds since the epoch, inclusive
+	 * @param to milliseconds since the epoch, exclusive
+	 * @return the presentations with a start date in the range, in date order
+	 */
+	public List<Presentation> getPresentationsStartingBetween(long from, long to){
+		int first = lowerBound(from);
+		int last = lowerBound(to);
+		if (first >= last) return Collections.emptyList();
+		return Collections.unmodifiableList(Arrays.asList(byStart).subList(first, last));
+	}
+
+	/**
+	 * @param from inclusive
+	 * @param to exclusive
+	 * @return the presentations with a start date in the range, in date order
+	 */
+	public List<Presentation> getPresentationsStartingBetween(Date from, Date to){
+		return getPresentationsStartingBetween(from.getTime(), to.getTime());
+	}
+
+	/**
+	 * @param time
+	 * @return the index of the first presentation starting at or after the time
+	 */
+	private int lowerBound(long time){
+		int low = 0;
+		int high = startTimes.length;
+		while (low < high){
+			int middle = (low + high) >>> 1;
+			if (startTimes[middle] < time){
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+}
@@ -0,0 +1,426 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+
+import org.jdom.Element;
+import org.jdom.Text;
+import org.xcri.common.Description;
+import org.xcri.common.Title;
+import org.xcri.common.descriptive.Abstract;
+import org.xcri.common.descriptive.LearningOutcome;
+import org.xcri.common.descriptive.Objective;
+import org.xcri.common.descriptive.Prerequisite;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.CourseHandler;
+import org.xcri.core.Provider;
+import org.xcri.types.DescriptiveTextType;
+
+/**
+ * A full-text index of the titles, descriptions, abstracts, learning
+ * outcomes, objectives and prerequisites of courses.
+ *
+ * Text is split into lower-cased words of letters and digits; XHTML
+ * descriptions are indexed from their text nodes, so markup is never
+ * indexed and the XHTML does not have to be serialised. Each word keeps
+ * the courses it occurs in and its positions there, so phrases can be
+ * matched.
+ *
+ * Courses can be added one at a time as they are read, for example by
+ * passing the index to CatalogStreamReader.read() as a CourseHandler. The
+ * index keeps a reference to each course so it can be returned in results.
+ *
+ * A query is a list of words, with phrases in double quotes; every word
+ * and phrase must occur in a course for it to match. Matches are ranked
+ * using BM25, with words in titles and abstracts counting for more than
+ * those in the other fields.
+ *
+ * Adding courses is not thread-safe; once all the courses have been added
+ * the index can be searched from any number of threads.
+ */
+public class TextIndex implements CourseHandler {
+
+	/**
+	 * The fields that are indexed, and how much a word in each counts for
+	 */
+	public enum Field {
+		TITLE(3),
+		ABSTRACT(2),
+		DESCRIPTION(1),
+		LEARNING_OUTCOME(1),
+		OBJECTIVE(1),
+		PREREQUISITE(1);
+
+		private final int weight;
+
+		private Field(int weight){
+			this.weight = weight;
+		}
+
+		/**
+		 * @return the number of times each occurrence of a word in the field is counted
+		 */
+		public int getWeight() {
+			return weight;
+		}
+	}
+
+	//
+	// Positions skipped between values, so a phrase cannot span two titles or descriptions
+	//
+	private static final int GAP = 8;
+
+	private static final double K1 = 1.2;
+	private static final double B = 0.75;
+
+	private static final Comparator<SearchResult> BY_SCORE = new Comparator<SearchResult>() {
+		public int compare(SearchResult a, SearchResult b) {
+			return Double.compare(b.getScore(), a.getScore());
+		}
+	};
+
+	private final HashMap<String, Postings> terms = new HashMap<String, Postings>();
+	private final ArrayList<Course> courses = new ArrayList<Course>();
+	private int[] lengths = new int[16];
+	private long totalLength;
+
+	private int position;
+
+	/**
+	 * The courses a word occurs in, in the order they were added, with the
+	 * weighted number of occurrences and the positions of the word in each
+	 */
+	private static class Postings {
+		private int count;
+		private int[] documents = new int[2];
+		private int[] frequencies = new int[2];
+		private int[] positionStarts = new int[2];
+		private int positionCount;
+		private int[] positions = new int[2];
+
+		private void add(int document, int position, int weight){
+			if (count == 0 || documents[count - 1] != document){
+				if (count == documents.length){
+					documents = Arrays.copyOf(documents, count * 2);
+					frequencies = Arrays.copyOf(frequencies, count * 2);
+					positionStarts = Arrays.copyOf(positionStarts, count * 2);
+				}
+				documents[count] = document;
+				frequencies[count] = 0;
+				positionStarts[count] = positionCount;
+				count++;
+			}
+			frequencies[count - 1] += weight;
+			if (positionCount == positions.length){
+				positions = Arrays.copyOf(positions, positionCount * 2);
+			}
+			positions[positionCount++] = position;
+		}
+
+		private int indexOf(int document){
+			return Arrays.binarySearch(documents, 0, count, document);
+		}
+
+		private int positionEnd(int index){
+			return index + 1 < count ? positionStarts[index + 1] : positionCount;
+		}
+
+		private boolean hasPosition(int index, int position){
+			return Arrays.binarySearch(positions, positionStarts[index], positionEnd(index), position) >= 0;
+		}
+	}
+
+	/**
+	 * Add a course to the index
+	 * @param course
+	 */
+	public void add(Course course){
+		int document = courses.size();
+		courses.add(course);
+		position = 0;
+		if (document >= lengths.length){
+			lengths = Arrays.copyOf(lengths, Math.max(16, document * 2));
+		}
+		if (course.getTitles() != null) for (Title title : course.getTitles()){
+			addText(document, title.getValue(), Field.TITLE);
+		}
+		for (Description description : course.getResolvedDescriptions()){
+			addText(document, description, Field.DESCRIPTION);
+		}
+		if (course.getAbstracts() != null) for (Abstract text : course.getAbstracts()){
+			addText(document, text, Field.ABSTRACT);
+		}
+		if (course.getLearningOutcomes() != null) for (LearningOutcome text : course.getLearningOutcomes()){
+			addText(document, text, Field.LEARNING_OUTCOME);
+		}
+		if (course.getObjectives() != null) for (Objective text : course.getObjectives()){
+			addText(document, text, Field.OBJECTIVE);
+		}
+		if (course.getPrerequisites() != null) for (Prerequisite text : course.getPrerequisites()){
+			addText(document, text, Field.PREREQUISITE);
+		}
+	}
+
+	/**
+	 * Add every course in a catalog to the index
+	 * @param catalog
+	 */
+	public void add(Catalog catalog){
+		if (catalog.getProviders() == null) return;
+		for (Provider provider : catalog.getProviders()){
+			if (provider.getCourses() == null) continue;
+			for (Course course : provider.getCourses()){
+				add(course);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.core.CourseHandler#handleCourse(org.xcri.core.Course)
+	 */
+	public void handleCourse(Course course) {
+		add(course);
+	}
+
+	/**
+	 * @return the number of courses in the index
+	 */
+	public int size(){
+		return courses.size();
+	}
+
+	/**
+	 * @return the number of distinct words in the index
+	 */
+	public int getTermCount(){
+		return terms.size();
+	}
+
+	private void addText(int document, DescriptiveTextType text, Field field){
+		if (text.getXhtml() != null){
+			addXhtml(document, text.getXhtml(), field);
+			position += GAP;
+		} else if (text.getValue() != null){
+			//
+			// HTML kept as text, for example in a CDATA section
+			//
+			addText(document, withoutMarkup(text.getValue()), field);
+		}
+	}
+
+	/**
+	 * @param text
+	 * @return the text with any HTML tags, comments and character references replaced by spaces
+	 */
+	static String withoutMarkup(String text){
+		if (text.indexOf('<') == -1 && text.indexOf('&') == -1) return text;
+		StringBuilder builder = new StringBuilder(text.length());
+		int length = text.length();
+		int i = 0;
+		while (i < length){
+			char c = text.charAt(i);
+			int end = -1;
+			if (c == '<' && i + 1 < length && (Character.isLetter(text.charAt(i + 1)) || "/!?".indexOf(text.charAt(i + 1)) != -1)){
+				end = text.indexOf('>', i);
+			} else if (c == '&'){
+				end = text.indexOf(';', i);
+				if (end != -1 && (end - i > 10 || end == i + 1)) end = -1;
+			}
+			if (end == -1){
+				builder.append(c);
+				i++;
+			} else {
+				builder.append(' ');
+				i = end + 1;
+			}
+		}
+		return builder.toString();
+	}
+
+	private void addXhtml(int document, Element element, Field field){
+		@SuppressWarnings("rawtypes")
+		List content = element.getContent();
+		for (int i = 0; i < content.size(); i++){
+			Object child = content.get(i);
+			if (child instanceof Text){
+				addWords(document, ((Text)child).getText(), field);
+			} else if (child instanceof Element){
+				addXhtml(document, (Element)child, field);
+			}
+		}
+	}
+
+	private void addText(int document, String text, Field field){
+		addWords(document, text, field);
+		position += GAP;
+	}
+
+	private void addWords(int document, String text, Field field){
+		if (text == null) return;
+		for (String word : words(text)){
+			Postings postings = terms.get(word);
+			if (postings == null){
+				postings = new Postings();
+				terms.put(word, postings);
+			}
+			postings.add(document, position++, field.getWeight());
+			lengths[document]++;
+			totalLength++;
+		}
+	}
+
+	/**
+	 * Split text into the words that are indexed
+	 * @param text
+	 * @return the lower-cased words of letters and digits in the text
+	 */
+	public static List<String> words(String text){
+		ArrayList<String> words = new ArrayList<String>();
+		int length = text.length();
+		int i = 0;
+		while (i < length){
+			while (i < length && !Character.isLetterOrDigit(text.charAt(i))) i++;
+			int start = i;
+			while (i < length && Character.isLetterOrDigit(text.charAt(i))) i++;
+			if (i > start){
+				words.add(text.substring(start, i).toLowerCase(Locale.ENGLISH));
+			}
+		}
+		return words;
+	}
+
+	/**
+	 * Find every course matching a query
+	 * @see #search(String, int)
+	 * @param query
+	 * @return the matching courses, most relevant first
+	 */
+	public List<SearchResult> search(String query){
+		return search(query, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Find the courses matching a query
+	 * @param query words to find, with phrases in double quotes, e.g. <code>nursing "part time"</code>
+	 * @param limit the maximum number of results
+	 * @return the matching courses, most relevant first; courses with the same score are in the order they were added
+	 */
+	public List<SearchResult> search(String query, int limit){
+		//
+		// Every other part of the query, split on quotes, is a phrase
+		//
+		LinkedHashSet<String> words = new LinkedHashSet<String>();
+		ArrayList<List<String>> phrases = new ArrayList<List<String>>();
+		String[] parts = query.split("\"", -1);
+		for (int i = 0; i < parts.length; i++){
+			List<String> partWords = words(parts[i]);
+			words.addAll(partWords);
+			if (i % 2 == 1 && partWords.size() > 1) phrases.add(partWords);
+		}
+		if (words.isEmpty() || courses.isEmpty()) return Collections.emptyList();
+
+		//
+		// Look at the courses containing the rarest word first
+		//
+		Postings[] required = new Postings[words.size()];
+		int r = 0;
+		for (String word : words){
+			required[r] = terms.get(word);
+			if (required[r] == null) return Collections.emptyList();
+			r++;
+		}
+		Arrays.sort(required, new Comparator<Postings>() {
+			public int compare(Postings a, Postings b) {
+				return a.count - b.count;
+			}
+		});
+
+		double[] idf = new double[required.length];
+		for (int i = 0; i < required.length; i++){
+			idf[i] = Math.log(1 + (courses.size() - required[i].count + 0.5) / (required[i].count + 0.5));
+		}
+		double averageLength = (double)totalLength / courses.size();
+
+		ArrayList<SearchResult> results = new ArrayList<SearchResult>();
+		Postings rarest = required[0];
+		int[] indexes = new int[required.length];
+		for (int d = 0; d < rarest.count; d++){
+			int document = rarest.documents[d];
+			double score = 0;
+			boolean matches = true;
+			for (int i = 0; i < required.length && matches; i++){
+				indexes[i] = i == 0 ? d : required[i].indexOf(document);
+				if (indexes[i] < 0){
+					matches = false;
+				} else {
+					double frequency = required[i].frequencies[indexes[i]];
+					score += idf[i] * frequency * (K1 + 1) / (frequency + K1 * (1 - B + B * lengths[document] / averageLength));
+				}
+			}
+			for (int p = 0; p < phrases.size() && matches; p++){
+				matches = containsPhrase(phrases.get(p), document);
+			}
+			if (matches){
+				results.add(new SearchResult(courses.get(document), score));
+			}
+		}
+
+		Collections.sort(results, BY_SCORE);
+		if (results.size() > limit){
+			return new ArrayList<SearchResult>(results.subList(0, limit));
+		}
+		return results;
+	}
+
+	/**
+	 * @param phrase
+	 * @param document
+	 * @return true if the words of the phrase occur one after another in the document
+	 */
+	private boolean containsPhrase(List<String> phrase, int document){
+		Postings first = terms.get(phrase.get(0));
+		int index = first.indexOf(document);
+		Postings[] rest = new Postings[phrase.size() - 1];
+		int[] indexes = new int[rest.length];
+		for (int i = 0; i < rest.length; i++){
+			rest[i] = terms.get(phrase.get(i + 1));
+			indexes[i] = rest[i].indexOf(document);
+		}
+		for (int p = first.positionStarts[index]; p < first.positionEnd(index); p++){
+			int start = first.positions[p];
+			boolean found = true;
+			for (int i = 0; i < rest.length && found; i++){
+				found = rest[i].hasPosition(indexes[i], start + i + 1);
+			}
+			if (found) return true;
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,374 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.json;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import javax.xml.stream.XMLStreamException;
+
+import org.jdom.Element;
+import org.jdom.output.XMLOutputter;
+import org.xcri.Extension;
+import org.xcri.common.Image;
+import org.xcri.core.Catalog;
+import org.xcri.core.CatalogStreamReader;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+import org.xcri.course.Credit;
+import org.xcri.course.Qualification;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.presentation.AttendanceMode;
+import org.xcri.presentation.AttendancePattern;
+import org.xcri.presentation.Duration;
+import org.xcri.presentation.StudyMode;
+import org.xcri.presentation.Venue;
+import org.xcri.provider.Location;
+import org.xcri.types.CommonDescriptiveType;
+import org.xcri.types.CommonType;
+import org.xcri.types.DescriptiveTextType;
+import org.xcri.types.TemporalType;
+import org.xcri.types.XcriElement;
+
+/**
+ * Writes a catalog as JSON, a course at a time, without building the XML
+ * first. Courses can be written as they are read by a
+ * CatalogStreamReader, so a feed of any size can be converted in
+ * constant memory.
+ *
+ * The document is an object for the catalog, with an array of providers,
+ * each with an array of courses. Every element is an object with a member
+ * for each of its properties, named as in the model: "titles",
+ * "languageOfInstruction", "postCode" and so on. Repeatable properties
+ * are always arrays, even of one element, and properties that are empty
+ * are left out, including the whitespace between the child elements of
+ * a course or provider. All values are strings: the text of an element is
+ * "value", its xml:lang "lang" and xsi:type "type"; dates are "dtf" and
+ * "generated" in W3C-DTF, and durations "interval" in ISO 8601. The XHTML
+ * of a description is "xhtml", as XML. Extensions are in "extensions", as
+ * XML.
+ *
+ * The values written are those writeXml() writes, so descriptions,
+ * subjects, images and titles are included where they are inherited.
+ */
+public class CatalogJsonWriter {
+
+	private static final int START = 0;
+	private static final int IN_CATALOG = 1;
+	private static final int IN_PROVIDER = 2;
+	private static final int DONE = 3;
+
+	private final JsonWriter json;
+	private XMLOutputter outputter;
+	private int state = START;
+	private Provider provider;
+	private final Set<Provider> providers = Collections.newSetFromMap(new IdentityHashMap<Provider, Boolean>());
+
+	/**
+	 * @param out the stream to write UTF-8 JSON to, which is flushed but not closed by finish()
+	 */
+	public CatalogJsonWriter(OutputStream out){
+		this(new BufferedWriter(new OutputStreamWriter(out, Charset.forName("UTF-8")), 65536));
+	}
+
+	/**
+	 * @param out the stream to write JSON to, which is flushed but not closed by finish()
+	 */
+	public CatalogJsonWriter(Writer out){
+		this.json = new JsonWriter(out);
+	}
+
+	/**
+	 * Write a whole catalog, and finish the document
+	 * @param catalog
+	 * @throws IOException
+	 */
+	public void write(Catalog catalog) throws IOException{
+		if (state != START) throw new IllegalStateException("the catalog has already been started");
+		startCatalog(catalog);
+		if (catalog.getProviders() != null) for (Provider provider : catalog.getProviders()){
+			startProvider(provider);
+			if (provider.getCourses() != null) for (Course course : provider.getCourses()){
+				element(course);
+			}
+		}
+		finish();
+	}
+
+	/**
+	 * Write each remaining course read by the reader, and finish the document.
+	 * Providers without courses are written at the end.
+	 * @param reader
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 * @throws InvalidElementException
+	 */
+	public void write(CatalogStreamReader reader) throws IOException, XMLStreamException, InvalidElementException{
+		Course course;
+		while ((course = reader.nextCourse()) != null){
+			writeCourse(course);
+		}
+		Catalog catalog = reader.getCatalog();
+		if (catalog != null){
+			if (state == START) startCatalog(catalog);
+			if (catalog.getProviders() != null) for (Provider provider : catalog.getProviders()){
+				if (!providers.contains(provider)) startProvider(provider);
+			}
+		}
+		finish();
+	}
+
+	/**
+	 * Write a course. Its provider, and the catalog of its provider, are
+	 * started first if they have not been already; the provider's header is
+	 * written as it is at that time. Courses of the same provider should be
+	 * written one after another, as a provider that is started again is
+	 * written again.
+	 * @param course
+	 * @throws IOException
+	 */
+	public void writeCourse(Course course) throws IOException{
+		if (state == DONE) throw new IllegalStateException("the catalog has been finished");
+		Provider provider = course.getParent() instanceof Provider ? (Provider)course.getParent() : null;
+		if (state != IN_PROVIDER || provider != this.provider){
+			startProvider(provider);
+		}
+		element(course);
+	}
+
+	/**
+	 * End the document and flush the stream
+	 * @throws IOException
+	 */
+	public void finish() throws IOException{
+		if (state == DONE) return;
+		if (state == START) startCatalog(null);
+		if (state == IN_PROVIDER){
+			json.endArray();
+			json.endObject();
+		}
+		json.endArray();
+		json.endObject();
+		json.flush();
+		state = DONE;
+	}
+
+	/**
+	 * Write the catalog header, and start its providers
+	 * @param catalog the catalog, or null to write an empty header
+	 */
+	private void startCatalog(Catalog catalog) throws IOException{
+		json.beginObject();
+		if (catalog != null) fields(catalog);
+		json.name("providers");
+		json.beginArray();
+		state = IN_CATALOG;
+	}
+
+	/**
+	 * Write the provider header, and start its courses, ending the previous provider
+	 * @param provider the provider, or null to write an empty header
+	 */
+	private void startProvider(Provider provider) throws IOException{
+		if (state == START){
+			startCatalog(provider != null && provider.getParent() instanceof Catalog ? (Catalog)provider.getParent() : null);
+		}
+		if (state == IN_PROVIDER){
+			json.endArray();
+			json.endObject();
+		}
+		json.beginObject();
+		if (provider != null){
+			fields(provider);
+			providers.add(provider);
+		}
+		json.name("courses");
+		json.beginArray();
+		this.provider = provider;
+		state = IN_PROVIDER;
+	}
+
+	private void element(XcriElement element) throws IOException{
+		json.beginObject();
+		fields(element);
+		json.endObject();
+	}
+
+	/**
+	 * Write the members of an element, except the courses of a provider and the providers of a catalog
+	 */
+	private void fields(XcriElement element) throws IOException{
+		json.member("type", element.getType());
+		json.member("lang", element.getLang());
+		if (element instanceof DescriptiveTextType){
+			DescriptiveTextType text = (DescriptiveTextType)element;
+			json.member("href", text.getHref());
+			//
+			// As in writeXml(), XHTML replaces any plain content
+			//
+			if (text.isXhtml()){
+				if (text.getXhtml() != null) json.member("xhtml", xml(text.getXhtml()));
+			} else {
+				json.member("value", text.getValue());
+			}
+		} else {
+			json.member("value", element.getValue());
+		}
+		if (element instanceof CommonType) commonType((CommonType)element);
+		if (element instanceof CommonDescriptiveType) commonDescriptiveType((CommonDescriptiveType)element);
+
+		if (element instanceof Catalog){
+			Catalog catalog = (Catalog)element;
+			if (catalog.getGeneratedDateTime() != null) json.member("generated", catalog.getGeneratedDateTime().toString());
+		} else if (element instanceof Provider){
+			optional("location", ((Provider)element).getLocation());
+		} else if (element instanceof Course){
+			Course course = (Course)element;
+			elements("qualifications", course.getQualifications());
+			elements("credits", course.getCredits());
+			elements("presentations", course.getPresentations());
+		} else if (element instanceof Presentation){
+			presentation((Presentation)element);
+		} else if (element instanceof Qualification){
+			Qualification qualification = (Qualification)element;
+			json.member("abbr", qualification.getAbbr());
+			json.member("educationLevel", qualification.getEducationLevel());
+			json.member("awardedBy", qualification.getAwardedBy());
+			json.member("accreditedBy", qualification.getAccreditedBy());
+		} else if (element instanceof Credit){
+			Credit credit = (Credit)element;
+			json.member("scheme", credit.getScheme());
+			json.member("level", credit.getLevel());
+			json.member("creditValue", credit.getCreditValue());
+		} else if (element instanceof Location){
+			Location location = (Location)element;
+			json.member("street", location.getStreet());
+			json.member("postalTown", location.getPostalTown());
+			json.member("postCode", location.getPostCode());
+			if (location.getAddress() != null && location.getAddress().length > 0){
+				json.name("address");
+				json.beginArray();
+				for (String line : location.getAddress()) json.value(line);
+				json.endArray();
+			}
+			json.member("phone", location.getPhone());
+			json.member("fax", location.getFax());
+			json.member("email", location.getEmail());
+			json.member("url", location.getUrl());
+		} else if (element instanceof Image){
+			Image image = (Image)element;
+			json.member("src", image.getSrc());
+			json.member("title", image.getTitle());
+			json.member("alt", image.getAlt());
+		} else if (element instanceof Venue){
+			optional("provider", ((Venue)element).getProvider());
+		} else if (element instanceof StudyMode){
+			json.member("identifier", ((StudyMode)element).getIdentifier());
+		} else if (element instanceof AttendanceMode){
+			json.member("identifier", ((AttendanceMode)element).getIdentifier());
+		} else if (element instanceof AttendancePattern){
+			json.member("identifier", ((AttendancePattern)element).getIdentifier());
+		} else if (element instanceof TemporalType){
+			TemporalType temporal = (TemporalType)element;
+			if (temporal.getDateTime() != null) json.member("dtf", temporal.getDateTime().toString());
+		} else if (element instanceof Duration){
+			Duration duration = (Duration)element;
+			if (duration.getInterval() != null) json.member("interval", duration.getInterval().toString());
+		}
+	}
+
+	/**
+	 * Write the members of CommonType, with the same inherited values as writeXml()
+	 */
+	private void commonType(CommonType element) throws IOException{
+		elements("contributors", element.getContributors());
+		elements("descriptions", element.getResolvedDescriptions());
+		elements("identifiers", element.getIdentifiers());
+		elements("titles", element.getTitles());
+		elements("subjects", element.getSubjects());
+		elements("images", element.getImages());
+		elements("types", element.getTypes());
+		elements("urls", element.getUrls());
+		Extension[] extensions = element.getExtensions();
+		if (extensions != null && extensions.length > 0){
+			json.name("extensions");
+			json.beginArray();
+			for (Extension extension : extensions) json.value(xml(extension.toXml()));
+			json.endArray();
+		}
+	}
+
+	private void commonDescriptiveType(CommonDescriptiveType element) throws IOException{
+		elements("abstracts", element.getAbstracts());
+		elements("applicationProcedures", element.getApplicationProcedures());
+		elements("assessments", element.getAssessments());
+		elements("learningOutcomes", element.getLearningOutcomes());
+		elements("objectives", element.getObjectives());
+		elements("prerequisites", element.getPrerequisites());
+		elements("regulations", element.getRegulations());
+	}
+
+	private void presentation(Presentation presentation) throws IOException{
+		optional("start", presentation.getStart());
+		optional("end", presentation.getEnd());
+		optional("duration", presentation.getDuration());
+		optional("applyFrom", presentation.getApplyFrom());
+		optional("applyUntil", presentation.getApplyUntil());
+		optional("applyTo", presentation.getApplyTo());
+		elements("engagements", presentation.getEngagements());
+		optional("studyMode", presentation.getStudyMode());
+		optional("attendanceMode", presentation.getAttendanceMode());
+		optional("attendancePattern", presentation.getAttendancePattern());
+		elements("languageOfInstruction", presentation.getLanguageOfInstruction());
+		elements("languageOfAssessment", presentation.getLanguageOfAssessment());
+		optional("places", presentation.getPlaces());
+		optional("cost", presentation.getCost());
+		optional("age", presentation.getAge());
+		elements("venues", presentation.getVenues());
+	}
+
+	private void elements(String name, XcriElement[] elements) throws IOException{
+		if (elements == null || elements.length == 0) return;
+		json.name(name);
+		json.beginArray();
+		for (XcriElement element : elements) element(element);
+		json.endArray();
+	}
+
+	private void optional(String name, XcriElement element) throws IOException{
+		if (element == null) return;
+		json.name(name);
+		element(element);
+	}
+
+	private String xml(Element element){
+		if (outputter == null) outputter = new XMLOutputter();
+		return outputter.outputString(element);
+	}
+
+}
@@ -0,0 +1,157 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes compact JSON to a character stream, adding the commas between
+ * members and array elements and escaping strings as RFC 8259 requires.
+ * It does not check that the calls are properly nested.
+ */
+class JsonWriter {
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private final Writer out;
+	//
+	// Whether anything has been written at each level of nesting yet
+	//
+	private boolean[] empty = new boolean[32];
+	private int depth;
+	private boolean afterName;
+
+	JsonWriter(Writer out){
+		this.out = out;
+	}
+
+	void beginObject() throws IOException{
+		begin('{');
+	}
+
+	void endObject() throws IOException{
+		end('}');
+	}
+
+	void beginArray() throws IOException{
+		begin('[');
+	}
+
+	void endArray() throws IOException{
+		end(']');
+	}
+
+	void name(String name) throws IOException{
+		separate();
+		string(name);
+		out.write(':');
+		afterName = true;
+	}
+
+	void value(String value) throws IOException{
+		beforeValue();
+		if (value == null){
+			out.write("null");
+		} else {
+			string(value);
+		}
+	}
+
+	/**
+	 * Write a member, or nothing if the value is null or empty
+	 * @param name
+	 * @param value
+	 * @throws IOException
+	 */
+	void member(String name, String value) throws IOException{
+		if (value == null || value.length() == 0) return;
+		name(name);
+		value(value);
+	}
+
+	void flush() throws IOException{
+		out.flush();
+	}
+
+	private void begin(char c) throws IOException{
+		beforeValue();
+		out.write(c);
+		if (++depth == empty.length){
+			boolean[] larger = new boolean[empty.length * 2];
+			System.arraycopy(empty, 0, larger, 0, empty.length);
+			empty = larger;
+		}
+		empty[depth] = true;
+	}
+
+	private void end(char c) throws IOException{
+		depth--;
+		out.write(c);
+	}
+
+	private void beforeValue() throws IOException{
+		if (afterName){
+			afterName = false;
+		} else {
+			separate();
+		}
+	}
+
+	private void separate() throws IOException{
+		if (depth == 0) return;
+		if (!empty[depth]) out.write(',');
+		empty[depth] = false;
+	}
+
+	private void string(String value) throws IOException{
+		out.write('"');
+		int start = 0;
+		int length = value.length();
+		for (int i = 0; i < length; i++){
+			char c = value.charAt(i);
+			String escape;
+			if (c == '"'){
+				escape = "\\\"";
+			} else if (c == '\\'){
+				escape = "\\\\";
+			} else if (c == '\n'){
+				escape = "\\n";
+			} else if (c == '\r'){
+				escape = "\\r";
+			} else if (c == '\t'){
+				escape = "\\t";
+			} else if (c < 0x20 || c == '\u2028' || c == '\u2029'){
+				//
+				// Other control characters, and the line separators JavaScript does not allow in strings
+				//
+				escape = new String(new char[]{'\\', 'u', HEX[c >> 12], HEX[(c >> 8) & 0xf], HEX[(c >> 4) & 0xf], HEX[c & 0xf]});
+			} else {
+				continue;
+			}
+			out.write(value, start, i - start);
+			out.write(escape);
+			start = i + 1;
+		}
+		out.write(value, start, length - start);
+		out.write('"');
+	}
+
+}
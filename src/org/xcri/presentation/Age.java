@@ -27,9 +27,18 @@ import org.jdom.Namespace;
 import org.xcri.Namespaces;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.XcriElement;
+import org.xcri.util.ValueCache;
 
 public class Age extends XcriElement{
 
+	private static final Pattern VALUE = Pattern.compile("(any|not known|^\\d+-\\d+|^\\d+\\+)$");
+	private static final Pattern RANGE = Pattern.compile("(^\\d+)-(\\d+)$");
+
+	//
+	// Values that have already been checked; most feeds use only a few
+	//
+	private static final ValueCache<Boolean> valid = new ValueCache<Boolean>(64);
+
 	/* (non-Javadoc)
 	 * @see org.xcri.types.XcriElement#getNamespace()
 	 */
@@ -64,17 +73,27 @@ public class Age extends XcriElement{
 		 * If the content of this element is not one of the values or patterns defined above, Aggregators MUST treat this element as in error and ignore this element.
 		 */
 		
-		Pattern regex = Pattern.compile("(any|not known|^\\d+-\\d+|^\\d+\\+)$");
-		Matcher matcher = regex.matcher(this.getValue());
+		check(this.getValue());
+	}
+
+	/**
+	 * Check that a value is allowed for an age element
+	 * @param value
+	 * @throws InvalidElementException if the value is not allowed
+	 */
+	public static void check(String value) throws InvalidElementException{
+		if (value == null) throw new InvalidElementException("value does not conform to a required pattern, which must be one of 'any', 'not known', x-y, or x+");
+		if (valid.get(value) != null) return;
+		Matcher matcher = VALUE.matcher(value);
 		if (!matcher.find()) throw new InvalidElementException("value does not conform to a required pattern, which must be one of 'any', 'not known', x-y, or x+");
 
-		Pattern range = Pattern.compile("(^\\d+)-(\\d+)$");
-		matcher = range.matcher(this.getValue());
+		matcher = RANGE.matcher(value);
 		if (matcher.find()){
 			int start = Integer.parseInt(matcher.group(1));
 			int second = Integer.parseInt(matcher.group(2));
 			if (start > second) throw new InvalidElementException("start age greater than end age");
 		}
+		valid.put(value, Boolean.TRUE);
 	}
 	
 	
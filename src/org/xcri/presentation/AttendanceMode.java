@@ -24,12 +24,13 @@ import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.XcriElement;
 
 public class AttendanceMode extends XcriElement {
 	
-	private Log log = LogFactory.getLog(AttendanceMode.class);
+	private static Log log = LogFactory.getLog(AttendanceMode.class);
 	
 	public enum AttendanceModeType {
 		CM,
@@ -62,6 +63,14 @@ public class AttendanceMode extends XcriElement {
 		return "attendanceMode";
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#internValue()
+	 */
+	@Override
+	protected boolean internValue() {
+		return true;
+	}
+
 	@Override
 	public Element toXml() {
 		return super.toXml();
@@ -83,11 +92,11 @@ public class AttendanceMode extends XcriElement {
 		 * WB Work-based
 		 */
 		
-		String identifier = element.getAttributeValue("identifier");
+		String identifier = intern(element.getAttributeValue("identifier"));
 		if (identifier != null){
 			this.setIdentifier(identifier);
 			if (this.getAttendanceModeType() == null){
-				log.warn("AttendanceMode : identifier (\""+identifier+"\") is not a member of the recommended vocabulary");
+				getDiagnostics().report(log, Rule.UNRECOGNISED_IDENTIFIER, element, "AttendanceMode", identifier);
 			}
 		}
 	}
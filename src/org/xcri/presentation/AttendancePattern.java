@@ -24,12 +24,13 @@ import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.XcriElement;
 
 public class AttendancePattern extends XcriElement {
 	
-	private Log log = LogFactory.getLog(AttendancePattern.class);
+	private static Log log = LogFactory.getLog(AttendancePattern.class);
 	
 	public enum AttendancePatternType {
 		DT,
@@ -61,6 +62,14 @@ public class AttendancePattern extends XcriElement {
 		return "attendancePattern";
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#internValue()
+	 */
+	@Override
+	protected boolean internValue() {
+		return true;
+	}
+
 	@Override
 	public Element toXml() {
 		return super.toXml();
@@ -80,11 +89,11 @@ public class AttendancePattern extends XcriElement {
 		 *CS Customised
 		 */
 		
-		String identifier = element.getAttributeValue("identifier");
+		String identifier = intern(element.getAttributeValue("identifier"));
 		if (identifier != null){
 			this.setIdentifier(identifier);
 			if (this.getAttendancePatternType() == null){
-				log.warn("AttendancePattern : identifier (\""+identifier+"\") is not a member of the recommended vocabulary");
+				getDiagnostics().report(log, Rule.UNRECOGNISED_IDENTIFIER, element, "AttendancePattern", identifier);
 			}
 		}
 	}
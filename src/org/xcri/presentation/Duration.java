@@ -19,6 +19,9 @@
  */
 package org.xcri.presentation;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
@@ -27,12 +30,21 @@ import org.joda.time.Period;
 import org.joda.time.format.ISOPeriodFormat;
 import org.joda.time.format.PeriodFormatter;
 import org.xcri.Namespaces;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.XcriElement;
+import org.xcri.util.ValueCache;
 
 public class Duration extends XcriElement{
 	
-	private Log log = LogFactory.getLog(Duration.class);
+	private static Log log = LogFactory.getLog(Duration.class);
+	
+	private static final PeriodFormatter FORMAT = ISOPeriodFormat.standard();
+	
+	//
+	// Periods are immutable, so the same instance can be shared by every duration with the same interval
+	//
+	private static final ValueCache<Period> intervals = new ValueCache<Period>(256);
 	
 	private Period interval;
 	
@@ -72,10 +84,19 @@ public class Duration extends XcriElement{
 	@Override
 	public Element toXml() {
 		Element element = super.toXml();
-		if (this.getInterval() != null) element.setAttribute("interval", this.getInterval().toString(ISOPeriodFormat.standard()));
+		if (this.getInterval() != null) element.setAttribute("interval", this.getInterval().toString(FORMAT));
 		return element;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#writeAttributes(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeAttributes(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeAttributes(writer);
+		if (this.getInterval() != null) writer.writeAttribute("interval", this.getInterval().toString(FORMAT));
+	}
+
 	/* (non-Javadoc)
 	 * @see org.xcri.types.XcriElement#fromXml(org.jdom.Element)
 	 */
@@ -96,13 +117,17 @@ public class Duration extends XcriElement{
 		 */
 		String intervalString = element.getAttributeValue("interval");
 		if (intervalString != null){
-			PeriodFormatter fmt = ISOPeriodFormat.standard();
-			Period interval;
-			try {
-				interval = fmt.parsePeriod(intervalString);
+			Period interval = intervals.get(intervalString);
+			if (interval != null){
 				this.setInterval(interval);
-			} catch (Exception e) {
-				log.warn("duration : skipping invalid interval attribute");
+			} else {
+				try {
+					interval = FORMAT.parsePeriod(intervalString);
+					intervals.put(intervalString, interval);
+					this.setInterval(interval);
+				} catch (Exception e) {
+					getDiagnostics().report(log, Rule.INVALID_INTERVAL, element);
+				}
 			}
 		}
 		
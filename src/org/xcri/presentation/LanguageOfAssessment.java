@@ -40,6 +40,14 @@ public class LanguageOfAssessment extends XcriElement{
 	public String getName() {
 		return "languageOfAssessment";
 	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#internValue()
+	 */
+	@Override
+	protected boolean internValue() {
+		return true;
+	}
 	
 	
 
@@ -40,6 +40,14 @@ public class LanguageOfInstruction extends XcriElement{
 	public String getName() {
 		return "languageOfInstruction";
 	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#internValue()
+	 */
+	@Override
+	protected boolean internValue() {
+		return true;
+	}
 	
 	
 
@@ -24,12 +24,13 @@ import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.XcriElement;
 
 public class StudyMode extends XcriElement {
 	
-	private Log log = LogFactory.getLog(StudyMode.class);
+	private static Log log = LogFactory.getLog(StudyMode.class);
 	
 	public enum StudyModeType {
 		NK,
@@ -60,6 +61,14 @@ public class StudyMode extends XcriElement {
 		return "studyMode";
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#internValue()
+	 */
+	@Override
+	protected boolean internValue() {
+		return true;
+	}
+
 	@Override
 	public Element toXml() {
 		return super.toXml();
@@ -78,11 +87,11 @@ public class StudyMode extends XcriElement {
 		 * PT Part time The learning opportunity is not the learner's main activity
 		 * Note: These are mutually exclusive terms, so 'Full time' does not include 'Part of a full time programme'.
 		 */
-		String identifier = element.getAttributeValue("identifier");
+		String identifier = intern(element.getAttributeValue("identifier"));
 		if (identifier != null){
 			this.setIdentifier(identifier);
 			if (this.getStudyModeType() == null){
-				log.warn("StudyMode : identifier (\""+identifier+"\") is not a member of the recommended vocabulary");
+				getDiagnostics().report(log, Rule.UNRECOGNISED_IDENTIFIER, element, "StudyMode", identifier);
 			}
 		}
 	}
@@ -19,11 +19,15 @@
  */
 package org.xcri.presentation;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
+import org.xcri.common.Title;
 import org.xcri.core.Provider;
 import org.xcri.exceptions.InvalidElementException;
 import org.xcri.types.XcriElement;
@@ -32,7 +36,7 @@ import org.xcri.util.lax.SingleElementException;
 
 public class Venue extends XcriElement{
 	
-	private Log log = LogFactory.getLog(Venue.class);
+	private static Log log = LogFactory.getLog(Venue.class);
 
 	
 	private Provider provider;
@@ -63,6 +67,15 @@ public class Venue extends XcriElement{
 		return element;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#writeContent(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeContent(writer);
+		if (this.getProvider() != null) this.getProvider().writeXml(writer);
+	}
+
 	/* (non-Javadoc)
 	 * @see org.xcri.types.XcriElement#fromXml(org.jdom.Element)
 	 */
@@ -84,9 +97,12 @@ public class Venue extends XcriElement{
 		if (providerElement != null){
 			this.provider = new Provider();
 			provider.fromXml(providerElement);
-		
-			if (provider.getLocation() == null){
-				log.warn("Location: When a provider element is used in a venue element, Producers SHOULD include a location element.");
+
+			//
+			// The same venues are used by many presentations
+			//
+			for (Title title : provider.getTitles()){
+				title.setValue(intern(title.getValue()));
 			}
 		} else {
 			throw new InvalidElementException("venue: If a <venue> element does not contain one and only one <provider> element, Aggregators MUST treat the <venue> element as being in error.");
@@ -97,6 +113,7 @@ public class Venue extends XcriElement{
 		// NOT TESTABLE: Provider: Producers SHOULD use the provider element to describe the organisation which acts as the provider of the venue. This MAY be a sub-organisation of the provider of the presentation (such as a department or school), or it MAY be a third party or external organisation.
 		// NOT TESTABLE: Provider Properties: When a provider element is used in a venue element, Producers SHOULD include only basic information about an organisation, such as identifier, title, description, url, image and location.
 		 
+		validate(element);
 
 	}
 
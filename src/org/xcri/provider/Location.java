@@ -33,7 +33,7 @@ import org.xcri.util.lax.Lax;
 
 public class Location extends XcriElement{
 	
-	private Log log = LogFactory.getLog(Location.class);
+	private static Log log = LogFactory.getLog(Location.class);
 
 	
 	private String street;
@@ -0,0 +1,129 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.snapshot;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import org.xcri.core.Catalog;
+
+/**
+ * Saves a catalog that has already been parsed and validated in a compact
+ * binary form, and loads it again without parsing or validating the XML.
+ *
+ * A snapshot holds the whole object model: the catalog, providers and
+ * their locations, courses with their qualifications and credits,
+ * presentations, venues, descriptive text including XHTML, and any
+ * extensions, which are saved with toXml() and loaded with fromXml().
+ * Every distinct string is stored once, so repeated values such as
+ * subjects and study modes are shared by the loaded catalog. Inherited
+ * values are not stored, and are inherited again once loaded.
+ *
+ * Snapshots start with a version number; one written by a different
+ * version of the format cannot be read, and the catalog must then be
+ * parsed from the feed again. Files are read through a memory-mapped
+ * FileChannel, so they are limited to 2GB.
+ */
+public class CatalogSnapshot {
+
+	/**
+	 * The first four bytes of a snapshot, "XCRS"
+	 */
+	public static final int MAGIC = 0x58435253;
+
+	/**
+	 * The version of the format, changed whenever the model or its encoding changes
+	 */
+	public static final int VERSION = 1;
+
+	static final Charset UTF8 = Charset.forName("UTF-8");
+
+	/**
+	 * @param catalog
+	 * @param out the stream to write the snapshot to, which is not closed
+	 * @throws IOException
+	 */
+	public void write(Catalog catalog, OutputStream out) throws IOException{
+		new SnapshotWriter().write(catalog, out);
+	}
+
+	/**
+	 * @param catalog
+	 * @param file the file to write the snapshot to, replacing any existing file
+	 * @throws IOException
+	 */
+	public void write(Catalog catalog, File file) throws IOException{
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 65536);
+		try {
+			write(catalog, out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Load a snapshot, mapping the file into memory to read it
+	 * @param file
+	 * @return the catalog
+	 * @throws IOException if the file cannot be read, or is not a snapshot of this version
+	 */
+	public Catalog read(File file) throws IOException{
+		RandomAccessFile in = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = in.getChannel();
+			if (channel.size() > Integer.MAX_VALUE) throw new IOException("snapshot is too large to map: " + file);
+			return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * @param buffer a buffer positioned at the start of a snapshot
+	 * @return the catalog
+	 * @throws IOException if the buffer does not hold a snapshot of this version
+	 */
+	public Catalog read(ByteBuffer buffer) throws IOException{
+		return new SnapshotReader(buffer).read();
+	}
+
+	/**
+	 * @param in a stream of a snapshot, which is read to the end but not closed
+	 * @return the catalog
+	 * @throws IOException if the stream cannot be read, or does not hold a snapshot of this version
+	 */
+	public Catalog read(InputStream in) throws IOException{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[65536];
+		int length;
+		while ((length = in.read(buffer)) != -1) out.write(buffer, 0, length);
+		return read(ByteBuffer.wrap(out.toByteArray()));
+	}
+
+}
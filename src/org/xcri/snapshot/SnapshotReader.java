@@ -0,0 +1,480 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.snapshot;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
+import org.jdom.Element;
+import org.jdom.JDOMFactory;
+import org.jdom.Namespace;
+import org.jdom.UncheckedJDOMFactory;
+import org.joda.time.Period;
+import org.joda.time.format.ISOPeriodFormat;
+import org.xcri.Extension;
+import org.xcri.common.Contributor;
+import org.xcri.common.Description;
+import org.xcri.common.Identifier;
+import org.xcri.common.Image;
+import org.xcri.common.Subject;
+import org.xcri.common.Title;
+import org.xcri.common.Type;
+import org.xcri.common.Url;
+import org.xcri.common.descriptive.Abstract;
+import org.xcri.common.descriptive.ApplicationProcedure;
+import org.xcri.common.descriptive.Assessment;
+import org.xcri.common.descriptive.LearningOutcome;
+import org.xcri.common.descriptive.Objective;
+import org.xcri.common.descriptive.Prerequisite;
+import org.xcri.common.descriptive.Regulations;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+import org.xcri.course.Credit;
+import org.xcri.course.Qualification;
+import org.xcri.exceptions.InvalidElementException;
+import org.xcri.factory.CourseFactory;
+import org.xcri.factory.PresentationFactory;
+import org.xcri.presentation.Age;
+import org.xcri.presentation.ApplyFrom;
+import org.xcri.presentation.ApplyTo;
+import org.xcri.presentation.ApplyUntil;
+import org.xcri.presentation.AttendanceMode;
+import org.xcri.presentation.AttendancePattern;
+import org.xcri.presentation.Cost;
+import org.xcri.presentation.Duration;
+import org.xcri.presentation.End;
+import org.xcri.presentation.Engagement;
+import org.xcri.presentation.LanguageOfAssessment;
+import org.xcri.presentation.LanguageOfInstruction;
+import org.xcri.presentation.Places;
+import org.xcri.presentation.Start;
+import org.xcri.presentation.StudyMode;
+import org.xcri.presentation.Venue;
+import org.xcri.provider.Location;
+import org.xcri.types.CommonDescriptiveType;
+import org.xcri.types.CommonType;
+import org.xcri.types.DescriptiveTextType;
+import org.xcri.types.TemporalType;
+import org.xcri.types.XcriElement;
+import org.xcri.util.W3CDateTime;
+
+/**
+ * Reads a catalog written by SnapshotWriter, field by field in the same
+ * order. Nothing is validated or logged, as it was when the catalog was
+ * first parsed.
+ */
+class SnapshotReader {
+
+	private static final JDOMFactory factory = new UncheckedJDOMFactory();
+	private static final W3CDateTime.Precision[] PRECISIONS = W3CDateTime.Precision.values();
+
+	private final ByteBuffer buffer;
+	private String[] strings;
+	private final HashMap<String, Period> intervals = new HashMap<String, Period>();
+	private final HashMap<Class<?>, Constructor<?>> constructors = new HashMap<Class<?>, Constructor<?>>();
+	private final HashMap<String, Class<? extends Extension>> extensionClasses = new HashMap<String, Class<? extends Extension>>();
+	private byte[] bytes = new byte[256];
+
+	SnapshotReader(ByteBuffer buffer){
+		this.buffer = buffer;
+	}
+
+	/**
+	 * @return the catalog
+	 * @throws IOException if the snapshot is not valid, or is of a different version
+	 */
+	Catalog read() throws IOException {
+		try {
+			if (buffer.getInt() != CatalogSnapshot.MAGIC) throw new IOException("not a catalog snapshot");
+			int version = buffer.getInt();
+			if (version != CatalogSnapshot.VERSION) throw new IOException("unsupported snapshot version " + version + ", expected " + CatalogSnapshot.VERSION);
+			strings = new String[readCount()];
+			for (int i = 0; i < strings.length; i++){
+				int length = readCount();
+				if (length > bytes.length) bytes = new byte[Math.max(length, bytes.length * 2)];
+				buffer.get(bytes, 0, length);
+				strings[i] = new String(bytes, 0, length, CatalogSnapshot.UTF8);
+			}
+			Catalog catalog = new Catalog();
+			element(catalog);
+			return catalog;
+		} catch (BufferUnderflowException e) {
+			throw new IOException("snapshot is truncated");
+		} catch (IndexOutOfBoundsException e) {
+			throw new IOException("snapshot is corrupt");
+		} catch (IllegalArgumentException e) {
+			//
+			// Names or intervals that are not valid
+			//
+			throw new IOException("snapshot is corrupt: " + e.getMessage());
+		}
+	}
+
+	private void element(XcriElement element) throws IOException {
+		element.setType(string());
+		element.setLang(string());
+		if (element instanceof DescriptiveTextType){
+			descriptiveText((DescriptiveTextType)element);
+		} else {
+			element.setValue(string());
+		}
+		if (element instanceof CommonType) commonType((CommonType)element);
+		if (element instanceof CommonDescriptiveType) commonDescriptiveType((CommonDescriptiveType)element);
+
+		if (element instanceof Catalog){
+			Catalog catalog = (Catalog)element;
+			catalog.setGeneratedDateTime(dateTime());
+			catalog.setProviders(elements(Provider.class));
+			if (catalog.getProviders() != null) for (Provider provider : catalog.getProviders()) provider.setParent(catalog);
+		} else if (element instanceof Provider){
+			Provider provider = (Provider)element;
+			provider.setLocation(optional(Location.class));
+			provider.setCourses(elements(Course.class));
+			if (provider.getCourses() != null) for (Course course : provider.getCourses()) course.setParent(provider);
+		} else if (element instanceof Course){
+			Course course = (Course)element;
+			course.setQualifications(elements(Qualification.class));
+			course.setCredits(elements(Credit.class));
+			course.setPresentations(elements(Presentation.class));
+			if (course.getPresentations() != null) for (Presentation presentation : course.getPresentations()) presentation.setParent(course);
+		} else if (element instanceof Presentation){
+			presentation((Presentation)element);
+		} else if (element instanceof Qualification){
+			Qualification qualification = (Qualification)element;
+			qualification.setAbbr(string());
+			qualification.setAwardedBy(string());
+			qualification.setAccreditedBy(string());
+			qualification.setEducationLevel(string());
+		} else if (element instanceof Credit){
+			Credit credit = (Credit)element;
+			credit.setScheme(string());
+			credit.setLevel(string());
+			credit.setCreditValue(string());
+		} else if (element instanceof Location){
+			Location location = (Location)element;
+			location.setStreet(string());
+			location.setPostalTown(string());
+			location.setPostCode(string());
+			location.setAddress(strings());
+			location.setPhone(string());
+			location.setFax(string());
+			location.setEmail(string());
+			location.setUrl(string());
+		} else if (element instanceof Image){
+			Image image = (Image)element;
+			image.setSrc(string());
+			image.setTitle(string());
+			image.setAlt(string());
+		} else if (element instanceof Venue){
+			((Venue)element).setProvider(optional(Provider.class));
+		} else if (element instanceof StudyMode){
+			((StudyMode)element).setIdentifier(string());
+		} else if (element instanceof AttendanceMode){
+			((AttendanceMode)element).setIdentifier(string());
+		} else if (element instanceof AttendancePattern){
+			((AttendancePattern)element).setIdentifier(string());
+		} else if (element instanceof TemporalType){
+			((TemporalType)element).setDateTime(dateTime());
+		} else if (element instanceof Duration){
+			((Duration)element).setInterval(interval(string()));
+		}
+	}
+
+	private void commonType(CommonType element) throws IOException {
+		element.setContributors(elements(Contributor.class));
+		element.setDescriptions(elements(Description.class));
+		element.setExtensions(extensions());
+		element.setIdentifiers(elements(Identifier.class));
+		element.setTitles(elements(Title.class));
+		element.setSubjects(elements(Subject.class));
+		element.setImages(elements(Image.class));
+		element.setTypes(elements(Type.class));
+		element.setUrls(elements(Url.class));
+	}
+
+	private void commonDescriptiveType(CommonDescriptiveType element) throws IOException {
+		element.setAbstracts(elements(Abstract.class));
+		element.setApplicationProcedures(elements(ApplicationProcedure.class));
+		element.setAssessments(elements(Assessment.class));
+		element.setLearningOutcomes(elements(LearningOutcome.class));
+		element.setObjectives(elements(Objective.class));
+		element.setPrerequisites(elements(Prerequisite.class));
+		element.setRegulations(elements(Regulations.class));
+	}
+
+	private void presentation(Presentation presentation) throws IOException {
+		presentation.setStart(optional(Start.class));
+		presentation.setEnd(optional(End.class));
+		presentation.setDuration(optional(Duration.class));
+		presentation.setApplyFrom(optional(ApplyFrom.class));
+		presentation.setApplyUntil(optional(ApplyUntil.class));
+		presentation.setApplyTo(optional(ApplyTo.class));
+		presentation.setEngagements(elements(Engagement.class));
+		presentation.setStudyMode(optional(StudyMode.class));
+		presentation.setAttendanceMode(optional(AttendanceMode.class));
+		presentation.setAttendancePattern(optional(AttendancePattern.class));
+		presentation.setLanguageOfInstruction(elements(LanguageOfInstruction.class));
+		presentation.setLanguageOfAssessment(elements(LanguageOfAssessment.class));
+		presentation.setPlaces(optional(Places.class));
+		presentation.setCost(optional(Cost.class));
+		presentation.setAge(optional(Age.class));
+		presentation.setVenues(elements(Venue.class));
+	}
+
+	private void descriptiveText(DescriptiveTextType element) throws IOException {
+		int flags = readInt();
+		element.setHref(string());
+		Element xhtml = (flags & SnapshotWriter.XHTML_ELEMENT) != 0 ? xml() : null;
+		if ((flags & SnapshotWriter.XHTML_VALUE) != 0){
+			element.setXhtmlValue(xhtml);
+		} else {
+			element.setXhtml(xhtml);
+			element.setValue(string());
+		}
+		element.setIsXhtml((flags & SnapshotWriter.XHTML) != 0);
+	}
+
+	private Extension[] extensions() throws IOException {
+		int length = readCount() - 1;
+		if (length < 0) return null;
+		Extension[] extensions = new Extension[length];
+		for (int i = 0; i < length; i++){
+			String className = name();
+			Element element = xml();
+			extensions[i] = newInstance(extensionClass(className));
+			try {
+				extensions[i].fromXml(element);
+			} catch (InvalidElementException e) {
+				throw new IOException("extension " + className + " could not be read: " + e.getMessage());
+			}
+		}
+		return extensions;
+	}
+
+	private Class<? extends Extension> extensionClass(String className) throws IOException {
+		Class<? extends Extension> type = extensionClasses.get(className);
+		if (type == null){
+			try {
+				type = Class.forName(className).asSubclass(Extension.class);
+			} catch (ClassNotFoundException e) {
+				throw new IOException("extension " + className + " could not be found");
+			} catch (ClassCastException e) {
+				throw new IOException(className + " is not an extension");
+			}
+			extensionClasses.put(className, type);
+		}
+		return type;
+	}
+
+	private <T extends XcriElement> T[] elements(Class<T> type) throws IOException {
+		int length = readCount() - 1;
+		if (length < 0) return null;
+		@SuppressWarnings("unchecked")
+		T[] elements = (T[])Array.newInstance(type, length);
+		for (int i = 0; i < length; i++){
+			elements[i] = create(type);
+			element(elements[i]);
+		}
+		return elements;
+	}
+
+	private <T extends XcriElement> T optional(Class<T> type) throws IOException {
+		if (readInt() == 0) return null;
+		T element = create(type);
+		element(element);
+		return element;
+	}
+
+	/**
+	 * Create an element; courses and presentations are created by their factories, as when parsing
+	 */
+	private <T extends XcriElement> T create(Class<T> type) throws IOException {
+		try {
+			if (type == Course.class) return type.cast(CourseFactory.getCourse(Course.class));
+			if (type == Presentation.class) return type.cast(PresentationFactory.getPresentation(Presentation.class));
+		} catch (InstantiationException e) {
+			throw new IOException("cannot create " + type.getName() + ": " + e.getMessage());
+		} catch (IllegalAccessException e) {
+			throw new IOException("cannot create " + type.getName() + ": " + e.getMessage());
+		}
+		return newInstance(type);
+	}
+
+	/**
+	 * Create an instance of a class with its public no-argument constructor
+	 */
+	private <T> T newInstance(Class<T> type) throws IOException {
+		try {
+			//
+			// Class.newInstance() checks access on every call, so keep the constructors
+			//
+			Constructor<?> constructor = constructors.get(type);
+			if (constructor == null){
+				constructor = type.getConstructor();
+				constructors.put(type, constructor);
+			}
+			return type.cast(constructor.newInstance());
+		} catch (NoSuchMethodException e) {
+			throw new IOException("cannot create " + type.getName() + ": " + e.getMessage());
+		} catch (InstantiationException e) {
+			throw new IOException("cannot create " + type.getName() + ": " + e.getMessage());
+		} catch (IllegalAccessException e) {
+			throw new IOException("cannot create " + type.getName() + ": " + e.getMessage());
+		} catch (InvocationTargetException e) {
+			throw new IOException("cannot create " + type.getName() + ": " + e.getCause());
+		}
+	}
+
+	private W3CDateTime dateTime(){
+		int precision = readInt();
+		if (precision == 0) return null;
+		long time = readLong();
+		int offset = readInt();
+		return new W3CDateTime(time, PRECISIONS[precision - 1], offset == 0 ? W3CDateTime.NO_OFFSET : unzigzag(offset - 1));
+	}
+
+	private Period interval(String value){
+		if (value == null) return null;
+		Period interval = intervals.get(value);
+		if (interval == null){
+			interval = ISOPeriodFormat.standard().parsePeriod(value);
+			intervals.put(value, interval);
+		}
+		return interval;
+	}
+
+	/**
+	 * Read a JDOM element and its content
+	 */
+	private Element xml() throws IOException {
+		String name = name();
+		Element element = factory.element(name, namespace());
+		for (int i = readInt(); i > 0; i--){
+			element.addNamespaceDeclaration(namespace());
+		}
+		for (int i = readInt(); i > 0; i--){
+			String attributeName = name();
+			Namespace namespace = namespace();
+			element.setAttribute(factory.attribute(attributeName, string(), namespace));
+		}
+		for (int i = readInt(); i > 0; i--){
+			switch (readInt()){
+			case SnapshotWriter.ELEMENT:
+				element.addContent(xml());
+				break;
+			case SnapshotWriter.TEXT:
+				element.addContent(factory.text(string()));
+				break;
+			case SnapshotWriter.CDATA_SECTION:
+				element.addContent(factory.cdata(string()));
+				break;
+			case SnapshotWriter.COMMENT:
+				element.addContent(factory.comment(string()));
+				break;
+			case SnapshotWriter.PROCESSING_INSTRUCTION:
+				String target = name();
+				element.addContent(factory.processingInstruction(target, string()));
+				break;
+			case SnapshotWriter.ENTITY_REF:
+				String entityName = name();
+				String publicId = string();
+				element.addContent(factory.entityRef(entityName, publicId, string()));
+				break;
+			default:
+				throw new IOException("snapshot is corrupt");
+			}
+		}
+		return element;
+	}
+
+	private Namespace namespace(){
+		String prefix = string();
+		return Namespace.getNamespace(prefix == null ? "" : prefix, string());
+	}
+
+	private String[] strings() throws IOException {
+		int length = readCount() - 1;
+		if (length < 0) return null;
+		String[] values = new String[length];
+		for (int i = 0; i < length; i++) values[i] = string();
+		return values;
+	}
+
+	private String string(){
+		int index = readInt();
+		return index == 0 ? null : strings[index - 1];
+	}
+
+	/**
+	 * Read a string that can't be null, such as the name of an element
+	 */
+	private String name() throws IOException {
+		String name = string();
+		if (name == null) throw new IOException("snapshot is corrupt");
+		return name;
+	}
+
+	/**
+	 * Read the number of items or bytes that follow, each of which takes at least one byte
+	 * @throws IOException if there can't be that many
+	 */
+	private int readCount() throws IOException {
+		int count = readInt();
+		if (count < 0) throw new IOException("snapshot is corrupt");
+		if (count > buffer.remaining() + 1) throw new IOException("snapshot is truncated");
+		return count;
+	}
+
+	private int readInt(){
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	private long readLong(){
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+	private static int unzigzag(int value){
+		return (value >>> 1) ^ -(value & 1);
+	}
+
+}
@@ -0,0 +1,429 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.snapshot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import org.jdom.Attribute;
+import org.jdom.CDATA;
+import org.jdom.Comment;
+import org.jdom.Element;
+import org.jdom.EntityRef;
+import org.jdom.Namespace;
+import org.jdom.ProcessingInstruction;
+import org.jdom.Text;
+import org.jdom.output.XMLOutputter;
+import org.xcri.Extension;
+import org.xcri.common.Image;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+import org.xcri.course.Credit;
+import org.xcri.course.Qualification;
+import org.xcri.presentation.AttendanceMode;
+import org.xcri.presentation.AttendancePattern;
+import org.xcri.presentation.Duration;
+import org.xcri.presentation.StudyMode;
+import org.xcri.presentation.Venue;
+import org.xcri.provider.Location;
+import org.xcri.types.CommonDescriptiveType;
+import org.xcri.types.CommonType;
+import org.xcri.types.DescriptiveTextType;
+import org.xcri.types.TemporalType;
+import org.xcri.types.XcriElement;
+import org.xcri.util.W3CDateTime;
+
+/**
+ * Writes a catalog in the snapshot format; see CatalogSnapshot.
+ *
+ * The fields of each element are written in a fixed order, determined by
+ * its class, so no names or tags are needed; SnapshotReader reads them in
+ * the same order. Every string is written once, in a table before the
+ * catalog, and referred to by its position.
+ */
+class SnapshotWriter {
+
+	//
+	// Content of XHTML and extension elements
+	//
+	static final int ELEMENT = 1;
+	static final int TEXT = 2;
+	static final int CDATA_SECTION = 3;
+	static final int COMMENT = 4;
+	static final int PROCESSING_INSTRUCTION = 5;
+	static final int ENTITY_REF = 6;
+
+	//
+	// Flags of descriptive text
+	//
+	static final int XHTML = 1;
+	static final int XHTML_ELEMENT = 2;
+	static final int XHTML_VALUE = 4;
+
+	private final HashMap<String, Integer> strings = new HashMap<String, Integer>();
+	private final Buffer table = new Buffer();
+	private final Buffer body = new Buffer();
+	private XMLOutputter outputter;
+
+	/**
+	 * Write the catalog, with a header and the string table
+	 * @param catalog
+	 * @param out
+	 * @throws IOException
+	 */
+	void write(Catalog catalog, OutputStream out) throws IOException {
+		element(catalog);
+		Buffer header = new Buffer();
+		header.writeFixedInt(CatalogSnapshot.MAGIC);
+		header.writeFixedInt(CatalogSnapshot.VERSION);
+		header.writeInt(strings.size());
+		header.writeTo(out);
+		table.writeTo(out);
+		body.writeTo(out);
+	}
+
+	private void element(XcriElement element){
+		string(element.getType());
+		string(element.getLang());
+		if (element instanceof DescriptiveTextType){
+			descriptiveText((DescriptiveTextType)element);
+		} else {
+			string(element.getValue());
+		}
+		if (element instanceof CommonType) commonType((CommonType)element);
+		if (element instanceof CommonDescriptiveType) commonDescriptiveType((CommonDescriptiveType)element);
+
+		if (element instanceof Catalog){
+			Catalog catalog = (Catalog)element;
+			dateTime(catalog.getGeneratedDateTime());
+			elements(catalog.getProviders());
+		} else if (element instanceof Provider){
+			Provider provider = (Provider)element;
+			optional(provider.getLocation());
+			elements(provider.getCourses());
+		} else if (element instanceof Course){
+			Course course = (Course)element;
+			elements(course.getQualifications());
+			elements(course.getCredits());
+			elements(course.getPresentations());
+		} else if (element instanceof Presentation){
+			presentation((Presentation)element);
+		} else if (element instanceof Qualification){
+			Qualification qualification = (Qualification)element;
+			string(qualification.getAbbr());
+			string(qualification.getAwardedBy());
+			string(qualification.getAccreditedBy());
+			string(qualification.getEducationLevel());
+		} else if (element instanceof Credit){
+			Credit credit = (Credit)element;
+			string(credit.getScheme());
+			string(credit.getLevel());
+			string(credit.getCreditValue());
+		} else if (element instanceof Location){
+			Location location = (Location)element;
+			string(location.getStreet());
+			string(location.getPostalTown());
+			string(location.getPostCode());
+			strings(location.getAddress());
+			string(location.getPhone());
+			string(location.getFax());
+			string(location.getEmail());
+			string(location.getUrl());
+		} else if (element instanceof Image){
+			Image image = (Image)element;
+			string(image.getSrc());
+			string(image.getTitle());
+			string(image.getAlt());
+		} else if (element instanceof Venue){
+			optional(((Venue)element).getProvider());
+		} else if (element instanceof StudyMode){
+			string(((StudyMode)element).getIdentifier());
+		} else if (element instanceof AttendanceMode){
+			string(((AttendanceMode)element).getIdentifier());
+		} else if (element instanceof AttendancePattern){
+			string(((AttendancePattern)element).getIdentifier());
+		} else if (element instanceof TemporalType){
+			dateTime(((TemporalType)element).getDateTime());
+		} else if (element instanceof Duration){
+			Duration duration = (Duration)element;
+			string(duration.getInterval() == null ? null : duration.getInterval().toString());
+		}
+	}
+
+	/**
+	 * Write the fields of CommonType. Descriptions, subjects, images and titles
+	 * inherited from the parent are not written, so they are inherited again
+	 * when read rather than copied.
+	 */
+	private void commonType(CommonType element){
+		CommonType parent = element.getParent() instanceof CommonType ? (CommonType)element.getParent() : null;
+		elements(element.getContributors());
+		elements(own(element.getResolvedDescriptions(), parent == null ? null : parent.getResolvedDescriptions()));
+		extensions(element.getExtensions());
+		elements(element.getIdentifiers());
+		elements(own(element.getResolvedTitles(), parent == null ? null : parent.getResolvedTitles()));
+		elements(own(element.getResolvedSubjects(), parent == null ? null : parent.getResolvedSubjects()));
+		elements(own(element.getResolvedImages(), parent == null ? null : parent.getResolvedImages()));
+		elements(element.getTypes());
+		elements(element.getUrls());
+	}
+
+	private void commonDescriptiveType(CommonDescriptiveType element){
+		elements(element.getAbstracts());
+		elements(element.getApplicationProcedures());
+		elements(element.getAssessments());
+		elements(element.getLearningOutcomes());
+		elements(element.getObjectives());
+		elements(element.getPrerequisites());
+		elements(element.getRegulations());
+	}
+
+	private void presentation(Presentation presentation){
+		optional(presentation.getStart());
+		optional(presentation.getEnd());
+		optional(presentation.getDuration());
+		optional(presentation.getApplyFrom());
+		optional(presentation.getApplyUntil());
+		optional(presentation.getApplyTo());
+		elements(presentation.getEngagements());
+		optional(presentation.getStudyMode());
+		optional(presentation.getAttendanceMode());
+		optional(presentation.getAttendancePattern());
+		elements(presentation.getLanguageOfInstruction());
+		elements(presentation.getLanguageOfAssessment());
+		optional(presentation.getPlaces());
+		optional(presentation.getCost());
+		optional(presentation.getAge());
+		elements(presentation.getVenues());
+	}
+
+	/**
+	 * The value of XHTML content is not written if it is the XHTML as text,
+	 * as it always is when parsed; it is produced again when first needed.
+	 */
+	private void descriptiveText(DescriptiveTextType element){
+		Element xhtml = element.getXhtml();
+		String value = element.getValue();
+		int flags = element.isXhtml() ? XHTML : 0;
+		if (xhtml != null){
+			flags |= XHTML_ELEMENT;
+			if (outputter == null) outputter = new XMLOutputter();
+			if (value != null && value.equals(outputter.outputString(xhtml))) flags |= XHTML_VALUE;
+		}
+		body.writeInt(flags);
+		string(element.getHref());
+		if (xhtml != null) xml(xhtml);
+		if ((flags & XHTML_VALUE) == 0) string(value);
+	}
+
+	private void extensions(Extension[] extensions){
+		if (extensions == null){
+			body.writeInt(0);
+			return;
+		}
+		body.writeInt(extensions.length + 1);
+		for (Extension extension : extensions){
+			string(extension.getClass().getName());
+			xml(extension.toXml());
+		}
+	}
+
+	private void elements(XcriElement[] elements){
+		if (elements == null){
+			body.writeInt(0);
+			return;
+		}
+		body.writeInt(elements.length + 1);
+		for (XcriElement element : elements) element(element);
+	}
+
+	private void optional(XcriElement element){
+		if (element == null){
+			body.writeInt(0);
+		} else {
+			body.writeInt(1);
+			element(element);
+		}
+	}
+
+	private void dateTime(W3CDateTime dateTime){
+		if (dateTime == null){
+			body.writeInt(0);
+			return;
+		}
+		body.writeInt(dateTime.getPrecision().ordinal() + 1);
+		body.writeLong(dateTime.getTime());
+		body.writeInt(dateTime.getOffset() == W3CDateTime.NO_OFFSET ? 0 : zigzag(dateTime.getOffset()) + 1);
+	}
+
+	/**
+	 * Write a JDOM element and its content
+	 */
+	private void xml(Element element){
+		string(element.getName());
+		namespace(element.getNamespace());
+		@SuppressWarnings("unchecked")
+		List<Namespace> namespaces = element.getAdditionalNamespaces();
+		body.writeInt(namespaces.size());
+		for (Namespace namespace : namespaces) namespace(namespace);
+		@SuppressWarnings("unchecked")
+		List<Attribute> attributes = element.getAttributes();
+		body.writeInt(attributes.size());
+		for (Attribute attribute : attributes){
+			string(attribute.getName());
+			namespace(attribute.getNamespace());
+			string(attribute.getValue());
+		}
+		List<?> content = element.getContent();
+		body.writeInt(content.size());
+		for (Object child : content){
+			if (child instanceof Element){
+				body.writeInt(ELEMENT);
+				xml((Element)child);
+			} else if (child instanceof CDATA){
+				body.writeInt(CDATA_SECTION);
+				string(((CDATA)child).getText());
+			} else if (child instanceof Text){
+				body.writeInt(TEXT);
+				string(((Text)child).getText());
+			} else if (child instanceof Comment){
+				body.writeInt(COMMENT);
+				string(((Comment)child).getText());
+			} else if (child instanceof ProcessingInstruction){
+				body.writeInt(PROCESSING_INSTRUCTION);
+				string(((ProcessingInstruction)child).getTarget());
+				string(((ProcessingInstruction)child).getData());
+			} else if (child instanceof EntityRef){
+				body.writeInt(ENTITY_REF);
+				string(((EntityRef)child).getName());
+				string(((EntityRef)child).getPublicID());
+				string(((EntityRef)child).getSystemID());
+			} else {
+				throw new IllegalArgumentException("cannot write XML content: " + child);
+			}
+		}
+	}
+
+	private void namespace(Namespace namespace){
+		string(namespace.getPrefix());
+		string(namespace.getURI());
+	}
+
+	private void strings(String[] values){
+		if (values == null){
+			body.writeInt(0);
+			return;
+		}
+		body.writeInt(values.length + 1);
+		for (String value : values) string(value);
+	}
+
+	/**
+	 * Write a reference to a string, adding it to the table if it is not already there
+	 */
+	private void string(String value){
+		if (value == null){
+			body.writeInt(0);
+			return;
+		}
+		Integer index = strings.get(value);
+		if (index == null){
+			index = strings.size() + 1;
+			strings.put(value, index);
+			table.writeString(value);
+		}
+		body.writeInt(index);
+	}
+
+	/**
+	 * @return an empty array if the values are the inherited ones, otherwise the values
+	 */
+	private static <T> T[] own(T[] values, T[] inherited){
+		if (values == inherited) return Arrays.copyOf(values, 0);
+		return values;
+	}
+
+	static int zigzag(int value){
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * A growable byte array, with variable length integers
+	 */
+	private static class Buffer {
+		private byte[] bytes = new byte[8192];
+		private int length;
+
+		private void ensure(int extra){
+			if (length + extra > bytes.length) bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+		}
+
+		void writeFixedInt(int value){
+			ensure(4);
+			bytes[length++] = (byte)(value >>> 24);
+			bytes[length++] = (byte)(value >>> 16);
+			bytes[length++] = (byte)(value >>> 8);
+			bytes[length++] = (byte)value;
+		}
+
+		/**
+		 * Write a non-negative int in 1 to 5 bytes, 7 bits at a time
+		 */
+		void writeInt(int value){
+			ensure(5);
+			while ((value & ~0x7F) != 0){
+				bytes[length++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte)value;
+		}
+
+		/**
+		 * Write any long, zigzag encoded so small negative values are short too
+		 */
+		void writeLong(long value){
+			ensure(10);
+			value = (value << 1) ^ (value >> 63);
+			while ((value & ~0x7FL) != 0){
+				bytes[length++] = (byte)((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			bytes[length++] = (byte)value;
+		}
+
+		void writeString(String value){
+			byte[] utf8 = value.getBytes(CatalogSnapshot.UTF8);
+			writeInt(utf8.length);
+			ensure(utf8.length);
+			System.arraycopy(utf8, 0, bytes, length, utf8.length);
+			length += utf8.length;
+		}
+
+		void writeTo(OutputStream out) throws IOException {
+			out.write(bytes, 0, length);
+		}
+	}
+
+}
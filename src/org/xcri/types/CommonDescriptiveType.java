@@ -21,17 +21,21 @@ package org.xcri.types;
 
 import java.util.ArrayList;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
 import org.xcri.Namespaces;
 import org.xcri.common.descriptive.*;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
-import org.xcri.util.lax.Lax;
+import org.xcri.util.lax.ChildIndex;
 
 public class CommonDescriptiveType extends CommonType {
 	
-	private Log log = LogFactory.getLog(CommonDescriptiveType.class);
+	private static Log log = LogFactory.getLog(CommonDescriptiveType.class);
 	
 	private Abstract[] abstracts;
 	private ApplicationProcedure[] applicationProcedures;
@@ -64,101 +68,116 @@ public class CommonDescriptiveType extends CommonType {
 	}
 
 	/* (non-Javadoc)
-	 * @see org.xcri.types.CommonType#fromXml(org.jdom.Element)
+	 * @see org.xcri.types.CommonType#writeContent(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeContent(writer);
+		if (this.getAbstracts() != null) for (Abstract a: this.getAbstracts()) a.writeXml(writer);
+		if (this.getApplicationProcedures() != null) for (ApplicationProcedure a: this.getApplicationProcedures()) a.writeXml(writer);
+		if (this.getAssessments() != null) for (Assessment a: this.getAssessments()) a.writeXml(writer);
+		if (this.getLearningOutcomes() != null) for (LearningOutcome a: this.getLearningOutcomes()) a.writeXml(writer);
+		if (this.getObjectives() != null) for (Objective a: this.getObjectives()) a.writeXml(writer);
+		if (this.getPrerequisites() != null) for (Prerequisite a: this.getPrerequisites()) a.writeXml(writer);
+		if (this.getRegulations() != null) for (Regulations a: this.getRegulations()) a.writeXml(writer);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.CommonType#fromXml(org.jdom.Element, org.xcri.util.lax.ChildIndex)
 	 */
 	@Override
-	public void fromXml(Element element) throws InvalidElementException {
-		super.fromXml(element);
+	protected void fromXml(Element element, ChildIndex children) throws InvalidElementException {
+		super.fromXml(element, children);
 		
 		//
 		// Descriptions...
 		//
 		ArrayList<Abstract> abstracts = new ArrayList<Abstract>();
-		for (Object obj: Lax.getChildrenQuietly(element, "abstract", Namespaces.XCRI_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("abstract", Namespaces.XCRI_NAMESPACE_NS, log)){
 			Abstract anabstract = new Abstract();
 			try {
 				anabstract.fromXml((Element)obj);
 				abstracts.add(anabstract);				
 				// Producers MUST NOT create a value of this element that exceeds 140 characters.
 				if (anabstract.getValue().length() > 140){
-					log.warn(this.getName()+ ": Abstract: Producers MUST NOT create a value of this element that exceeds 140 characters.");
+					getDiagnostics().report(log, Rule.ABSTRACT_TOO_LONG, (Element)obj, this.getName());
 				}
 				
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid abstract element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "abstract", e.getMessage());
 			}
 		}
 		this.setAbstracts(abstracts.toArray(new Abstract[abstracts.size()]));
 		
 		ArrayList<ApplicationProcedure> applicationProcedures = new ArrayList<ApplicationProcedure>();
-		for (Object obj: Lax.getChildrenQuietly(element, "applicationProcedure", Namespaces.XCRI_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("applicationProcedure", Namespaces.XCRI_NAMESPACE_NS, log)){
 			ApplicationProcedure applicationProcedure = new ApplicationProcedure();
 			try {
 				applicationProcedure.fromXml((Element)obj);
 				applicationProcedures.add(applicationProcedure);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid applicationProcedure element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "applicationProcedure", e.getMessage());
 			}
 		}
 		this.setApplicationProcedures(applicationProcedures.toArray(new ApplicationProcedure[applicationProcedures.size()]));
 		
 		
 		ArrayList<Assessment> assessments = new ArrayList<Assessment>();
-		for (Object obj: Lax.getChildrenQuietly(element, "assessment", Namespaces.MLO_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("assessment", Namespaces.MLO_NAMESPACE_NS, log)){
 			Assessment assessment = new Assessment();
 			try {
 				assessment.fromXml((Element)obj);
 				assessments.add(assessment);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid assessment element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "assessment", e.getMessage());
 			}
 		}
 		this.setAssessments(assessments.toArray(new Assessment[assessments.size()]));
 		
 		ArrayList<LearningOutcome> learningOutcomes = new ArrayList<LearningOutcome>();
-		for (Object obj: Lax.getChildrenQuietly(element, "learningOutcome", Namespaces.XCRI_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("learningOutcome", Namespaces.XCRI_NAMESPACE_NS, log)){
 			LearningOutcome learningOutcome = new LearningOutcome();
 			try {
 				learningOutcome.fromXml((Element)obj);
 				learningOutcomes.add(learningOutcome);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid learningOutcome element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "learningOutcome", e.getMessage());
 			}
 		}
 		this.setLearningOutcomes(learningOutcomes.toArray(new LearningOutcome[learningOutcomes.size()]));
 		
 		ArrayList<Objective> objectives = new ArrayList<Objective>();
-		for (Object obj: Lax.getChildrenQuietly(element, "objective", Namespaces.MLO_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("objective", Namespaces.MLO_NAMESPACE_NS, log)){
 			Objective objective = new Objective();
 			try {
 				objective.fromXml((Element)obj);
 				objectives.add(objective);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid objective element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "objective", e.getMessage());
 			}
 		}
 		this.setObjectives(objectives.toArray(new Objective[objectives.size()]));
 		
 		ArrayList<Prerequisite> prerequisites = new ArrayList<Prerequisite>();
-		for (Object obj: Lax.getChildrenQuietly(element, "prerequisite", Namespaces.MLO_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("prerequisite", Namespaces.MLO_NAMESPACE_NS, log)){
 			Prerequisite prerequisite = new Prerequisite();
 			try {
 				prerequisite.fromXml((Element)obj);
 				prerequisites.add(prerequisite);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid prerequisite element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "prerequisite", e.getMessage());
 			}
 		}
 		this.setPrerequisites(prerequisites.toArray(new Prerequisite[prerequisites.size()]));
 		
 		ArrayList<Regulations> regulations = new ArrayList<Regulations>();
-		for (Object obj: Lax.getChildrenQuietly(element, "regulations", Namespaces.XCRI_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("regulations", Namespaces.XCRI_NAMESPACE_NS, log)){
 			Regulations regulation = new Regulations();
 			try {
 				regulation.fromXml((Element)obj);
 				regulations.add(regulation);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid regulations element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "regulations", e.getMessage());
 			}
 		}
 		this.setRegulations(regulations.toArray(new Regulations[regulations.size()]));
@@ -22,18 +22,22 @@ package org.xcri.types;
 
 import java.util.ArrayList;
 
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.jdom.Element;
 import org.xcri.Extension;
 import org.xcri.Namespaces;
 import org.xcri.common.*;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
-import org.xcri.util.lax.Lax;
+import org.xcri.util.lax.ChildIndex;
 
 public abstract class CommonType extends XcriElement {
 	
-	private Log log = LogFactory.getLog(CommonType.class);
+	private static Log log = LogFactory.getLog(CommonType.class);
 	
 	/* (non-Javadoc)
 	 * @see org.xcri.types.XcriElement#toXml()
@@ -52,149 +56,155 @@ public abstract class CommonType extends XcriElement {
 		if (this.getUrls() != null) for (Url u: this.getUrls()) element.addContent(u.toXml());
 		return element;
 	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#writeContent(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeContent(writer);
+		if (this.getContributors() != null) for (Contributor c: this.getContributors()) c.writeXml(writer);
+		//
+		// Unlike toXml(), inherited descriptions are written without copying them into this element
+		//
+		for (Description d: this.getResolvedDescriptions()) d.writeXml(writer);
+		if (this.getIdentifiers() != null) for (Identifier i: this.getIdentifiers()) i.writeXml(writer);
+		if (this.getTitles() != null) for (Title t: this.getTitles()) t.writeXml(writer);
+		if (this.getSubjects() != null) for (Subject s: this.getSubjects()) s.writeXml(writer);
+		if (this.getImages() != null) for (Image i: this.getImages()) i.writeXml(writer);
+		if (this.getTypes() != null) for (Type t: this.getTypes()) t.writeXml(writer);
+		if (this.getUrls() != null) for (Url u: this.getUrls()) u.writeXml(writer);
+	}
 	
 	/* (non-Javadoc)
 	 * @see org.xcri.types.XcriElement#fromXml(org.jdom.Element)
 	 */
 	@Override
 	public void fromXml(Element element) throws InvalidElementException {
+		fromXml(element, new ChildIndex(element));
+	}
+
+	/**
+	 * Process the element using an index of its children. Subclasses
+	 * override this rather than fromXml(Element) and pass the same index
+	 * on to the superclass, so the children are only classified once.
+	 * @param element
+	 * @param children the index of the children of the element
+	 * @throws InvalidElementException
+	 */
+	protected void fromXml(Element element, ChildIndex children) throws InvalidElementException {
 		super.fromXml(element);
 		
 		//
 		// Check for "date" and other non-recommended elements
 		//
-		if (Lax.getChildQuietly(element, "date", Namespaces.DC_NAMESPACE_NS, log)!=null){
-			log.warn("date: Producers SHOULD NOT use the <date> element, but instead where possible use the <start> element and the temporal elements defined in this document: <end>, <applyFrom>, and <applyUntil");
+		Element dateElement = children.getChildQuietly("date", Namespaces.DC_NAMESPACE_NS, log);
+		if (dateElement != null){
+			getDiagnostics().report(log, Rule.DATE_NOT_RECOMMENDED, dateElement);
 		}
-		if (Lax.getChildrenQuietly(element, "hasPart", Namespaces.DC_NAMESPACE_NS, log).size()>0 || Lax.getChildrenQuietly(element, "isPartOf", Namespaces.DC_NAMESPACE_NS, log).size()>0){
-			log.warn("hasPart/isPartOf: these elements are included for compatibility with the [EN 15982] standard. Producers SHOULD NOT use these elements");
+		if (children.getChildrenQuietly("hasPart", Namespaces.DC_NAMESPACE_NS, log).size()>0 || children.getChildrenQuietly("isPartOf", Namespaces.DC_NAMESPACE_NS, log).size()>0){
+			getDiagnostics().report(log, Rule.PART_NOT_RECOMMENDED, element);
 		}
 		
 		// Process child elements
 		
 		ArrayList<Contributor> contributors = new ArrayList<Contributor>();
-		for (Object obj: Lax.getChildrenQuietly(element, "contributor", Namespaces.DC_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("contributor", Namespaces.DC_NAMESPACE_NS, log)){
 			Contributor contributor = new Contributor();
 			try {
 				contributor.fromXml((Element)obj);
 				contributors.add(contributor);
 				
 				if(contributor.getType() == null){
-					log.info("contributor : Producers SHOULD use refinements of this element, for example for \"presenter\" or \"lecturer\" or other contributor types relevant to  the type of course or presentation.");
+					getDiagnostics().report(log, Rule.CONTRIBUTOR_NO_TYPE, (Element)obj);
 				}
 				
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid contributor element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "contributor", e.getMessage());
 			}
 		}
 		this.setContributors(contributors.toArray(new Contributor[contributors.size()]));
 		
 		ArrayList<Description> descriptions = new ArrayList<Description>();
-		for (Object obj: Lax.getChildrenQuietly(element, "description", Namespaces.DC_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("description", Namespaces.DC_NAMESPACE_NS, log)){
 			Description description = new Description();
 			try {
 				description.fromXml((Element)obj);
 				descriptions.add(description);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid description element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "description", e.getMessage());
 			}
 		}
 		this.setDescriptions(descriptions.toArray(new Description[descriptions.size()]));
 		
 		ArrayList<Identifier> identifiers = new ArrayList<Identifier>();
-		for (Object obj: Lax.getChildrenQuietly(element, "identifier", Namespaces.DC_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("identifier", Namespaces.DC_NAMESPACE_NS, log)){
 			Identifier identifier = new Identifier();
 			try {
 				identifier.fromXml((Element)obj);
 				identifiers.add(identifier);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid identifier element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "identifier", e.getMessage());
 			}
 		}
 		this.setIdentifiers(identifiers.toArray(new Identifier[identifiers.size()]));
 		
 		ArrayList<Title> titles = new ArrayList<Title>();
-		for (Object obj: Lax.getChildrenQuietly(element, "title", Namespaces.DC_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("title", Namespaces.DC_NAMESPACE_NS, log)){
 			Title title = new Title();
 			try {
 				title.fromXml((Element)obj);
 				titles.add(title);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid title element: "+e.getMessage());
-			}
-		}
-		//
-		// Check occurrences per language
-		//
-		ArrayList<String> languages = new ArrayList<String>();
-		for(Title title: titles){
-			if (title.getLang() != null && languages.contains(title.getLang())){
-				log.warn("title : there SHOULD NOT be more than one occurrence of title per language tag."); 
-			} else {
-				languages.add(title.getLang());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "title", e.getMessage());
 			}
 		}
 		this.setTitles(titles.toArray(new Title[titles.size()]));
 		
 		ArrayList<Subject> subjects = new ArrayList<Subject>();
-		for (Object obj: Lax.getChildrenQuietly(element, "subject", Namespaces.DC_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("subject", Namespaces.DC_NAMESPACE_NS, log)){
 			Subject subject = new Subject();
 			try {
 				subject.fromXml((Element)obj);
 				subjects.add(subject);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid subject element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "subject", e.getMessage());
 			}
 		}
 		this.setSubjects(subjects.toArray(new Subject[subjects.size()]));
 		
 		ArrayList<Image> images = new ArrayList<Image>();
-		for (Object obj:Lax.getChildrenQuietly(element, "image", Namespaces.XCRI_NAMESPACE_NS, log)){
+		for (Object obj:children.getChildrenQuietly("image", Namespaces.XCRI_NAMESPACE_NS, log)){
 			Image image = new Image();
 			try {
 				image.fromXml((Element)obj);
-				
-				//
-				// Check for alternate text
-				//
-				if (image.getAlt() == null||image.getAlt().length() == 0){
-					log.warn("image: While @alt is optional, following the structure of XHTML, a Producer SHOULD provide meaningful alternative text");
-				}
-				
-				//
-				// Check for known image type
-				//
-				String type = image.getSrc().substring(image.getSrc().lastIndexOf(".")+1, image.getSrc().length());
-				if (!type.equals("png") && !type.equals("jpg") && !type.equals("gif")){
-					log.warn("image : A Producer SHOULD offer images in standard formats, such as PNG and JPEG");
-				}
 				images.add(image);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid image element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "image", e.getMessage());
 			}
 		}
 		this.setImages(images.toArray(new Image[images.size()]));
 		
 		ArrayList<Type> types = new ArrayList<Type>();
-		for (Object obj: Lax.getChildrenQuietly(element, "type", Namespaces.DC_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("type", Namespaces.DC_NAMESPACE_NS, log)){
 			Type type = new Type();
 			try {
 				type.fromXml((Element)obj);
 				types.add(type);
 			} catch (InvalidElementException e) {
-				log.warn(this.getName()+" : skipping invalid type element: "+e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_CHILD, (Element)obj, this.getName(), "type", e.getMessage());
 			}
 		}
 		this.setTypes(types.toArray(new Type[types.size()]));
 		
 		ArrayList<Url> urls = new ArrayList<Url>();
-		for (Object obj: Lax.getChildrenQuietly(element, "url", Namespaces.MLO_NAMESPACE_NS, log)){
+		for (Object obj: children.getChildrenQuietly("url", Namespaces.MLO_NAMESPACE_NS, log)){
 			Url url = new Url();
 			try {
 				url.fromXml((Element)obj);
 				urls.add(url);
 			} catch (InvalidElementException e) {
-				log.error(e.getMessage());
+				getDiagnostics().report(log, Rule.INVALID_URL, (Element)obj, e.getMessage());
 			}
 		}
 		this.setUrls(urls.toArray(new Url[urls.size()]));
@@ -204,19 +214,19 @@ public abstract class CommonType extends XcriElement {
 		//
 		ArrayList<Extension> extensions = new ArrayList<Extension>();
 		for (Extension extension : ExtensionManager.getExtensions()) {
-			for (Element obj : Lax.getChildrenQuietly(
-					element, extension.getName(), extension.getNamespace(), log)) {
+			for (Element obj : children.getChildrenQuietly(
+					extension.getName(), extension.getNamespace(), log)) {
 				
 				try {
 					Extension myExtension = extension.getClass().newInstance();
 					myExtension.fromXml(obj);
 					extensions.add(myExtension);
 				} catch (InvalidElementException e) {
-					log.error(e.getMessage());
+					getDiagnostics().report(log, Rule.INVALID_EXTENSION, obj, e.getMessage());
 				} catch (InstantiationException e) {
-					log.error(e.getMessage());
+					getDiagnostics().report(log, Rule.INVALID_EXTENSION, obj, e.getMessage());
 				} catch (IllegalAccessException e) {
-					log.error(e.getMessage());
+					getDiagnostics().report(log, Rule.INVALID_EXTENSION, obj, e.getMessage());
 				}
 				extension.fromXml(obj);
 			}
@@ -234,6 +244,12 @@ public abstract class CommonType extends XcriElement {
 	private Image[] images;
 	private Type[] types;
 	private Url[] urls;
+
+	private static final Description[] NO_DESCRIPTIONS = new Description[0];
+	private static final Subject[] NO_SUBJECTS = new Subject[0];
+	private static final Image[] NO_IMAGES = new Image[0];
+	private static final Title[] NO_TITLES = new Title[0];
+	private volatile Resolved resolved;
 	
 	/**
 	 * @return the contributors
@@ -270,6 +286,7 @@ public abstract class CommonType extends XcriElement {
 	 */
 	public void setDescriptions(Description[] descriptions) {
 		this.descriptions = descriptions;
+		inheritanceChanged();
 	}
 	
 	/**
@@ -308,6 +325,7 @@ public abstract class CommonType extends XcriElement {
 	 */
 	public void setTitles(Title[] titles) {
 		this.titles = titles;
+		inheritanceChanged();
 	}
 	/**
 	 * Inheritable
@@ -326,6 +344,7 @@ public abstract class CommonType extends XcriElement {
 	 */
 	public void setSubjects(Subject[] subjects) {
 		this.subjects = subjects;
+		inheritanceChanged();
 	}
 	/**
 	 * Inheritable
@@ -344,6 +363,7 @@ public abstract class CommonType extends XcriElement {
 	 */
 	public void setImages(Image[] images) {
 		this.images = images;
+		inheritanceChanged();
 	}
 	/**
 	 * @return the types
@@ -357,6 +377,105 @@ public abstract class CommonType extends XcriElement {
 	public void setTypes(Type[] types) {
 		this.types = types;
 	}
+	/**
+	 * The descriptions of this element or, if it has none, those it inherits.
+	 * Unlike getDescriptions() the inherited descriptions are not copied: the
+	 * array is shared with the ancestor they come from, and is worked out
+	 * only once until a parent or inheritable property changes in the same
+	 * tree. The array and its contents must not be modified.
+	 * @return the descriptions, never null
+	 */
+	public Description[] getResolvedDescriptions() {
+		return resolved().descriptions;
+	}
+
+	/**
+	 * The subjects of this element or, if it has none, those it inherits
+	 * @see #getResolvedDescriptions()
+	 * @return the subjects, never null
+	 */
+	public Subject[] getResolvedSubjects() {
+		return resolved().subjects;
+	}
+
+	/**
+	 * The images of this element or, if it has none, those it inherits
+	 * @see #getResolvedDescriptions()
+	 * @return the images, never null
+	 */
+	public Image[] getResolvedImages() {
+		return resolved().images;
+	}
+
+	/**
+	 * The titles of this element, or those it inherits for elements that
+	 * inherit titles
+	 * @see #getResolvedDescriptions()
+	 * @return the titles, never null
+	 */
+	public Title[] getResolvedTitles() {
+		return resolved().titles;
+	}
+
+	/**
+	 * @return true if the element inherits the titles of its parent when it has none
+	 */
+	protected boolean inheritsTitles() {
+		return false;
+	}
+
+	private Resolved resolved() {
+		//
+		// The root the values were resolved against is kept with them; as
+		// setParent() changes the version of the tree an element leaves, the
+		// root is still the root of this element while its version matches
+		//
+		Resolved resolved = this.resolved;
+		if (resolved != null && resolved.version == resolved.root.getInheritanceVersion()) return resolved;
+		XcriElement root = getRoot();
+		return resolved(root, root.getInheritanceVersion());
+	}
+
+	/**
+	 * @param root the root of the tree this element is in
+	 * @param version the inheritance version of the root, read before anything is resolved
+	 * @return the resolved values, worked out again if anything they depend on may have changed
+	 */
+	private Resolved resolved(XcriElement root, long version) {
+		Resolved resolved = this.resolved;
+		if (resolved != null && resolved.root == root && resolved.version == version) return resolved;
+		Resolved inherited = this.getParent() instanceof CommonType ? ((CommonType)this.getParent()).resolved(root, version) : null;
+		resolved = new Resolved(root, version,
+			descriptions != null && descriptions.length > 0 ? descriptions : inherited != null ? inherited.descriptions : NO_DESCRIPTIONS,
+			subjects != null && subjects.length > 0 ? subjects : inherited != null ? inherited.subjects : NO_SUBJECTS,
+			images != null && images.length > 0 ? images : inherited != null ? inherited.images : NO_IMAGES,
+			titles != null && titles.length > 0 ? titles : inherited != null && inheritsTitles() ? inherited.titles : NO_TITLES);
+		this.resolved = resolved;
+		return resolved;
+	}
+
+	/**
+	 * Inherited values, resolved at a version of the tree. They are
+	 * published together, so each thread sees a consistent set.
+	 */
+	private static final class Resolved {
+		private final XcriElement root;
+		private final long version;
+		private final Description[] descriptions;
+		private final Subject[] subjects;
+		private final Image[] images;
+		private final Title[] titles;
+
+		private Resolved(XcriElement root, long version, Description[] descriptions, Subject[] subjects, Image[] images, Title[] titles){
+			this.root = root;
+			this.version = version;
+			this.descriptions = descriptions;
+			this.subjects = subjects;
+			this.images = images;
+			this.titles = titles;
+		}
+	}
+
 	/**
 	 * @return the urls 
 	 */
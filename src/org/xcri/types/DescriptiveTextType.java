@@ -22,41 +22,53 @@ package org.xcri.types;
 import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.List;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.htmlcleaner.HtmlCleaner;
-import org.htmlcleaner.PrettyXmlSerializer;
-import org.htmlcleaner.TagNode;
+import org.jdom.Attribute;
 import org.jdom.CDATA;
-import org.jdom.Content;
-import org.jdom.Document;
 import org.jdom.Element;
 import org.jdom.JDOMException;
 import org.jdom.input.SAXBuilder;
 import org.jdom.output.XMLOutputter;
 import org.xcri.Namespaces;
 import org.xcri.ParserConfiguration;
+import org.xcri.diagnostics.Rule;
 import org.xcri.exceptions.InvalidElementException;
-import org.xcri.util.ContentSecurityFilter;
+import org.xcri.util.StaxOutputter;
+import org.xcri.util.XhtmlConverter;
 import org.xcri.util.lax.Lax;
 
 public class DescriptiveTextType extends XcriElement{
 
-	private Log log = LogFactory.getLog(DescriptiveTextType.class);
+	private static Log log = LogFactory.getLog(DescriptiveTextType.class);
 
 	private String href;
 	private boolean isXhtml = false;
 	private Element xhtml = null;
+	private volatile boolean valuePending = false;
+	private volatile boolean xhtmlPending = false;
 	
 	
 
 	/**
+	 * The XHTML content. For content read with lazyXHTML set in the
+	 * ParserConfiguration, this is read again from the text of the element
+	 * the first time it is asked for; it is safe for several threads to ask at once.
 	 * @return the xhtml
 	 */
 	public Element getXhtml() {
+		if (xhtmlPending){
+			synchronized (this) {
+				if (xhtmlPending){
+					xhtml = readXhtml(super.getValue());
+					xhtmlPending = false;
+				}
+			}
+		}
 		return xhtml;
 	}
 
@@ -65,6 +77,92 @@ public class DescriptiveTextType extends XcriElement{
 	 */
 	public void setXhtml(Element xhtml) {
 		this.xhtml = xhtml;
+		this.xhtmlPending = false;
+	}
+
+	/**
+	 * Set XHTML content, with the value produced from it the first time it
+	 * is asked for, as when read with lazyXHTML
+	 * @param xhtml the xhtml:div element
+	 */
+	public void setXhtmlValue(Element xhtml) {
+		this.xhtml = xhtml;
+		this.xhtmlPending = false;
+		this.isXhtml = true;
+		super.setValue(null);
+		this.valuePending = true;
+	}
+
+	/**
+	 * The text of the element. For XHTML content set with setXhtmlValue(),
+	 * this is produced from the XHTML the first time it is asked for; it is
+	 * safe for several threads to ask at once.
+	 * @see org.xcri.types.XcriElement#getValue()
+	 */
+	@Override
+	public String getValue() {
+		if (valuePending){
+			synchronized (this) {
+				//
+				// Only clear the flag once the value is set, so that other
+				// threads that see it cleared also see the value
+				//
+				if (valuePending){
+					super.setValue(new XMLOutputter().outputString(xhtml));
+					valuePending = false;
+				}
+			}
+		}
+		return super.getValue();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#setValue(java.lang.String)
+	 */
+	@Override
+	public void setValue(String value) {
+		//
+		// Keep XHTML that hasn't been read from the old value yet
+		//
+		if (xhtmlPending) getXhtml();
+		valuePending = false;
+		super.setValue(value);
+	}
+
+	/**
+	 * Read XHTML content kept as text by a lazyXHTML parse
+	 * @param text the XHTML written out as a string
+	 * @return the xhtml:div element
+	 */
+	private static Element readXhtml(String text) {
+		try {
+			return new SAXBuilder().build(new StringReader(text)).detachRootElement();
+		} catch (JDOMException e) {
+			throw new IllegalStateException("XHTML content could not be read again: " + e.getMessage());
+		} catch (IOException e) {
+			throw new IllegalStateException("XHTML content could not be read again: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Copy the content of this element, including a deep clone of the XHTML, to
+	 * another element, without producing the text or XHTML of lazily-read content
+	 * @param target
+	 */
+	protected void copyContentTo(DescriptiveTextType target) {
+		if (xhtmlPending){
+			target.isXhtml = isXhtml;
+			target.setValue(super.getValue());
+			target.xhtmlPending = true;
+			return;
+		}
+		if (xhtml != null) target.xhtml = (Element)xhtml.clone();
+		target.isXhtml = isXhtml;
+		if (valuePending && target.xhtml != null){
+			target.valuePending = true;
+		} else {
+			target.setValue(this.getValue());
+		}
 	}
 
 	/**
@@ -117,7 +215,7 @@ public class DescriptiveTextType extends XcriElement{
 		for (Object child: element.getContent()){
 			if (child instanceof CDATA){
 				if (ParserConfiguration.getInstance().fixCDATA()){
-				log.warn("description: uses CDATA instead of XHTML. Attempting to convert inline HTML into XHTML.");
+				getDiagnostics().report(log, Rule.CDATA_CONVERTED, element);
 				processCDATA((CDATA)child);
 				} else {
 					throw new InvalidElementException("description: contains CDATA. To allow CDATA to be converted to XHTML, run with fixCDATA=true");
@@ -133,7 +231,7 @@ public class DescriptiveTextType extends XcriElement{
 		//
 		// Cannot have both linked and inline content
 		//
-		if ((this.getValue()!=null && this.getValue().length()>0) || this.xhtml != null){
+		if (this.xhtml != null || this.xhtmlPending || (this.getValue()!=null && this.getValue().length()>0)){
 			if(this.getHref()!= null && this.getHref().length()>0){
 				throw new InvalidElementException("Description contains both text content and href attribute; only one or the other may be used");
 			}
@@ -141,92 +239,62 @@ public class DescriptiveTextType extends XcriElement{
 	}
 	
 	/**
-	 * Attempt to process a CDATA section as HTML, and convert to XHTML
+	 * Attempt to process a CDATA section as HTML, and convert to XHTML if
+	 * configured to do so; otherwise the HTML is kept as text
 	 * @param cdata
 	 * @throws InvalidElementException
 	 */
 	private void processCDATA(CDATA cdata) throws InvalidElementException{
-		this.setValue(cdata.getValue());
-/*		
-		//
-		// Use HTMLCleaner to clean the content
-		//
-		HtmlCleaner cleaner = new HtmlCleaner();
-		TagNode node = cleaner.clean(cdata.getValue());
-		
-		//
-		// Output the HTML as XML, and read in using JDOM
-		//
-		PrettyXmlSerializer ser = new PrettyXmlSerializer(cleaner.getProperties());
-		try {
-			String out = ser.getAsString(node);
-			Element element = new Element("div", Namespaces.XHTML_NAMESPACE_NS);
-			SAXBuilder builder = new SAXBuilder();
-			Document document = builder.build(new StringReader(out));
-			
-			//
-			// Add all children of <body> to a new <div> element
-			//
-			@SuppressWarnings("unchecked")
-			List<Content> li = document.getRootElement().getChild("body").getChildren();
-			for(int i=0;i<li.size();i++){
-				Element next = (Element)li.get(i);
-				next.detach();
-				next.setNamespace(Namespaces.XHTML_NAMESPACE_NS);
-				element.addContent(next);
-			}
-
-			//
-			// Finally, add any raw text
-			//
-			element.addContent(document.getRootElement().getChild("body").getTextTrim());	
-			
-			//
-			// Post-process the XHTML
-			//
-			processXhtml(element);
-			
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		} catch (JDOMException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+		if (ParserConfiguration.getInstance().convertCDATA()){
+			processXhtml(XhtmlConverter.getInstance().convert(cdata.getValue()));
+		} else {
+			this.setValue(cdata.getValue());
 		}
-*/
 	}
 	
 	private void processXhtml(Element element) throws InvalidElementException{
 		try {
 			//
-			// Check for potentially dangerous elements
+			// Check for potentially dangerous elements and attributes
 			//
-			@SuppressWarnings("rawtypes")
-			Iterator i = element.getDescendants(new ContentSecurityFilter());
 			ArrayList<Element> toRemove = new ArrayList<Element>();
-			while (i.hasNext()){
-				Element dangerousElement = (Element) i.next();
-				toRemove.add(dangerousElement);
-				log.warn("description : content contains potentially dangerous XHTML :"+dangerousElement.getName());
+			ArrayList<Attribute> attributesToRemove = new ArrayList<Attribute>();
+			ParserConfiguration.getInstance().getContentSecurityFilter().scan(element, toRemove, attributesToRemove);
+			for (Element dangerousElement: toRemove){
+				getDiagnostics().report(log, Rule.UNSAFE_XHTML, dangerousElement, dangerousElement.getName());
+			}
+			for (Attribute dangerousAttribute: attributesToRemove){
+				getDiagnostics().report(log, Rule.UNSAFE_XHTML_ATTRIBUTE, dangerousAttribute.getParent(), dangerousAttribute.getName(), dangerousAttribute.getParent().getName());
 			}
 			
 			//
-			// If configured to do so, remove elements
+			// If configured to do so, remove elements and attributes
 			//
 			if (ParserConfiguration.getInstance().sanitizeXHTML()){
 				for (Element dangerousElement: toRemove){
-					log.warn("description : removing XHTML element :"+dangerousElement.getName());
+					getDiagnostics().report(log, Rule.UNSAFE_XHTML_REMOVED, dangerousElement, dangerousElement.getName());
 					dangerousElement.getParentElement().removeContent(dangerousElement);					
 				}
+				for (Attribute dangerousAttribute: attributesToRemove){
+					getDiagnostics().report(log, Rule.UNSAFE_XHTML_ATTRIBUTE_REMOVED, dangerousAttribute.getParent(), dangerousAttribute.getName(), dangerousAttribute.getParent().getName());
+					dangerousAttribute.getParent().removeAttribute(dangerousAttribute);
+				}
 			}
 			
-			xhtml = element;
 			isXhtml = true;
 			
 			//
-			// Set value to text output of XML
+			// Set value to text output of XML; with lazyXHTML only the text is
+			// kept, and the element is read from it when it is first needed
 			//
-			this.setValue(new XMLOutputter().outputString(xhtml));
+			if (ParserConfiguration.getInstance().lazyXHTML()){
+				xhtml = null;
+				this.setValue(new XMLOutputter().outputString(element));
+				xhtmlPending = true;
+			} else {
+				xhtml = element;
+				this.setValue(new XMLOutputter().outputString(xhtml));
+			}
 
 		} catch (Exception e) {
 			throw new InvalidElementException("Error reading content of description element");
@@ -248,11 +316,35 @@ public class DescriptiveTextType extends XcriElement{
 			//
 			// Add XHTML
 			//
-			element.addContent(xhtml.detach());
+			element.addContent(getXhtml().detach());
 		}
 		return element;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#writeAttributes(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeAttributes(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeAttributes(writer);
+		if (this.getHref() != null) writer.writeAttribute("href", this.getHref());
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#writeContent(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		//
+		// XHTML replaces any plain content; unlike toXml(), this leaves the XHTML where it is
+		//
+		if (isXhtml){
+			if (getXhtml() != null) StaxOutputter.writeElement(writer, getXhtml());
+		} else {
+			super.writeContent(writer);
+		}
+	}
+
 
 
 }
@@ -19,30 +19,114 @@
  */
 package org.xcri.types;
 
-import java.util.Calendar;
 import java.util.Date;
+import java.util.TimeZone;
 
-import javax.xml.bind.DatatypeConverter;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 
 import org.jdom.Element;
 import org.xcri.exceptions.InvalidElementException;
+import org.xcri.util.ValueCache;
+import org.xcri.util.W3CDateTime;
+import org.xcri.util.W3CDateTime.Precision;
 
+/**
+ * A temporal element, such as start or end, with an optional @dtf attribute.
+ *
+ * The date is held as milliseconds since the epoch, with the precision and
+ * time zone it was given in, so presentations can be compared and filtered
+ * by date without creating any objects, and @dtf is written out in the same
+ * form it was read.
+ */
 public class TemporalType  extends XcriElement {
 	
-	private Date dtf;
+	/**
+	 * The value of getTime() for an element without a @dtf attribute
+	 */
+	public static final long NO_TIME = Long.MIN_VALUE;
+	
+	//
+	// The same dates are used by many presentations
+	//
+	private static final ValueCache<W3CDateTime> dateTimes = new ValueCache<W3CDateTime>(1024);
+	
+	//
+	// Dates without a time zone are in the default time zone when they are
+	// parsed, so are kept separately for the time zone they were parsed in
+	//
+	private static volatile LocalDateTimes localDateTimes = new LocalDateTimes(TimeZone.getDefault().getID());
+	
+	private long time = NO_TIME;
+	private Precision precision;
+	private int offset = W3CDateTime.NO_OFFSET;
 
 	/**
-	 * @return the dtf
+	 * @return the dtf, as a new Date, or null if there is none
 	 */
 	public Date getDtf() {
-		return dtf;
+		if (precision == null) return null;
+		return new Date(time);
 	}
 
 	/**
-	 * @param dtf the dtf to set
+	 * @param dtf the dtf to set; it is written out in UTC
 	 */
 	public void setDtf(Date dtf) {
-		this.dtf = dtf;
+		this.setDateTime(dtf == null ? null : W3CDateTime.valueOf(dtf.getTime()));
+	}
+
+	/**
+	 * @return the dtf with its precision and time zone, or null if there is none
+	 */
+	public W3CDateTime getDateTime() {
+		if (precision == null) return null;
+		return new W3CDateTime(time, precision, offset);
+	}
+
+	/**
+	 * @param dateTime the dtf to set, or null to remove it
+	 */
+	public void setDateTime(W3CDateTime dateTime) {
+		if (dateTime == null){
+			this.time = NO_TIME;
+			this.precision = null;
+			this.offset = W3CDateTime.NO_OFFSET;
+		} else {
+			this.time = dateTime.getTime();
+			this.precision = dateTime.getPrecision();
+			this.offset = dateTime.getOffset();
+		}
+	}
+
+	/**
+	 * @return the dtf in milliseconds since the epoch, or NO_TIME if there is none
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return true if the element has a dtf
+	 */
+	public boolean hasDtf() {
+		return precision != null;
+	}
+
+	/**
+	 * @param time milliseconds since the epoch
+	 * @return true if the element has a dtf earlier than the time
+	 */
+	public boolean isBefore(long time) {
+		return precision != null && this.time < time;
+	}
+
+	/**
+	 * @param time milliseconds since the epoch
+	 * @return true if the element has a dtf later than the time
+	 */
+	public boolean isAfter(long time) {
+		return precision != null && this.time > time;
 	}
 
 	/* (non-Javadoc)
@@ -51,14 +135,23 @@ public class TemporalType  extends XcriElement {
 	@Override
 	public Element toXml() {
 		Element element = super.toXml();
-		Calendar dtf = Calendar.getInstance();
-		if (this.getDtf() != null){
-			dtf.setTime(this.getDtf());
-			element.setAttribute("dtf", DatatypeConverter.printDateTime(dtf));
+		if (precision != null){
+			element.setAttribute("dtf", W3CDateTime.format(time, precision, offset));
 		}
 		return element;
 	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.types.XcriElement#writeAttributes(javax.xml.stream.XMLStreamWriter)
+	 */
+	@Override
+	protected void writeAttributes(XMLStreamWriter writer) throws XMLStreamException {
+		super.writeAttributes(writer);
+		if (precision != null){
+			writer.writeAttribute("dtf", W3CDateTime.format(time, precision, offset));
+		}
+	}
+
 	/* (non-Javadoc)
 	 * @see org.xcri.types.XcriElement#fromXml(org.jdom.Element)
 	 */
@@ -73,9 +166,7 @@ public class TemporalType  extends XcriElement {
 		
 		if (element.getAttribute("dtf") != null){
 			try {
-				Date date = new Date();
-				date = DatatypeConverter.parseDateTime(element.getAttributeValue("dtf")).getTime();
-				this.setDtf(date);
+				this.setDateTime(parseDateTime(element.getAttributeValue("dtf")));
 			} catch (Exception e) {
 				/* 
 				 * If a Temporal Element has a @dtf attribute, and the value of the attribute does not contain a valid date or time according 
@@ -86,6 +177,43 @@ public class TemporalType  extends XcriElement {
 		}
 	}
 	
+	/**
+	 * Parse a W3C-DTF date and time, using the results of earlier calls for the same value
+	 * @param value
+	 * @return the date and time
+	 * @throws IllegalArgumentException if the value is not a valid date and time
+	 */
+	public static W3CDateTime parseDateTime(String value){
+		W3CDateTime dateTime = dateTimes.get(value);
+		if (dateTime != null) return dateTime;
+		String zone = TimeZone.getDefault().getID();
+		LocalDateTimes local = localDateTimes;
+		if (!local.zone.equals(zone)){
+			local = new LocalDateTimes(zone);
+			localDateTimes = local;
+		}
+		dateTime = local.dateTimes.get(value);
+		if (dateTime == null){
+			dateTime = W3CDateTime.parse(value);
+			if (dateTime.getOffset() == W3CDateTime.NO_OFFSET){
+				local.dateTimes.put(value, dateTime);
+			} else {
+				dateTimes.put(value, dateTime);
+			}
+		}
+		return dateTime;
+	}
 	
+	/**
+	 * Dates without a time zone parsed in one default time zone
+	 */
+	private static final class LocalDateTimes {
+		private final String zone;
+		private final ValueCache<W3CDateTime> dateTimes = new ValueCache<W3CDateTime>(1024);
+		
+		LocalDateTimes(String zone){
+			this.zone = zone;
+		}
+	}
 
 }
@@ -20,20 +20,37 @@
 
 package org.xcri.types;
 
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
 import org.jdom.Element;
 import org.jdom.Namespace;
 import org.xcri.Namespaces;
+import org.xcri.ParserConfiguration;
 import org.xcri.XcriObject;
+import org.xcri.diagnostics.Diagnostics;
 import org.xcri.exceptions.InvalidElementException;
+import org.xcri.util.InternPool;
+import org.xcri.util.StaxOutputter;
+import org.xcri.validation.Validator;
 
 public abstract class XcriElement implements XcriObject {
 
+	private static final AtomicLongFieldUpdater<XcriElement> INHERITANCE_VERSION = AtomicLongFieldUpdater.newUpdater(XcriElement.class, "inheritanceVersion");
+
 	private String name;
 	private Namespace namespace;
 	private String value;
 	private String type;
 	private String lang;
 	private XcriElement parent;
+	//
+	// Incremented whenever anything that inherited values in the tree depend on
+	// changes; only the version of the root of a tree is used
+	//
+	private volatile long inheritanceVersion;
 
 	/**
 	 * @return the value
@@ -86,13 +103,83 @@ public abstract class XcriElement implements XcriObject {
 		return element;
  	}
 
+	/* (non-Javadoc)
+	 * @see org.xcri.XcriObject#writeXml(javax.xml.stream.XMLStreamWriter)
+	 */
+	public void writeXml(XMLStreamWriter writer) throws XMLStreamException {
+		StaxOutputter.writeStartElement(writer, this.getNamespace(), this.getName());
+		writeAttributes(writer);
+		writeContent(writer);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write the attributes of the element; subclasses that add attributes
+	 * in toXml() add them here in the same order
+	 * @param writer
+	 * @throws XMLStreamException
+	 */
+	protected void writeAttributes(XMLStreamWriter writer) throws XMLStreamException {
+		if (this.getType() != null) StaxOutputter.writeAttribute(writer, Namespaces.XSI_NAMESPACE_NS, "type", getType());
+		if (this.getLang() != null) StaxOutputter.writeAttribute(writer, Namespaces.XML_NAMESPACE_NS, "lang", this.getLang());
+	}
+
+	/**
+	 * Write the content of the element; subclasses that add child elements
+	 * in toXml() add them here in the same order
+	 * @param writer
+	 * @throws XMLStreamException
+	 */
+	protected void writeContent(XMLStreamWriter writer) throws XMLStreamException {
+		if (this.getValue() != null) writer.writeCharacters(getValue());
+	}
+
 	/* (non-Javadoc)
 	 * @see org.xcri.XcriObject#fromXml(org.jdom.Element)
 	 */
 	public void fromXml(Element element) throws InvalidElementException {
-		this.setValue(element.getText());
-		this.setType(element.getAttributeValue("type", Namespaces.XSI_NAMESPACE_NS));
-		this.setLang(element.getAttributeValue("lang", Namespaces.XML_NAMESPACE_NS));
+		this.setValue(internValue() ? intern(element.getText()) : element.getText());
+		this.setType(intern(element.getAttributeValue("type", Namespaces.XSI_NAMESPACE_NS)));
+		this.setLang(intern(element.getAttributeValue("lang", Namespaces.XML_NAMESPACE_NS)));
+	}
+
+	/**
+	 * Whether the text content of this kind of element is typically
+	 * repeated across a feed, such as a subject or vocabulary label,
+	 * and so should be interned when parsed
+	 * @return false by default
+	 */
+	protected boolean internValue(){
+		return false;
+	}
+
+	/**
+	 * Run the rules of the current validator on this element, once it has been read
+	 * @param element the XML it was read from
+	 */
+	protected void validate(Element element){
+		Validator validator = ParserConfiguration.getInstance().getValidator();
+		if (validator != null) validator.validateParsed(this, element);
+	}
+
+	/**
+	 * @return the diagnostics to report problems found while parsing to
+	 */
+	protected static Diagnostics getDiagnostics(){
+		return ParserConfiguration.getInstance().getDiagnostics();
+	}
+
+	/**
+	 * Share a repeated value using the InternPool of the current parse
+	 * @param value
+	 * @return the canonical instance of the value, or the value itself if interning is disabled
+	 * or the element is not being read as part of a catalog
+	 */
+	protected static String intern(String value){
+		ParserConfiguration configuration = ParserConfiguration.getInstance();
+		InternPool pool = configuration.getInternPool();
+		if (pool == null || !configuration.internValues()) return value;
+		return pool.intern(value);
 	}
 
 	/**
@@ -106,7 +193,39 @@ public abstract class XcriElement implements XcriObject {
 	 * @param parent the parent to set
 	 */
 	public void setParent(XcriElement parent) {
+		//
+		// The tree this element leaves changes too: bump its version so that
+		// values resolved against its old root are not used again
+		//
+		XcriElement previousRoot = getRoot();
 		this.parent = parent;
+		INHERITANCE_VERSION.incrementAndGet(previousRoot);
+		inheritanceChanged();
+	}
+
+	/**
+	 * @return the element at the top of the tree this element is in, which may be the element itself
+	 */
+	protected XcriElement getRoot(){
+		XcriElement root = this;
+		while (root.parent != null) root = root.parent;
+		return root;
+	}
+
+	/**
+	 * Invalidate any inherited values that have been resolved in the tree this
+	 * element is in. Called by setParent() and the setters of inheritable properties.
+	 */
+	protected void inheritanceChanged(){
+		INHERITANCE_VERSION.incrementAndGet(getRoot());
+	}
+
+	/**
+	 * @return a number that changes whenever inherited values in the tree this element is the root of,
+	 * or the elements in that tree, may have changed
+	 */
+	protected long getInheritanceVersion(){
+		return inheritanceVersion;
 	}
 
 	/**
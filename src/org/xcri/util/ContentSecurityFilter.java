@@ -19,25 +19,147 @@
  */
 package org.xcri.util;
 
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.jdom.Attribute;
 import org.jdom.Element;
 import org.jdom.filter.Filter;
 
+/**
+ * Finds potentially dangerous content in XHTML: elements such as SCRIPT
+ * and IFRAME, event handler attributes such as onclick, and attributes
+ * whose value is a javascript: or vbscript: URL.
+ *
+ * By default the elements named in the XCRI security considerations are
+ * denied and all others are allowed. A filter can instead be created with
+ * a different list of denied elements, or with a list of the only elements
+ * that are allowed. Element names are compared ignoring case and namespace.
+ *
+ * Filters are not changed after they are created, so one instance can be
+ * shared between threads.
+ */
 public class ContentSecurityFilter implements Filter {
 
 	private static final long serialVersionUID = 2626349759528661311L;
 	
 	private static final String elements[] = {"IMG", "SCRIPT", "EMBED", "OBJECT", "FRAME", "FRAMESET", "IFRAME", "META", "LINK"};
+	
+	private static final String scriptSchemes[] = {"javascript:", "vbscript:"};
+	
+	/**
+	 * Whether the element names given to a filter are the ones to deny, or the only ones to allow
+	 */
+	public enum Policy {DENY, ALLOW}
+	
+	private final Policy policy;
+	private final TreeSet<String> names = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+	
+	/**
+	 * Create a filter that denies IMG, SCRIPT, EMBED, OBJECT, FRAME, FRAMESET, IFRAME, META and LINK elements
+	 */
+	public ContentSecurityFilter(){
+		this(Policy.DENY, elements);
+	}
+	
+	/**
+	 * Create a filter with its own list of element names
+	 * @param policy DENY to treat the named elements as dangerous; ALLOW to treat all other elements as dangerous
+	 * @param elementNames the element names, in any case
+	 */
+	public ContentSecurityFilter(Policy policy, String... elementNames){
+		this.policy = policy;
+		names.addAll(Arrays.asList(elementNames));
+	}
+
+	/**
+	 * @return the policy
+	 */
+	public Policy getPolicy() {
+		return policy;
+	}
 
 	/* (non-Javadoc)
 	 * @see org.jdom.filter.Filter#matches(java.lang.Object)
 	 */
 	public boolean matches(Object obj) {
 		if (obj instanceof Element){
-			String name = ((Element)obj).getName();
-			for (String element: elements)
-			if (element.equals(name.toUpperCase())) return true;
+			return isUnsafe((Element)obj);
+		}
+		if (obj instanceof Attribute){
+			return isUnsafe((Attribute)obj);
+		}
+		return false;
+	}
+	
+	/**
+	 * @param element
+	 * @return true if the element itself is dangerous, regardless of its attributes and content
+	 */
+	public boolean isUnsafe(Element element){
+		boolean listed = names.contains(element.getName());
+		return policy == Policy.DENY ? listed : !listed;
+	}
+	
+	/**
+	 * @param attribute
+	 * @return true if the attribute is an event handler, or its value is a script URL
+	 */
+	public boolean isUnsafe(Attribute attribute){
+		String name = attribute.getName();
+		if (name.length() > 2 && name.regionMatches(true, 0, "on", 0, 2)) return true;
+		String value = attribute.getValue();
+		for (String scheme : scriptSchemes){
+			if (startsWithScheme(value, scheme)) return true;
 		}
 		return false;
 	}
+	
+	/**
+	 * Find the dangerous elements and attributes below an element, in a single
+	 * pass. The root element itself is not checked. Descendants of dangerous
+	 * elements are also checked, so nothing is missed if the dangerous
+	 * elements are reported rather than removed.
+	 * @param root the element to search
+	 * @param unsafeElements the list to add dangerous elements to, in document order
+	 * @param unsafeAttributes the list to add dangerous attributes to, in document order
+	 */
+	public void scan(Element root, List<Element> unsafeElements, List<Attribute> unsafeAttributes){
+		@SuppressWarnings("rawtypes")
+		List content = root.getContent();
+		for (int i = 0; i < content.size(); i++){
+			Object child = content.get(i);
+			if (child instanceof Element){
+				Element element = (Element)child;
+				if (isUnsafe(element)) unsafeElements.add(element);
+				@SuppressWarnings("rawtypes")
+				List attributes = element.getAttributes();
+				for (int j = 0; j < attributes.size(); j++){
+					Attribute attribute = (Attribute)attributes.get(j);
+					if (isUnsafe(attribute)) unsafeAttributes.add(attribute);
+				}
+				scan(element, unsafeElements, unsafeAttributes);
+			}
+		}
+	}
+	
+	/**
+	 * Browsers ignore whitespace and control characters within and before the
+	 * scheme of a URL, so "java&#09;script:" is still a script URL
+	 * @param value
+	 * @param scheme the scheme, in lower case, including the colon
+	 * @return true if the value is a URL with the given scheme
+	 */
+	private static boolean startsWithScheme(String value, String scheme){
+		int matched = 0;
+		for (int i = 0; i < value.length() && matched < scheme.length(); i++){
+			char c = value.charAt(i);
+			if (c <= ' ') continue;
+			if (Character.toLowerCase(c) != scheme.charAt(matched)) return false;
+			matched++;
+		}
+		return matched == scheme.length();
+	}
 
 }
@@ -0,0 +1,412 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.xcri.Namespaces;
+
+/**
+ * Generates synthetic XCRI-CAP 1.2 catalogs of any size, for load and
+ * scale testing.
+ *
+ * Output is written directly to an XMLStreamWriter as it is generated, so
+ * nothing but the current element is held in memory. The same seed and
+ * settings always produce the same document.
+ *
+ * Descriptions can be plain text, XHTML or HTML in a CDATA section. To
+ * exercise the lax parsing rules a proportion of elements can be written
+ * with the wrong case (e.g. &lt;TITLE&gt;) or in the wrong namespace, as in
+ * src-test/really_bad_xcri.xml; with the default settings the feed is
+ * valid.
+ */
+public class FeedGenerator {
+
+	private static final String[] SUBJECTS = {"Computing", "Business", "History", "Mathematics", "Art and Design", "Law", "Nursing", "Engineering", "Music", "Psychology"};
+	private static final String[] WORDS = {"introduction", "advanced", "applied", "principles", "practice", "studies", "foundation", "project", "theory", "methods", "research", "professional"};
+	private static final String[] STUDY_MODES = {"FT", "Full-time", "PT", "Part-time"};
+	private static final String[] ATTENDANCE_MODES = {"CM", "Campus-based", "DA", "Distance with attendance", "WB", "Work-based"};
+	private static final String[] ATTENDANCE_PATTERNS = {"DY", "Daytime", "EV", "Evening", "WE", "Weekend"};
+	private static final String[] TOWNS = {"Bolton", "Oxford", "Leeds", "Bristol", "Glasgow", "Cardiff"};
+
+	private long seed = 0;
+	private int providers = 1;
+	private int coursesPerProvider = 10;
+	private int presentationsPerCourse = 1;
+	private int venuesPerPresentation = 0;
+	private double xhtmlDescriptions = 0.0;
+	private double cdataDescriptions = 0.0;
+	private double misspelledElements = 0.0;
+	private double wrongNamespaceElements = 0.0;
+
+	private Random random;
+	private XMLStreamWriter writer;
+
+	/**
+	 * Write the catalog to a file
+	 * @param file
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	public void generate(File file) throws IOException, XMLStreamException{
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 65536);
+		try {
+			generate(out);
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Write the catalog to a byte stream as UTF-8. The stream is not closed.
+	 * @param out
+	 * @throws XMLStreamException
+	 */
+	public void generate(OutputStream out) throws XMLStreamException{
+		XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+		writer.writeStartDocument("UTF-8", "1.0");
+		generate(writer);
+		writer.writeEndDocument();
+		writer.close();
+	}
+
+	/**
+	 * Write the catalog to a character stream. The stream is not closed.
+	 * @param out
+	 * @throws XMLStreamException
+	 */
+	public void generate(Writer out) throws XMLStreamException{
+		XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out);
+		writer.writeStartDocument("1.0");
+		generate(writer);
+		writer.writeEndDocument();
+		writer.close();
+	}
+
+	/**
+	 * Write the catalog element to a StAX writer
+	 * @param writer
+	 * @throws XMLStreamException
+	 */
+	public void generate(XMLStreamWriter writer) throws XMLStreamException{
+		this.writer = writer;
+		this.random = new Random(seed);
+
+		writer.writeStartElement("", "catalog", Namespaces.XCRI_NAMESPACE);
+		writer.writeDefaultNamespace(Namespaces.XCRI_NAMESPACE);
+		writer.writeNamespace("dc", Namespaces.DC_NAMESPACE);
+		writer.writeNamespace("mlo", Namespaces.MLO_NAMESPACE);
+		writer.writeAttribute("generated", "2011-03-21T20:00:23Z");
+		for (int p = 0; p < providers; p++){
+			writeProvider(p);
+		}
+		writer.writeEndElement();
+		writer.flush();
+	}
+
+	private void writeProvider(int p) throws XMLStreamException{
+		String url = "http://www.provider" + p + ".ac.uk/";
+		start(Namespaces.XCRI_NAMESPACE, "provider");
+		textElement(Namespaces.DC_NAMESPACE, "description", "This is example provider " + p);
+		textElement(Namespaces.DC_NAMESPACE, "identifier", url);
+		textElement(Namespaces.DC_NAMESPACE, "title", "Example provider " + p);
+		textElement(Namespaces.MLO_NAMESPACE, "url", url);
+		writeLocation();
+		for (int c = 0; c < coursesPerProvider; c++){
+			writeCourse(url, c);
+		}
+		writer.writeEndElement();
+	}
+
+	private void writeCourse(String providerUrl, int c) throws XMLStreamException{
+		String url = providerUrl + "courses/" + c + "/";
+		String title = title();
+		start(Namespaces.XCRI_NAMESPACE, "course");
+		textElement(Namespaces.DC_NAMESPACE, "identifier", url);
+		textElement(Namespaces.DC_NAMESPACE, "title", title);
+		int subjects = 1 + random.nextInt(3);
+		for (int i = 0; i < subjects; i++){
+			textElement(Namespaces.DC_NAMESPACE, "subject", SUBJECTS[random.nextInt(SUBJECTS.length)]);
+		}
+		writeDescription(title);
+		textElement(Namespaces.MLO_NAMESPACE, "url", url);
+		for (int i = 0; i < presentationsPerCourse; i++){
+			writePresentation(url, i);
+		}
+		writer.writeEndElement();
+	}
+
+	private void writeDescription(String title) throws XMLStreamException{
+		String text = "A course in " + title.toLowerCase(Locale.ENGLISH) + ", covering " + WORDS[random.nextInt(WORDS.length)] + " and " + WORDS[random.nextInt(WORDS.length)] + ".";
+		double style = random.nextDouble();
+		start(Namespaces.DC_NAMESPACE, "description");
+		if (style < xhtmlDescriptions){
+			writer.writeStartElement("", "div", Namespaces.XHTML_NAMESPACE);
+			writer.writeDefaultNamespace(Namespaces.XHTML_NAMESPACE);
+			writer.writeStartElement("", "p", Namespaces.XHTML_NAMESPACE);
+			writer.writeCharacters(text);
+			writer.writeEndElement();
+			writer.writeStartElement("", "ul", Namespaces.XHTML_NAMESPACE);
+			for (int i = 0; i < 3; i++){
+				writer.writeStartElement("", "li", Namespaces.XHTML_NAMESPACE);
+				writer.writeCharacters(WORDS[random.nextInt(WORDS.length)]);
+				writer.writeEndElement();
+			}
+			writer.writeEndElement();
+			writer.writeEndElement();
+		} else if (style < xhtmlDescriptions + cdataDescriptions){
+			writer.writeCData("<p>" + text + "</p><ul><li>" + WORDS[random.nextInt(WORDS.length)] + "</li></ul>");
+		} else {
+			writer.writeCharacters(text);
+		}
+		writer.writeEndElement();
+	}
+
+	private void writePresentation(String courseUrl, int i) throws XMLStreamException{
+		int year = 2011 + random.nextInt(5);
+		int month = 1 + random.nextInt(12);
+		String start = year + "-" + (month < 10 ? "0" : "") + month + "-01";
+		String end = (year + 1) + "-" + (month < 10 ? "0" : "") + month + "-01";
+		int mode = random.nextInt(STUDY_MODES.length / 2) * 2;
+		int attendance = random.nextInt(ATTENDANCE_MODES.length / 2) * 2;
+		int pattern = random.nextInt(ATTENDANCE_PATTERNS.length / 2) * 2;
+
+		start(Namespaces.XCRI_NAMESPACE, "presentation");
+		textElement(Namespaces.DC_NAMESPACE, "identifier", courseUrl + "presentations/" + i);
+		start(Namespaces.MLO_NAMESPACE, "start");
+		writer.writeAttribute("dtf", start);
+		writer.writeCharacters(start);
+		writer.writeEndElement();
+		start(Namespaces.XCRI_NAMESPACE, "end");
+		writer.writeAttribute("dtf", end);
+		writer.writeCharacters(end);
+		writer.writeEndElement();
+		start(Namespaces.MLO_NAMESPACE, "duration");
+		writer.writeAttribute("interval", "P1Y");
+		writer.writeCharacters("1 year");
+		writer.writeEndElement();
+		textElement(Namespaces.XCRI_NAMESPACE, "applyTo", "http://www.ucas.ac.uk/");
+		codedElement(Namespaces.XCRI_NAMESPACE, "studyMode", STUDY_MODES[mode], STUDY_MODES[mode + 1]);
+		codedElement(Namespaces.XCRI_NAMESPACE, "attendanceMode", ATTENDANCE_MODES[attendance], ATTENDANCE_MODES[attendance + 1]);
+		codedElement(Namespaces.XCRI_NAMESPACE, "attendancePattern", ATTENDANCE_PATTERNS[pattern], ATTENDANCE_PATTERNS[pattern + 1]);
+		for (int v = 0; v < venuesPerPresentation; v++){
+			writeVenue(v);
+		}
+		writer.writeEndElement();
+	}
+
+	private void writeVenue(int v) throws XMLStreamException{
+		start(Namespaces.XCRI_NAMESPACE, "venue");
+		start(Namespaces.XCRI_NAMESPACE, "provider");
+		textElement(Namespaces.DC_NAMESPACE, "title", "Campus " + v);
+		writeLocation();
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Location children are not read laxly, so they are always written correctly
+	 */
+	private void writeLocation() throws XMLStreamException{
+		start(Namespaces.MLO_NAMESPACE, "location");
+		writer.writeStartElement("", "town", Namespaces.XCRI_NAMESPACE);
+		writer.writeCharacters(TOWNS[random.nextInt(TOWNS.length)]);
+		writer.writeEndElement();
+		writer.writeEndElement();
+	}
+
+	private String title(){
+		String word = WORDS[random.nextInt(WORDS.length)];
+		return Character.toUpperCase(word.charAt(0)) + word.substring(1) + " " + SUBJECTS[random.nextInt(SUBJECTS.length)];
+	}
+
+	private void textElement(String namespaceURI, String name, String text) throws XMLStreamException{
+		start(namespaceURI, name);
+		writer.writeCharacters(text);
+		writer.writeEndElement();
+	}
+
+	private void codedElement(String namespaceURI, String name, String identifier, String text) throws XMLStreamException{
+		start(namespaceURI, name);
+		writer.writeAttribute("identifier", identifier);
+		writer.writeCharacters(text);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Start an element, possibly with the wrong case or in the wrong namespace
+	 */
+	private void start(String namespaceURI, String name) throws XMLStreamException{
+		if (misspelledElements > 0 && random.nextDouble() < misspelledElements){
+			name = random.nextBoolean() ? name.toUpperCase(Locale.ENGLISH) : Character.toUpperCase(name.charAt(0)) + name.substring(1);
+		}
+		if (wrongNamespaceElements > 0 && random.nextDouble() < wrongNamespaceElements){
+			namespaceURI = namespaceURI.equals(Namespaces.XCRI_NAMESPACE) ? Namespaces.MLO_NAMESPACE : Namespaces.XCRI_NAMESPACE;
+		}
+		writer.writeStartElement(prefix(namespaceURI), name, namespaceURI);
+	}
+
+	/**
+	 * @return the prefix declared for the namespace on the catalog element
+	 */
+	private String prefix(String namespaceURI){
+		if (namespaceURI.equals(Namespaces.DC_NAMESPACE)) return "dc";
+		if (namespaceURI.equals(Namespaces.MLO_NAMESPACE)) return "mlo";
+		return "";
+	}
+
+	/**
+	 * @return the seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/**
+	 * @param seed the seed to set
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	/**
+	 * @return the number of providers
+	 */
+	public int getProviders() {
+		return providers;
+	}
+
+	/**
+	 * @param providers the number of providers to set
+	 */
+	public void setProviders(int providers) {
+		this.providers = providers;
+	}
+
+	/**
+	 * @return the number of courses per provider
+	 */
+	public int getCoursesPerProvider() {
+		return coursesPerProvider;
+	}
+
+	/**
+	 * @param coursesPerProvider the number of courses per provider to set
+	 */
+	public void setCoursesPerProvider(int coursesPerProvider) {
+		this.coursesPerProvider = coursesPerProvider;
+	}
+
+	/**
+	 * @return the number of presentations per course
+	 */
+	public int getPresentationsPerCourse() {
+		return presentationsPerCourse;
+	}
+
+	/**
+	 * @param presentationsPerCourse the number of presentations per course to set
+	 */
+	public void setPresentationsPerCourse(int presentationsPerCourse) {
+		this.presentationsPerCourse = presentationsPerCourse;
+	}
+
+	/**
+	 * @return the number of venues per presentation
+	 */
+	public int getVenuesPerPresentation() {
+		return venuesPerPresentation;
+	}
+
+	/**
+	 * @param venuesPerPresentation the number of venues per presentation to set
+	 */
+	public void setVenuesPerPresentation(int venuesPerPresentation) {
+		this.venuesPerPresentation = venuesPerPresentation;
+	}
+
+	/**
+	 * @return the proportion of course descriptions written as XHTML
+	 */
+	public double getXhtmlDescriptions() {
+		return xhtmlDescriptions;
+	}
+
+	/**
+	 * @param xhtmlDescriptions the proportion of course descriptions to write as XHTML, from 0 to 1
+	 */
+	public void setXhtmlDescriptions(double xhtmlDescriptions) {
+		this.xhtmlDescriptions = xhtmlDescriptions;
+	}
+
+	/**
+	 * @return the proportion of course descriptions written as HTML in CDATA
+	 */
+	public double getCdataDescriptions() {
+		return cdataDescriptions;
+	}
+
+	/**
+	 * @param cdataDescriptions the proportion of course descriptions to write as HTML in CDATA, from 0 to 1
+	 */
+	public void setCdataDescriptions(double cdataDescriptions) {
+		this.cdataDescriptions = cdataDescriptions;
+	}
+
+	/**
+	 * @return the proportion of elements written with the wrong case
+	 */
+	public double getMisspelledElements() {
+		return misspelledElements;
+	}
+
+	/**
+	 * @param misspelledElements the proportion of elements to write with the wrong case, from 0 to 1
+	 */
+	public void setMisspelledElements(double misspelledElements) {
+		this.misspelledElements = misspelledElements;
+	}
+
+	/**
+	 * @return the proportion of elements written in the wrong namespace
+	 */
+	public double getWrongNamespaceElements() {
+		return wrongNamespaceElements;
+	}
+
+	/**
+	 * @param wrongNamespaceElements the proportion of elements to write in the wrong namespace, from 0 to 1
+	 */
+	public void setWrongNamespaceElements(double wrongNamespaceElements) {
+		this.wrongNamespaceElements = wrongNamespaceElements;
+	}
+
+}
@@ -0,0 +1,106 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Canonicalises strings that are repeated many times across a feed, such as
+ * type and lang attributes, vocabulary identifiers and subject labels, so that
+ * a loaded Catalog holds a single copy of each distinct value.
+ *
+ * Unlike String.intern() the pool can be discarded or cleared once a feed has
+ * been parsed. It is safe to share a pool between threads.
+ */
+public class InternPool {
+
+	private ConcurrentHashMap<String, String> values = new ConcurrentHashMap<String, String>();
+	private AtomicLong hits = new AtomicLong();
+	private AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param value
+	 * @return the canonical instance equal to the value, or null if the value is null
+	 */
+	public String intern(String value){
+		if (value == null) return null;
+		String existing = values.get(value);
+		if (existing != null){
+			hits.incrementAndGet();
+			return existing;
+		}
+		existing = values.putIfAbsent(value, value);
+		if (existing != null){
+			hits.incrementAndGet();
+			return existing;
+		}
+		misses.incrementAndGet();
+		return value;
+	}
+
+	/**
+	 * @return the number of distinct values in the pool
+	 */
+	public int size(){
+		return values.size();
+	}
+
+	/**
+	 * @return the number of lookups that returned a value already in the pool
+	 */
+	public long getHits(){
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups that added a new value to the pool
+	 */
+	public long getMisses(){
+		return misses.get();
+	}
+
+	/**
+	 * @return the proportion of lookups that returned a value already in the pool, or 0 if there have been none
+	 */
+	public double getHitRate(){
+		long h = hits.get();
+		long total = h + misses.get();
+		return total == 0 ? 0 : (double)h / total;
+	}
+
+	/**
+	 * Remove all values from the pool and reset the statistics
+	 */
+	public void clear(){
+		values.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		return "InternPool: "+size()+" values, "+getHits()+" hits, "+getMisses()+" misses";
+	}
+
+}
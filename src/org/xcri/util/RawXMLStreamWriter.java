@@ -0,0 +1,559 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+
+import javax.xml.XMLConstants;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * An XMLStreamWriter that produces exactly the same output as JDOM's
+ * XMLOutputter with the default (raw) format, so that documents written
+ * with writeXml() are byte-for-byte the same as toXml() followed by
+ * XMLOutputter.
+ *
+ * That means empty elements are written as &lt;name /&gt;, newlines in
+ * text are written as CRLF, and CR, tab and newline are escaped in
+ * attribute values. Output is UTF-8, so no other characters are escaped.
+ *
+ * Namespaces are not repaired: callers write their own namespace
+ * declarations, which also bind the prefix for the current element.
+ */
+public class RawXMLStreamWriter implements XMLStreamWriter {
+
+	private static final String LINE_SEPARATOR = "\r\n";
+
+	private Writer out;
+
+	//
+	// Names of the open elements
+	//
+	private ArrayList<String> prefixes = new ArrayList<String>();
+	private ArrayList<String> localNames = new ArrayList<String>();
+
+	//
+	// Namespace bindings in scope, innermost last, and where the bindings of each open element start
+	//
+	private ArrayList<String> boundPrefixes = new ArrayList<String>();
+	private ArrayList<String> boundURIs = new ArrayList<String>();
+	private int[] scopeStarts = new int[16];
+
+	private boolean startTagOpen = false;
+	private boolean emptyElement = false;
+
+	private NamespaceContext namespaceContext = new Context();
+	//
+	// Bindings that apply outside every element, set by setNamespaceContext()
+	//
+	private NamespaceContext rootContext;
+
+	/**
+	 * @param out the stream to write to, as UTF-8. Call flush() or close() to
+	 * make sure everything has been written to it.
+	 */
+	public RawXMLStreamWriter(OutputStream out){
+		try {
+			this.out = new BufferedWriter(new OutputStreamWriter(out, "UTF-8"));
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @param out the character stream to write to. It should encode as UTF-8.
+	 */
+	public RawXMLStreamWriter(Writer out){
+		this.out = out;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String)
+	 */
+	public void writeStartElement(String localName) throws XMLStreamException {
+		writeStartElement("", localName, "");
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String, java.lang.String)
+	 */
+	public void writeStartElement(String namespaceURI, String localName) throws XMLStreamException {
+		writeStartElement(boundPrefix(namespaceURI), localName, namespaceURI);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartElement(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	public void writeStartElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		closeStartTag();
+		write("<");
+		writeName(prefix, localName);
+		int depth = prefixes.size();
+		if (depth == scopeStarts.length){
+			int[] starts = new int[depth * 2];
+			System.arraycopy(scopeStarts, 0, starts, 0, depth);
+			scopeStarts = starts;
+		}
+		scopeStarts[depth] = boundPrefixes.size();
+		prefixes.add(prefix == null ? "" : prefix);
+		localNames.add(localName);
+		startTagOpen = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String)
+	 */
+	public void writeEmptyElement(String localName) throws XMLStreamException {
+		writeStartElement(localName);
+		emptyElement = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String, java.lang.String)
+	 */
+	public void writeEmptyElement(String namespaceURI, String localName) throws XMLStreamException {
+		writeStartElement(namespaceURI, localName);
+		emptyElement = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEmptyElement(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	public void writeEmptyElement(String prefix, String localName, String namespaceURI) throws XMLStreamException {
+		writeStartElement(prefix, localName, namespaceURI);
+		emptyElement = true;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEndElement()
+	 */
+	public void writeEndElement() throws XMLStreamException {
+		//
+		// An element with no content at all is written as an empty element tag
+		//
+		if (startTagOpen && !emptyElement){
+			startTagOpen = false;
+			write(" />");
+			pop();
+			return;
+		}
+		closeStartTag();
+		if (prefixes.isEmpty()){
+			throw new XMLStreamException("No element to end");
+		}
+		write("</");
+		writeName(prefixes.get(prefixes.size() - 1), localNames.get(localNames.size() - 1));
+		write(">");
+		pop();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEndDocument()
+	 */
+	public void writeEndDocument() throws XMLStreamException {
+		if (emptyElement){
+			closeStartTag();
+		}
+		while (!prefixes.isEmpty()){
+			writeEndElement();
+		}
+		write(LINE_SEPARATOR);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#close()
+	 */
+	public void close() throws XMLStreamException {
+		flush();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#flush()
+	 */
+	public void flush() throws XMLStreamException {
+		try {
+			out.flush();
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String, java.lang.String)
+	 */
+	public void writeAttribute(String localName, String value) throws XMLStreamException {
+		writeAttribute("", "", localName, value);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String, java.lang.String, java.lang.String, java.lang.String)
+	 */
+	public void writeAttribute(String prefix, String namespaceURI, String localName, String value) throws XMLStreamException {
+		if (!startTagOpen){
+			throw new XMLStreamException("Attribute written outside a start tag: " + localName);
+		}
+		write(" ");
+		writeName(prefix, localName);
+		write("=\"");
+		write(escapeAttribute(value));
+		write("\"");
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeAttribute(java.lang.String, java.lang.String, java.lang.String)
+	 */
+	public void writeAttribute(String namespaceURI, String localName, String value) throws XMLStreamException {
+		writeAttribute(boundPrefix(namespaceURI), namespaceURI, localName, value);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeNamespace(java.lang.String, java.lang.String)
+	 */
+	public void writeNamespace(String prefix, String namespaceURI) throws XMLStreamException {
+		if (prefix == null || prefix.length() == 0 || prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)){
+			writeDefaultNamespace(namespaceURI);
+			return;
+		}
+		writeAttribute(XMLConstants.XMLNS_ATTRIBUTE, XMLConstants.XMLNS_ATTRIBUTE_NS_URI, prefix, namespaceURI);
+		setPrefix(prefix, namespaceURI);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeDefaultNamespace(java.lang.String)
+	 */
+	public void writeDefaultNamespace(String namespaceURI) throws XMLStreamException {
+		writeAttribute("", XMLConstants.XMLNS_ATTRIBUTE_NS_URI, XMLConstants.XMLNS_ATTRIBUTE, namespaceURI);
+		setDefaultNamespace(namespaceURI);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeComment(java.lang.String)
+	 */
+	public void writeComment(String data) throws XMLStreamException {
+		closeStartTag();
+		write("<!--");
+		write(data);
+		write("-->");
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeProcessingInstruction(java.lang.String)
+	 */
+	public void writeProcessingInstruction(String target) throws XMLStreamException {
+		writeProcessingInstruction(target, "");
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeProcessingInstruction(java.lang.String, java.lang.String)
+	 */
+	public void writeProcessingInstruction(String target, String data) throws XMLStreamException {
+		closeStartTag();
+		write("<?");
+		write(target);
+		if (data != null && data.length() > 0){
+			write(" ");
+			write(data);
+		}
+		write("?>");
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeCData(java.lang.String)
+	 */
+	public void writeCData(String data) throws XMLStreamException {
+		closeStartTag();
+		write("<![CDATA[");
+		write(data);
+		write("]]>");
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeDTD(java.lang.String)
+	 */
+	public void writeDTD(String dtd) throws XMLStreamException {
+		write(dtd);
+		write(LINE_SEPARATOR);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeEntityRef(java.lang.String)
+	 */
+	public void writeEntityRef(String name) throws XMLStreamException {
+		closeStartTag();
+		write("&");
+		write(name);
+		write(";");
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument()
+	 */
+	public void writeStartDocument() throws XMLStreamException {
+		writeStartDocument("UTF-8", "1.0");
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument(java.lang.String)
+	 */
+	public void writeStartDocument(String version) throws XMLStreamException {
+		writeStartDocument("UTF-8", version);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeStartDocument(java.lang.String, java.lang.String)
+	 */
+	public void writeStartDocument(String encoding, String version) throws XMLStreamException {
+		write("<?xml version=\"");
+		write(version);
+		write("\" encoding=\"");
+		write(encoding);
+		write("\"?>");
+		write(LINE_SEPARATOR);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeCharacters(java.lang.String)
+	 */
+	public void writeCharacters(String text) throws XMLStreamException {
+		closeStartTag();
+		write(escapeText(text));
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#writeCharacters(char[], int, int)
+	 */
+	public void writeCharacters(char[] text, int start, int len) throws XMLStreamException {
+		writeCharacters(new String(text, start, len));
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#getPrefix(java.lang.String)
+	 */
+	public String getPrefix(String uri) throws XMLStreamException {
+		return namespaceContext.getPrefix(uri);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#setPrefix(java.lang.String, java.lang.String)
+	 */
+	public void setPrefix(String prefix, String uri) throws XMLStreamException {
+		boundPrefixes.add(prefix == null ? "" : prefix);
+		boundURIs.add(uri == null ? "" : uri);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#setDefaultNamespace(java.lang.String)
+	 */
+	public void setDefaultNamespace(String uri) throws XMLStreamException {
+		setPrefix("", uri);
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#setNamespaceContext(javax.xml.namespace.NamespaceContext)
+	 */
+	public void setNamespaceContext(NamespaceContext context) throws XMLStreamException {
+		if (!prefixes.isEmpty()){
+			throw new XMLStreamException("The namespace context must be set before the first element is written");
+		}
+		rootContext = context;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#getNamespaceContext()
+	 */
+	public NamespaceContext getNamespaceContext() {
+		return namespaceContext;
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.xml.stream.XMLStreamWriter#getProperty(java.lang.String)
+	 */
+	public Object getProperty(String name) throws IllegalArgumentException {
+		throw new IllegalArgumentException("Unsupported property: " + name);
+	}
+
+	/**
+	 * Finish the current start tag, if there is one
+	 * @throws XMLStreamException
+	 */
+	private void closeStartTag() throws XMLStreamException{
+		if (startTagOpen){
+			startTagOpen = false;
+			if (emptyElement){
+				emptyElement = false;
+				write(" />");
+				pop();
+			} else {
+				write(">");
+			}
+		}
+	}
+
+	private void pop(){
+		int depth = prefixes.size() - 1;
+		prefixes.remove(depth);
+		localNames.remove(depth);
+		for (int i = boundPrefixes.size() - 1; i >= scopeStarts[depth]; i--){
+			boundPrefixes.remove(i);
+			boundURIs.remove(i);
+		}
+	}
+
+	private void write(String text) throws XMLStreamException{
+		try {
+			out.write(text);
+		} catch (IOException e) {
+			throw new XMLStreamException(e);
+		}
+	}
+
+	private String boundPrefix(String namespaceURI) throws XMLStreamException{
+		String prefix = namespaceContext.getPrefix(namespaceURI);
+		if (prefix == null){
+			throw new XMLStreamException("Namespace has not been bound to a prefix: " + namespaceURI);
+		}
+		return prefix;
+	}
+
+	private void writeName(String prefix, String localName) throws XMLStreamException{
+		if (prefix != null && prefix.length() > 0){
+			write(prefix);
+			write(":");
+		}
+		write(localName);
+	}
+
+	/**
+	 * Escape text content in the same way as XMLOutputter.escapeElementEntities()
+	 */
+	static String escapeText(String text){
+		StringBuilder buffer = null;
+		for (int i = 0; i < text.length(); i++){
+			char ch = text.charAt(i);
+			String entity;
+			switch (ch){
+				case '<' : entity = "&lt;"; break;
+				case '>' : entity = "&gt;"; break;
+				case '&' : entity = "&amp;"; break;
+				case '\r' : entity = "&#xD;"; break;
+				case '\n' : entity = LINE_SEPARATOR; break;
+				default : entity = null;
+			}
+			buffer = append(buffer, text, i, entity);
+		}
+		return buffer == null ? text : buffer.toString();
+	}
+
+	/**
+	 * Escape an attribute value in the same way as XMLOutputter.escapeAttributeEntities()
+	 */
+	static String escapeAttribute(String value){
+		StringBuilder buffer = null;
+		for (int i = 0; i < value.length(); i++){
+			char ch = value.charAt(i);
+			String entity;
+			switch (ch){
+				case '<' : entity = "&lt;"; break;
+				case '>' : entity = "&gt;"; break;
+				case '"' : entity = "&quot;"; break;
+				case '&' : entity = "&amp;"; break;
+				case '\r' : entity = "&#xD;"; break;
+				case '\t' : entity = "&#x9;"; break;
+				case '\n' : entity = "&#xA;"; break;
+				default : entity = null;
+			}
+			buffer = append(buffer, value, i, entity);
+		}
+		return buffer == null ? value : buffer.toString();
+	}
+
+	/**
+	 * Only start copying into a buffer once the first character needs escaping
+	 */
+	private static StringBuilder append(StringBuilder buffer, String text, int i, String entity){
+		if (entity == null){
+			if (buffer != null) buffer.append(text.charAt(i));
+			return buffer;
+		}
+		if (buffer == null){
+			buffer = new StringBuilder(text.length() + 16);
+			buffer.append(text, 0, i);
+		}
+		buffer.append(entity);
+		return buffer;
+	}
+
+	/**
+	 * Resolves prefixes using the declarations of the open elements, innermost
+	 * first, and then the context set with setNamespaceContext()
+	 */
+	private class Context implements NamespaceContext {
+
+		public String getNamespaceURI(String prefix) {
+			if (prefix.equals(XMLConstants.XML_NS_PREFIX)) return XMLConstants.XML_NS_URI;
+			if (prefix.equals(XMLConstants.XMLNS_ATTRIBUTE)) return XMLConstants.XMLNS_ATTRIBUTE_NS_URI;
+			for (int i = boundPrefixes.size() - 1; i >= 0; i--){
+				if (boundPrefixes.get(i).equals(prefix)) return boundURIs.get(i);
+			}
+			if (rootContext != null){
+				String namespaceURI = rootContext.getNamespaceURI(prefix);
+				if (namespaceURI != null) return namespaceURI;
+			}
+			return XMLConstants.NULL_NS_URI;
+		}
+
+		public String getPrefix(String namespaceURI) {
+			if (namespaceURI.equals(XMLConstants.XML_NS_URI)) return XMLConstants.XML_NS_PREFIX;
+			if (namespaceURI.equals(XMLConstants.XMLNS_ATTRIBUTE_NS_URI)) return XMLConstants.XMLNS_ATTRIBUTE;
+			for (int i = boundURIs.size() - 1; i >= 0; i--){
+				//
+				// Skip prefixes that have been rebound by an inner element
+				//
+				if (boundURIs.get(i).equals(namespaceURI) && getNamespaceURI(boundPrefixes.get(i)).equals(namespaceURI)){
+					return boundPrefixes.get(i);
+				}
+			}
+			if (rootContext != null){
+				String prefix = rootContext.getPrefix(namespaceURI);
+				if (prefix != null && getNamespaceURI(prefix).equals(namespaceURI)) return prefix;
+			}
+			if (namespaceURI.length() == 0) return "";
+			return null;
+		}
+
+		public Iterator<String> getPrefixes(String namespaceURI) {
+			String prefix = getPrefix(namespaceURI);
+			if (prefix == null) return Collections.<String>emptyList().iterator();
+			return Collections.singletonList(prefix).iterator();
+		}
+
+	}
+
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.jdom.Element;
+import org.jdom.JDOMFactory;
+import org.jdom.Namespace;
+import org.jdom.Text;
+import org.jdom.UncheckedJDOMFactory;
+
+/**
+ * Builds small JDOM fragments from a StAX stream, so that a single
+ * element (such as a course) can be handed to the existing fromXml()
+ * methods without the whole document ever being held in memory.
+ *
+ * The fragments are equivalent to those produced by SAXBuilder:
+ * adjacent text is merged into a single Text node, and CDATA sections
+ * are kept as CDATA so that DescriptiveTextType can still detect them.
+ */
+public class StaxBuilder {
+
+	private JDOMFactory factory = new UncheckedJDOMFactory();
+
+	/**
+	 * Build the element the reader is positioned on, including all of its content.
+	 * On return the reader is positioned on the matching END_ELEMENT event.
+	 * @param reader a reader positioned on a START_ELEMENT event
+	 * @return the element
+	 * @throws XMLStreamException
+	 */
+	public Element buildElement(XMLStreamReader reader) throws XMLStreamException{
+		Element root = buildStartElement(reader);
+		Element current = root;
+		StringBuilder text = new StringBuilder();
+		boolean cdata = false;
+		int depth = 1;
+		while (depth > 0){
+			int event = reader.next();
+
+			//
+			// Accumulate adjacent character events into a single node
+			//
+			if (event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.SPACE || event == XMLStreamConstants.CDATA){
+				boolean isCdata = (event == XMLStreamConstants.CDATA);
+				if (text.length() > 0 && isCdata != cdata){
+					flush(current, text, cdata);
+				}
+				cdata = isCdata;
+				text.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				continue;
+			}
+			if (text.length() > 0){
+				flush(current, text, cdata);
+			}
+
+			switch (event){
+			case XMLStreamConstants.START_ELEMENT:
+				Element child = buildStartElement(reader);
+				factory.addContent(current, child);
+				current = child;
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				current = current.getParentElement();
+				depth--;
+				break;
+			default:
+				addContent(current, reader);
+			}
+		}
+		return root;
+	}
+
+	/**
+	 * Build the element the reader is positioned on, with its namespace
+	 * declarations and attributes but none of its content. The reader is
+	 * not advanced.
+	 * @param reader a reader positioned on a START_ELEMENT event
+	 * @return the element
+	 */
+	public Element buildStartElement(XMLStreamReader reader){
+		Element element = factory.element(reader.getLocalName(), getNamespace(reader.getPrefix(), reader.getNamespaceURI()));
+
+		//
+		// Additional namespace declarations
+		//
+		for (int i = 0; i < reader.getNamespaceCount(); i++){
+			Namespace declared = getNamespace(reader.getNamespacePrefix(i), reader.getNamespaceURI(i));
+			if (!declared.getPrefix().equals(element.getNamespacePrefix())){
+				factory.addNamespaceDeclaration(element, declared);
+			}
+		}
+
+		//
+		// Attributes
+		//
+		for (int i = 0; i < reader.getAttributeCount(); i++){
+			Namespace namespace = getNamespace(reader.getAttributePrefix(i), reader.getAttributeNamespace(i));
+			factory.setAttribute(element, factory.attribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i), namespace));
+		}
+
+		return element;
+	}
+
+	/**
+	 * Add the current non-element event (text, CDATA, comment or processing
+	 * instruction) to the parent element. Text is merged with any text
+	 * node already at the end of the parent's content.
+	 * @param parent
+	 * @param reader
+	 */
+	public void addContent(Element parent, XMLStreamReader reader){
+		switch (reader.getEventType()){
+		case XMLStreamConstants.CHARACTERS:
+		case XMLStreamConstants.SPACE:
+			@SuppressWarnings("rawtypes")
+			List content = parent.getContent();
+			if (!content.isEmpty() && content.get(content.size()-1).getClass() == Text.class){
+				((Text)content.get(content.size()-1)).append(reader.getText());
+			} else {
+				factory.addContent(parent, factory.text(reader.getText()));
+			}
+			break;
+		case XMLStreamConstants.CDATA:
+			factory.addContent(parent, factory.cdata(reader.getText()));
+			break;
+		case XMLStreamConstants.COMMENT:
+			factory.addContent(parent, factory.comment(reader.getText()));
+			break;
+		case XMLStreamConstants.PROCESSING_INSTRUCTION:
+			factory.addContent(parent, factory.processingInstruction(reader.getPITarget(), reader.getPIData() == null ? "" : reader.getPIData()));
+			break;
+		case XMLStreamConstants.ENTITY_REFERENCE:
+			factory.addContent(parent, factory.entityRef(reader.getLocalName()));
+			break;
+		default:
+			break;
+		}
+	}
+
+	private void flush(Element parent, StringBuilder text, boolean cdata){
+		if (cdata){
+			factory.addContent(parent, factory.cdata(text.toString()));
+		} else {
+			factory.addContent(parent, factory.text(text.toString()));
+		}
+		text.setLength(0);
+	}
+
+	/**
+	 * Create an input factory configured to report CDATA sections
+	 * separately from other text, as DescriptiveTextType needs
+	 * @return the factory
+	 */
+	public static XMLInputFactory createInputFactory(){
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, Boolean.TRUE);
+		if (factory.isPropertySupported("http://java.sun.com/xml/stream/properties/report-cdata-event")){
+			factory.setProperty("http://java.sun.com/xml/stream/properties/report-cdata-event", Boolean.TRUE);
+		}
+		return factory;
+	}
+
+	/**
+	 * Get the JDOM namespace for a StAX prefix and namespace URI, either of which may be null
+	 * @param prefix
+	 * @param uri
+	 * @return the namespace
+	 */
+	public static Namespace getNamespace(String prefix, String uri){
+		if (uri == null || uri.length() == 0) return Namespace.NO_NAMESPACE;
+		return Namespace.getNamespace(prefix == null ? "" : prefix, uri);
+	}
+
+}
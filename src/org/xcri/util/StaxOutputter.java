@@ -0,0 +1,149 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import org.jdom.Attribute;
+import org.jdom.CDATA;
+import org.jdom.Comment;
+import org.jdom.Element;
+import org.jdom.EntityRef;
+import org.jdom.Namespace;
+import org.jdom.ProcessingInstruction;
+import org.jdom.Text;
+
+/**
+ * Writes JDOM names and content to a StAX stream, declaring namespaces
+ * at the same points as XMLOutputter does: on the first element or
+ * attribute that uses a prefix which is not already bound to the same
+ * URI by an enclosing element.
+ */
+public class StaxOutputter {
+
+	/**
+	 * Start an element, declaring its namespace if necessary
+	 * @param writer
+	 * @param namespace
+	 * @param name
+	 * @throws XMLStreamException
+	 */
+	public static void writeStartElement(XMLStreamWriter writer, Namespace namespace, String name) throws XMLStreamException{
+		//
+		// Check the binding before starting the element, as some writers bind the prefix as soon as it is used
+		//
+		boolean declare = !isBound(writer, namespace);
+		writer.writeStartElement(namespace.getPrefix(), name, namespace.getURI());
+		if (declare) declare(writer, namespace);
+	}
+
+	/**
+	 * Write an attribute of the current element, declaring its namespace if necessary
+	 * @param writer
+	 * @param namespace
+	 * @param name
+	 * @param value
+	 * @throws XMLStreamException
+	 */
+	public static void writeAttribute(XMLStreamWriter writer, Namespace namespace, String name, String value) throws XMLStreamException{
+		if (namespace == Namespace.NO_NAMESPACE){
+			writer.writeAttribute(name, value);
+		} else {
+			declareNamespace(writer, namespace);
+			writer.writeAttribute(namespace.getPrefix(), namespace.getURI(), name, value);
+		}
+	}
+
+	/**
+	 * Write an element containing only text
+	 * @param writer
+	 * @param namespace
+	 * @param name
+	 * @param text
+	 * @throws XMLStreamException
+	 */
+	public static void writeTextElement(XMLStreamWriter writer, Namespace namespace, String name, String text) throws XMLStreamException{
+		writeStartElement(writer, namespace, name);
+		writer.writeCharacters(text);
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Write a JDOM element and all of its content
+	 * @param writer
+	 * @param element
+	 * @throws XMLStreamException
+	 */
+	public static void writeElement(XMLStreamWriter writer, Element element) throws XMLStreamException{
+		writeStartElement(writer, element.getNamespace(), element.getName());
+		for (Object namespace : element.getAdditionalNamespaces()){
+			declareNamespace(writer, (Namespace)namespace);
+		}
+		for (Object obj : element.getAttributes()){
+			Attribute attribute = (Attribute)obj;
+			writeAttribute(writer, attribute.getNamespace(), attribute.getName(), attribute.getValue());
+		}
+		for (Object content : element.getContent()){
+			if (content instanceof CDATA){
+				writer.writeCData(((CDATA)content).getText());
+			} else if (content instanceof Text){
+				writer.writeCharacters(((Text)content).getText());
+			} else if (content instanceof Element){
+				writeElement(writer, (Element)content);
+			} else if (content instanceof Comment){
+				writer.writeComment(((Comment)content).getText());
+			} else if (content instanceof ProcessingInstruction){
+				ProcessingInstruction pi = (ProcessingInstruction)content;
+				writer.writeProcessingInstruction(pi.getTarget(), pi.getData());
+			} else if (content instanceof EntityRef){
+				writer.writeEntityRef(((EntityRef)content).getName());
+			}
+		}
+		writer.writeEndElement();
+	}
+
+	/**
+	 * Declare a namespace on the current element, unless its prefix is already bound to it
+	 * @param writer
+	 * @param namespace
+	 * @throws XMLStreamException
+	 */
+	private static void declareNamespace(XMLStreamWriter writer, Namespace namespace) throws XMLStreamException{
+		if (!isBound(writer, namespace)) declare(writer, namespace);
+	}
+
+	private static boolean isBound(XMLStreamWriter writer, Namespace namespace){
+		if (namespace == Namespace.XML_NAMESPACE) return true;
+		String bound = writer.getNamespaceContext().getNamespaceURI(namespace.getPrefix());
+		if (bound == null) bound = "";
+		return namespace.getURI().equals(bound);
+	}
+
+	private static void declare(XMLStreamWriter writer, Namespace namespace) throws XMLStreamException{
+		if (namespace.getPrefix().length() == 0){
+			writer.writeDefaultNamespace(namespace.getURI());
+		} else {
+			writer.writeNamespace(namespace.getPrefix(), namespace.getURI());
+		}
+		writer.setPrefix(namespace.getPrefix(), namespace.getURI());
+	}
+
+}
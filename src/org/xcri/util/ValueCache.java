@@ -0,0 +1,169 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A small, bounded cache of the results of parsing attribute values that
+ * are repeated many times across a feed, such as the same duration
+ * interval or start date on thousands of presentations. When the cache is
+ * full a value that has not been used since the last time the cache was
+ * full is discarded (the "clock" approximation of least recently used).
+ *
+ * Only immutable values should be cached, as the same instance is returned
+ * to every caller. It is safe to share a cache between threads, and
+ * looking up a value doesn't take a lock; while values are being added
+ * by several threads at once the size may briefly exceed the capacity.
+ * @param <V> the type of parsed value
+ */
+public class ValueCache<V> {
+
+	private final int capacity;
+	private final ConcurrentHashMap<String, Entry<V>> values;
+	//
+	// The literals in the order they were added or given another chance
+	//
+	private final ConcurrentLinkedQueue<String> clock = new ConcurrentLinkedQueue<String>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * @param capacity the largest number of values to keep
+	 */
+	public ValueCache(int capacity){
+		this.capacity = capacity;
+		this.values = new ConcurrentHashMap<String, Entry<V>>(capacity * 4 / 3 + 1);
+	}
+
+	/**
+	 * @param literal
+	 * @return the value parsed from the literal, or null if it isn't in the cache
+	 */
+	public V get(String literal){
+		Entry<V> entry = values.get(literal);
+		if (entry == null){
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		//
+		// Only write when the flag changes, so threads using the same values don't contend
+		//
+		if (!entry.used) entry.used = true;
+		return entry.value;
+	}
+
+	/**
+	 * @param literal
+	 * @param value the value parsed from the literal
+	 */
+	public void put(String literal, V value){
+		if (values.containsKey(literal)) return;
+		while (values.size() >= capacity){
+			if (!evict()) break;
+		}
+		if (values.putIfAbsent(literal, new Entry<V>(value)) == null){
+			clock.offer(literal);
+		}
+	}
+
+	/**
+	 * Discard the first value in the clock that hasn't been used since it was
+	 * last passed, giving each used value another chance
+	 * @return true if a value was discarded, false if the cache is empty
+	 */
+	private boolean evict(){
+		//
+		// After going round every value once, the next one is discarded even if it has been used
+		//
+		for (int passed = 0; ; passed++){
+			String literal = clock.poll();
+			if (literal == null) return false;
+			Entry<V> entry = values.get(literal);
+			if (entry == null) continue;
+			if (entry.used && passed < capacity){
+				entry.used = false;
+				clock.offer(literal);
+			} else {
+				values.remove(literal, entry);
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return the largest number of values kept
+	 */
+	public int getCapacity(){
+		return capacity;
+	}
+
+	/**
+	 * @return the number of values in the cache
+	 */
+	public int size(){
+		return values.size();
+	}
+
+	/**
+	 * @return the number of lookups that found a value
+	 */
+	public long getHits(){
+		return hits.get();
+	}
+
+	/**
+	 * @return the number of lookups that did not find a value
+	 */
+	public long getMisses(){
+		return misses.get();
+	}
+
+	/**
+	 * Remove all values from the cache and reset the statistics
+	 */
+	public void clear(){
+		values.clear();
+		clock.clear();
+		hits.set(0);
+		misses.set(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString(){
+		return "ValueCache: "+size()+"/"+capacity+" values, "+getHits()+" hits, "+getMisses()+" misses";
+	}
+
+	private static final class Entry<V> {
+		private final V value;
+		private volatile boolean used;
+
+		Entry(V value){
+			this.value = value;
+		}
+	}
+
+}
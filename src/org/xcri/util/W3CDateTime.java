@@ -0,0 +1,347 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * A date or time in W3C-DTF format, held as milliseconds since the epoch
+ * together with the precision and time zone it was written with, so that it
+ * can be written out again in the same form.
+ *
+ * Values without a time zone designator are taken to be in the default
+ * time zone, as they were when parsed with DatatypeConverter. Neither
+ * parsing nor formatting uses a Calendar. Instances are immutable.
+ */
+public final class W3CDateTime implements Comparable<W3CDateTime> {
+
+	/**
+	 * The parts of a date and time that were given
+	 */
+	public enum Precision {
+		/** YYYY */
+		YEAR,
+		/** YYYY-MM */
+		MONTH,
+		/** YYYY-MM-DD */
+		DAY,
+		/** YYYY-MM-DDThh:mmTZD */
+		MINUTE,
+		/** YYYY-MM-DDThh:mm:ssTZD */
+		SECOND,
+		/** YYYY-MM-DDThh:mm:ss.sTZD */
+		FRACTION
+	}
+
+	/**
+	 * The offset of a value that did not have a time zone designator
+	 */
+	public static final int NO_OFFSET = Integer.MIN_VALUE;
+
+	private static final long MINUTE = 60 * 1000L;
+	private static final long DAY = 24 * 60 * MINUTE;
+
+	private final long time;
+	private final Precision precision;
+	private final int offset;
+
+	/**
+	 * @param time milliseconds since the epoch
+	 * @param precision
+	 * @param offset the time zone offset in minutes, or NO_OFFSET to use the default time zone
+	 */
+	public W3CDateTime(long time, Precision precision, int offset){
+		if (precision == null) throw new IllegalArgumentException("precision is required");
+		this.time = time;
+		this.precision = precision;
+		this.offset = offset;
+	}
+
+	/**
+	 * @param time milliseconds since the epoch
+	 * @return the time in UTC, to the second, or to the millisecond if it has a fraction of a second
+	 */
+	public static W3CDateTime valueOf(long time){
+		return new W3CDateTime(time, time % 1000 == 0 ? Precision.SECOND : Precision.FRACTION, 0);
+	}
+
+	/**
+	 * @return milliseconds since the epoch
+	 */
+	public long getTime() {
+		return time;
+	}
+
+	/**
+	 * @return the parts of the date and time that were given
+	 */
+	public Precision getPrecision() {
+		return precision;
+	}
+
+	/**
+	 * @return the time zone offset in minutes, or NO_OFFSET if none was given
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return a new Date for the time
+	 */
+	public Date toDate(){
+		return new Date(time);
+	}
+
+	/**
+	 * Parse a W3C-DTF date or time. A time zone designator is also accepted
+	 * after a date, and may be left out of a time.
+	 * @param value
+	 * @return the date and time
+	 * @throws IllegalArgumentException if the value is not valid
+	 */
+	public static W3CDateTime parse(String value){
+		String s = value.trim();
+		int length = s.length();
+		int year = digits(s, 0, 4, value);
+		int month = 1;
+		int day = 1;
+		int hour = 0;
+		int minute = 0;
+		int second = 0;
+		int millis = 0;
+		Precision precision = Precision.YEAR;
+		int i = 4;
+		if (i < length && s.charAt(i) == '-'){
+			month = digits(s, i + 1, 2, value);
+			precision = Precision.MONTH;
+			i += 3;
+			if (i < length && s.charAt(i) == '-'){
+				day = digits(s, i + 1, 2, value);
+				precision = Precision.DAY;
+				i += 3;
+				if (i < length && s.charAt(i) == 'T'){
+					hour = digits(s, i + 1, 2, value);
+					expect(s, i + 3, ':', value);
+					minute = digits(s, i + 4, 2, value);
+					precision = Precision.MINUTE;
+					i += 6;
+					if (i < length && s.charAt(i) == ':'){
+						second = digits(s, i + 1, 2, value);
+						precision = Precision.SECOND;
+						i += 3;
+						if (i < length && s.charAt(i) == '.'){
+							int start = ++i;
+							while (i < length && s.charAt(i) >= '0' && s.charAt(i) <= '9'){
+								if (i - start < 3) millis = millis * 10 + (s.charAt(i) - '0');
+								i++;
+							}
+							if (i == start) throw invalid(value);
+							for (int d = i - start; d < 3; d++) millis *= 10;
+							precision = Precision.FRACTION;
+						}
+					}
+				}
+			}
+		}
+		if (month < 1 || month > 12 || day < 1 || day > daysInMonth(year, month)) throw invalid(value);
+		if (hour > 24 || minute > 59 || second > 59 || (hour == 24 && (minute > 0 || second > 0 || millis > 0))) throw invalid(value);
+
+		int offset = NO_OFFSET;
+		if (i < length){
+			char c = s.charAt(i);
+			if (c == 'Z' && i + 1 == length){
+				offset = 0;
+			} else if ((c == '+' || c == '-') && i + 6 == length){
+				int hours = digits(s, i + 1, 2, value);
+				expect(s, i + 3, ':', value);
+				int minutes = digits(s, i + 4, 2, value);
+				if (hours > 14 || minutes > 59) throw invalid(value);
+				offset = (c == '-' ? -1 : 1) * (hours * 60 + minutes);
+			} else {
+				throw invalid(value);
+			}
+		}
+
+		long local = daysFromCivil(year, month, day) * DAY + ((hour * 60L + minute) * 60 + second) * 1000 + millis;
+		long time;
+		if (offset == NO_OFFSET){
+			TimeZone zone = TimeZone.getDefault();
+			int guess = zone.getOffset(local - zone.getRawOffset());
+			time = local - zone.getOffset(local - guess);
+		} else {
+			time = local - offset * MINUTE;
+		}
+		return new W3CDateTime(time, precision, offset);
+	}
+
+	/**
+	 * Format a date and time in W3C-DTF
+	 * @param time milliseconds since the epoch
+	 * @param precision the parts of the date and time to include
+	 * @param offset the time zone offset in minutes, or NO_OFFSET to use the default time zone
+	 * @return the formatted value
+	 */
+	public static String format(long time, Precision precision, int offset){
+		int zoneOffset = offset;
+		if (offset == NO_OFFSET){
+			zoneOffset = (int)(TimeZone.getDefault().getOffset(time) / MINUTE);
+		}
+		long local = time + zoneOffset * MINUTE;
+		long days = floorDiv(local, DAY);
+		long millisOfDay = local - days * DAY;
+
+		//
+		// Convert days since the epoch to a civil date
+		//
+		long z = days + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		long doe = z - era * 146097;
+		long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+		long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+		long mp = (5 * doy + 2) / 153;
+		int day = (int)(doy - (153 * mp + 2) / 5 + 1);
+		int month = (int)(mp < 10 ? mp + 3 : mp - 9);
+		int year = (int)(yoe + era * 400 + (month <= 2 ? 1 : 0));
+
+		StringBuilder out = new StringBuilder(29);
+		pad(out, year, 4);
+		if (precision.compareTo(Precision.MONTH) >= 0){
+			out.append('-');
+			pad(out, month, 2);
+		}
+		if (precision.compareTo(Precision.DAY) >= 0){
+			out.append('-');
+			pad(out, day, 2);
+		}
+		if (precision.compareTo(Precision.MINUTE) >= 0){
+			out.append('T');
+			pad(out, (int)(millisOfDay / (60 * MINUTE)), 2);
+			out.append(':');
+			pad(out, (int)(millisOfDay / MINUTE % 60), 2);
+		}
+		if (precision.compareTo(Precision.SECOND) >= 0){
+			out.append(':');
+			pad(out, (int)(millisOfDay / 1000 % 60), 2);
+		}
+		if (precision == Precision.FRACTION){
+			out.append('.');
+			pad(out, (int)(millisOfDay % 1000), 3);
+		}
+
+		//
+		// Times always have a time zone designator; dates only if one was given
+		//
+		if (offset != NO_OFFSET || precision.compareTo(Precision.MINUTE) >= 0){
+			if (zoneOffset == 0){
+				out.append('Z');
+			} else {
+				out.append(zoneOffset < 0 ? '-' : '+');
+				pad(out, Math.abs(zoneOffset) / 60, 2);
+				out.append(':');
+				pad(out, Math.abs(zoneOffset) % 60, 2);
+			}
+		}
+		return out.toString();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Comparable#compareTo(java.lang.Object)
+	 */
+	public int compareTo(W3CDateTime other) {
+		return time < other.time ? -1 : (time == other.time ? 0 : 1);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#equals(java.lang.Object)
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (!(obj instanceof W3CDateTime)) return false;
+		W3CDateTime other = (W3CDateTime)obj;
+		return time == other.time && precision == other.precision && offset == other.offset;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return (int)(time ^ (time >>> 32)) * 31 + precision.ordinal() * 17 + offset;
+	}
+
+	/**
+	 * @return the value in W3C-DTF format
+	 */
+	@Override
+	public String toString(){
+		return format(time, precision, offset);
+	}
+
+	private static long daysFromCivil(int year, int month, int day){
+		long y = month <= 2 ? year - 1 : year;
+		long era = (y >= 0 ? y : y - 399) / 400;
+		long yoe = y - era * 400;
+		long doy = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+		long doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+		return era * 146097 + doe - 719468;
+	}
+
+	private static int daysInMonth(int year, int month){
+		if (month == 2) return (year % 4 == 0 && (year % 100 != 0 || year % 400 == 0)) ? 29 : 28;
+		return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+	}
+
+	private static long floorDiv(long x, long y){
+		long q = x / y;
+		return (x % y != 0 && (x < 0)) ? q - 1 : q;
+	}
+
+	private static int digits(String s, int start, int count, String value){
+		if (start + count > s.length()) throw invalid(value);
+		int result = 0;
+		for (int i = start; i < start + count; i++){
+			char c = s.charAt(i);
+			if (c < '0' || c > '9') throw invalid(value);
+			result = result * 10 + (c - '0');
+		}
+		return result;
+	}
+
+	private static void expect(String s, int index, char c, String value){
+		if (index >= s.length() || s.charAt(index) != c) throw invalid(value);
+	}
+
+	private static void pad(StringBuilder out, int value, int width){
+		int limit = 1;
+		for (int i = 1; i < width; i++) limit *= 10;
+		while (limit > 1 && value < limit){
+			out.append('0');
+			limit /= 10;
+		}
+		out.append(value);
+	}
+
+	private static IllegalArgumentException invalid(String value){
+		return new IllegalArgumentException("invalid W3C-DTF date: " + value);
+	}
+
+}
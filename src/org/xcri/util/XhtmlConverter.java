@@ -0,0 +1,103 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util;
+
+import java.util.List;
+
+import org.htmlcleaner.CleanerProperties;
+import org.htmlcleaner.HtmlCleaner;
+import org.htmlcleaner.JDomSerializer;
+import org.htmlcleaner.TagNode;
+import org.jdom.Content;
+import org.jdom.Document;
+import org.jdom.Element;
+import org.xcri.Namespaces;
+
+/**
+ * Converts HTML, such as the content of a CDATA section, into an XHTML
+ * &lt;div&gt; element.
+ *
+ * The HTML is cleaned using HtmlCleaner and the resulting tree is turned
+ * into JDOM directly, without writing it out as XML and parsing it again.
+ * Creating a cleaner is relatively expensive, so each thread reuses its
+ * own converter; use getInstance() rather than creating one each time.
+ */
+public class XhtmlConverter {
+
+	private static final ThreadLocal<XhtmlConverter> converters = new ThreadLocal<XhtmlConverter>(){
+		@Override
+		protected XhtmlConverter initialValue(){
+			return new XhtmlConverter();
+		}
+	};
+
+	private HtmlCleaner cleaner;
+	private JDomSerializer serializer;
+
+	public XhtmlConverter(){
+		cleaner = new HtmlCleaner();
+		CleanerProperties properties = cleaner.getProperties();
+		properties.setOmitComments(true);
+		properties.setOmitDoctypeDeclaration(true);
+		serializer = new JDomSerializer(properties, true);
+	}
+
+	/**
+	 * @return the converter for the current thread
+	 */
+	public static XhtmlConverter getInstance(){
+		return converters.get();
+	}
+
+	/**
+	 * Convert HTML into XHTML
+	 * @param html
+	 * @return a &lt;div&gt; element in the XHTML namespace, containing the body of the HTML
+	 */
+	public Element convert(String html){
+		TagNode root = cleaner.clean(html);
+		Document document = serializer.createJDom(root);
+		Element div = new Element("div", Namespaces.XHTML_NAMESPACE_NS);
+		Element body = document.getRootElement().getChild("body");
+		if (body != null){
+			@SuppressWarnings("unchecked")
+			List<Content> content = body.removeContent();
+			for (Content child : content){
+				if (child instanceof Element) setNamespace((Element)child);
+				div.addContent(child);
+			}
+		}
+		return div;
+	}
+
+	/**
+	 * Move an element, and all its descendants, into the XHTML namespace
+	 * @param element
+	 */
+	private static void setNamespace(Element element){
+		element.setNamespace(Namespaces.XHTML_NAMESPACE_NS);
+		@SuppressWarnings("rawtypes")
+		List children = element.getChildren();
+		for (int i = 0; i < children.size(); i++){
+			setNamespace((Element)children.get(i));
+		}
+	}
+
+}
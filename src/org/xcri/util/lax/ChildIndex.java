@@ -0,0 +1,168 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util.lax;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+
+import org.apache.commons.logging.Log;
+import org.jdom.Element;
+import org.jdom.Namespace;
+import org.xcri.ParserConfiguration;
+import org.xcri.diagnostics.Rule;
+
+/**
+ * The child elements of an element, classified in a single pass by
+ * lower-cased name, so that each lookup only has to look at the
+ * elements it could possibly match rather than scanning every child.
+ *
+ * Lookups behave exactly like the equivalent static methods in Lax:
+ * elements with the right name in the wrong namespace, or with the
+ * name in the wrong case, are still returned (and corrected) and
+ * the same warnings are logged.
+ *
+ * Namespaces are not part of the key, as Lax deliberately matches
+ * elements whatever namespace they are in.
+ */
+public class ChildIndex {
+
+	private HashMap<String, List<Element>> children = new HashMap<String, List<Element>>();
+
+	/**
+	 * Classify the children of the parent element
+	 * @param parentElement
+	 */
+	public ChildIndex(Element parentElement){
+		@SuppressWarnings("rawtypes")
+		List allChildren = parentElement.getChildren();
+		for (int i = 0; i < allChildren.size(); i++){
+			Element child = (Element)allChildren.get(i);
+			String key = child.getName().toLowerCase(Locale.ENGLISH);
+			List<Element> elements = children.get(key);
+			if (elements == null){
+				elements = new ArrayList<Element>(2);
+				children.put(key, elements);
+			}
+			elements.add(child);
+		}
+	}
+
+	/**
+	 * Fetch child elements and log any warnings to the specified Log instance
+	 * @see Lax#getChildrenQuietly(Element, String, Namespace, Log)
+	 * @param childElementName
+	 * @param preferredNamespace
+	 * @param log
+	 * @return the matching elements, in document order
+	 */
+	public List<Element> getChildrenQuietly(String childElementName, Namespace preferredNamespace, Log log){
+		try {
+			return getChildren(childElementName, preferredNamespace);
+		} catch (LaxException e) {
+			Lax.logWarnings(log, e.getElements().get(0), childElementName, e.isMisspelled(), e.isIncorrectNamespace(), e.getElements().get(0).getNamespaceURI());
+			return e.getElements();
+		}
+	}
+
+	/**
+	 * Fetch a single child element and log any warnings to the specified Log instance
+	 * @see Lax#getChildQuietly(Element, String, Namespace, Log)
+	 * @param childElementName
+	 * @param preferredNamespace
+	 * @param log
+	 * @return the first matching element, or null if there are none
+	 */
+	public Element getChildQuietly(String childElementName, Namespace preferredNamespace, Log log){
+		try {
+			return getChild(childElementName, preferredNamespace);
+		} catch (SingleElementException e) {
+			Lax.logWarnings(log, e.getElements().get(0), childElementName, e.isMisspelled(), e.isIncorrectNamespace(), e.getElements().get(0).getNamespaceURI());
+			ParserConfiguration.getInstance().getDiagnostics().report(log, Rule.MULTIPLE_ELEMENTS, e.getElements().get(1), childElementName);
+			return e.getElements().get(0);
+		}
+	}
+
+	/**
+	 * @see Lax#getChild(Element, String, Namespace)
+	 * @param childElementName
+	 * @param preferredNamespace
+	 * @return the matching element, or null if there are none
+	 * @throws SingleElementException if there is more than one matching element
+	 */
+	public Element getChild(String childElementName, Namespace preferredNamespace) throws SingleElementException{
+		List<Element> elements;
+		try {
+			elements = getChildren(childElementName, preferredNamespace);
+		} catch (LaxException e) {
+			elements = e.getElements();
+		}
+		if (elements.size() > 1){
+			throw new SingleElementException(elements);
+		}
+		if (elements.size() == 1){
+			return elements.get(0);
+		}
+		return null;
+	}
+
+	/**
+	 * @see Lax#getChildren(Element, String, Namespace)
+	 * @param childElementName
+	 * @param preferredNamespace
+	 * @return the matching elements, in document order
+	 * @throws LaxException if any of the elements use the wrong case or namespace
+	 */
+	public List<Element> getChildren(String childElementName, Namespace preferredNamespace) throws LaxException{
+		List<Element> candidates = children.get(childElementName.toLowerCase(Locale.ENGLISH));
+		if (candidates == null){
+			return Collections.emptyList();
+		}
+
+		boolean misspelled = false;
+		boolean wrongNamespace = false;
+
+		ArrayList<Element> list = new ArrayList<Element>(candidates.size());
+		for (int i = 0; i < candidates.size(); i++){
+			Element nextElement = candidates.get(i);
+			if (nextElement.getName().equals(childElementName)){
+				list.add(nextElement);
+				if (nextElement.getNamespace() != preferredNamespace){
+					nextElement.setNamespace(preferredNamespace);
+					wrongNamespace = true;
+				}
+			} else if (nextElement.getName().compareToIgnoreCase(childElementName) == 0){
+				nextElement.setName(childElementName);
+				list.add(nextElement);
+				misspelled = true;
+			}
+		}
+		if (misspelled || wrongNamespace){
+			LaxException ex = new LaxException(list);
+			ex.setMisspelled(misspelled);
+			ex.setIncorrectNamespace(wrongNamespace);
+			throw ex;
+		}
+		return list;
+	}
+
+}
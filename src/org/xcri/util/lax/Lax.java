@@ -26,6 +26,9 @@ import java.util.List;
 import org.apache.commons.logging.Log;
 import org.jdom.Element;
 import org.jdom.Namespace;
+import org.xcri.ParserConfiguration;
+import org.xcri.diagnostics.Diagnostics;
+import org.xcri.diagnostics.Rule;
 
 public class Lax {
 	
@@ -44,19 +47,33 @@ public class Lax {
 			return elements;
 		} catch (LaxException e) {
 			elements = e.getElements();
-			if (e.isMisspelled()) log.warn("elements uses incorrect name:"+childElementName);
-			if (e.isIncorrectNamespace()) log.warn("elements use incorrect namespace:"+elements.get(0).getNamespaceURI());
+			logWarnings(log, elements.get(0), childElementName, e.isMisspelled(), e.isIncorrectNamespace(), elements.get(0).getNamespaceURI());
 			return elements;
 		}
 	}
 	
+	/**
+	 * Report the warnings for a set of child elements that were matched despite
+	 * using the wrong case or namespace to the Diagnostics of the current ParserConfiguration
+	 * @param log
+	 * @param element the first matching element, or null if it isn't available
+	 * @param childElementName
+	 * @param misspelled
+	 * @param incorrectNamespace
+	 * @param namespaceURI the namespace URI of the first matching element
+	 */
+	public static void logWarnings(Log log, Element element, String childElementName, boolean misspelled, boolean incorrectNamespace, String namespaceURI){
+		Diagnostics diagnostics = ParserConfiguration.getInstance().getDiagnostics();
+		if (misspelled) diagnostics.report(log, Rule.INCORRECT_NAME, element, childElementName);
+		if (incorrectNamespace) diagnostics.report(log, Rule.INCORRECT_NAMESPACE, element, namespaceURI);
+	}
+	
 	public static Element getChildQuietly(Element parentElement, String childElementName, Namespace preferredNamespace, Log log){
 		try {
 			return Lax.getChild(parentElement, childElementName, preferredNamespace);
 		} catch (SingleElementException e) {
-			if (e.isMisspelled()) log.warn("elements uses incorrect name:"+childElementName);
-			if (e.isIncorrectNamespace()) log.warn("elements use incorrect namespace:"+e.getElements().get(0).getNamespaceURI());
-			log.warn("multiple '"+childElementName+"' child elements returned instead of a single element; ignoring all but the first child element found");
+			logWarnings(log, e.getElements().get(0), childElementName, e.isMisspelled(), e.isIncorrectNamespace(), e.getElements().get(0).getNamespaceURI());
+			ParserConfiguration.getInstance().getDiagnostics().report(log, Rule.MULTIPLE_ELEMENTS, e.getElements().get(1), childElementName);
 			return e.getElements().get(0);
 		}
 	}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this
+ * software and associated documentation files (the "Software"), to deal in the Software
+ * without restriction, including without limitation the rights to use, copy, modify,
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to the following
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED,
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT,
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.util.lax;
+
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.logging.Log;
+import org.jdom.Namespace;
+import org.xcri.util.StaxBuilder;
+
+/**
+ * Matches child elements in a StAX stream using the same rules as
+ * Lax.getChildren(), keeping track of any warnings so they can be
+ * reported once the parent element is complete.
+ */
+public class LaxStreamMatcher {
+
+	private String childElementName;
+	private Namespace preferredNamespace;
+	private boolean misspelled = false;
+	private boolean incorrectNamespace = false;
+	private String firstNamespaceURI;
+
+	public LaxStreamMatcher(String childElementName, Namespace preferredNamespace){
+		this.childElementName = childElementName;
+		this.preferredNamespace = preferredNamespace;
+	}
+
+	/**
+	 * @param reader a reader positioned on a START_ELEMENT event
+	 * @return true if the current element is a match
+	 */
+	public boolean matches(XMLStreamReader reader){
+		String name = reader.getLocalName();
+		if (name.equals(childElementName)){
+			if (StaxBuilder.getNamespace(reader.getPrefix(), reader.getNamespaceURI()) != preferredNamespace){
+				incorrectNamespace = true;
+			}
+			if (firstNamespaceURI == null) firstNamespaceURI = preferredNamespace.getURI();
+			return true;
+		}
+		if (name.compareToIgnoreCase(childElementName) == 0){
+			misspelled = true;
+			if (firstNamespaceURI == null) firstNamespaceURI = reader.getNamespaceURI() == null ? "" : reader.getNamespaceURI();
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Log any warnings for the elements matched so far
+	 * @param log
+	 */
+	public void logWarnings(Log log){
+		Lax.logWarnings(log, null, childElementName, misspelled, incorrectNamespace, firstNamespaceURI);
+	}
+
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.validation;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jdom.Element;
+import org.xcri.core.Course;
+import org.xcri.diagnostics.Diagnostics;
+import org.xcri.diagnostics.Rule;
+
+/**
+ * Courses SHOULD have a subject.
+ */
+public class CourseSubjectRule extends ValidationRule<Course> {
+
+	private static Log log = LogFactory.getLog(Course.class);
+
+	public CourseSubjectRule(){
+		super(Course.class);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.validation.ValidationRule#validate(java.lang.Object, org.jdom.Element, org.xcri.diagnostics.Diagnostics)
+	 */
+	@Override
+	public void validate(Course course, Element element, Diagnostics diagnostics) {
+		if (course.getSubjects() == null || course.getSubjects().length == 0){
+			diagnostics.report(log, Rule.COURSE_NO_SUBJECT, element);
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.validation;
+
+import org.jdom.Element;
+import org.xcri.diagnostics.Diagnostics;
+
+/**
+ * A conformance check that is run over part of the object model once
+ * it has been built, and reports any problems it finds to a Diagnostics.
+ *
+ * Each rule applies to one type of element, and to its subclasses. Rules
+ * are registered with a Validator and can be enabled and disabled
+ * individually; a disabled rule does no work at all.
+ *
+ * Rules may be run from several threads at once, so should not keep any
+ * state between calls.
+ * @param <T> the type of element checked
+ */
+public abstract class ValidationRule<T> {
+
+	private final Class<T> type;
+	private volatile boolean enabled = true;
+
+	/**
+	 * @param type the type of element checked by this rule
+	 */
+	protected ValidationRule(Class<T> type){
+		this.type = type;
+	}
+
+	/**
+	 * @return the type of element checked by this rule
+	 */
+	public Class<T> getType() {
+		return type;
+	}
+
+	/**
+	 * @return true if the rule is run
+	 */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * @param enabled false to stop running the rule
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Whether the parser already enforces this rule, by rejecting elements
+	 * that break it. Such rules are only run over models that have been
+	 * built or changed in code.
+	 * @return false by default
+	 */
+	public boolean isEnforcedByParser(){
+		return false;
+	}
+
+	/**
+	 * Check an element
+	 * @param object the element to check
+	 * @param element the XML it was read from, or null if it isn't known
+	 * @param diagnostics the diagnostics to report problems to
+	 */
+	public abstract void validate(T object, Element element, Diagnostics diagnostics);
+
+	/**
+	 * Check an element that is known to be of the right type
+	 * @param object
+	 * @param element
+	 * @param diagnostics
+	 */
+	void check(Object object, Element element, Diagnostics diagnostics){
+		validate(type.cast(object), element, diagnostics);
+	}
+
+}
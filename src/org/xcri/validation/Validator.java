@@ -0,0 +1,298 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.validation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.jdom.Element;
+import org.xcri.ParserConfiguration;
+import org.xcri.common.Image;
+import org.xcri.core.Catalog;
+import org.xcri.core.Course;
+import org.xcri.core.Presentation;
+import org.xcri.core.Provider;
+import org.xcri.course.Qualification;
+import org.xcri.diagnostics.Diagnostics;
+import org.xcri.presentation.Venue;
+import org.xcri.types.CommonType;
+import org.xcri.types.XcriElement;
+
+/**
+ * Runs a set of ValidationRules over the object model.
+ *
+ * The parser runs the Validator of the current ParserConfiguration on
+ * each element as soon as it has been read, so problems are reported with
+ * the location of the XML concerned. To read a trusted feed as quickly
+ * as possible, set the validator of the configuration to null and no
+ * rules are run at all.
+ *
+ * A model can also be validated after it has been built, or changed, using
+ * validate(Catalog); a large catalog can be validated in parallel by passing
+ * an executor. Problems are reported to the Diagnostics of the
+ * ParserConfiguration bound to the calling thread.
+ *
+ * For each class of element, the rules that apply are worked out the first
+ * time an element of that class is validated, and then reused.
+ */
+public class Validator {
+
+	private static final ValidationRule<?>[] NO_RULES = new ValidationRule<?>[0];
+
+	private volatile ValidationRule<?>[] rules;
+	private final ConcurrentHashMap<Class<?>, ValidationRule<?>[]> modelPlans = new ConcurrentHashMap<Class<?>, ValidationRule<?>[]>();
+	private final ConcurrentHashMap<Class<?>, ValidationRule<?>[]> parserPlans = new ConcurrentHashMap<Class<?>, ValidationRule<?>[]>();
+
+	/**
+	 * Create a validator with the standard XCRI-CAP rules
+	 */
+	public Validator(){
+		this(getStandardRules());
+	}
+
+	/**
+	 * Create a validator with the given rules
+	 * @param rules
+	 */
+	public Validator(ValidationRule<?>... rules){
+		this.rules = rules.clone();
+	}
+
+	/**
+	 * @return new instances of the standard XCRI-CAP rules
+	 */
+	public static ValidationRule<?>[] getStandardRules(){
+		return new ValidationRule<?>[]{
+			new ProviderUrlRule(),
+			new ProviderTitleRule(),
+			new CourseIdentifierRule(),
+			new CourseTitleRule(),
+			new CourseSubjectRule(),
+			new PresentationStartRule(),
+			new PresentationDurationRule(),
+			new TitleLanguageRule(),
+			new ImageAltRule(),
+			new ImageFormatRule(),
+			new VenueProviderRule(),
+			new VenueLocationRule(),
+			new AgeRule()
+		};
+	}
+
+	/**
+	 * @return the rules, in the order they are run
+	 */
+	public ValidationRule<?>[] getRules(){
+		return rules.clone();
+	}
+
+	/**
+	 * @param type
+	 * @return the first registered rule of the given class, or null if there is none
+	 */
+	public <R extends ValidationRule<?>> R getRule(Class<R> type){
+		for (ValidationRule<?> rule : rules){
+			if (type.isInstance(rule)) return type.cast(rule);
+		}
+		return null;
+	}
+
+	/**
+	 * Add a rule, to be run after the existing rules
+	 * @param rule
+	 */
+	public synchronized void register(ValidationRule<?> rule){
+		ValidationRule<?>[] copy = Arrays.copyOf(rules, rules.length + 1);
+		copy[rules.length] = rule;
+		setRules(copy);
+	}
+
+	/**
+	 * Remove a rule
+	 * @param rule
+	 * @return true if the rule was registered
+	 */
+	public synchronized boolean unregister(ValidationRule<?> rule){
+		ArrayList<ValidationRule<?>> list = new ArrayList<ValidationRule<?>>(Arrays.asList(rules));
+		boolean removed = list.remove(rule);
+		if (removed) setRules(list.toArray(new ValidationRule<?>[list.size()]));
+		return removed;
+	}
+
+	private void setRules(ValidationRule<?>[] rules){
+		this.rules = rules;
+		modelPlans.clear();
+		parserPlans.clear();
+	}
+
+	/**
+	 * Run the rules that apply to an element that has just been read by the
+	 * parser, other than those the parser has already enforced
+	 * @param object the element
+	 * @param element the XML it was read from
+	 */
+	public void validateParsed(XcriElement object, Element element){
+		run(object, element, getPlan(object.getClass(), parserPlans, true), ParserConfiguration.getInstance().getDiagnostics());
+	}
+
+	/**
+	 * Run the rules that apply to a single element, without validating its children
+	 * @param object
+	 */
+	public void validate(XcriElement object){
+		check(object, ParserConfiguration.getInstance().getDiagnostics());
+	}
+
+	/**
+	 * Validate a catalog and everything in it
+	 * @param catalog
+	 */
+	public void validate(Catalog catalog){
+		Diagnostics diagnostics = ParserConfiguration.getInstance().getDiagnostics();
+		checkCommonType(catalog, diagnostics);
+		if (catalog.getProviders() != null) for (Provider provider : catalog.getProviders()){
+			checkProvider(provider, diagnostics);
+			if (provider.getCourses() != null) for (Course course : provider.getCourses()){
+				checkCourse(course, diagnostics);
+			}
+		}
+	}
+
+	/**
+	 * Validate a catalog and everything in it, validating each course as a
+	 * separate task on the given executor. The catalog and provider headers
+	 * are validated by the calling thread, which waits for the courses to
+	 * be finished. The executor is not shut down.
+	 * @param catalog
+	 * @param executor
+	 * @throws InterruptedException if the calling thread is interrupted while waiting
+	 */
+	public void validate(Catalog catalog, ExecutorService executor) throws InterruptedException{
+		final Diagnostics diagnostics = ParserConfiguration.getInstance().getDiagnostics();
+		ArrayList<Future<?>> futures = new ArrayList<Future<?>>();
+		checkCommonType(catalog, diagnostics);
+		if (catalog.getProviders() != null) for (Provider provider : catalog.getProviders()){
+			checkProvider(provider, diagnostics);
+			if (provider.getCourses() != null) for (final Course course : provider.getCourses()){
+				futures.add(executor.submit(new Runnable(){
+					public void run() {
+						checkCourse(course, diagnostics);
+					}
+				}));
+			}
+		}
+		for (Future<?> future : futures){
+			try {
+				future.get();
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException) throw (RuntimeException)e.getCause();
+				if (e.getCause() instanceof Error) throw (Error)e.getCause();
+				throw new IllegalStateException(e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Validate a provider and its courses
+	 * @param provider
+	 */
+	public void validate(Provider provider){
+		Diagnostics diagnostics = ParserConfiguration.getInstance().getDiagnostics();
+		checkProvider(provider, diagnostics);
+		if (provider.getCourses() != null) for (Course course : provider.getCourses()){
+			checkCourse(course, diagnostics);
+		}
+	}
+
+	/**
+	 * Validate a course and its presentations, for example one returned by
+	 * a CatalogStreamReader that was read without validation
+	 * @param course
+	 */
+	public void validate(Course course){
+		checkCourse(course, ParserConfiguration.getInstance().getDiagnostics());
+	}
+
+	private void checkProvider(Provider provider, Diagnostics diagnostics){
+		checkCommonType(provider, diagnostics);
+	}
+
+	private void checkCourse(Course course, Diagnostics diagnostics){
+		checkCommonType(course, diagnostics);
+		if (course.getQualifications() != null) for (Qualification qualification : course.getQualifications()){
+			checkCommonType(qualification, diagnostics);
+		}
+		if (course.getPresentations() != null) for (Presentation presentation : course.getPresentations()){
+			checkCommonType(presentation, diagnostics);
+			if (presentation.getAge() != null) check(presentation.getAge(), diagnostics);
+			if (presentation.getVenues() != null) for (Venue venue : presentation.getVenues()){
+				check(venue, diagnostics);
+				if (venue.getProvider() != null) checkProvider(venue.getProvider(), diagnostics);
+			}
+		}
+	}
+
+	private void checkCommonType(CommonType object, Diagnostics diagnostics){
+		check(object, diagnostics);
+		if (object.getImages() != null) for (Image image : object.getImages()){
+			check(image, diagnostics);
+		}
+	}
+
+	private void check(XcriElement object, Diagnostics diagnostics){
+		run(object, null, getPlan(object.getClass(), modelPlans, false), diagnostics);
+	}
+
+	private void run(XcriElement object, Element element, ValidationRule<?>[] plan, Diagnostics diagnostics){
+		for (ValidationRule<?> rule : plan){
+			if (rule.isEnabled()) rule.check(object, element, diagnostics);
+		}
+	}
+
+	/**
+	 * @param type
+	 * @param plans
+	 * @param parsed
+	 * @return the rules that apply to elements of the given class
+	 */
+	private ValidationRule<?>[] getPlan(Class<?> type, ConcurrentHashMap<Class<?>, ValidationRule<?>[]> plans, boolean parsed){
+		ValidationRule<?>[] plan = plans.get(type);
+		if (plan == null){
+			ValidationRule<?>[] current = rules;
+			ArrayList<ValidationRule<?>> applicable = new ArrayList<ValidationRule<?>>();
+			for (ValidationRule<?> rule : current){
+				if (rule.getType().isAssignableFrom(type) && !(parsed && rule.isEnforcedByParser())){
+					applicable.add(rule);
+				}
+			}
+			plan = applicable.isEmpty() ? NO_RULES : applicable.toArray(new ValidationRule<?>[applicable.size()]);
+			//
+			// Don't keep a plan made from rules that have since changed
+			//
+			if (current == rules) plans.put(type, plan);
+		}
+		return plan;
+	}
+
+}
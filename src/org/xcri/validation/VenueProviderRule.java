@@ -0,0 +1,59 @@
+/**
+ * Copyright (c) 2011 University of Bolton
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+ * software and associated documentation files (the "Software"), to deal in the Software 
+ * without restriction, including without limitation the rights to use, copy, modify, 
+ * merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+ * permit persons to whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * The above copyright notice and this permission notice shall be included in all copies 
+ * or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+ * INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE 
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, 
+ * TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE 
+ * OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package org.xcri.validation;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.jdom.Element;
+import org.xcri.diagnostics.Diagnostics;
+import org.xcri.diagnostics.Rule;
+import org.xcri.presentation.Venue;
+
+/**
+ * If a venue element does not contain one and only one provider element, Aggregators MUST treat the venue element as being in error.
+ */
+public class VenueProviderRule extends ValidationRule<Venue> {
+
+	private static Log log = LogFactory.getLog(Venue.class);
+
+	public VenueProviderRule(){
+		super(Venue.class);
+	}
+
+	/**
+	 * Venues without exactly one provider are rejected by Venue.fromXml()
+	 * @see org.xcri.validation.ValidationRule#isEnforcedByParser()
+	 */
+	@Override
+	public boolean isEnforcedByParser(){
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.xcri.validation.ValidationRule#validate(java.lang.Object, org.jdom.Element, org.xcri.diagnostics.Diagnostics)
+	 */
+	@Override
+	public void validate(Venue venue, Element element, Diagnostics diagnostics) {
+		if (venue.getProvider() == null){
+			diagnostics.report(log, Rule.VENUE_NO_PROVIDER, element);
+		}
+	}
+
+}